@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -84,6 +84,9 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	/** Cache with Method as key and advisor chain List as value */
 	private transient Map<MethodCacheKey, List<Object>> methodCache;
 
+	/** Cache with Method as key and precompiled invocation plan as value */
+	private transient Map<Method, MethodInvocationPlan> invocationPlanCache;
+
 	/**
 	 * Interfaces to be implemented by the proxy. Held in List to keep the order
 	 * of registration, to create JDK proxy with specified order of interfaces.
@@ -124,6 +127,7 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	 */
 	private void initMethodCache() {
 		this.methodCache = new ConcurrentHashMap<MethodCacheKey, List<Object>>(32);
+		this.invocationPlanCache = new ConcurrentHashMap<Method, MethodInvocationPlan>(32);
 	}
 
 
@@ -486,11 +490,30 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 		return cached;
 	}
 
+	/**
+	 * Determine the precompiled invocation plan for the given method,
+	 * based on the {@link #getInterceptorsAndDynamicInterceptionAdvice
+	 * interceptor chain} for the method.
+	 * <p>Looked up by the Method itself, without creating a cache key.
+	 * @param method the proxied method
+	 * @param targetClass the target class
+	 * @return the invocation plan (never <code>null</code>)
+	 */
+	MethodInvocationPlan getMethodInvocationPlan(Method method, Class targetClass) {
+		MethodInvocationPlan plan = this.invocationPlanCache.get(method);
+		if (plan == null) {
+			plan = new MethodInvocationPlan(method, getInterceptorsAndDynamicInterceptionAdvice(method, targetClass));
+			this.invocationPlanCache.put(method, plan);
+		}
+		return plan;
+	}
+
 	/**
 	 * Invoked when advice has changed.
 	 */
 	protected void adviceChanged() {
 		this.methodCache.clear();
+		this.invocationPlanCache.clear();
 	}
 
 	/**
@@ -0,0 +1,500 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.RawTargetAccess;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.GeneratedClassSupport;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link AopProxy} implementation for interface-based proxies that generates
+ * a dedicated proxy class using ASM, instead of dispatching through a JDK
+ * {@link java.lang.reflect.InvocationHandler}.
+ *
+ * <p>Each proxied method gets its own implementation in the generated class:
+ * methods of the {@link Advised} interface call the proxy configuration,
+ * methods with interceptors enter the interceptor chain and eventually call the
+ * target method directly rather than through reflection. For a frozen configuration
+ * with a static target source and without proxy exposure, methods without any
+ * advice call the target directly, without entering the AOP framework at all.
+ * As with CGLIB proxies, such a configuration is expected not to change its
+ * target source after the proxy has been created.
+ *
+ * <p>Generated classes are cached per class loader and shared between all
+ * proxies with the same interfaces and the same dispatch for each method,
+ * for example for multiple beans advised by the same aspects.
+ *
+ * <p>Falls back to a {@link JdkDynamicAopProxy} for interfaces that are not
+ * public, that declare <code>equals</code> or <code>hashCode</code>, or that
+ * cannot be combined into a single class, as well as in case of a proxy class
+ * that cannot be generated or defined. Note that proxies created by this class
+ * are not JDK dynamic proxies as far as {@link java.lang.reflect.Proxy#isProxyClass}
+ * is concerned.
+ *
+ * @since 3.1.3
+ * @see DefaultAopProxyFactory#setGenerateProxyClasses
+ * @see GeneratedAopProxySupport
+ */
+final class AsmAopProxy implements AopProxy {
+
+	private static final String PROXY_CLASS_NAME_PREFIX = "org.springframework.aop.framework.GeneratedAopProxy";
+
+	private static final String SUPPORT_NAME = Type.getInternalName(GeneratedAopProxySupport.class);
+
+	private static final String CONSTRUCTOR_DESCRIPTOR = "(" + Type.getDescriptor(AdvisedSupport.class) +
+			"Ljava/lang/Object;[Ljava/lang/reflect/Method;)V";
+
+	/** Method dispatch: through the interceptor chain */
+	private static final char CHAIN_DISPATCH = 'C';
+
+	/** Method dispatch: straight to the static target */
+	private static final char TARGET_DISPATCH = 'T';
+
+	/** Method dispatch: to the proxy configuration, for methods of the Advised interface */
+	private static final char CONFIG_DISPATCH = 'A';
+
+	private static final Method TO_STRING_METHOD = ClassUtils.getMethod(Object.class, "toString");
+
+	private static final Comparator<Method> METHOD_ORDER = new Comparator<Method>() {
+		public int compare(Method m1, Method m2) {
+			int result = m1.getName().compareTo(m2.getName());
+			return (result != 0 ? result : Type.getMethodDescriptor(m1).compareTo(Type.getMethodDescriptor(m2)));
+		}
+	};
+
+	/** Generated proxy classes, by proxy ClassLoader and proxy class key */
+	private static final Map<ClassLoader, Map<String, Reference<Class<?>>>> proxyClassCache =
+			new WeakHashMap<ClassLoader, Map<String, Reference<Class<?>>>>();
+
+	private static int proxyClassCount = 0;
+
+	private static final Log logger = LogFactory.getLog(AsmAopProxy.class);
+
+
+	/** Config used to configure this proxy */
+	private final AdvisedSupport advised;
+
+
+	/**
+	 * Create a new AsmAopProxy for the given AOP configuration.
+	 * @param config the AOP configuration as AdvisedSupport object
+	 * @throws AopConfigException if the config is invalid
+	 */
+	public AsmAopProxy(AdvisedSupport config) throws AopConfigException {
+		Assert.notNull(config, "AdvisedSupport must not be null");
+		if (config.getAdvisors().length == 0 && config.getTargetSource() == AdvisedSupport.EMPTY_TARGET_SOURCE) {
+			throw new AopConfigException("No advisors and no TargetSource specified");
+		}
+		this.advised = config;
+	}
+
+
+	public Object getProxy() {
+		return getProxy(ClassUtils.getDefaultClassLoader());
+	}
+
+	public Object getProxy(ClassLoader classLoader) {
+		Class[] proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(this.advised);
+		Method[] methods = (classLoader != null ? getProxiedMethods(proxiedInterfaces, classLoader) : null);
+		if (methods != null) {
+			try {
+				Object target = null;
+				TargetSource targetSource = this.advised.getTargetSource();
+				if (this.advised.isFrozen() && targetSource.isStatic() && !this.advised.isExposeProxy()) {
+					target = targetSource.getTarget();
+				}
+				char[] dispatch = new char[methods.length];
+				for (int i = 0; i < methods.length; i++) {
+					dispatch[i] = determineDispatch(methods[i], target);
+				}
+				Class<?> proxyClass = getProxyClass(classLoader, proxiedInterfaces, methods, dispatch);
+				if (proxyClass != null) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Creating generated proxy of class [" + proxyClass.getName() +
+								"]: target source is " + targetSource);
+					}
+					Constructor<?> ctor = proxyClass.getConstructor(AdvisedSupport.class, Object.class, Method[].class);
+					return ctor.newInstance(this.advised, target, methods);
+				}
+			}
+			catch (Exception ex) {
+				throw new AopConfigException("Could not create generated proxy for target source " +
+						this.advised.getTargetSource(), ex);
+			}
+		}
+		return new JdkDynamicAopProxy(this.advised).getProxy(classLoader);
+	}
+
+	/**
+	 * Determine the methods to implement for the given interfaces, with
+	 * <code>toString</code> first and the interface methods in a stable order.
+	 * @return the methods, or <code>null</code> if the interfaces are not eligible
+	 * for a generated proxy class
+	 */
+	private static Method[] getProxiedMethods(Class[] proxiedInterfaces, ClassLoader classLoader) {
+		Map<String, Method> methodsBySignature = new LinkedHashMap<String, Method>();
+		methodsBySignature.put(getSignature(TO_STRING_METHOD), TO_STRING_METHOD);
+		for (Class<?> proxiedInterface : proxiedInterfaces) {
+			if (!GeneratedClassSupport.isPublic(proxiedInterface) ||
+					!ClassUtils.isVisible(proxiedInterface, classLoader)) {
+				return null;
+			}
+			Method[] interfaceMethods = proxiedInterface.getMethods();
+			Arrays.sort(interfaceMethods, METHOD_ORDER);
+			for (Method method : interfaceMethods) {
+				if (Modifier.isStatic(method.getModifiers())) {
+					continue;
+				}
+				if (AopUtils.isEqualsMethod(method) || AopUtils.isHashCodeMethod(method)) {
+					// Leave custom equality to the JDK proxy.
+					return null;
+				}
+				String signature = getSignature(method);
+				Method existing = methodsBySignature.get(signature);
+				if (existing == null) {
+					if (!GeneratedClassSupport.isPublic(method.getReturnType())) {
+						return null;
+					}
+					for (Class<?> paramType : method.getParameterTypes()) {
+						if (!GeneratedClassSupport.isPublic(paramType)) {
+							return null;
+						}
+					}
+					methodsBySignature.put(signature, method);
+				}
+				else if (!existing.getReturnType().equals(method.getReturnType())) {
+					// Covariant or otherwise conflicting return types.
+					return null;
+				}
+			}
+		}
+		return methodsBySignature.values().toArray(new Method[methodsBySignature.size()]);
+	}
+
+	private static String getSignature(Method method) {
+		StringBuilder sb = new StringBuilder(method.getName()).append('(');
+		for (Class<?> paramType : method.getParameterTypes()) {
+			sb.append(Type.getDescriptor(paramType));
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Determine how the given method is to be dispatched by the proxy.
+	 * @param method the proxied method
+	 * @param target the static target, or <code>null</code> if unadvised methods
+	 * cannot be dispatched to the target directly
+	 */
+	private char determineDispatch(Method method, Object target) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		if (!this.advised.isOpaque() && declaringClass.isInterface() &&
+				declaringClass.isAssignableFrom(Advised.class)) {
+			return CONFIG_DISPATCH;
+		}
+		if (target != null && declaringClass.isInstance(target) &&
+				this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, target.getClass()).isEmpty()) {
+			return TARGET_DISPATCH;
+		}
+		return CHAIN_DISPATCH;
+	}
+
+	/**
+	 * Obtain the proxy class for the given interfaces and method dispatch,
+	 * generating it if not cached yet.
+	 * @return the proxy class, or <code>null</code> if it could not be generated
+	 */
+	private static Class<?> getProxyClass(ClassLoader classLoader, Class[] proxiedInterfaces, Method[] methods,
+			char[] dispatch) {
+
+		StringBuilder sb = new StringBuilder();
+		for (Class<?> proxiedInterface : proxiedInterfaces) {
+			sb.append(proxiedInterface.getName()).append(';');
+		}
+		String key = sb.append(dispatch).toString();
+
+		synchronized (proxyClassCache) {
+			Map<String, Reference<Class<?>>> proxyClasses = proxyClassCache.get(classLoader);
+			if (proxyClasses == null) {
+				proxyClasses = new HashMap<String, Reference<Class<?>>>();
+				proxyClassCache.put(classLoader, proxyClasses);
+			}
+			Reference<Class<?>> ref = proxyClasses.get(key);
+			if (ref == null && proxyClasses.containsKey(key)) {
+				// Generation failed before: fall back right away.
+				return null;
+			}
+			Class<?> proxyClass = (ref != null ? ref.get() : null);
+			if (proxyClass == null) {
+				proxyClass = generateProxyClass(classLoader, proxiedInterfaces, methods, dispatch);
+				proxyClasses.put(key, (proxyClass != null ? new WeakReference<Class<?>>(proxyClass) : null));
+			}
+			return proxyClass;
+		}
+	}
+
+	private static Class<?> generateProxyClass(ClassLoader classLoader, Class[] proxiedInterfaces, Method[] methods,
+			char[] dispatch) {
+
+		String className = PROXY_CLASS_NAME_PREFIX + proxyClassCount++;
+		try {
+			byte[] bytes = new ProxyClassGenerator(className, proxiedInterfaces, methods, dispatch).generate();
+			// The proxy class builds on AOP framework classes that the proxy ClassLoader may not see.
+			Class<?> proxyClass = GeneratedClassSupport.defineClass(
+					className, bytes, classLoader, GeneratedAopProxySupport.class, AdvisedSupport.class);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Generated AOP proxy class [" + className + "] for interfaces " +
+						ClassUtils.classNamesToString(proxiedInterfaces));
+			}
+			return proxyClass;
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate AOP proxy class for interfaces " +
+						ClassUtils.classNamesToString(proxiedInterfaces) + " - falling back to JDK dynamic proxy", ex);
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Equality means interfaces, advisors and TargetSource are equal.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		return (this == other || (other instanceof AsmAopProxy &&
+				AopProxyUtils.equalsInProxy(this.advised, ((AsmAopProxy) other).advised)));
+	}
+
+	/**
+	 * Proxy uses the hash code of the TargetSource.
+	 */
+	@Override
+	public int hashCode() {
+		return AsmAopProxy.class.hashCode() * 13 + this.advised.getTargetSource().hashCode();
+	}
+
+
+	/**
+	 * Generates the bytecode of a proxy class, extending {@link GeneratedAopProxySupport}.
+	 */
+	private static class ProxyClassGenerator {
+
+		private final String internalName;
+
+		private final Class[] proxiedInterfaces;
+
+		private final Method[] methods;
+
+		private final char[] dispatch;
+
+		public ProxyClassGenerator(String className, Class[] proxiedInterfaces, Method[] methods, char[] dispatch) {
+			this.internalName = className.replace('.', '/');
+			this.proxiedInterfaces = proxiedInterfaces;
+			this.methods = methods;
+			this.dispatch = dispatch;
+		}
+
+		public byte[] generate() {
+			String[] interfaceNames = new String[this.proxiedInterfaces.length];
+			for (int i = 0; i < interfaceNames.length; i++) {
+				interfaceNames[i] = Type.getInternalName(this.proxiedInterfaces[i]);
+			}
+			ClassWriter cw = new ClassWriter(true);
+			cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SUPER, this.internalName,
+					null, SUPPORT_NAME, interfaceNames);
+
+			MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+			mv.visitCode();
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			mv.visitVarInsn(Opcodes.ALOAD, 3);
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPPORT_NAME, "<init>", CONSTRUCTOR_DESCRIPTOR);
+			mv.visitInsn(Opcodes.RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+
+			for (int i = 0; i < this.methods.length; i++) {
+				generateProxyMethod(cw, i);
+			}
+			generateInvokeTarget(cw);
+
+			cw.visitEnd();
+			return cw.toByteArray();
+		}
+
+		private void generateProxyMethod(ClassWriter cw, int index) {
+			Method method = this.methods[index];
+			Class<?>[] exceptionTypes = method.getExceptionTypes();
+			String[] exceptionNames = new String[exceptionTypes.length];
+			for (int i = 0; i < exceptionNames.length; i++) {
+				exceptionNames[i] = Type.getInternalName(exceptionTypes[i]);
+			}
+			MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL, method.getName(),
+					Type.getMethodDescriptor(method), null, exceptionNames);
+			mv.visitCode();
+			Class<?>[] paramTypes = method.getParameterTypes();
+			Class<?> returnType = method.getReturnType();
+
+			if (this.dispatch[index] == CHAIN_DISPATCH) {
+				mv.visitVarInsn(Opcodes.ALOAD, 0);
+				mv.visitLdcInsn(index);
+				if (paramTypes.length == 0) {
+					mv.visitInsn(Opcodes.ACONST_NULL);
+				}
+				else {
+					mv.visitLdcInsn(paramTypes.length);
+					mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+					int slot = 1;
+					for (int i = 0; i < paramTypes.length; i++) {
+						Type paramType = Type.getType(paramTypes[i]);
+						mv.visitInsn(Opcodes.DUP);
+						mv.visitLdcInsn(i);
+						mv.visitVarInsn(paramType.getOpcode(Opcodes.ILOAD), slot);
+						GeneratedClassSupport.box(mv, paramTypes[i]);
+						mv.visitInsn(Opcodes.AASTORE);
+						slot += paramType.getSize();
+					}
+				}
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SUPPORT_NAME, "invoke", "(I[Ljava/lang/Object;)Ljava/lang/Object;");
+				if (void.class.equals(returnType)) {
+					mv.visitInsn(Opcodes.POP);
+				}
+				else {
+					GeneratedClassSupport.unbox(mv, returnType);
+				}
+			}
+			else {
+				mv.visitVarInsn(Opcodes.ALOAD, 0);
+				if (this.dispatch[index] == CONFIG_DISPATCH) {
+					mv.visitFieldInsn(Opcodes.GETFIELD, SUPPORT_NAME, "advised", Type.getDescriptor(AdvisedSupport.class));
+				}
+				else {
+					mv.visitFieldInsn(Opcodes.GETFIELD, SUPPORT_NAME, "target", "Ljava/lang/Object;");
+					GeneratedClassSupport.checkCast(mv, method.getDeclaringClass());
+				}
+				int slot = 1;
+				for (Class<?> paramType : paramTypes) {
+					Type type = Type.getType(paramType);
+					mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot);
+					slot += type.getSize();
+				}
+				GeneratedClassSupport.invokeMethod(mv, method);
+				if (this.dispatch[index] == TARGET_DISPATCH && isProxyReturnType(method)) {
+					// Return the proxy instead of the target itself, if applicable.
+					mv.visitVarInsn(Opcodes.ALOAD, 0);
+					mv.visitInsn(Opcodes.SWAP);
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SUPPORT_NAME, "massageReturnValue",
+							"(Ljava/lang/Object;)Ljava/lang/Object;");
+					GeneratedClassSupport.checkCast(mv, returnType);
+				}
+			}
+			mv.visitInsn(Type.getType(returnType).getOpcode(Opcodes.IRETURN));
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		/**
+		 * Determine whether the proxy itself may be returned instead of the target
+		 * from the given method, i.e. whether the proxy is type-compatible.
+		 */
+		private boolean isProxyReturnType(Method method) {
+			Class<?> returnType = method.getReturnType();
+			if (returnType.isPrimitive() || RawTargetAccess.class.isAssignableFrom(method.getDeclaringClass())) {
+				return false;
+			}
+			if (returnType.isAssignableFrom(GeneratedAopProxySupport.class)) {
+				return true;
+			}
+			for (Class<?> proxiedInterface : this.proxiedInterfaces) {
+				if (returnType.isAssignableFrom(proxiedInterface)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void generateInvokeTarget(ClassWriter cw) {
+			MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "invokeTarget",
+					"(ILjava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", null,
+					new String[] {"java/lang/Throwable"});
+			mv.visitCode();
+			Label defaultLabel = new Label();
+			Label[] labels = new Label[this.methods.length];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = new Label();
+			}
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+			for (int i = 0; i < labels.length; i++) {
+				Method method = this.methods[i];
+				mv.visitLabel(labels[i]);
+				mv.visitVarInsn(Opcodes.ALOAD, 2);
+				GeneratedClassSupport.checkCast(mv, method.getDeclaringClass());
+				Class<?>[] paramTypes = method.getParameterTypes();
+				for (int j = 0; j < paramTypes.length; j++) {
+					mv.visitVarInsn(Opcodes.ALOAD, 3);
+					mv.visitLdcInsn(j);
+					mv.visitInsn(Opcodes.AALOAD);
+					GeneratedClassSupport.unbox(mv, paramTypes[j]);
+				}
+				GeneratedClassSupport.invokeMethod(mv, method);
+				if (void.class.equals(method.getReturnType())) {
+					mv.visitInsn(Opcodes.ACONST_NULL);
+				}
+				else {
+					GeneratedClassSupport.box(mv, method.getReturnType());
+				}
+				mv.visitInsn(Opcodes.ARETURN);
+			}
+			mv.visitLabel(defaultLabel);
+			mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+			mv.visitInsn(Opcodes.DUP);
+			mv.visitLdcInsn("Invalid method index");
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>",
+					"(Ljava/lang/String;)V");
+			mv.visitInsn(Opcodes.ATHROW);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+	}
+
+}
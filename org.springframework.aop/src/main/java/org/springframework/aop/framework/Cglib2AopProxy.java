@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,7 +37,6 @@ import net.sf.cglib.proxy.NoOp;
 import net.sf.cglib.transform.impl.UndeclaredThrowableStrategy;
 
 import org.aopalliance.aop.Advice;
-import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.aop.Advisor;
@@ -560,6 +559,8 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 
 		private final Class targetClass;
 
+		private transient MethodInvocationPlan invocationPlan;
+
 		public FixedChainStaticTargetInterceptor(List<Object> adviceChain, Object target, Class targetClass) {
 			this.adviceChain = adviceChain;
 			this.target = target;
@@ -567,8 +568,13 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 		}
 
 		public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
-			MethodInvocation invocation = new CglibMethodInvocation(proxy, this.target, method, args,
-					this.targetClass, this.adviceChain, methodProxy);
+			MethodInvocationPlan plan = this.invocationPlan;
+			if (plan == null) {
+				plan = new MethodInvocationPlan(method, this.adviceChain);
+				this.invocationPlan = plan;
+			}
+			CglibMethodInvocation invocation = new CglibMethodInvocation(plan, methodProxy);
+			invocation.reset(proxy, this.target, this.targetClass, args);
 			// If we get here, we need to create a MethodInvocation.
 			Object retVal = invocation.proceed();
 			retVal = massageReturnTypeIfNecessary(proxy, this.target, method, retVal);
@@ -606,11 +612,11 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 				if (target != null) {
 					targetClass = target.getClass();
 				}
-				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+				MethodInvocationPlan plan = this.advised.getMethodInvocationPlan(method, targetClass);
 				Object retVal;
 				// Check whether we only have one InvokerInterceptor: that is,
 				// no real advice, but just reflective invocation of the target.
-				if (chain.isEmpty() && Modifier.isPublic(method.getModifiers())) {
+				if (!plan.hasInterceptors() && Modifier.isPublic(method.getModifiers())) {
 					// We can skip creating a MethodInvocation: just invoke the target directly.
 					// Note that the final invoker must be an InvokerInterceptor, so we know
 					// it does nothing but a reflective operation on the target, and no hot
@@ -618,8 +624,25 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 					retVal = methodProxy.invoke(target, args);
 				}
 				else {
-					// We need to create a method invocation...
-					retVal = new CglibMethodInvocation(proxy, target, method, args, targetClass, chain, methodProxy).proceed();
+					// We need a method invocation - possibly a released one for this plan,
+					// provided that it has been created for the same MethodProxy.
+					boolean reuseInvocation = this.advised.reuseMethodInvocations;
+					CglibMethodInvocation invocation = null;
+					if (reuseInvocation) {
+						PlannedMethodInvocation released = plan.claimInvocation();
+						if (released instanceof CglibMethodInvocation &&
+								((CglibMethodInvocation) released).methodProxy == methodProxy) {
+							invocation = (CglibMethodInvocation) released;
+						}
+					}
+					if (invocation == null) {
+						invocation = new CglibMethodInvocation(plan, methodProxy);
+					}
+					invocation.reset(proxy, target, targetClass, args);
+					retVal = invocation.proceed();
+					if (reuseInvocation) {
+						plan.releaseInvocation(invocation);
+					}
 				}
 				retVal = massageReturnTypeIfNecessary(proxy, target, method, retVal);
 				return retVal;
@@ -663,17 +686,13 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 	/**
 	 * Implementation of AOP Alliance MethodInvocation used by this AOP proxy.
 	 */
-	private static class CglibMethodInvocation extends ReflectiveMethodInvocation {
+	private static class CglibMethodInvocation extends PlannedMethodInvocation {
 
 		private final MethodProxy methodProxy;
 
-		private boolean protectedMethod;
-
-		public CglibMethodInvocation(Object proxy, Object target, Method method, Object[] arguments,
-				Class targetClass, List<Object> interceptorsAndDynamicMethodMatchers, MethodProxy methodProxy) {
-			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers);
+		public CglibMethodInvocation(MethodInvocationPlan plan, MethodProxy methodProxy) {
+			super(plan);
 			this.methodProxy = methodProxy;
-			this.protectedMethod = Modifier.isProtected(method.getModifiers());
 		}
 
 		/**
@@ -682,7 +701,7 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 		 */
 		@Override
 		protected Object invokeJoinpoint() throws Throwable {
-			if (this.protectedMethod) {
+			if (getPlan().isProtectedMethod()) {
 				return super.invokeJoinpoint();
 			}
 			else {
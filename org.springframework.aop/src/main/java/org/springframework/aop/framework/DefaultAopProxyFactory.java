@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2007 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,10 @@ import org.springframework.util.ClassUtils;
  * <p>In general, specify "proxyTargetClass" to enforce a CGLIB proxy,
  * or specify one or more interfaces to use a JDK dynamic proxy.
  *
+ * <p>As of Spring 3.1.3, interface-based proxies may alternatively be created
+ * as instances of generated proxy classes, through the
+ * {@link #setGenerateProxyClasses "generateProxyClasses"} flag.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 12.03.2004
@@ -53,6 +57,36 @@ public class DefaultAopProxyFactory implements AopProxyFactory, Serializable {
 			ClassUtils.isPresent("net.sf.cglib.proxy.Enhancer", DefaultAopProxyFactory.class.getClassLoader());
 
 
+	private boolean generateProxyClasses = false;
+
+
+	/**
+	 * Set whether to create interface-based proxies as instances of proxy classes
+	 * generated with ASM, rather than as JDK dynamic proxies. Default is "false".
+	 * <p>Generated proxy classes call the target method directly instead of through
+	 * reflection, and in case of a frozen configuration with a static target source,
+	 * skip the AOP framework altogether for methods without advice. Proxy classes are
+	 * shared between proxies with the same interfaces and method dispatch.
+	 * <p>Note that such proxies are not JDK dynamic proxies as far as
+	 * {@link java.lang.reflect.Proxy#isProxyClass} is concerned. Interfaces that
+	 * cannot be implemented by a generated proxy class are proxied with a JDK
+	 * dynamic proxy as usual.
+	 * @see AsmAopProxy
+	 * @see ProxyConfig#setFrozen
+	 */
+	public void setGenerateProxyClasses(boolean generateProxyClasses) {
+		this.generateProxyClasses = generateProxyClasses;
+	}
+
+	/**
+	 * Return whether to create interface-based proxies as instances of
+	 * generated proxy classes.
+	 */
+	public boolean isGenerateProxyClasses() {
+		return this.generateProxyClasses;
+	}
+
+
 	public AopProxy createAopProxy(AdvisedSupport config) throws AopConfigException {
 		if (config.isOptimize() || config.isProxyTargetClass() || hasNoUserSuppliedProxyInterfaces(config)) {
 			Class targetClass = config.getTargetClass();
@@ -61,7 +95,7 @@ public class DefaultAopProxyFactory implements AopProxyFactory, Serializable {
 						"Either an interface or a target is required for proxy creation.");
 			}
 			if (targetClass.isInterface()) {
-				return new JdkDynamicAopProxy(config);
+				return createInterfaceProxy(config);
 			}
 			if (!cglibAvailable) {
 				throw new AopConfigException(
@@ -71,8 +105,19 @@ public class DefaultAopProxyFactory implements AopProxyFactory, Serializable {
 			return CglibProxyFactory.createCglibProxy(config);
 		}
 		else {
-			return new JdkDynamicAopProxy(config);
+			return createInterfaceProxy(config);
+		}
+	}
+
+	/**
+	 * Create an interface-based proxy for the given configuration:
+	 * a generated proxy if demanded, or a JDK dynamic proxy.
+	 */
+	private AopProxy createInterfaceProxy(AdvisedSupport config) {
+		if (this.generateProxyClasses) {
+			return new AsmAopProxy(config);
 		}
+		return new JdkDynamicAopProxy(config);
 	}
 
 	/**
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.RawTargetAccess;
+import org.springframework.aop.TargetSource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Base class for the proxy classes generated by {@link AsmAopProxy}.
+ * Internal framework class, only public to allow for generated subclasses
+ * in their own class loader; not intended to be extended by client code.
+ *
+ * <p>Generated subclasses implement each proxied interface method either by
+ * calling the target or the proxy configuration directly, or by delegating to
+ * {@link #invoke(int, Object[])} with the index of the method, which applies
+ * the interceptor chain and then calls back into the generated
+ * {@link #invokeTarget(int, Object, Object[])} for the joinpoint.
+ *
+ * <p>Proxies that implement {@link Serializable} through one of their interfaces
+ * are serialized as their configuration, and recreated on deserialization.
+ *
+ * @since 3.1.3
+ * @see AsmAopProxy
+ */
+public abstract class GeneratedAopProxySupport {
+
+	/** Config used to configure this proxy */
+	protected final AdvisedSupport advised;
+
+	/** The static target for directly dispatched methods, or <code>null</code> if none */
+	protected final Object target;
+
+	private final Method[] methods;
+
+
+	/**
+	 * Create a new proxy instance.
+	 * @param advised the AOP configuration
+	 * @param target the static target to call directly dispatched methods on
+	 * @param methods the proxied methods, by index
+	 */
+	protected GeneratedAopProxySupport(AdvisedSupport advised, Object target, Method[] methods) {
+		this.advised = advised;
+		this.target = target;
+		this.methods = methods;
+	}
+
+
+	/**
+	 * Invoke the method with the given index through the interceptor chain,
+	 * with the same semantics as a JDK dynamic proxy.
+	 * <p>Callers will see exactly the exception thrown by the target,
+	 * unless a hook method throws an exception.
+	 * @param methodIndex the index of the proxied method
+	 * @param args the arguments, or <code>null</code> for a method without parameters
+	 * @return the return value, boxed if necessary
+	 */
+	protected final Object invoke(int methodIndex, Object[] args) throws Throwable {
+		Method method = this.methods[methodIndex];
+		Object oldProxy = null;
+		boolean setProxyContext = false;
+
+		TargetSource targetSource = this.advised.targetSource;
+		Class targetClass = null;
+		Object target = null;
+
+		try {
+			if (this.advised.exposeProxy) {
+				// Make invocation available if necessary.
+				oldProxy = AopContext.setCurrentProxy(this);
+				setProxyContext = true;
+			}
+
+			// May be null. Get as late as possible to minimize the time we "own" the target,
+			// in case it comes from a pool.
+			target = targetSource.getTarget();
+			if (target != null) {
+				targetClass = target.getClass();
+			}
+
+			MethodInvocationPlan plan = this.advised.getMethodInvocationPlan(method, targetClass);
+			Object retVal;
+			if (!plan.hasInterceptors()) {
+				retVal = invokeJoinpoint(methodIndex, plan, target, args);
+			}
+			else {
+				boolean reuseInvocation = this.advised.reuseMethodInvocations;
+				PlannedMethodInvocation claimed = (reuseInvocation ? plan.claimInvocation() : null);
+				GeneratedProxyMethodInvocation invocation = (claimed instanceof GeneratedProxyMethodInvocation ?
+						(GeneratedProxyMethodInvocation) claimed : new GeneratedProxyMethodInvocation(plan));
+				invocation.reset(this, target, targetClass, args, methodIndex);
+				retVal = invocation.proceed();
+				if (reuseInvocation) {
+					plan.releaseInvocation(invocation);
+				}
+			}
+
+			// Massage return value if necessary.
+			Class<?> returnType = method.getReturnType();
+			if (retVal != null && retVal == target && returnType.isInstance(this) &&
+					!RawTargetAccess.class.isAssignableFrom(method.getDeclaringClass())) {
+				retVal = this;
+			}
+			else if (retVal == null && returnType != void.class && returnType.isPrimitive()) {
+				throw new AopInvocationException(
+						"Null return value from advice does not match primitive return type for: " + method);
+			}
+			return retVal;
+		}
+		catch (RuntimeException ex) {
+			throw ex;
+		}
+		catch (Error err) {
+			throw err;
+		}
+		catch (Throwable ex) {
+			if (ReflectionUtils.declaresException(method, ex.getClass())) {
+				throw ex;
+			}
+			// Same as a JDK dynamic proxy: the caller cannot expect an undeclared checked exception.
+			throw new UndeclaredThrowableException(ex);
+		}
+		finally {
+			if (target != null && !targetSource.isStatic()) {
+				// Must have come from TargetSource.
+				targetSource.releaseTarget(target);
+			}
+			if (setProxyContext) {
+				// Restore old proxy.
+				AopContext.setCurrentProxy(oldProxy);
+			}
+		}
+	}
+
+	private Object invokeJoinpoint(int methodIndex, MethodInvocationPlan plan, Object target, Object[] args)
+			throws Throwable {
+
+		if (plan.getMethod().getDeclaringClass().isInstance(target)) {
+			return invokeTarget(methodIndex, target, args);
+		}
+		// Let reflection report the invalid target.
+		return plan.invokeTarget(target, args);
+	}
+
+	/**
+	 * Invoke the method with the given index on the given target,
+	 * without reflection.
+	 * @param methodIndex the index of the proxied method
+	 * @param target the target, an instance of the declaring class of the method
+	 * @param args the arguments, or <code>null</code> for a method without parameters
+	 * @return the return value, boxed if necessary
+	 */
+	protected abstract Object invokeTarget(int methodIndex, Object target, Object[] args) throws Throwable;
+
+	/**
+	 * Return this proxy instead of the static target if the target returned itself
+	 * from a directly dispatched method.
+	 * @param retVal the return value of the target method
+	 * @return the value to return to the caller
+	 */
+	protected final Object massageReturnValue(Object retVal) {
+		return (retVal != null && retVal == this.target ? this : retVal);
+	}
+
+
+	/**
+	 * Serialize the configuration instead of the proxy itself,
+	 * since the generated class cannot be resolved on deserialization.
+	 */
+	protected final Object writeReplace() throws ObjectStreamException {
+		return new SerializedProxy(this.advised);
+	}
+
+
+	/**
+	 * Equality means interfaces, advisors and TargetSource are equal.
+	 */
+	@Override
+	public final boolean equals(Object other) {
+		return (this == other || (other instanceof GeneratedAopProxySupport &&
+				AopProxyUtils.equalsInProxy(this.advised, ((GeneratedAopProxySupport) other).advised)));
+	}
+
+	/**
+	 * Proxy uses the hash code of the TargetSource.
+	 */
+	@Override
+	public final int hashCode() {
+		return GeneratedAopProxySupport.class.hashCode() * 13 + this.advised.getTargetSource().hashCode();
+	}
+
+
+	/**
+	 * Serialized form of a generated proxy, recreating the proxy on deserialization.
+	 */
+	@SuppressWarnings("serial")
+	private static final class SerializedProxy implements Serializable {
+
+		private final AdvisedSupport advised;
+
+		public SerializedProxy(AdvisedSupport advised) {
+			this.advised = advised;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			return new AsmAopProxy(this.advised).getProxy(ClassUtils.getDefaultClassLoader());
+		}
+	}
+
+
+	/**
+	 * Method invocation that invokes the joinpoint through the generated proxy class.
+	 */
+	private static final class GeneratedProxyMethodInvocation extends PlannedMethodInvocation {
+
+		private int methodIndex;
+
+		public GeneratedProxyMethodInvocation(MethodInvocationPlan plan) {
+			super(plan);
+		}
+
+		void reset(GeneratedAopProxySupport proxy, Object target, Class targetClass, Object[] arguments,
+				int methodIndex) {
+
+			reset(proxy, target, targetClass, arguments);
+			this.methodIndex = methodIndex;
+		}
+
+		@Override
+		protected Object invokeJoinpoint() throws Throwable {
+			return ((GeneratedAopProxySupport) this.proxy).invokeJoinpoint(
+					this.methodIndex, getPlan(), this.target, this.arguments);
+		}
+	}
+
+}
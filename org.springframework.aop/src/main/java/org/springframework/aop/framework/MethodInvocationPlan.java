@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Internal framework class, holding the precompiled invocation plan for
+ * a specific method of an AOP proxy: the interceptors to apply in order,
+ * the dynamic method matchers to evaluate for some of them, and the
+ * bridged method to invoke on the target.
+ *
+ * <p>Built once from the advisor chain and cached until the advice changes,
+ * so that proxies do not need to look up and walk the chain list on each call.
+ * Optionally holds a {@link PlannedMethodInvocation} for reuse: whoever claims
+ * it first gets it, while concurrent or reentrant calls simply create a fresh
+ * invocation.
+ *
+ * @since 3.1.3
+ * @see AdvisedSupport#getMethodInvocationPlan
+ * @see ProxyConfig#setReuseMethodInvocations
+ */
+final class MethodInvocationPlan {
+
+	private final Method method;
+
+	private final boolean protectedMethod;
+
+	private final List<Object> interceptorsAndDynamicMethodMatchers;
+
+	private final MethodInterceptor[] interceptors;
+
+	/** Dynamic method matchers by interceptor index, or <code>null</code> if there are none */
+	private final MethodMatcher[] dynamicMethodMatchers;
+
+	private final AtomicReference<PlannedMethodInvocation> reusableInvocation =
+			new AtomicReference<PlannedMethodInvocation>();
+
+
+	/**
+	 * Create a new MethodInvocationPlan.
+	 * @param method the proxied method
+	 * @param interceptorsAndDynamicMethodMatchers the advisor chain for the method,
+	 * consisting of MethodInterceptors and InterceptorAndDynamicMethodMatchers
+	 */
+	public MethodInvocationPlan(Method method, List<Object> interceptorsAndDynamicMethodMatchers) {
+		this.method = BridgeMethodResolver.findBridgedMethod(method);
+		this.protectedMethod = Modifier.isProtected(method.getModifiers());
+		this.interceptorsAndDynamicMethodMatchers = interceptorsAndDynamicMethodMatchers;
+		this.interceptors = new MethodInterceptor[interceptorsAndDynamicMethodMatchers.size()];
+		MethodMatcher[] matchers = null;
+		for (int i = 0; i < this.interceptors.length; i++) {
+			Object interceptorOrInterceptionAdvice = interceptorsAndDynamicMethodMatchers.get(i);
+			if (interceptorOrInterceptionAdvice instanceof InterceptorAndDynamicMethodMatcher) {
+				InterceptorAndDynamicMethodMatcher dm = (InterceptorAndDynamicMethodMatcher) interceptorOrInterceptionAdvice;
+				if (matchers == null) {
+					matchers = new MethodMatcher[this.interceptors.length];
+				}
+				matchers[i] = dm.methodMatcher;
+				this.interceptors[i] = dm.interceptor;
+			}
+			else {
+				this.interceptors[i] = (MethodInterceptor) interceptorOrInterceptionAdvice;
+			}
+		}
+		this.dynamicMethodMatchers = matchers;
+		ReflectionUtils.makeAccessible(this.method);
+	}
+
+
+	/**
+	 * Return the (bridged) method to invoke.
+	 */
+	public Method getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Return whether the method is a protected method.
+	 */
+	public boolean isProtectedMethod() {
+		return this.protectedMethod;
+	}
+
+	/**
+	 * Return the advisor chain that this plan has been built from.
+	 */
+	public List<Object> getInterceptorsAndDynamicMethodMatchers() {
+		return this.interceptorsAndDynamicMethodMatchers;
+	}
+
+	/**
+	 * Return whether there are any interceptors to apply.
+	 */
+	public boolean hasInterceptors() {
+		return (this.interceptors.length > 0);
+	}
+
+	/**
+	 * Return the number of interceptors to apply.
+	 */
+	public int getInterceptorCount() {
+		return this.interceptors.length;
+	}
+
+	/**
+	 * Return the interceptor at the given index.
+	 */
+	public MethodInterceptor getInterceptor(int index) {
+		return this.interceptors[index];
+	}
+
+	/**
+	 * Return the dynamic method matcher for the interceptor at the given index.
+	 * @return the matcher, or <code>null</code> if the interceptor applies unconditionally
+	 */
+	public MethodMatcher getDynamicMethodMatcher(int index) {
+		return (this.dynamicMethodMatchers != null ? this.dynamicMethodMatchers[index] : null);
+	}
+
+	/**
+	 * Invoke the method on the given target, using reflection.
+	 * @param target the target object
+	 * @param args the arguments for the method
+	 * @return the return value of the method
+	 * @throws Throwable any exception thrown by the method
+	 * @see org.springframework.aop.support.AopUtils#invokeJoinpointUsingReflection
+	 */
+	public Object invokeTarget(Object target, Object[] args) throws Throwable {
+		try {
+			return this.method.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			// Invoked method threw a checked exception.
+			// We must rethrow it. The client won't see the interceptor.
+			throw ex.getTargetException();
+		}
+		catch (IllegalArgumentException ex) {
+			throw new AopInvocationException("AOP configuration seems to be invalid: tried calling method [" +
+					this.method + "] on target [" + target + "]", ex);
+		}
+		catch (IllegalAccessException ex) {
+			throw new AopInvocationException("Could not access method [" + this.method + "]", ex);
+		}
+	}
+
+	/**
+	 * Claim the reusable invocation of this plan, if available.
+	 * @return the invocation, or <code>null</code> if it is in use or has not
+	 * been released yet
+	 * @see #releaseInvocation
+	 */
+	public PlannedMethodInvocation claimInvocation() {
+		return this.reusableInvocation.getAndSet(null);
+	}
+
+	/**
+	 * Release the given invocation for reuse by subsequent calls,
+	 * once it has completed.
+	 * @param invocation the invocation to release
+	 */
+	public void releaseInvocation(PlannedMethodInvocation invocation) {
+		invocation.clear();
+		this.reusableInvocation.lazySet(invocation);
+	}
+
+}
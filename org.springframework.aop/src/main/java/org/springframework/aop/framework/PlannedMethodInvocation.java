@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import org.springframework.aop.MethodMatcher;
+
+/**
+ * Specialization of {@link ReflectiveMethodInvocation} that proceeds through
+ * the interceptor array of a {@link MethodInvocationPlan}, with dynamic method
+ * matchers split out, and invokes the target method resolved by the plan.
+ *
+ * <p>An instance may be {@link #reset} for a subsequent call of the same method
+ * once the previous call has completed, avoiding the creation of an invocation
+ * per call.
+ *
+ * @since 3.1.3
+ * @see MethodInvocationPlan#claimInvocation
+ */
+class PlannedMethodInvocation extends ReflectiveMethodInvocation {
+
+	private final MethodInvocationPlan plan;
+
+	private Class targetClass;
+
+	private int currentInterceptorIndex = -1;
+
+
+	/**
+	 * Create a new PlannedMethodInvocation for the given plan.
+	 * Needs to be {@link #reset} before proceeding.
+	 * @param plan the invocation plan for the method
+	 */
+	public PlannedMethodInvocation(MethodInvocationPlan plan) {
+		super(null, null, plan.getMethod(), null, null, plan.getInterceptorsAndDynamicMethodMatchers());
+		this.plan = plan;
+	}
+
+
+	@Override
+	void reset(Object proxy, Object target, Class targetClass, Object[] arguments) {
+		super.reset(proxy, target, targetClass, arguments);
+		this.targetClass = targetClass;
+		this.currentInterceptorIndex = -1;
+	}
+
+	/**
+	 * Release all references held for the last call.
+	 */
+	void clear() {
+		reset(null, null, null, null);
+	}
+
+	/**
+	 * Return the invocation plan for the method.
+	 */
+	protected final MethodInvocationPlan getPlan() {
+		return this.plan;
+	}
+
+
+	@Override
+	public Object proceed() throws Throwable {
+		//	We start with an index of -1 and increment early.
+		if (this.currentInterceptorIndex == this.plan.getInterceptorCount() - 1) {
+			return invokeJoinpoint();
+		}
+
+		int index = ++this.currentInterceptorIndex;
+		MethodMatcher methodMatcher = this.plan.getDynamicMethodMatcher(index);
+		if (methodMatcher != null && !methodMatcher.matches(this.method, this.targetClass, this.arguments)) {
+			// Dynamic matching failed.
+			// Skip this interceptor and invoke the next in the chain.
+			return proceed();
+		}
+		return this.plan.getInterceptor(index).invoke(this);
+	}
+
+	/**
+	 * Invoke the joinpoint through the plan, with the target method
+	 * having been made accessible upfront.
+	 */
+	@Override
+	protected Object invokeJoinpoint() throws Throwable {
+		return this.plan.invokeTarget(this.target, this.arguments);
+	}
+
+}
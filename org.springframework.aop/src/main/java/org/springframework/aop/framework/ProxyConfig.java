@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,6 +42,8 @@ public class ProxyConfig implements Serializable {
 
 	boolean exposeProxy = false;
 
+	boolean reuseMethodInvocations = false;
+
 	private boolean frozen = false;
 
 
@@ -129,6 +131,26 @@ public class ProxyConfig implements Serializable {
 		return this.exposeProxy;
 	}
 
+	/**
+	 * Set whether proxies should reuse their MethodInvocation objects across
+	 * calls of the same method, instead of creating one per call. Concurrent
+	 * and reentrant calls still get fresh invocations.
+	 * <p>Default is "false". Only switch this to "true" if none of the advice
+	 * holds on to a MethodInvocation beyond its own invocation: for example,
+	 * asynchronous execution interceptors, or advice that keeps a JoinPoint
+	 * for later use, are not compatible with this setting.
+	 */
+	public void setReuseMethodInvocations(boolean reuseMethodInvocations) {
+		this.reuseMethodInvocations = reuseMethodInvocations;
+	}
+
+	/**
+	 * Return whether proxies reuse their MethodInvocation objects across calls.
+	 */
+	public boolean isReuseMethodInvocations() {
+		return this.reuseMethodInvocations;
+	}
+
 	/**
 	 * Set whether this config should be frozen.
 	 * <p>When a config is frozen, no advice changes can be made. This is
@@ -156,6 +178,7 @@ public class ProxyConfig implements Serializable {
 		this.proxyTargetClass = other.proxyTargetClass;
 		this.optimize = other.optimize;
 		this.exposeProxy = other.exposeProxy;
+		this.reuseMethodInvocations = other.reuseMethodInvocations;
 		this.frozen = other.frozen;
 		this.opaque = other.opaque;
 	}
@@ -167,6 +190,7 @@ public class ProxyConfig implements Serializable {
 		sb.append("optimize=").append(this.optimize).append("; ");
 		sb.append("opaque=").append(this.opaque).append("; ");
 		sb.append("exposeProxy=").append(this.exposeProxy).append("; ");
+		sb.append("reuseMethodInvocations=").append(this.reuseMethodInvocations).append("; ");
 		sb.append("frozen=").append(this.frozen);
 		return sb.toString();
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -60,15 +60,15 @@ import org.springframework.core.BridgeMethodResolver;
  */
 public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Cloneable {
 
-	protected final Object proxy;
+	protected Object proxy;
 
-	protected final Object target;
+	protected Object target;
 
 	protected final Method method;
 
 	protected Object[] arguments;
 
-	private final Class targetClass;
+	private Class targetClass;
 
 	/**
 	 * Lazily initialized map of user-specific attributes for this invocation.
@@ -114,6 +114,24 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 	}
 
 
+	/**
+	 * Prepare this invocation for another call of the same method,
+	 * once the previous call has completed.
+	 * @param proxy the proxy object that the invocation was made on
+	 * @param target the target object to invoke
+	 * @param targetClass the target class, for MethodMatcher invocations
+	 * @param arguments the arguments to invoke the method with
+	 */
+	void reset(Object proxy, Object target, Class targetClass, Object[] arguments) {
+		this.proxy = proxy;
+		this.target = target;
+		this.targetClass = targetClass;
+		this.arguments = arguments;
+		this.userAttributes = null;
+		this.currentInterceptorIndex = -1;
+	}
+
+
 	public final Object getProxy() {
 		return this.proxy;
 	}
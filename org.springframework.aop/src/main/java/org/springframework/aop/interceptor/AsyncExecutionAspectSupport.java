@@ -20,16 +20,21 @@ import java.lang.reflect.Method;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
 
 /**
  * Base class for asynchronous method execution aspects, such as
@@ -125,4 +130,33 @@ public abstract class AsyncExecutionAspectSupport implements BeanFactoryAware {
 		return this.executors.get(method);
 	}
 
+	/**
+	 * Delegate for actually executing the given task with the chosen executor.
+	 * <p>Returns a {@link ListenableFuture} if the method's return type asks for
+	 * it, a plain {@link Future} for any other <code>Future</code> return type,
+	 * and <code>null</code> otherwise.
+	 * @param task the task to execute
+	 * @param executor the chosen executor
+	 * @param returnType the declared return type (potentially a {@link Future} variant)
+	 * @return the execution result (potentially a corresponding {@link Future} handle)
+	 * @since 3.1.3
+	 */
+	protected Object doSubmit(Callable<Object> task, AsyncTaskExecutor executor, Class<?> returnType) {
+		if (ListenableFuture.class.isAssignableFrom(returnType)) {
+			if (executor instanceof AsyncListenableTaskExecutor) {
+				return ((AsyncListenableTaskExecutor) executor).submitListenable(task);
+			}
+			ListenableFutureTask<Object> future = new ListenableFutureTask<Object>(task);
+			executor.execute(future);
+			return future;
+		}
+		else if (Future.class.isAssignableFrom(returnType)) {
+			return executor.submit(task);
+		}
+		else {
+			executor.submit(task);
+			return null;
+		}
+	}
+
 }
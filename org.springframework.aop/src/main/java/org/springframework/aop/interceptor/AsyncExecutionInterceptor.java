@@ -72,31 +72,26 @@ public class AsyncExecutionInterceptor extends AsyncExecutionAspectSupport
 	 * Intercept the given method invocation, submit the actual calling of the method to
 	 * the correct task executor and return immediately to the caller.
 	 * @param invocation the method to intercept and make asynchronous
-	 * @return {@link Future} if the original method returns {@code Future}; {@code null}
-	 * otherwise.
+	 * @return {@link Future} (or {@link org.springframework.util.concurrent.ListenableFuture})
+	 * if the original method returns {@code Future}; {@code null} otherwise.
 	 */
 	public Object invoke(final MethodInvocation invocation) throws Throwable {
-		Future<?> result = this.determineAsyncExecutor(invocation.getMethod()).submit(
-				new Callable<Object>() {
-					public Object call() throws Exception {
-						try {
-							Object result = invocation.proceed();
-							if (result instanceof Future) {
-								return ((Future<?>) result).get();
-							}
-						}
-						catch (Throwable ex) {
-							ReflectionUtils.rethrowException(ex);
-						}
-						return null;
+		Callable<Object> task = new Callable<Object>() {
+			public Object call() throws Exception {
+				try {
+					Object result = invocation.proceed();
+					if (result instanceof Future) {
+						return ((Future<?>) result).get();
 					}
-				});
-		if (Future.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
-			return result;
-		}
-		else {
-			return null;
-		}
+				}
+				catch (Throwable ex) {
+					ReflectionUtils.rethrowException(ex);
+				}
+				return null;
+			}
+		};
+		return doSubmit(task, determineAsyncExecutor(invocation.getMethod()),
+				invocation.getMethod().getReturnType());
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.aop.framework;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.accessibility.Accessible;
 import javax.swing.*;
 
@@ -33,6 +36,7 @@ import test.beans.TestBean;
 import test.util.TimeStamped;
 
 import org.springframework.aop.Advisor;
+import org.springframework.aop.ProxyMethodInvocation;
 import org.springframework.aop.interceptor.DebugInterceptor;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.DefaultIntroductionAdvisor;
@@ -322,6 +326,57 @@ public final class ProxyFactoryTests {
 		assertEquals(TestBean.class, AopProxyUtils.ultimateTargetClass(proxy2));
 	}
 
+	@Test
+	public void testReuseMethodInvocationsWithJdkProxy() {
+		doTestReuseMethodInvocations(false);
+	}
+
+	@Test
+	public void testReuseMethodInvocationsWithCglibProxy() {
+		doTestReuseMethodInvocations(true);
+	}
+
+	private void doTestReuseMethodInvocations(boolean proxyTargetClass) {
+		TestBean target = new TestBean();
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setProxyTargetClass(proxyTargetClass);
+		final List<MethodInvocation> invocations = new ArrayList<MethodInvocation>();
+		final ITestBean[] proxyHolder = new ITestBean[1];
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				invocations.add(invocation);
+				ProxyMethodInvocation pmi = (ProxyMethodInvocation) invocation;
+				assertNull(pmi.getUserAttribute("seen"));
+				pmi.setUserAttribute("seen", Boolean.TRUE);
+				if ("outer".equals(invocation.getArguments()[0])) {
+					proxyHolder[0].setName("inner");
+				}
+				return invocation.proceed();
+			}
+		});
+
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		proxy.setName("a");
+		proxy.setName("b");
+		assertNotSame(invocations.get(0), invocations.get(1));
+
+		pf.setReuseMethodInvocations(true);
+		proxyHolder[0] = proxy;
+		invocations.clear();
+		proxy.setName("a");
+		proxy.setName("b");
+		assertEquals("b", target.getName());
+		assertSame(invocations.get(0), invocations.get(1));
+
+		// A reentrant call needs to get its own invocation
+		proxy.setName("outer");
+		assertEquals("outer", target.getName());
+		assertEquals(4, invocations.size());
+		assertNotSame(invocations.get(2), invocations.get(3));
+		proxy.setName("c");
+		assertEquals("c", target.getName());
+	}
+
 	@Test
 	@Ignore("Not implemented yet, see http://jira.springframework.org/browse/SPR-5708")
 	public void testExclusionOfNonPublicInterfaces() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -92,6 +93,13 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 */
 	private static final Log logger = LogFactory.getLog(BeanWrapperImpl.class);
 
+	/** Maximum number of parsed property names to cache */
+	private static final int PROPERTY_NAME_TOKENS_CACHE_LIMIT = 1024;
+
+	/** Cache of parsed property names: property name --> PropertyTokenHolder */
+	private static final Map<String, PropertyTokenHolder> propertyNameTokensCache =
+			new ConcurrentHashMap<String, PropertyTokenHolder>(64);
+
 
 	/** The wrapped object */
 	private Object object;
@@ -122,6 +130,8 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 
 	private int autoGrowCollectionLimit = Integer.MAX_VALUE;
 
+	private boolean useGeneratedAccessors = false;
+
 
 	/**
 	 * Create new empty BeanWrapperImpl. Wrapped instance needs to be set afterwards.
@@ -187,6 +197,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		setExtractOldValueForEditor(superBw.isExtractOldValueForEditor());
 		setAutoGrowNestedPaths(superBw.isAutoGrowNestedPaths());
 		setAutoGrowCollectionLimit(superBw.getAutoGrowCollectionLimit());
+		setUseGeneratedAccessors(superBw.isUseGeneratedAccessors());
 		setConversionService(superBw.getConversionService());
 		setSecurityContext(superBw.acc);
 	}
@@ -286,6 +297,27 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return this.autoGrowCollectionLimit;
 	}
 
+	/**
+	 * Set whether this BeanWrapper should invoke property methods through classes
+	 * generated at runtime for each bean class, instead of through reflection.
+	 * <p>Applies to public read and write methods on public classes. Falls back
+	 * to reflection for other methods, when running with a SecurityManager, or
+	 * if the generated class cannot be defined in the current environment.
+	 * <p>Default is "false" on a plain BeanWrapper.
+	 * @since 3.1.3
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether property methods are invoked through generated classes.
+	 * @since 3.1.3
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	/**
 	 * Set the security context used during the invocation of the wrapped instance methods.
 	 * Can be null.
@@ -675,6 +707,17 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * @return representation of the parsed property tokens
 	 */
 	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		PropertyTokenHolder tokens = propertyNameTokensCache.get(propertyName);
+		if (tokens == null) {
+			tokens = parsePropertyNameTokens(propertyName);
+			if (propertyNameTokensCache.size() < PROPERTY_NAME_TOKENS_CACHE_LIMIT) {
+				propertyNameTokensCache.put(propertyName, tokens);
+			}
+		}
+		return tokens;
+	}
+
+	private PropertyTokenHolder parsePropertyNameTokens(String propertyName) {
 		PropertyTokenHolder tokens = new PropertyTokenHolder();
 		String actualName = null;
 		List<String> keys = new ArrayList<String>(2);
@@ -758,7 +801,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 				}
 			}
 			else {
-                value = readMethod.invoke(object, (Object[]) null);
+				value = invokeReadMethod(pd, readMethod);
 			}
 			
 			if (tokens.keys != null) {				
@@ -1103,7 +1146,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 									}, acc);
 								}
 								else {
-									oldValue = readMethod.invoke(object);
+									oldValue = invokeReadMethod(pd, readMethod);
 								}
 							}
 							catch (Exception ex) {
@@ -1151,7 +1194,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 					}
 				}
 				else {
-					writeMethod.invoke(this.object, value);
+					invokeWriteMethod(pd, writeMethod, value);
 				}
 			}
 			catch (TypeMismatchException ex) {
@@ -1176,6 +1219,53 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	}
 
 
+	/**
+	 * Invoke the given read method on the wrapped object, through a generated
+	 * invoker if enabled and available for the given PropertyDescriptor.
+	 */
+	private Object invokeReadMethod(PropertyDescriptor pd, Method readMethod) throws Exception {
+		if (this.useGeneratedAccessors && pd instanceof GenericTypeAwarePropertyDescriptor) {
+			GenericTypeAwarePropertyDescriptor gpd = (GenericTypeAwarePropertyDescriptor) pd;
+			PropertyMethodInvoker invoker = gpd.getPropertyMethodInvoker(false);
+			if (invoker != null && readMethod == gpd.getReadMethod()) {
+				try {
+					return invoker.invoke(gpd.getReadMethodIndex(), this.object, null);
+				}
+				catch (Throwable ex) {
+					// Same as for a reflective invocation.
+					throw new InvocationTargetException(ex);
+				}
+			}
+		}
+		return readMethod.invoke(this.object, (Object[]) null);
+	}
+
+	/**
+	 * Invoke the given write method on the wrapped object, through a generated
+	 * invoker if enabled and available for the given PropertyDescriptor.
+	 */
+	private void invokeWriteMethod(PropertyDescriptor pd, Method writeMethod, Object value) throws Exception {
+		if (this.useGeneratedAccessors && pd instanceof GenericTypeAwarePropertyDescriptor) {
+			GenericTypeAwarePropertyDescriptor gpd = (GenericTypeAwarePropertyDescriptor) pd;
+			// Leave invalid arguments to reflection, for consistent exceptions.
+			if (gpd.isAssignableWriteMethodArgument(value) && writeMethod == gpd.getWriteMethod()) {
+				PropertyMethodInvoker invoker = gpd.getPropertyMethodInvoker(true);
+				if (invoker != null) {
+					try {
+						invoker.invoke(gpd.getWriteMethodIndex(), this.object, value);
+						return;
+					}
+					catch (Throwable ex) {
+						// Same as for a reflective invocation.
+						throw new InvocationTargetException(ex);
+					}
+				}
+			}
+		}
+		writeMethod.invoke(this.object, value);
+	}
+
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder(getClass().getName());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,20 +21,23 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.ref.Reference;
-import java.lang.ref.WeakReference;
+import java.lang.ref.SoftReference;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.util.ClassUtils;
-import org.springframework.util.StringUtils;
 
 /**
  * Internal class that caches JavaBeans {@link java.beans.PropertyDescriptor}
@@ -67,11 +70,30 @@ public class CachedIntrospectionResults {
 	static final Set<ClassLoader> acceptedClassLoaders = Collections.synchronizedSet(new HashSet<ClassLoader>());
 
 	/**
-	 * Map keyed by class containing CachedIntrospectionResults.
-	 * Needs to be a WeakHashMap with WeakReferences as values to allow
-	 * for proper garbage collection in case of multiple class loaders.
+	 * Segments of CachedIntrospectionResults for classes from cache-safe or
+	 * accepted ClassLoaders, keyed by ClassLoader. Held strongly, since such
+	 * ClassLoaders either live as long as this class or get cleared explicitly.
 	 */
-	static final Map<Class, Object> classCache = Collections.synchronizedMap(new WeakHashMap<Class, Object>());
+	static final ConcurrentMap<ClassLoader, ConcurrentMap<Class, CachedIntrospectionResults>> classCacheSegments =
+			new ConcurrentHashMap<ClassLoader, ConcurrentMap<Class, CachedIntrospectionResults>>(16);
+
+	/**
+	 * Segment of CachedIntrospectionResults for classes from the bootstrap ClassLoader.
+	 */
+	static final ConcurrentMap<Class, CachedIntrospectionResults> bootstrapClassCache =
+			new ConcurrentHashMap<Class, CachedIntrospectionResults>(64);
+
+	/**
+	 * Map keyed by class containing CachedIntrospectionResults for all other classes.
+	 * Needs to be a WeakHashMap with SoftReferences as values to allow for proper
+	 * garbage collection in case of multiple class loaders.
+	 */
+	static final Map<Class, Reference<CachedIntrospectionResults>> softClassCache =
+			Collections.synchronizedMap(new WeakHashMap<Class, Reference<CachedIntrospectionResults>>());
+
+	private static final AtomicLong cacheHitCount = new AtomicLong();
+
+	private static final AtomicLong cacheMissCount = new AtomicLong();
 
 
 	/**
@@ -103,8 +125,14 @@ public class CachedIntrospectionResults {
 		if (classLoader == null) {
 			return;
 		}
-		synchronized (classCache) {
-			for (Iterator<Class> it = classCache.keySet().iterator(); it.hasNext();) {
+		for (Iterator<ClassLoader> it = classCacheSegments.keySet().iterator(); it.hasNext();) {
+			ClassLoader segmentLoader = it.next();
+			if (isUnderneathClassLoader(segmentLoader, classLoader)) {
+				it.remove();
+			}
+		}
+		synchronized (softClassCache) {
+			for (Iterator<Class> it = softClassCache.keySet().iterator(); it.hasNext();) {
 				Class beanClass = it.next();
 				if (isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
 					it.remove();
@@ -121,45 +149,106 @@ public class CachedIntrospectionResults {
 		}
 	}
 
+	/**
+	 * Return the number of {@link #forClass} lookups that have been served
+	 * from the cache so far.
+	 * @since 3.1.3
+	 */
+	public static long getCacheHitCount() {
+		return cacheHitCount.get();
+	}
+
+	/**
+	 * Return the number of {@link #forClass} lookups that required a bean
+	 * class to be introspected so far.
+	 * @since 3.1.3
+	 */
+	public static long getCacheMissCount() {
+		return cacheMissCount.get();
+	}
+
 	/**
 	 * Create CachedIntrospectionResults for the given bean class.
-	 * <P>We don't want to use synchronization here. Object references are atomic,
-	 * so we can live with doing the occasional unnecessary lookup at startup only.
+	 * <P>We don't want to use synchronization here. Lookups in the strongly held
+	 * cache segments are non-blocking; concurrent introspection of the same class
+	 * may occasionally happen at startup, with the first result being retained.
 	 * @param beanClass the bean class to analyze
 	 * @return the corresponding CachedIntrospectionResults
 	 * @throws BeansException in case of introspection failure
 	 */
 	static CachedIntrospectionResults forClass(Class beanClass) throws BeansException {
-		CachedIntrospectionResults results;
-		Object value = classCache.get(beanClass);
-		if (value instanceof Reference) {
-			Reference ref = (Reference) value;
-			results = (CachedIntrospectionResults) ref.get();
+		ClassLoader classLoader = beanClass.getClassLoader();
+		ConcurrentMap<Class, CachedIntrospectionResults> segment =
+				(classLoader != null ? classCacheSegments.get(classLoader) : bootstrapClassCache);
+		CachedIntrospectionResults results = null;
+		if (segment != null) {
+			results = segment.get(beanClass);
 		}
 		else {
-			results = (CachedIntrospectionResults) value;
+			Reference<CachedIntrospectionResults> ref = softClassCache.get(beanClass);
+			if (ref != null) {
+				results = ref.get();
+			}
 		}
-		if (results == null) {
-			// On JDK 1.5 and higher, it is almost always safe to cache the bean class...
-			// The sole exception is a custom BeanInfo class being provided in a non-safe ClassLoader.
-			boolean fullyCacheable =
-					ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
-					isClassLoaderAccepted(beanClass.getClassLoader());
-			if (fullyCacheable || !ClassUtils.isPresent(beanClass.getName() + "BeanInfo", beanClass.getClassLoader())) {
-				results = new CachedIntrospectionResults(beanClass, fullyCacheable);
-				classCache.put(beanClass, results);
+		if (results != null) {
+			cacheHitCount.incrementAndGet();
+			return results;
+		}
+
+		cacheMissCount.incrementAndGet();
+		results = new CachedIntrospectionResults(beanClass);
+		if (segment == null && (ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
+				isClassLoaderAccepted(classLoader))) {
+			segment = getClassCacheSegment(classLoader);
+		}
+		if (segment != null) {
+			CachedIntrospectionResults existing = segment.putIfAbsent(beanClass, results);
+			if (existing != null) {
+				results = existing;
 			}
-			else {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
-				}
-				results = new CachedIntrospectionResults(beanClass, true);
-				classCache.put(beanClass, new WeakReference<CachedIntrospectionResults>(results));
+		}
+		else {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
 			}
+			softClassCache.put(beanClass, new SoftReference<CachedIntrospectionResults>(results));
 		}
 		return results;
 	}
 
+	/**
+	 * Obtain the strongly held cache segment for the given ClassLoader,
+	 * creating it if necessary.
+	 * @param classLoader the ClassLoader (never <code>null</code>)
+	 * @return the corresponding cache segment
+	 */
+	private static ConcurrentMap<Class, CachedIntrospectionResults> getClassCacheSegment(ClassLoader classLoader) {
+		ConcurrentMap<Class, CachedIntrospectionResults> segment = classCacheSegments.get(classLoader);
+		if (segment == null) {
+			segment = new ConcurrentHashMap<Class, CachedIntrospectionResults>(64);
+			ConcurrentMap<Class, CachedIntrospectionResults> existing = classCacheSegments.putIfAbsent(classLoader, segment);
+			if (existing != null) {
+				segment = existing;
+			}
+		}
+		return segment;
+	}
+
+	/**
+	 * Check whether introspection results for the given class are currently cached.
+	 * @param beanClass the bean class to check
+	 */
+	static boolean isCached(Class beanClass) {
+		ClassLoader classLoader = beanClass.getClassLoader();
+		ConcurrentMap<Class, CachedIntrospectionResults> segment =
+				(classLoader != null ? classCacheSegments.get(classLoader) : bootstrapClassCache);
+		if (segment != null && segment.containsKey(beanClass)) {
+			return true;
+		}
+		Reference<CachedIntrospectionResults> ref = softClassCache.get(beanClass);
+		return (ref != null && ref.get() != null);
+	}
+
 	/**
 	 * Check whether this CachedIntrospectionResults class is configured
 	 * to accept the given ClassLoader.
@@ -210,13 +299,19 @@ public class CachedIntrospectionResults {
 	/** PropertyDescriptor objects keyed by property name String */
 	private final Map<String, PropertyDescriptor> propertyDescriptorCache;
 
+	/**
+	 * PropertyDescriptor objects keyed by property name String with the case of
+	 * its first letter inverted, for lenient lookups of differently cased names
+	 */
+	private final Map<String, PropertyDescriptor> propertyDescriptorAliases;
+
 
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
 	 * @param beanClass the bean class to analyze
 	 * @throws BeansException in case of introspection failure
 	 */
-	private CachedIntrospectionResults(Class beanClass, boolean cacheFullMetadata) throws BeansException {
+	private CachedIntrospectionResults(Class beanClass) throws BeansException {
 		try {
 			if (logger.isTraceEnabled()) {
 				logger.trace("Getting BeanInfo for class [" + beanClass.getName() + "]");
@@ -252,11 +347,20 @@ public class CachedIntrospectionResults {
 							(pd.getPropertyEditorClass() != null ?
 									"; editor [" + pd.getPropertyEditorClass().getName() + "]" : ""));
 				}
-				if (cacheFullMetadata) {
-					pd = buildGenericTypeAwarePropertyDescriptor(beanClass, pd);
-				}
+				pd = buildGenericTypeAwarePropertyDescriptor(beanClass, pd);
 				this.propertyDescriptorCache.put(pd.getName(), pd);
 			}
+			PropertyMethodInvokerGenerator.register(beanClass, this.propertyDescriptorCache.values());
+
+			// Same lenient fallback checking as in PropertyTypeDescriptor,
+			// resolved upfront instead of on every lookup...
+			this.propertyDescriptorAliases = new HashMap<String, PropertyDescriptor>();
+			for (PropertyDescriptor pd : this.propertyDescriptorCache.values()) {
+				String alias = invertFirstLetterCase(pd.getName());
+				if (alias != null && !this.propertyDescriptorCache.containsKey(alias)) {
+					this.propertyDescriptorAliases.put(alias, pd);
+				}
+			}
 		}
 		catch (IntrospectionException ex) {
 			throw new FatalBeanException("Failed to obtain BeanInfo for class [" + beanClass.getName() + "]", ex);
@@ -273,26 +377,32 @@ public class CachedIntrospectionResults {
 
 	PropertyDescriptor getPropertyDescriptor(String name) {
 		PropertyDescriptor pd = this.propertyDescriptorCache.get(name);
-		if (pd == null && StringUtils.hasLength(name)) {
-			// Same lenient fallback checking as in PropertyTypeDescriptor...
-			pd = this.propertyDescriptorCache.get(name.substring(0, 1).toLowerCase() + name.substring(1));
-			if (pd == null) {
-				pd = this.propertyDescriptorCache.get(name.substring(0, 1).toUpperCase() + name.substring(1));
-			}
+		if (pd == null && name != null) {
+			pd = this.propertyDescriptorAliases.get(name);
 		}
-		return (pd == null || pd instanceof GenericTypeAwarePropertyDescriptor ? pd :
-				buildGenericTypeAwarePropertyDescriptor(getBeanClass(), pd));
+		return pd;
 	}
 
 	PropertyDescriptor[] getPropertyDescriptors() {
-		PropertyDescriptor[] pds = new PropertyDescriptor[this.propertyDescriptorCache.size()];
-		int i = 0;
-		for (PropertyDescriptor pd : this.propertyDescriptorCache.values()) {
-			pds[i] = (pd instanceof GenericTypeAwarePropertyDescriptor ? pd :
-					buildGenericTypeAwarePropertyDescriptor(getBeanClass(), pd));
-			i++;
+		return this.propertyDescriptorCache.values().toArray(
+				new PropertyDescriptor[this.propertyDescriptorCache.size()]);
+	}
+
+	/**
+	 * Invert the case of the first letter of the given property name.
+	 * @return the inverted name, or <code>null</code> if the name does not
+	 * start with a cased letter
+	 */
+	private static String invertFirstLetterCase(String name) {
+		if (name.length() == 0) {
+			return null;
+		}
+		char first = name.charAt(0);
+		char inverted = (Character.isUpperCase(first) ? Character.toLowerCase(first) : Character.toUpperCase(first));
+		if (inverted == first) {
+			return null;
 		}
-		return pds;
+		return inverted + name.substring(1);
 	}
 
 	private PropertyDescriptor buildGenericTypeAwarePropertyDescriptor(Class beanClass, PropertyDescriptor pd) {
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.propertyeditors.CustomBooleanEditor;
+import org.springframework.beans.propertyeditors.CustomNumberEditor;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Stateless conversion that is equivalent to one of the default editors
+ * registered by {@link PropertyEditorRegistrySupport}, for simple value types.
+ *
+ * <p>Instances are immutable and shared across all registries, allowing
+ * {@link TypeConverterDelegate} to convert numbers and booleans without
+ * creating the default editors of each (potentially short-lived) registry.
+ *
+ * @since 3.1.3
+ * @see PropertyEditorRegistrySupport#getDefaultValueConversion
+ */
+abstract class DefaultValueConversion {
+
+	/** Shared conversions, keyed by required type */
+	private static final Map<Class<?>, DefaultValueConversion> conversions;
+
+	static {
+		Map<Class<?>, DefaultValueConversion> map = new HashMap<Class<?>, DefaultValueConversion>(32);
+		map.put(boolean.class, new BooleanConversion(false));
+		map.put(Boolean.class, new BooleanConversion(true));
+		map.put(byte.class, new NumberConversion(Byte.class, false));
+		map.put(Byte.class, new NumberConversion(Byte.class, true));
+		map.put(short.class, new NumberConversion(Short.class, false));
+		map.put(Short.class, new NumberConversion(Short.class, true));
+		map.put(int.class, new NumberConversion(Integer.class, false));
+		map.put(Integer.class, new NumberConversion(Integer.class, true));
+		map.put(long.class, new NumberConversion(Long.class, false));
+		map.put(Long.class, new NumberConversion(Long.class, true));
+		map.put(float.class, new NumberConversion(Float.class, false));
+		map.put(Float.class, new NumberConversion(Float.class, true));
+		map.put(double.class, new NumberConversion(Double.class, false));
+		map.put(Double.class, new NumberConversion(Double.class, true));
+		map.put(BigDecimal.class, new NumberConversion(BigDecimal.class, true));
+		map.put(BigInteger.class, new NumberConversion(BigInteger.class, true));
+		conversions = Collections.unmodifiableMap(map);
+	}
+
+
+	/**
+	 * Return the shared conversion for the given required type and value, if any.
+	 * @param requiredType the type to convert to
+	 * @param value the value to convert (never <code>null</code>)
+	 * @return the conversion, or <code>null</code> if the default editor
+	 * for the given type needs to be used
+	 */
+	public static DefaultValueConversion forValue(Class<?> requiredType, Object value) {
+		DefaultValueConversion conversion = conversions.get(requiredType);
+		return (conversion != null && conversion.supports(value) ? conversion : null);
+	}
+
+	/**
+	 * Return whether this conversion handles the given value
+	 * the same way as the corresponding default editor.
+	 */
+	protected abstract boolean supports(Object value);
+
+	/**
+	 * Convert the given value.
+	 * @param value the value to convert, as accepted by {@link #supports}
+	 * @return the converted value
+	 * @throws IllegalArgumentException in case of a conversion failure
+	 */
+	public abstract Object convert(Object value) throws IllegalArgumentException;
+
+
+	/**
+	 * Equivalent of {@link CustomNumberEditor} without a NumberFormat.
+	 */
+	private static class NumberConversion extends DefaultValueConversion {
+
+		private final Class<? extends Number> numberClass;
+
+		private final boolean allowEmpty;
+
+		public NumberConversion(Class<? extends Number> numberClass, boolean allowEmpty) {
+			this.numberClass = numberClass;
+			this.allowEmpty = allowEmpty;
+		}
+
+		@Override
+		protected boolean supports(Object value) {
+			return (value instanceof String || value instanceof Number);
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number) {
+				return NumberUtils.convertNumberToTargetClass((Number) value, this.numberClass);
+			}
+			String text = (String) value;
+			if (this.allowEmpty && !StringUtils.hasText(text)) {
+				// Treat empty String as null value.
+				return null;
+			}
+			return NumberUtils.parseNumber(text, this.numberClass);
+		}
+	}
+
+
+	/**
+	 * Equivalent of {@link CustomBooleanEditor} without custom true/false Strings.
+	 */
+	private static class BooleanConversion extends DefaultValueConversion {
+
+		private final boolean allowEmpty;
+
+		public BooleanConversion(boolean allowEmpty) {
+			this.allowEmpty = allowEmpty;
+		}
+
+		@Override
+		protected boolean supports(Object value) {
+			return (value instanceof String);
+		}
+
+		@Override
+		public Object convert(Object value) {
+			String text = (String) value;
+			String input = text.trim();
+			if (this.allowEmpty && input.length() == 0) {
+				// Treat empty String as null value.
+				return null;
+			}
+			else if (input.equalsIgnoreCase(CustomBooleanEditor.VALUE_TRUE) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_ON) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_YES) || input.equals(CustomBooleanEditor.VALUE_1)) {
+				return Boolean.TRUE;
+			}
+			else if (input.equalsIgnoreCase(CustomBooleanEditor.VALUE_FALSE) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_OFF) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_NO) || input.equals(CustomBooleanEditor.VALUE_0)) {
+				return Boolean.FALSE;
+			}
+			else {
+				throw new IllegalArgumentException("Invalid boolean value [" + text + "]");
+			}
+		}
+	}
+
+}
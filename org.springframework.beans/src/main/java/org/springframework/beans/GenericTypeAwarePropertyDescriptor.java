@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,6 +54,12 @@ class GenericTypeAwarePropertyDescriptor extends PropertyDescriptor {
 
 	private MethodParameter writeMethodParameter;
 
+	private PropertyMethodInvokerGenerator invokerGenerator;
+
+	private int readMethodIndex = -1;
+
+	private int writeMethodIndex = -1;
+
 
 	public GenericTypeAwarePropertyDescriptor(Class beanClass, String propertyName,
 			Method readMethod, Method writeMethod, Class propertyEditorClass)
@@ -152,4 +158,46 @@ class GenericTypeAwarePropertyDescriptor extends PropertyDescriptor {
 		return this.writeMethodParameter;
 	}
 
+	/**
+	 * Specify the generator of the invoker for this property's methods,
+	 * along with the indexes of the methods within that invoker (or -1 if
+	 * not covered). To be called before this descriptor gets published.
+	 */
+	void setPropertyMethodInvokerGenerator(
+			PropertyMethodInvokerGenerator invokerGenerator, int readMethodIndex, int writeMethodIndex) {
+
+		this.invokerGenerator = invokerGenerator;
+		this.readMethodIndex = readMethodIndex;
+		this.writeMethodIndex = writeMethodIndex;
+	}
+
+	/**
+	 * Return the generated invoker for this property's methods, if available.
+	 * @param write whether the write method (rather than the read method) is to be invoked
+	 * @return the invoker, or <code>null</code> if the method needs to be invoked via reflection
+	 */
+	PropertyMethodInvoker getPropertyMethodInvoker(boolean write) {
+		if (this.invokerGenerator == null || (write ? this.writeMethodIndex : this.readMethodIndex) < 0) {
+			return null;
+		}
+		return this.invokerGenerator.getInvoker();
+	}
+
+	int getReadMethodIndex() {
+		return this.readMethodIndex;
+	}
+
+	int getWriteMethodIndex() {
+		return this.writeMethodIndex;
+	}
+
+	/**
+	 * Return whether the given value can be passed to the write method
+	 * through the generated invoker, without further conversion.
+	 */
+	boolean isAssignableWriteMethodArgument(Object value) {
+		return (this.invokerGenerator != null && this.writeMethodIndex >= 0 &&
+				this.invokerGenerator.isAssignableArgument(this.writeMethodIndex, value));
+	}
+
 }
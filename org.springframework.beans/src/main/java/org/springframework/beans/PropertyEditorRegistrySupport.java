@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -182,6 +182,27 @@ public class PropertyEditorRegistrySupport implements PropertyEditorRegistry {
 		return this.defaultEditors.get(requiredType);
 	}
 
+	/**
+	 * Return a shared stateless conversion for the given type and value which is
+	 * equivalent to the default editor for the given type, if any. Allows for
+	 * converting simple values without registering this instance's default editors.
+	 * <p>Only applies if the default editors are active and the default editor
+	 * for the given type has not been overridden.
+	 * @param requiredType type of the property
+	 * @param value the value to convert
+	 * @return the conversion, or <code>null</code> if none applies
+	 * @see #getDefaultEditor
+	 */
+	DefaultValueConversion getDefaultValueConversion(Class<?> requiredType, Object value) {
+		if (!this.defaultEditorsActive || requiredType == null || value == null) {
+			return null;
+		}
+		if (this.overriddenDefaultEditors != null && this.overriddenDefaultEditors.containsKey(requiredType)) {
+			return null;
+		}
+		return DefaultValueConversion.forValue(requiredType, value);
+	}
+
 	/**
 	 * Actually register the default editors for this registry instance.
 	 */
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+/**
+ * Invoker for the read and write methods of a bean class's properties,
+ * calling them directly instead of through reflection.
+ *
+ * <p>Implemented by classes that {@link BeanWrapperImpl} generates at runtime
+ * when {@link BeanWrapperImpl#setUseGeneratedAccessors generated accessors}
+ * are enabled. Only public for access from those generated classes:
+ * not intended to be used or implemented by application code.
+ *
+ * @since 3.1.3
+ */
+public interface PropertyMethodInvoker {
+
+	/**
+	 * Invoke the property method with the given index on the given target.
+	 * @param methodIndex the index of the read or write method
+	 * @param target the bean instance to invoke the method on
+	 * @param arg the value to pass to a write method (ignored for read methods)
+	 * @return the return value of a read method, or <code>null</code> for a write method
+	 * @throws Throwable any exception thrown by the invoked method, as-is
+	 */
+	Object invoke(int methodIndex, Object target, Object arg) throws Throwable;
+
+}
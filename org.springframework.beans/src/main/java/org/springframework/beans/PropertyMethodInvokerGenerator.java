@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.GeneratedClassSupport;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Lazily generates a {@link PropertyMethodInvoker} class for the property
+ * methods of a specific bean class, using ASM. The generated class calls
+ * each read and write method directly, selected by the index that has been
+ * assigned to the method in the corresponding {@link GenericTypeAwarePropertyDescriptor}.
+ *
+ * <p>Only public methods declared on public classes with publicly accessible
+ * argument types are covered, since the generated class lives in a separate
+ * class loader. If the invoker class cannot be defined (for example, when
+ * class loader creation is not permitted), callers fall back to reflection.
+ *
+ * @since 3.1.3
+ * @see CachedIntrospectionResults
+ * @see BeanWrapperImpl#setUseGeneratedAccessors
+ */
+final class PropertyMethodInvokerGenerator {
+
+	private static final String INVOKER_CLASS_SUFFIX = "$$PropertyMethodInvoker";
+
+	private static final String INVOKE_METHOD_DESCRIPTOR =
+			"(ILjava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;";
+
+	private static final Log logger = LogFactory.getLog(PropertyMethodInvokerGenerator.class);
+
+
+	private final Class beanClass;
+
+	private final Method[] methods;
+
+	private final Class[] argumentTypes;
+
+	private volatile PropertyMethodInvoker invoker;
+
+	private volatile boolean generated;
+
+
+	private PropertyMethodInvokerGenerator(Class beanClass, List<Method> methods) {
+		this.beanClass = beanClass;
+		this.methods = methods.toArray(new Method[methods.size()]);
+		this.argumentTypes = new Class[this.methods.length];
+		for (int i = 0; i < this.methods.length; i++) {
+			Class[] paramTypes = this.methods[i].getParameterTypes();
+			this.argumentTypes[i] = (paramTypes.length == 1 ? paramTypes[0] : null);
+		}
+	}
+
+
+	/**
+	 * Assign method indexes to the given PropertyDescriptors of the given bean
+	 * class, sharing a generator for their invoker class.
+	 * @param beanClass the introspected bean class
+	 * @param pds the PropertyDescriptors of the bean class
+	 */
+	public static void register(Class beanClass, Collection<PropertyDescriptor> pds) {
+		if (beanClass.getClassLoader() == null || beanClass.isInterface()) {
+			return;
+		}
+		List<Method> methods = new ArrayList<Method>();
+		List<GenericTypeAwarePropertyDescriptor> gpds = new ArrayList<GenericTypeAwarePropertyDescriptor>();
+		for (PropertyDescriptor pd : pds) {
+			if (pd instanceof GenericTypeAwarePropertyDescriptor) {
+				gpds.add((GenericTypeAwarePropertyDescriptor) pd);
+			}
+		}
+		int[] readIndexes = new int[gpds.size()];
+		int[] writeIndexes = new int[gpds.size()];
+		for (int i = 0; i < gpds.size(); i++) {
+			GenericTypeAwarePropertyDescriptor gpd = gpds.get(i);
+			readIndexes[i] = addMethodIfEligible(gpd.getReadMethod(), 0, methods);
+			writeIndexes[i] = addMethodIfEligible(gpd.getWriteMethod(), 1, methods);
+		}
+		if (methods.isEmpty()) {
+			return;
+		}
+		PropertyMethodInvokerGenerator generator = new PropertyMethodInvokerGenerator(beanClass, methods);
+		for (int i = 0; i < gpds.size(); i++) {
+			gpds.get(i).setPropertyMethodInvokerGenerator(generator, readIndexes[i], writeIndexes[i]);
+		}
+	}
+
+	private static int addMethodIfEligible(Method method, int parameterCount, List<Method> methods) {
+		if (method == null || method.getParameterTypes().length != parameterCount ||
+				!Modifier.isPublic(method.getModifiers()) ||
+				!GeneratedClassSupport.isPublic(method.getDeclaringClass())) {
+			return -1;
+		}
+		if (parameterCount == 1 && !GeneratedClassSupport.isPublic(method.getParameterTypes()[0])) {
+			return -1;
+		}
+		methods.add(method);
+		return methods.size() - 1;
+	}
+
+
+	/**
+	 * Return whether the given value can be passed to the write method
+	 * with the given index without any further conversion.
+	 */
+	public boolean isAssignableArgument(int methodIndex, Object value) {
+		Class argumentType = this.argumentTypes[methodIndex];
+		return (argumentType != null && ClassUtils.isAssignableValue(argumentType, value));
+	}
+
+	/**
+	 * Return the generated invoker, generating it on first access.
+	 * @return the invoker, or <code>null</code> if it could not be generated
+	 */
+	public PropertyMethodInvoker getInvoker() {
+		if (!this.generated) {
+			synchronized (this) {
+				if (!this.generated) {
+					this.invoker = generateInvoker();
+					this.generated = true;
+				}
+			}
+		}
+		return this.invoker;
+	}
+
+	private PropertyMethodInvoker generateInvoker() {
+		String className = this.beanClass.getName() + INVOKER_CLASS_SUFFIX;
+		try {
+			byte[] bytes = generateInvokerClass(className.replace('.', '/'));
+			Class<?> invokerClass = GeneratedClassSupport.defineClass(
+					className, bytes, this.beanClass.getClassLoader(), PropertyMethodInvoker.class);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Generated property method invoker for class [" + this.beanClass.getName() + "]");
+			}
+			return (PropertyMethodInvoker) invokerClass.newInstance();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate property method invoker for class [" +
+						this.beanClass.getName() + "] - falling back to reflection", ex);
+			}
+			return null;
+		}
+	}
+
+	private byte[] generateInvokerClass(String internalName) {
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SUPER, internalName, null,
+				"java/lang/Object", new String[] {Type.getInternalName(PropertyMethodInvoker.class)});
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "invoke", INVOKE_METHOD_DESCRIPTOR, null,
+				new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		Label defaultLabel = new Label();
+		Label[] labels = new Label[this.methods.length];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = new Label();
+		}
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+		for (int i = 0; i < this.methods.length; i++) {
+			Method method = this.methods[i];
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			GeneratedClassSupport.checkCast(mv, method.getDeclaringClass());
+			if (this.argumentTypes[i] != null) {
+				mv.visitVarInsn(Opcodes.ALOAD, 3);
+				GeneratedClassSupport.unbox(mv, this.argumentTypes[i]);
+			}
+			GeneratedClassSupport.invokeMethod(mv, method);
+			if (void.class.equals(method.getReturnType())) {
+				mv.visitInsn(Opcodes.ACONST_NULL);
+			}
+			else {
+				GeneratedClassSupport.box(mv, method.getReturnType());
+			}
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+		mv.visitLabel(defaultLabel);
+		mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitLdcInsn("Invalid property method index");
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>",
+				"(Ljava/lang/String;)V");
+		mv.visitInsn(Opcodes.ATHROW);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -157,10 +157,20 @@ class TypeConverterDelegate {
 					convertedValue = StringUtils.commaDelimitedListToStringArray((String) convertedValue);
 				}
 			}
+			DefaultValueConversion defaultConversion = null;
 			if (editor == null) {
-				editor = findDefaultEditor(requiredType, typeDescriptor);
+				defaultConversion = this.propertyEditorRegistry.getDefaultValueConversion(requiredType, convertedValue);
+				if (defaultConversion == null) {
+					editor = findDefaultEditor(requiredType, typeDescriptor);
+				}
+			}
+			if (defaultConversion != null) {
+				// Shared equivalent of the default editor: no editor instance needed.
+				convertedValue = defaultConversion.convert(convertedValue);
+			}
+			else {
+				convertedValue = doConvertValue(oldValue, convertedValue, requiredType, editor);
 			}
-			convertedValue = doConvertValue(oldValue, convertedValue, requiredType, editor);
 		}
 
 		if (requiredType != null) {
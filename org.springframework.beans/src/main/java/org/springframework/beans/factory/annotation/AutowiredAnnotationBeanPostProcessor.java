@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -94,6 +94,11 @@ import org.springframework.util.ReflectionUtils;
  * thus the latter configuration will override the former for properties wired through
  * both approaches.
  *
+ * <p>With {@link #setCompiledInjection compiled injection} enabled, public members of
+ * public classes are injected through a generated {@link AutowiredMemberInjector} once
+ * their dependencies have been resolved, which speeds up repeated injection into
+ * prototype beans.
+ *
  * @author Juergen Hoeller
  * @author Mark Fisher
  * @since 2.5
@@ -115,6 +120,8 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 
 	private int order = Ordered.LOWEST_PRECEDENCE - 2;
 
+	private boolean compiledInjection = false;
+
 	private ConfigurableListableBeanFactory beanFactory;
 
 	private final Map<Class<?>, Constructor<?>[]> candidateConstructorsCache =
@@ -194,6 +201,20 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 		this.requiredParameterValue = requiredParameterValue;
 	}
 
+	/**
+	 * Set whether to inject autowired members through generated code once their
+	 * dependencies have been resolved for the first time. Default is "false".
+	 * <p>If enabled, the first injection into a bean class resolves its dependencies
+	 * as usual. Subsequent injections set public fields and call public methods of
+	 * public classes through a generated {@link AutowiredMemberInjector}, falling
+	 * back to reflection for all other members. Dependencies are still obtained
+	 * from the bean factory for every injection. To be set before any beans are
+	 * being created.
+	 */
+	public void setCompiledInjection(boolean compiledInjection) {
+		this.compiledInjection = compiledInjection;
+	}
+
 	public void setOrder(int order) {
 	  this.order = order;
 	}
@@ -324,6 +345,7 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 
 	private InjectionMetadata buildAutowiringMetadata(Class<?> clazz) {
 		LinkedList<InjectionMetadata.InjectedElement> elements = new LinkedList<InjectionMetadata.InjectedElement>();
+		AutowiredMemberInjectorGenerator generator = new AutowiredMemberInjectorGenerator(clazz);
 		Class<?> targetClass = clazz;
 
 		do {
@@ -338,7 +360,7 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 						continue;
 					}
 					boolean required = determineRequiredStatus(annotation);
-					currElements.add(new AutowiredFieldElement(field, required));
+					currElements.add(new AutowiredFieldElement(field, required, generator));
 				}
 			}
 			for (Method method : targetClass.getDeclaredMethods()) {
@@ -359,7 +381,7 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 					}
 					boolean required = determineRequiredStatus(annotation);
 					PropertyDescriptor pd = BeanUtils.findPropertyForMethod(method);
-					currElements.add(new AutowiredMethodElement(method, required, pd));
+					currElements.add(new AutowiredMethodElement(method, required, pd, generator));
 				}
 			}
 			elements.addAll(0, currElements);
@@ -429,6 +451,15 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 		}
 	}
 
+	/**
+	 * Obtain the generated injector for the member with the given index,
+	 * if compiled injection is enabled.
+	 * @return the injector, or <code>null</code> to fall back to reflection
+	 */
+	private AutowiredMemberInjector getInjector(AutowiredMemberInjectorGenerator generator, int memberIndex) {
+		return (this.compiledInjection && memberIndex >= 0 ? generator.getInjector() : null);
+	}
+
 	/**
 	 * Resolve the specified cached method argument or field value.
 	 */
@@ -458,9 +489,15 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 
 		private volatile Object cachedFieldValue;
 
-		public AutowiredFieldElement(Field field, boolean required) {
+		private final AutowiredMemberInjectorGenerator injectorGenerator;
+
+		private final int injectorIndex;
+
+		public AutowiredFieldElement(Field field, boolean required, AutowiredMemberInjectorGenerator injectorGenerator) {
 			super(field, null);
 			this.required = required;
+			this.injectorGenerator = injectorGenerator;
+			this.injectorIndex = injectorGenerator.addField(field);
 		}
 
 		@Override
@@ -498,8 +535,14 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 					}
 				}
 				if (value != null) {
-					ReflectionUtils.makeAccessible(field);
-					field.set(bean, value);
+					AutowiredMemberInjector injector = getInjector(this.injectorGenerator, this.injectorIndex);
+					if (injector != null) {
+						injector.injectField(this.injectorIndex, bean, value);
+					}
+					else {
+						ReflectionUtils.makeAccessible(field);
+						field.set(bean, value);
+					}
 				}
 			}
 			catch (Throwable ex) {
@@ -520,9 +563,17 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 
 		private volatile Object[] cachedMethodArguments;
 
-		public AutowiredMethodElement(Method method, boolean required, PropertyDescriptor pd) {
+		private final AutowiredMemberInjectorGenerator injectorGenerator;
+
+		private final int injectorIndex;
+
+		public AutowiredMethodElement(Method method, boolean required, PropertyDescriptor pd,
+				AutowiredMemberInjectorGenerator injectorGenerator) {
+
 			super(method, pd);
 			this.required = required;
+			this.injectorGenerator = injectorGenerator;
+			this.injectorIndex = injectorGenerator.addMethod(method);
 		}
 
 		@Override
@@ -582,8 +633,20 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 					}
 				}
 				if (arguments != null) {
-					ReflectionUtils.makeAccessible(method);
-					method.invoke(bean, arguments);
+					AutowiredMemberInjector injector = getInjector(this.injectorGenerator, this.injectorIndex);
+					if (injector != null) {
+						try {
+							injector.injectMethod(this.injectorIndex, bean, arguments);
+						}
+						catch (Throwable ex) {
+							// Same exception as thrown by reflective invocation.
+							throw new InvocationTargetException(ex);
+						}
+					}
+					else {
+						ReflectionUtils.makeAccessible(method);
+						method.invoke(bean, arguments);
+					}
 				}
 			}
 			catch (InvocationTargetException ex) {
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.annotation;
+
+/**
+ * Injector for the autowired fields and methods of a bean class,
+ * setting and calling them directly instead of through reflection.
+ *
+ * <p>Implemented by classes that {@link AutowiredAnnotationBeanPostProcessor}
+ * generates at runtime when {@link AutowiredAnnotationBeanPostProcessor#setCompiledInjection
+ * compiled injection} is enabled. Only public for access from those generated
+ * classes: not intended to be used or implemented by application code.
+ *
+ * @since 3.1.3
+ */
+public interface AutowiredMemberInjector {
+
+	/**
+	 * Set the field with the given index on the given target.
+	 * @param fieldIndex the index of the autowired field
+	 * @param target the bean instance to inject the field on
+	 * @param value the value to set
+	 */
+	void injectField(int fieldIndex, Object target, Object value);
+
+	/**
+	 * Invoke the method with the given index on the given target.
+	 * @param methodIndex the index of the autowired method
+	 * @param target the bean instance to invoke the method on
+	 * @param arguments the arguments to pass to the method
+	 * @throws Throwable any exception thrown by the invoked method, as-is
+	 */
+	void injectMethod(int methodIndex, Object target, Object[] arguments) throws Throwable;
+
+}
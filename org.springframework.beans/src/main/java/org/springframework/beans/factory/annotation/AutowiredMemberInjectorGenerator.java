@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.annotation;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.GeneratedClassSupport;
+
+/**
+ * Lazily generates an {@link AutowiredMemberInjector} class for the autowired
+ * fields and methods of a specific bean class, using ASM. The generated class
+ * sets each field and calls each method directly, selected by the index that
+ * has been assigned to the member through {@link #addField} or {@link #addMethod}.
+ *
+ * <p>Only public, non-final fields and public methods declared on public classes
+ * with publicly accessible types are covered, since the generated class lives in
+ * a separate class loader. If the injector class cannot be defined (for example,
+ * when class loader creation is not permitted), callers fall back to reflection.
+ *
+ * @since 3.1.3
+ * @see AutowiredAnnotationBeanPostProcessor#setCompiledInjection
+ */
+final class AutowiredMemberInjectorGenerator {
+
+	private static final String INJECTOR_CLASS_SUFFIX = "$$AutowiredMemberInjector";
+
+	private static final Log logger = LogFactory.getLog(AutowiredMemberInjectorGenerator.class);
+
+
+	private final Class<?> beanClass;
+
+	private final List<Field> fields = new ArrayList<Field>();
+
+	private final List<Method> methods = new ArrayList<Method>();
+
+	private volatile AutowiredMemberInjector injector;
+
+	private volatile boolean generated;
+
+
+	/**
+	 * Create a new generator for the given bean class.
+	 * @param beanClass the class of the beans to inject
+	 */
+	public AutowiredMemberInjectorGenerator(Class<?> beanClass) {
+		this.beanClass = beanClass;
+	}
+
+
+	/**
+	 * Register the given field for direct injection, if eligible.
+	 * Needs to be called before the injector is first obtained.
+	 * @param field the autowired field
+	 * @return the index of the field, or -1 if it is not eligible
+	 */
+	public int addField(Field field) {
+		int modifiers = field.getModifiers();
+		if (!isEligibleClass() || !Modifier.isPublic(modifiers) || Modifier.isFinal(modifiers) ||
+				Modifier.isStatic(modifiers) || !GeneratedClassSupport.isPublic(field.getDeclaringClass()) ||
+				!GeneratedClassSupport.isPublic(field.getType())) {
+			return -1;
+		}
+		this.fields.add(field);
+		return this.fields.size() - 1;
+	}
+
+	/**
+	 * Register the given method for direct injection, if eligible.
+	 * Needs to be called before the injector is first obtained.
+	 * @param method the autowired method
+	 * @return the index of the method, or -1 if it is not eligible
+	 */
+	public int addMethod(Method method) {
+		int modifiers = method.getModifiers();
+		if (!isEligibleClass() || !Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) ||
+				!GeneratedClassSupport.isPublic(method.getDeclaringClass())) {
+			return -1;
+		}
+		for (Class<?> paramType : method.getParameterTypes()) {
+			if (!GeneratedClassSupport.isPublic(paramType)) {
+				return -1;
+			}
+		}
+		this.methods.add(method);
+		return this.methods.size() - 1;
+	}
+
+	private boolean isEligibleClass() {
+		return (this.beanClass.getClassLoader() != null && !this.beanClass.isInterface());
+	}
+
+
+	/**
+	 * Return the generated injector, generating it on first access.
+	 * @return the injector, or <code>null</code> if it could not be generated
+	 */
+	public AutowiredMemberInjector getInjector() {
+		if (!this.generated) {
+			synchronized (this) {
+				if (!this.generated) {
+					this.injector = generateInjector();
+					this.generated = true;
+				}
+			}
+		}
+		return this.injector;
+	}
+
+	private AutowiredMemberInjector generateInjector() {
+		if (this.fields.isEmpty() && this.methods.isEmpty()) {
+			return null;
+		}
+		String className = this.beanClass.getName() + INJECTOR_CLASS_SUFFIX;
+		try {
+			byte[] bytes = generateInjectorClass(className.replace('.', '/'));
+			Class<?> injectorClass = GeneratedClassSupport.defineClass(
+					className, bytes, this.beanClass.getClassLoader(), AutowiredMemberInjector.class);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Generated autowired member injector for class [" + this.beanClass.getName() + "]");
+			}
+			return (AutowiredMemberInjector) injectorClass.newInstance();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate autowired member injector for class [" +
+						this.beanClass.getName() + "] - falling back to reflection", ex);
+			}
+			return null;
+		}
+	}
+
+	private byte[] generateInjectorClass(String internalName) {
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SUPER, internalName, null,
+				"java/lang/Object", new String[] {Type.getInternalName(AutowiredMemberInjector.class)});
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "injectField", "(ILjava/lang/Object;Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		Label[] labels = visitSwitch(mv, this.fields.size());
+		for (int i = 0; i < labels.length; i++) {
+			Field field = this.fields.get(i);
+			String ownerName = Type.getInternalName(field.getDeclaringClass());
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			mv.visitTypeInsn(Opcodes.CHECKCAST, ownerName);
+			mv.visitVarInsn(Opcodes.ALOAD, 3);
+			GeneratedClassSupport.unbox(mv, field.getType());
+			mv.visitFieldInsn(Opcodes.PUTFIELD, ownerName, field.getName(), Type.getDescriptor(field.getType()));
+			mv.visitInsn(Opcodes.RETURN);
+		}
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "injectMethod", "(ILjava/lang/Object;[Ljava/lang/Object;)V", null,
+				new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		labels = visitSwitch(mv, this.methods.size());
+		for (int i = 0; i < labels.length; i++) {
+			Method method = this.methods.get(i);
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			GeneratedClassSupport.checkCast(mv, method.getDeclaringClass());
+			Class<?>[] paramTypes = method.getParameterTypes();
+			for (int j = 0; j < paramTypes.length; j++) {
+				mv.visitVarInsn(Opcodes.ALOAD, 3);
+				mv.visitLdcInsn(j);
+				mv.visitInsn(Opcodes.AALOAD);
+				GeneratedClassSupport.unbox(mv, paramTypes[j]);
+			}
+			GeneratedClassSupport.invokeMethod(mv, method);
+			Class<?> returnType = method.getReturnType();
+			if (long.class.equals(returnType) || double.class.equals(returnType)) {
+				mv.visitInsn(Opcodes.POP2);
+			}
+			else if (!void.class.equals(returnType)) {
+				mv.visitInsn(Opcodes.POP);
+			}
+			mv.visitInsn(Opcodes.RETURN);
+		}
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Switch on the member index argument, throwing an IllegalArgumentException
+	 * for any index out of range.
+	 * @return the labels to visit for the member indexes, in order
+	 */
+	private static Label[] visitSwitch(MethodVisitor mv, int memberCount) {
+		Label defaultLabel = new Label();
+		Label[] labels = new Label[memberCount];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = new Label();
+		}
+		if (labels.length > 0) {
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+		}
+		mv.visitLabel(defaultLabel);
+		mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitLdcInsn("Invalid member index");
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>",
+				"(Ljava/lang/String;)V");
+		mv.visitInsn(Opcodes.ATHROW);
+		return labels;
+	}
+
+}
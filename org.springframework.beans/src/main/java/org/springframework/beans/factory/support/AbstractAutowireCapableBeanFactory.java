@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -495,6 +496,11 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			}
 		}
 
+		// Record a creation plan for subsequent instances of a non-singleton bean.
+		if (bean != null && getCreationPlan(mbd, instanceWrapper) == null && isCreationPlanEligible(beanName, mbd)) {
+			mbd.creationPlan = buildCreationPlan(mbd, instanceWrapper);
+		}
+
 		// Eagerly cache singletons to be able to resolve circular references
 		// even when triggered by lifecycle interfaces like BeanFactoryAware.
 		boolean earlySingletonExposure = (mbd.isSingleton() && this.allowCircularReferences &&
@@ -566,6 +572,65 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		return exposedObject;
 	}
 
+	/**
+	 * Determine whether a {@link BeanCreationPlan} may be recorded for the
+	 * specified bean, to be replayed for every subsequently created instance.
+	 * <p>The default implementation returns <code>false</code>. Subclasses may
+	 * allow creation plans for non-singleton beans whose merged bean definition
+	 * is cached and not going to change anymore.
+	 * @param beanName the name of the bean
+	 * @param mbd the merged bean definition for the bean
+	 * @return whether a creation plan may be recorded
+	 * @since 3.1.3
+	 */
+	protected boolean isCreationPlanEligible(String beanName, RootBeanDefinition mbd) {
+		return false;
+	}
+
+	/**
+	 * Return the creation plan recorded for the given bean definition,
+	 * if applicable to the bean instance held by the given BeanWrapper.
+	 */
+	private BeanCreationPlan getCreationPlan(BeanDefinition mbd, BeanWrapper bw) {
+		if (mbd instanceof RootBeanDefinition) {
+			BeanCreationPlan plan = ((RootBeanDefinition) mbd).creationPlan;
+			if (plan != null && plan.isApplicableTo(bw.getWrappedClass(), getBeanPostProcessorsVersion())) {
+				return plan;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Record a creation plan for the given bean definition, based on the
+	 * bean instance held by the given BeanWrapper.
+	 */
+	private BeanCreationPlan buildCreationPlan(RootBeanDefinition mbd, BeanWrapper bw) {
+		Map<String, Boolean> convertibleProperties = new HashMap<String, Boolean>();
+		for (PropertyValue pv : mbd.getPropertyValues().getPropertyValues()) {
+			convertibleProperties.put(pv.getName(), isConvertibleProperty(pv.getName(), bw));
+		}
+		return new BeanCreationPlan(bw.getWrappedClass(), getBeanPostProcessorsVersion(),
+				getInstantiationAwareBeanPostProcessors(null), convertibleProperties);
+	}
+
+	/**
+	 * Return the InstantiationAwareBeanPostProcessors to apply,
+	 * as recorded in the given creation plan (if any).
+	 */
+	private InstantiationAwareBeanPostProcessor[] getInstantiationAwareBeanPostProcessors(BeanCreationPlan plan) {
+		if (plan != null) {
+			return plan.getInstantiationAwareBeanPostProcessors();
+		}
+		List<InstantiationAwareBeanPostProcessor> ibps = new ArrayList<InstantiationAwareBeanPostProcessor>();
+		for (BeanPostProcessor bp : getBeanPostProcessors()) {
+			if (bp instanceof InstantiationAwareBeanPostProcessor) {
+				ibps.add((InstantiationAwareBeanPostProcessor) bp);
+			}
+		}
+		return ibps.toArray(new InstantiationAwareBeanPostProcessor[ibps.size()]);
+	}
+
 	@Override
 	protected Class predictBeanType(String beanName, RootBeanDefinition mbd, Class... typesToMatch) {
 		Class beanClass;
@@ -749,8 +814,15 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 * that we couldn't obtain a shortcut FactoryBean instance
 	 */
 	private FactoryBean getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
-		synchronized (getSingletonMutex()) {
-			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
+		BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
+		if (bw != null) {
+			return (FactoryBean) bw.getWrappedInstance();
+		}
+		if (isSingletonCurrentlyInCreation(beanName) || !acquireSingletonLock(beanName)) {
+			return null;
+		}
+		try {
+			bw = this.factoryBeanInstanceCache.get(beanName);
 			if (bw != null) {
 				return (FactoryBean) bw.getWrappedInstance();
 			}
@@ -778,6 +850,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			}
 			return fb;
 		}
+		finally {
+			releaseSingletonLock(beanName);
+		}
 	}
 
 	/**
@@ -1060,15 +1135,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		// state of the bean before properties are set. This can be used, for example,
 		// to support styles of field injection.
 		boolean continueWithPropertyPopulation = true;
+		BeanCreationPlan plan = getCreationPlan(mbd, bw);
 
 		if (!mbd.isSynthetic() && hasInstantiationAwareBeanPostProcessors()) {
-			for (BeanPostProcessor bp : getBeanPostProcessors()) {
-				if (bp instanceof InstantiationAwareBeanPostProcessor) {
-					InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) bp;
-					if (!ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName)) {
-						continueWithPropertyPopulation = false;
-						break;
-					}
+			for (InstantiationAwareBeanPostProcessor ibp : getInstantiationAwareBeanPostProcessors(plan)) {
+				if (!ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName)) {
+					continueWithPropertyPopulation = false;
+					break;
 				}
 			}
 		}
@@ -1100,13 +1173,10 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		if (hasInstAwareBpps || needsDepCheck) {
 			PropertyDescriptor[] filteredPds = filterPropertyDescriptorsForDependencyCheck(bw);
 			if (hasInstAwareBpps) {
-				for (BeanPostProcessor bp : getBeanPostProcessors()) {
-					if (bp instanceof InstantiationAwareBeanPostProcessor) {
-						InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) bp;
-						pvs = ibp.postProcessPropertyValues(pvs, filteredPds, bw.getWrappedInstance(), beanName);
-						if (pvs == null) {
-							return;
-						}
+				for (InstantiationAwareBeanPostProcessor ibp : getInstantiationAwareBeanPostProcessors(plan)) {
+					pvs = ibp.postProcessPropertyValues(pvs, filteredPds, bw.getWrappedInstance(), beanName);
+					if (pvs == null) {
+						return;
 					}
 				}
 			}
@@ -1346,6 +1416,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			converter = bw;
 		}
 		BeanDefinitionValueResolver valueResolver = new BeanDefinitionValueResolver(this, beanName, mbd, converter);
+		BeanCreationPlan plan = getCreationPlan(mbd, bw);
 
 		// Create a deep copy, resolving any references for values.
 		List<PropertyValue> deepCopy = new ArrayList<PropertyValue>(original.size());
@@ -1359,8 +1430,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 				Object originalValue = pv.getValue();
 				Object resolvedValue = valueResolver.resolveValueIfNecessary(pv, originalValue);
 				Object convertedValue = resolvedValue;
-				boolean convertible = bw.isWritableProperty(propertyName) &&
-						!PropertyAccessorUtils.isNestedOrIndexedProperty(propertyName);
+				Boolean recordedConvertible = (plan != null ? plan.isConvertibleProperty(propertyName) : null);
+				boolean convertible = (recordedConvertible != null ? recordedConvertible :
+						isConvertibleProperty(propertyName, bw));
 				if (convertible) {
 					convertedValue = convertForProperty(resolvedValue, propertyName, bw, converter);
 				}
@@ -1398,6 +1470,14 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		}
 	}
 
+	/**
+	 * Determine whether the given property is subject to conversion
+	 * before being applied to the given BeanWrapper.
+	 */
+	private boolean isConvertibleProperty(String propertyName, BeanWrapper bw) {
+		return (bw.isWritableProperty(propertyName) && !PropertyAccessorUtils.isNestedOrIndexedProperty(propertyName));
+	}
+
 	/**
 	 * Convert the given value for the specified target property.
 	 */
@@ -24,7 +24,6 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -36,6 +35,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.PropertyEditorRegistrar;
 import org.springframework.beans.PropertyEditorRegistry;
@@ -122,6 +122,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	/** Whether to cache bean metadata or rather reobtain it for every access */
 	private boolean cacheBeanMetadata = true;
 
+	/** Whether to invoke bean property methods through generated accessors */
+	private boolean useGeneratedPropertyAccessors = false;
+
 	/** Resolution strategy for expressions in bean definition values */
 	private BeanExpressionResolver beanExpressionResolver;
 
@@ -151,6 +154,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	/** Indicates whether any DestructionAwareBeanPostProcessors have been registered */
 	private boolean hasDestructionAwareBeanPostProcessors;
 
+	/** Incremented whenever the list of BeanPostProcessors changes */
+	private volatile int beanPostProcessorsVersion;
+
 	/** Map from scope identifier String to corresponding Scope */
 	private final Map<String, Scope> scopes = new HashMap<String, Scope>();
 
@@ -162,7 +168,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 			new ConcurrentHashMap<String, RootBeanDefinition>();
 
 	/** Names of beans that have already been created at least once */
-	private final Set<String> alreadyCreated = Collections.synchronizedSet(new HashSet<String>());
+	private final Map<String, Boolean> alreadyCreated = new ConcurrentHashMap<String, Boolean>(64);
 
 	/** Names of beans that are currently in creation */
 	private final ThreadLocal<Object> prototypesCurrentlyInCreation =
@@ -666,6 +672,29 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		return this.cacheBeanMetadata;
 	}
 
+	/**
+	 * Set whether to invoke the property methods of bean instances through
+	 * accessor classes generated at runtime, instead of through reflection.
+	 * <p>Default is "false". Turn this on for factories that populate many
+	 * bean instances via property values, e.g. with prototype-heavy
+	 * configurations; methods that cannot be covered by generated accessors
+	 * will still be invoked via reflection.
+	 * @since 3.1.3
+	 * @see BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedPropertyAccessors(boolean useGeneratedPropertyAccessors) {
+		this.useGeneratedPropertyAccessors = useGeneratedPropertyAccessors;
+	}
+
+	/**
+	 * Return whether property methods of bean instances are invoked
+	 * through generated accessors.
+	 * @since 3.1.3
+	 */
+	public boolean isUseGeneratedPropertyAccessors() {
+		return this.useGeneratedPropertyAccessors;
+	}
+
 	public void setBeanExpressionResolver(BeanExpressionResolver resolver) {
 		this.beanExpressionResolver = resolver;
 	}
@@ -760,6 +789,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		if (beanPostProcessor instanceof DestructionAwareBeanPostProcessor) {
 			this.hasDestructionAwareBeanPostProcessors = true;
 		}
+		this.beanPostProcessorsVersion++;
 	}
 
 	public int getBeanPostProcessorCount() {
@@ -794,6 +824,16 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		return this.hasDestructionAwareBeanPostProcessors;
 	}
 
+	/**
+	 * Return a version number for the list of BeanPostProcessors of this factory,
+	 * changing whenever a BeanPostProcessor is added or re-registered.
+	 * @since 3.1.3
+	 * @see #addBeanPostProcessor
+	 */
+	protected int getBeanPostProcessorsVersion() {
+		return this.beanPostProcessorsVersion;
+	}
+
 	public void registerScope(String scopeName, Scope scope) {
 		Assert.notNull(scopeName, "Scope identifier must not be null");
 		Assert.notNull(scope, "Scope must not be null");
@@ -846,8 +886,10 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 					otherAbstractFactory.hasInstantiationAwareBeanPostProcessors;
 			this.hasDestructionAwareBeanPostProcessors = this.hasDestructionAwareBeanPostProcessors ||
 					otherAbstractFactory.hasDestructionAwareBeanPostProcessors;
+			this.beanPostProcessorsVersion++;
 			this.scopes.putAll(otherAbstractFactory.scopes);
 			this.securityContextProvider = otherAbstractFactory.securityContextProvider;
+			this.useGeneratedPropertyAccessors = otherAbstractFactory.useGeneratedPropertyAccessors;
 		}
 		else {
 			setTypeConverter(otherFactory.getTypeConverter());
@@ -1028,6 +1070,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 */
 	protected void initBeanWrapper(BeanWrapper bw) {
 		bw.setConversionService(getConversionService());
+		if (bw instanceof BeanWrapperImpl) {
+			((BeanWrapperImpl) bw).setUseGeneratedAccessors(this.useGeneratedPropertyAccessors);
+		}
 		registerCustomEditors(bw);
 	}
 
@@ -1373,7 +1418,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 * @param beanName the name of the bean
 	 */
 	protected void markBeanAsCreated(String beanName) {
-		this.alreadyCreated.add(beanName);
+		if (!this.alreadyCreated.containsKey(beanName)) {
+			this.alreadyCreated.put(beanName, Boolean.TRUE);
+		}
 	}
 
 	/**
@@ -1384,7 +1431,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 * at this point already
 	 */
 	protected boolean isBeanEligibleForMetadataCaching(String beanName) {
-		return this.alreadyCreated.contains(beanName);
+		return this.alreadyCreated.containsKey(beanName);
 	}
 
 	/**
@@ -1394,7 +1441,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 * @return <code>true</code> if actually removed, <code>false</code> otherwise
 	 */
 	protected boolean removeSingletonIfCreatedForTypeCheckOnly(String beanName) {
-		if (!this.alreadyCreated.contains(beanName)) {
+		if (!this.alreadyCreated.containsKey(beanName)) {
 			removeSingleton(beanName);
 			return true;
 		}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+/**
+ * Creation plan for a non-singleton bean, recording the outcome of those
+ * per-instance resolution steps in {@link AbstractAutowireCapableBeanFactory}
+ * that only depend on the bean definition, the bean class and the registered
+ * post-processors. Recorded once per merged bean definition and replayed
+ * for every subsequently created instance.
+ *
+ * <p>A plan only applies as long as instances are of the same class and no
+ * BeanPostProcessor has been registered since the plan was recorded.
+ *
+ * @since 3.1.3
+ * @see RootBeanDefinition#creationPlan
+ */
+final class BeanCreationPlan {
+
+	private final Class beanClass;
+
+	private final int beanPostProcessorsVersion;
+
+	private final InstantiationAwareBeanPostProcessor[] instantiationAwareBeanPostProcessors;
+
+	private final Map<String, Boolean> convertibleProperties;
+
+
+	/**
+	 * Create a new BeanCreationPlan.
+	 * @param beanClass the class of the bean instances that the plan applies to
+	 * @param beanPostProcessorsVersion the version of the registered BeanPostProcessors
+	 * @param instantiationAwareBeanPostProcessors the applicable InstantiationAwareBeanPostProcessors
+	 * @param convertibleProperties whether the bean definition's properties are subject to
+	 * conversion, keyed by property name
+	 */
+	public BeanCreationPlan(Class beanClass, int beanPostProcessorsVersion,
+			InstantiationAwareBeanPostProcessor[] instantiationAwareBeanPostProcessors,
+			Map<String, Boolean> convertibleProperties) {
+
+		this.beanClass = beanClass;
+		this.beanPostProcessorsVersion = beanPostProcessorsVersion;
+		this.instantiationAwareBeanPostProcessors = instantiationAwareBeanPostProcessors;
+		this.convertibleProperties = convertibleProperties;
+	}
+
+
+	/**
+	 * Return whether this plan applies to a bean instance of the given class.
+	 * @param beanClass the class of the bean instance
+	 * @param beanPostProcessorsVersion the current version of the registered BeanPostProcessors
+	 */
+	public boolean isApplicableTo(Class beanClass, int beanPostProcessorsVersion) {
+		return (this.beanClass == beanClass && this.beanPostProcessorsVersion == beanPostProcessorsVersion);
+	}
+
+	public InstantiationAwareBeanPostProcessor[] getInstantiationAwareBeanPostProcessors() {
+		return this.instantiationAwareBeanPostProcessors;
+	}
+
+	/**
+	 * Return whether the specified property is subject to conversion,
+	 * i.e. writable and neither nested nor indexed.
+	 * @param propertyName the name of the property
+	 * @return the recorded result, or <code>null</code> if not recorded
+	 */
+	public Boolean isConvertibleProperty(String propertyName) {
+		return this.convertibleProperties.get(propertyName);
+	}
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanMetadataAttributeAccessor;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Writes the bean definitions of a {@link ConfigurableListableBeanFactory}
+ * into a compact binary snapshot, to be registered again through a
+ * {@link SnapshotBeanDefinitionReader} without re-parsing the original
+ * configuration sources.
+ *
+ * <p>The snapshot contains the <i>merged</i> bean definition of each registered
+ * bean, along with its aliases, so it is typically written once all
+ * {@link org.springframework.beans.factory.config.BeanFactoryPostProcessor
+ * BeanFactoryPostProcessors} have been applied. Inner bean definitions are kept
+ * as-is. Bean classes are written by name, with CGLIB-generated classes replaced
+ * by their original user class. Source objects are not retained.
+ *
+ * <p>Property and constructor argument values are restricted to the value
+ * holders that the bean definition readers create (such as {@link TypedStringValue},
+ * {@link RuntimeBeanReference}, {@link BeanDefinitionHolder} and the managed
+ * collections) as well as Strings, primitive wrappers and Classes. Any other
+ * value leads to a {@link NotSerializableException}.
+ *
+ * @since 3.1.3
+ * @see SnapshotBeanDefinitionReader
+ */
+public class BeanDefinitionSnapshotWriter {
+
+	static final int MAGIC = 0x53424453;
+
+	static final int VERSION = 1;
+
+	static final byte ROOT_BEAN_DEFINITION = 1;
+
+	static final byte GENERIC_BEAN_DEFINITION = 2;
+
+	static final byte LOOKUP_OVERRIDE = 1;
+
+	static final byte REPLACE_OVERRIDE = 2;
+
+	static final byte NULL_VALUE = 0;
+
+	static final byte STRING_VALUE = 1;
+
+	static final byte TYPED_STRING_VALUE = 2;
+
+	static final byte BEAN_REFERENCE_VALUE = 3;
+
+	static final byte BEAN_NAME_REFERENCE_VALUE = 4;
+
+	static final byte BEAN_DEFINITION_HOLDER_VALUE = 5;
+
+	static final byte BEAN_DEFINITION_VALUE = 6;
+
+	static final byte MANAGED_LIST_VALUE = 7;
+
+	static final byte MANAGED_SET_VALUE = 8;
+
+	static final byte MANAGED_MAP_VALUE = 9;
+
+	static final byte MANAGED_PROPERTIES_VALUE = 10;
+
+	static final byte MANAGED_ARRAY_VALUE = 11;
+
+	static final byte BOOLEAN_VALUE = 12;
+
+	static final byte INTEGER_VALUE = 13;
+
+	static final byte LONG_VALUE = 14;
+
+	static final byte DOUBLE_VALUE = 15;
+
+	static final byte CLASS_VALUE = 16;
+
+
+	private final ConfigurableListableBeanFactory beanFactory;
+
+
+	/**
+	 * Create a new BeanDefinitionSnapshotWriter for the given bean factory.
+	 * @param beanFactory the bean factory to write the bean definitions of
+	 */
+	public BeanDefinitionSnapshotWriter(ConfigurableListableBeanFactory beanFactory) {
+		Assert.notNull(beanFactory, "BeanFactory must not be null");
+		this.beanFactory = beanFactory;
+	}
+
+
+	/**
+	 * Write a snapshot of all bean definitions to the given stream.
+	 * @param outputStream the stream to write to (will not be closed)
+	 * @param fingerprint an identifier for the configuration sources that the
+	 * bean definitions have been loaded from, to be checked by the reader
+	 * (may be <code>null</code>)
+	 * @return the number of bean definitions written
+	 * @throws NotSerializableException if a bean definition contains a value
+	 * that cannot be written
+	 * @throws IOException in case of I/O errors
+	 * @see SnapshotBeanDefinitionReader#setExpectedFingerprint
+	 */
+	public int writeSnapshot(OutputStream outputStream, String fingerprint) throws IOException {
+		String[] beanNames = this.beanFactory.getBeanDefinitionNames();
+		SnapshotOutputStream out = new SnapshotOutputStream(new BufferedOutputStream(outputStream));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeString(fingerprint);
+		out.writeInt(beanNames.length);
+		for (String beanName : beanNames) {
+			out.writeString(beanName);
+			out.writeStrings(this.beanFactory.getAliases(beanName));
+			try {
+				writeBeanDefinition(out, this.beanFactory.getMergedBeanDefinition(beanName));
+			}
+			catch (NotSerializableException ex) {
+				throw new NotSerializableException("Cannot write bean definition '" + beanName + "': " + ex.getMessage());
+			}
+		}
+		out.flush();
+		return beanNames.length;
+	}
+
+	private void writeBeanDefinition(SnapshotOutputStream out, BeanDefinition beanDefinition) throws IOException {
+		if (!(beanDefinition instanceof AbstractBeanDefinition)) {
+			throw new NotSerializableException("Unsupported bean definition type: " + beanDefinition.getClass().getName());
+		}
+		AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+		if (bd instanceof RootBeanDefinition) {
+			out.writeByte(ROOT_BEAN_DEFINITION);
+		}
+		else {
+			out.writeByte(GENERIC_BEAN_DEFINITION);
+			out.writeString(bd.getParentName());
+		}
+		out.writeString(bd.hasBeanClass() ? ClassUtils.getUserClass(bd.getBeanClass()).getName() : bd.getBeanClassName());
+		out.writeString(bd.getScope());
+		out.writeBoolean(bd.isAbstract());
+		out.writeBoolean(bd.isLazyInit());
+		out.writeInt(bd.getAutowireMode());
+		out.writeInt(bd.getDependencyCheck());
+		out.writeStrings(bd.getDependsOn());
+		out.writeBoolean(bd.isAutowireCandidate());
+		out.writeBoolean(bd.isPrimary());
+		out.writeBoolean(bd.isNonPublicAccessAllowed());
+		out.writeBoolean(bd.isLenientConstructorResolution());
+		out.writeString(bd.getFactoryBeanName());
+		out.writeString(bd.getFactoryMethodName());
+		out.writeString(bd.getInitMethodName());
+		out.writeBoolean(bd.isEnforceInitMethod());
+		out.writeString(bd.getDestroyMethodName());
+		out.writeBoolean(bd.isEnforceDestroyMethod());
+		out.writeBoolean(bd.isSynthetic());
+		out.writeInt(bd.getRole());
+		out.writeString(bd.getDescription());
+		out.writeString(bd.getResourceDescription());
+		writeAttributes(out, bd);
+
+		Set<AutowireCandidateQualifier> qualifiers = bd.getQualifiers();
+		out.writeInt(qualifiers.size());
+		for (AutowireCandidateQualifier qualifier : qualifiers) {
+			out.writeString(qualifier.getTypeName());
+			writeAttributes(out, qualifier);
+		}
+
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		Map<Integer, ConstructorArgumentValues.ValueHolder> indexedArgs = cargs.getIndexedArgumentValues();
+		out.writeInt(indexedArgs.size());
+		for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry : indexedArgs.entrySet()) {
+			out.writeInt(entry.getKey());
+			writeValueHolder(out, entry.getValue());
+		}
+		List<ConstructorArgumentValues.ValueHolder> genericArgs = cargs.getGenericArgumentValues();
+		out.writeInt(genericArgs.size());
+		for (ConstructorArgumentValues.ValueHolder valueHolder : genericArgs) {
+			writeValueHolder(out, valueHolder);
+		}
+
+		List<PropertyValue> pvs = bd.getPropertyValues().getPropertyValueList();
+		out.writeInt(pvs.size());
+		for (PropertyValue pv : pvs) {
+			out.writeString(pv.getName());
+			writeValue(out, pv.getValue());
+			out.writeBoolean(pv.isOptional());
+		}
+
+		Set<MethodOverride> overrides = bd.getMethodOverrides().getOverrides();
+		out.writeInt(overrides.size());
+		for (MethodOverride override : overrides) {
+			if (override instanceof LookupOverride) {
+				out.writeByte(LOOKUP_OVERRIDE);
+				out.writeString(override.getMethodName());
+				out.writeString(((LookupOverride) override).getBeanName());
+			}
+			else if (override instanceof ReplaceOverride) {
+				ReplaceOverride replaceOverride = (ReplaceOverride) override;
+				out.writeByte(REPLACE_OVERRIDE);
+				out.writeString(replaceOverride.getMethodName());
+				out.writeString(replaceOverride.getMethodReplacerBeanName());
+				List<String> typeIdentifiers = replaceOverride.getTypeIdentifiers();
+				out.writeStrings(typeIdentifiers.toArray(new String[typeIdentifiers.size()]));
+			}
+			else {
+				throw new NotSerializableException("Unsupported method override type: " + override.getClass().getName());
+			}
+		}
+
+		if (bd instanceof RootBeanDefinition) {
+			RootBeanDefinition rbd = (RootBeanDefinition) bd;
+			writeValue(out, rbd.getDecoratedDefinition());
+			out.writeBoolean(rbd.isFactoryMethodUnique);
+		}
+	}
+
+	private void writeAttributes(SnapshotOutputStream out, BeanMetadataAttributeAccessor accessor) throws IOException {
+		String[] attributeNames = accessor.attributeNames();
+		int count = 0;
+		for (String attributeName : attributeNames) {
+			if (!SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE.equals(attributeName)) {
+				count++;
+			}
+		}
+		out.writeInt(count);
+		for (String attributeName : attributeNames) {
+			if (!SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE.equals(attributeName)) {
+				out.writeString(attributeName);
+				writeValue(out, accessor.getAttribute(attributeName));
+			}
+		}
+	}
+
+	private void writeValueHolder(SnapshotOutputStream out, ConstructorArgumentValues.ValueHolder valueHolder)
+			throws IOException {
+
+		writeValue(out, valueHolder.getValue());
+		out.writeString(valueHolder.getType());
+		out.writeString(valueHolder.getName());
+	}
+
+	private void writeValue(SnapshotOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL_VALUE);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING_VALUE);
+			out.writeString((String) value);
+		}
+		else if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			out.writeByte(TYPED_STRING_VALUE);
+			out.writeString(typedValue.getValue());
+			out.writeString(typedValue.hasTargetType() ?
+					typedValue.getTargetType().getName() : typedValue.getTargetTypeName());
+			out.writeString(typedValue.getSpecifiedTypeName());
+			out.writeBoolean(typedValue.isDynamic());
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			out.writeByte(BEAN_REFERENCE_VALUE);
+			out.writeString(reference.getBeanName());
+			out.writeBoolean(reference.isToParent());
+		}
+		else if (value instanceof RuntimeBeanNameReference) {
+			out.writeByte(BEAN_NAME_REFERENCE_VALUE);
+			out.writeString(((RuntimeBeanNameReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			out.writeByte(BEAN_DEFINITION_HOLDER_VALUE);
+			out.writeString(holder.getBeanName());
+			out.writeStrings(holder.getAliases());
+			writeBeanDefinition(out, holder.getBeanDefinition());
+		}
+		else if (value instanceof BeanDefinition) {
+			out.writeByte(BEAN_DEFINITION_VALUE);
+			writeBeanDefinition(out, (BeanDefinition) value);
+		}
+		else if (value instanceof ManagedArray) {
+			ManagedArray array = (ManagedArray) value;
+			out.writeByte(MANAGED_ARRAY_VALUE);
+			out.writeString(array.getElementTypeName());
+			out.writeBoolean(array.isMergeEnabled());
+			writeElements(out, array);
+		}
+		else if (value instanceof ManagedList) {
+			ManagedList<?> list = (ManagedList<?>) value;
+			out.writeByte(MANAGED_LIST_VALUE);
+			out.writeString(list.getElementTypeName());
+			out.writeBoolean(list.isMergeEnabled());
+			writeElements(out, list);
+		}
+		else if (value instanceof ManagedSet) {
+			ManagedSet<?> set = (ManagedSet<?>) value;
+			out.writeByte(MANAGED_SET_VALUE);
+			out.writeString(set.getElementTypeName());
+			out.writeBoolean(set.isMergeEnabled());
+			writeElements(out, set);
+		}
+		else if (value instanceof ManagedMap) {
+			ManagedMap<?, ?> map = (ManagedMap<?, ?>) value;
+			out.writeByte(MANAGED_MAP_VALUE);
+			out.writeString(map.getKeyTypeName());
+			out.writeString(map.getValueTypeName());
+			out.writeBoolean(map.isMergeEnabled());
+			writeEntries(out, map);
+		}
+		else if (value instanceof ManagedProperties) {
+			ManagedProperties props = (ManagedProperties) value;
+			out.writeByte(MANAGED_PROPERTIES_VALUE);
+			out.writeBoolean(props.isMergeEnabled());
+			writeEntries(out, props);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN_VALUE);
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER_VALUE);
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG_VALUE);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE_VALUE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof Class) {
+			out.writeByte(CLASS_VALUE);
+			out.writeString(((Class<?>) value).getName());
+		}
+		else {
+			throw new NotSerializableException("Unsupported value type: " + value.getClass().getName());
+		}
+	}
+
+	private void writeElements(SnapshotOutputStream out, Collection<?> elements) throws IOException {
+		out.writeInt(elements.size());
+		for (Object element : elements) {
+			writeValue(out, element);
+		}
+	}
+
+	private void writeEntries(SnapshotOutputStream out, Map<?, ?> map) throws IOException {
+		out.writeInt(map.size());
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			writeValue(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+	}
+
+
+	/**
+	 * DataOutputStream that writes each distinct String only once,
+	 * referring to its first occurrence afterwards.
+	 */
+	private static class SnapshotOutputStream extends DataOutputStream {
+
+		private final Map<String, Integer> stringTable = new HashMap<String, Integer>();
+
+		public SnapshotOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		public void writeString(String value) throws IOException {
+			if (value == null) {
+				writeInt(-1);
+				return;
+			}
+			Integer index = this.stringTable.get(value);
+			if (index != null) {
+				writeInt(index);
+			}
+			else {
+				this.stringTable.put(value, this.stringTable.size());
+				writeInt(-2);
+				byte[] bytes = value.getBytes("UTF-8");
+				writeInt(bytes.length);
+				write(bytes);
+			}
+		}
+
+		public void writeStrings(String[] values) throws IOException {
+			if (values == null) {
+				writeInt(-1);
+				return;
+			}
+			writeInt(values.length);
+			for (String value : values) {
+				writeString(value);
+			}
+		}
+	}
+
+}
@@ -25,6 +25,7 @@ import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -32,6 +33,8 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -39,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import javax.inject.Provider;
 
@@ -61,6 +65,8 @@ import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.core.Conventions;
+import org.springframework.core.MethodParameter;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
@@ -101,6 +107,20 @@ import org.springframework.util.StringUtils;
 public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFactory
 		implements ConfigurableListableBeanFactory, BeanDefinitionRegistry, Serializable {
 
+	/**
+	 * Bean definition attribute that may indicate whether a singleton bean has
+	 * to be pre-instantiated sequentially on the calling thread, even in case of
+	 * a {@link #setPreInstantiationExecutor pre-instantiation executor}.
+	 * <p>The value of the attribute may be a <code>Boolean</code> or a
+	 * <code>String</code> ("true"/"false").
+	 */
+	public static final String SEQUENTIAL_PRE_INSTANTIATION_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(DefaultListableBeanFactory.class, "sequentialPreInstantiation");
+
+	/** Number of injection points to include in the autowire candidate resolution report */
+	private static final int AUTOWIRE_CANDIDATE_REPORT_SIZE = 10;
+
+
 	private static Class<?> javaxInjectProviderClass = null;
 
 	static {
@@ -130,6 +150,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Resolver to use for checking if a bean definition is an autowire candidate */
 	private AutowireCandidateResolver autowireCandidateResolver = new SimpleAutowireCandidateResolver();
 
+	/** Executor for pre-instantiating independent singletons in parallel, if any */
+	private Executor preInstantiationExecutor;
+
 	/** Map from dependency type to corresponding autowired value */
 	private final Map<Class<?>, Object> resolvableDependencies = new HashMap<Class<?>, Object>();
 
@@ -142,6 +165,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map of non-singleton bean names keyed by bean class */
 	private final Map<Class<?>, String[]> nonSingletonBeanNamesByType = new ConcurrentHashMap<Class<?>, String[]>();
 
+	/** Map of autowire candidate names, keyed by injection point characteristics, in case of frozen configuration */
+	private final Map<AutowireCandidateKey, String[]> autowireCandidateNamesCache =
+			new ConcurrentHashMap<AutowireCandidateKey, String[]>();
+
+	/** Time spent on resolving autowire candidates, per injection point, if debug logging is enabled */
+	private final Map<String, long[]> autowireCandidateResolutionTimes = new HashMap<String, long[]>();
+
 	/** List of bean definition names, in registration order */
 	private final List<String> beanDefinitionNames = new ArrayList<String>();
 
@@ -229,6 +259,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 		this.autowireCandidateResolver = autowireCandidateResolver;
+		this.autowireCandidateNamesCache.clear();
 	}
 
 	/**
@@ -238,6 +269,31 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.autowireCandidateResolver;
 	}
 
+	/**
+	 * Specify an Executor for pre-instantiating independent singletons in parallel.
+	 * <p>Default is none, creating all non-lazy singletons sequentially on the
+	 * thread that calls {@link #preInstantiateSingletons()}. If an Executor has been
+	 * specified, singletons are handed to it once the beans that they declare to
+	 * depend on - through bean references, "depends-on" or a factory bean - have
+	 * been created. Beans involved in circular references as well as beans marked
+	 * through the {@link #SEQUENTIAL_PRE_INSTANTIATION_ATTRIBUTE} are created
+	 * sequentially on the calling thread first.
+	 * <p>Note that any creation failure will be rethrown on the calling thread,
+	 * after all creations in progress have been completed.
+	 * @since 3.1.3
+	 */
+	public void setPreInstantiationExecutor(Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating independent singletons in parallel, if any.
+	 * @since 3.1.3
+	 */
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
 
 	@Override
 	public void copyConfigurationFrom(ConfigurableBeanFactory otherFactory) {
@@ -247,6 +303,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.autowireCandidateResolver = otherListableFactory.autowireCandidateResolver;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 			this.resolvableDependencies.putAll(otherListableFactory.resolvableDependencies);
 		}
 	}
@@ -576,41 +633,104 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return (this.configurationFrozen || super.isBeanEligibleForMetadataCaching(beanName));
 	}
 
+	/**
+	 * Considers non-singleton beans with a registered bean definition as eligible
+	 * for a creation plan once this factory's configuration has been frozen.
+	 * @see #freezeConfiguration()
+	 */
+	@Override
+	protected boolean isCreationPlanEligible(String beanName, RootBeanDefinition mbd) {
+		return (this.configurationFrozen && !mbd.isSingleton() && isCacheBeanMetadata() &&
+				this.beanDefinitionMap.containsKey(beanName));
+	}
+
 	public void preInstantiateSingletons() throws BeansException {
 		if (this.logger.isInfoEnabled()) {
 			this.logger.info("Pre-instantiating singletons in " + this);
 		}
-		synchronized (this.beanDefinitionMap) {
-			// Iterate over a copy to allow for init methods which in turn register new bean definitions.
-			// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
-			List<String> beanNames = new ArrayList<String>(this.beanDefinitionNames);
-			for (String beanName : beanNames) {
-				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-					if (isFactoryBean(beanName)) {
-						final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
-								public Boolean run() {
-									return ((SmartFactoryBean<?>) factory).isEagerInit();
-								}
-							}, getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-					else {
-						getBean(beanName);
+		if (this.preInstantiationExecutor != null) {
+			// Worker threads may need to acquire the bean definition lock: only hold it for copying.
+			List<String> beanNames;
+			synchronized (this.beanDefinitionMap) {
+				beanNames = new ArrayList<String>(this.beanDefinitionNames);
+			}
+			new ParallelSingletonPreInstantiator(this, this.preInstantiationExecutor).preInstantiate(beanNames);
+		}
+		else {
+			synchronized (this.beanDefinitionMap) {
+				// Iterate over a copy to allow for init methods which in turn register new bean definitions.
+				// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
+				List<String> beanNames = new ArrayList<String>(this.beanDefinitionNames);
+				for (String beanName : beanNames) {
+					RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+					if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+						preInstantiateSingleton(beanName);
 					}
 				}
 			}
 		}
+		logAutowireCandidateResolutionReport();
+	}
+
+	/**
+	 * Log the injection points that took the most time to resolve autowire
+	 * candidates for so far, at debug level, and reset the recorded times.
+	 */
+	private void logAutowireCandidateResolutionReport() {
+		if (!this.logger.isDebugEnabled()) {
+			return;
+		}
+		List<Map.Entry<String, long[]>> entries;
+		synchronized (this.autowireCandidateResolutionTimes) {
+			entries = new ArrayList<Map.Entry<String, long[]>>(this.autowireCandidateResolutionTimes.entrySet());
+			this.autowireCandidateResolutionTimes.clear();
+		}
+		if (entries.isEmpty()) {
+			return;
+		}
+		Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+			public int compare(Map.Entry<String, long[]> entry1, Map.Entry<String, long[]> entry2) {
+				long time1 = entry1.getValue()[1];
+				long time2 = entry2.getValue()[1];
+				return (time1 < time2 ? 1 : (time1 > time2 ? -1 : 0));
+			}
+		});
+		StringBuilder sb = new StringBuilder("Most expensive autowire candidate resolutions in ").append(this).append(':');
+		for (int i = 0; i < entries.size() && i < AUTOWIRE_CANDIDATE_REPORT_SIZE; i++) {
+			Map.Entry<String, long[]> entry = entries.get(i);
+			sb.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue()[1] / 1000).append(" \u00b5s in ");
+			sb.append(entry.getValue()[0]).append(" resolution(s)");
+		}
+		this.logger.debug(sb.toString());
+	}
+
+	/**
+	 * Pre-instantiate the given non-lazy singleton, taking FactoryBeans
+	 * and their "eagerInit" flag into account.
+	 * @param beanName the name of the bean
+	 */
+	void preInstantiateSingleton(String beanName) {
+		if (isFactoryBean(beanName)) {
+			final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
+			boolean isEagerInit;
+			if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+				isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+					public Boolean run() {
+						return ((SmartFactoryBean<?>) factory).isEagerInit();
+					}
+				}, getAccessControlContext());
+			}
+			else {
+				isEagerInit = (factory instanceof SmartFactoryBean &&
+						((SmartFactoryBean<?>) factory).isEagerInit());
+			}
+			if (isEagerInit) {
+				getBean(beanName);
+			}
+		}
+		else {
+			getBean(beanName);
+		}
 	}
 
 
@@ -696,6 +816,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// Remove any assumptions about by-type mappings
 		this.singletonBeanNamesByType.clear();
 		this.nonSingletonBeanNamesByType.clear();
+		this.autowireCandidateNamesCache.clear();
 
 		// Reset all bean definitions that have the given bean as parent (recursively).
 		for (String bdName : this.beanDefinitionNames) {
@@ -708,6 +829,18 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	/**
+	 * Removes any assumptions about by-type mappings and autowire candidates,
+	 * since the new singleton may match types that have been resolved before.
+	 */
+	@Override
+	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
+		super.registerSingleton(beanName, singletonObject);
+		this.singletonBeanNamesByType.clear();
+		this.nonSingletonBeanNamesByType.clear();
+		this.autowireCandidateNamesCache.clear();
+	}
+
 	/**
 	 * Only allows alias overriding if bean definition overriding is allowed.
 	 */
@@ -858,8 +991,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	protected Map<String, Object> findAutowireCandidates(
 			String beanName, Class<?> requiredType, DependencyDescriptor descriptor) {
 
-		String[] candidateNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
-				this, requiredType, true, descriptor.isEager());
+		String[] candidateNames = getAutowireCandidateNames(requiredType, descriptor);
 		Map<String, Object> result = new LinkedHashMap<String, Object>(candidateNames.length);
 		for (Class<?> autowiringType : this.resolvableDependencies.keySet()) {
 			if (autowiringType.isAssignableFrom(requiredType)) {
@@ -872,13 +1004,86 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 		for (String candidateName : candidateNames) {
-			if (!candidateName.equals(beanName) && isAutowireCandidate(candidateName, descriptor)) {
+			if (!candidateName.equals(beanName)) {
 				result.put(candidateName, getBean(candidateName));
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Determine the names of all beans that match the required type and qualify
+	 * as autowire candidates for the given dependency.
+	 * <p>The result is cached once the configuration has been frozen, for eager
+	 * dependencies, assuming that the {@link AutowireCandidateResolver} bases its
+	 * decision on the type, generic type, annotations and required flag of the
+	 * injection point only (which holds for all resolvers that ship with Spring).
+	 * The cache is reset whenever a bean definition or singleton is registered.
+	 * @param requiredType the actual type of bean to look for
+	 * @param descriptor the descriptor of the dependency to resolve
+	 * @return the candidate names, including the name of the bean to be wired, if matching
+	 * @see #freezeConfiguration()
+	 * @see #isAutowireCandidate(String, DependencyDescriptor)
+	 */
+	private String[] getAutowireCandidateNames(Class<?> requiredType, DependencyDescriptor descriptor) {
+		AutowireCandidateKey cacheKey = null;
+		if (isAutowireCandidateCacheEligible(descriptor)) {
+			cacheKey = new AutowireCandidateKey(requiredType, descriptor);
+			String[] cachedNames = this.autowireCandidateNamesCache.get(cacheKey);
+			if (cachedNames != null) {
+				return cachedNames;
+			}
+		}
+		long startTime = (this.logger.isDebugEnabled() ? System.nanoTime() : 0);
+		String[] beanNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
+				this, requiredType, true, descriptor.isEager());
+		List<String> candidateNames = new ArrayList<String>(beanNames.length);
+		for (String beanName : beanNames) {
+			if (isAutowireCandidate(beanName, descriptor)) {
+				candidateNames.add(beanName);
+			}
+		}
+		String[] result = StringUtils.toStringArray(candidateNames);
+		if (startTime != 0) {
+			recordAutowireCandidateResolution(descriptor, System.nanoTime() - startTime);
+		}
+		if (cacheKey != null) {
+			this.autowireCandidateNamesCache.put(cacheKey, result);
+		}
+		return result;
+	}
+
+	private boolean isAutowireCandidateCacheEligible(DependencyDescriptor descriptor) {
+		if (!this.configurationFrozen || !descriptor.isEager()) {
+			return false;
+		}
+		BeanFactory parentBeanFactory = getParentBeanFactory();
+		return (parentBeanFactory == null || (parentBeanFactory instanceof ConfigurableListableBeanFactory &&
+				((ConfigurableListableBeanFactory) parentBeanFactory).isConfigurationFrozen()));
+	}
+
+	private void recordAutowireCandidateResolution(DependencyDescriptor descriptor, long time) {
+		String injectionPoint;
+		if (descriptor.getField() != null) {
+			injectionPoint = "field '" + descriptor.getField().getName() + "' of class [" +
+					descriptor.getField().getDeclaringClass().getName() + "]";
+		}
+		else {
+			MethodParameter methodParameter = descriptor.getMethodParameter();
+			injectionPoint = "parameter " + methodParameter.getParameterIndex() + " of " +
+					(methodParameter.getMethod() != null ? methodParameter.getMethod() : methodParameter.getConstructor());
+		}
+		synchronized (this.autowireCandidateResolutionTimes) {
+			long[] times = this.autowireCandidateResolutionTimes.get(injectionPoint);
+			if (times == null) {
+				times = new long[2];
+				this.autowireCandidateResolutionTimes.put(injectionPoint, times);
+			}
+			times[0]++;
+			times[1] += time;
+		}
+	}
+
 	/**
 	 * Determine the primary autowire candidate in the given set of beans.
 	 * @param candidateBeans a Map of candidate names and candidate instances
@@ -1020,6 +1225,71 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Cache key for the autowire candidates of an injection point: its required
+	 * type, declared and generic type, annotations and required/eager flags.
+	 */
+	private static class AutowireCandidateKey {
+
+		private final Class<?> requiredType;
+
+		private final Class<?> dependencyType;
+
+		private final Type genericType;
+
+		private final Annotation[] annotations;
+
+		private final Annotation[] methodAnnotations;
+
+		private final boolean required;
+
+		private final boolean eager;
+
+		private final int hashCode;
+
+		public AutowireCandidateKey(Class<?> requiredType, DependencyDescriptor descriptor) {
+			this.requiredType = requiredType;
+			this.dependencyType = descriptor.getDependencyType();
+			MethodParameter methodParameter = descriptor.getMethodParameter();
+			if (methodParameter != null) {
+				this.genericType = methodParameter.getGenericParameterType();
+				this.methodAnnotations = methodParameter.getMethodAnnotations();
+			}
+			else {
+				this.genericType = descriptor.getField().getGenericType();
+				this.methodAnnotations = null;
+			}
+			this.annotations = descriptor.getAnnotations();
+			this.required = descriptor.isRequired();
+			this.eager = descriptor.isEager();
+			this.hashCode = (this.requiredType.hashCode() * 29 + this.genericType.hashCode()) * 29 +
+					Arrays.hashCode(this.annotations);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof AutowireCandidateKey)) {
+				return false;
+			}
+			AutowireCandidateKey otherKey = (AutowireCandidateKey) other;
+			return (this.requiredType.equals(otherKey.requiredType) &&
+					this.dependencyType.equals(otherKey.dependencyType) &&
+					this.genericType.equals(otherKey.genericType) &&
+					Arrays.equals(this.annotations, otherKey.annotations) &&
+					Arrays.equals(this.methodAnnotations, otherKey.methodAnnotations) &&
+					this.required == otherKey.required && this.eager == otherKey.eager);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
 	/**
 	 * Serializable ObjectFactory for lazy resolution of a dependency.
 	 */
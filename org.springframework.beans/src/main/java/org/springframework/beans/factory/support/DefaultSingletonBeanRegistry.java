@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,18 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +38,7 @@ import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -63,6 +67,14 @@ import org.springframework.util.StringUtils;
  * (which inherit from it). Can alternatively also be used as a nested
  * helper to delegate to.
  *
+ * <p>As of Spring 3.1.3, fully initialized singletons are read without locking,
+ * and singleton creation is guarded by a lock per bean name rather than by the
+ * registry-wide {@link #getSingletonMutex() singleton mutex}, allowing different
+ * singletons to be created concurrently. A thread that would otherwise wait for
+ * a singleton created by another thread which in turn waits for the current one
+ * resolves the circular reference through an early singleton reference, just
+ * like within a single thread.
+ *
  * @author Juergen Hoeller
  * @since 2.0
  * @see #registerSingleton
@@ -86,10 +98,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<String, Object>();
 
 	/** Cache of singleton factories: bean name --> ObjectFactory */
-	private final Map<String, ObjectFactory> singletonFactories = new HashMap<String, ObjectFactory>();
+	private final Map<String, ObjectFactory> singletonFactories = new ConcurrentHashMap<String, ObjectFactory>();
 
 	/** Cache of early singleton objects: bean name --> bean instance */
-	private final Map<String, Object> earlySingletonObjects = new HashMap<String, Object>();
+	private final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<String, Object>();
 
 	/** Set of registered singletons, containing the bean names in registration order */
 	private final Set<String> registeredSingletons = new LinkedHashSet<String>(16);
@@ -98,13 +110,23 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> singletonsCurrentlyInCreation = Collections.synchronizedSet(new HashSet<String>());
 
 	/** Names of beans currently excluded from in creation checks */
-	private final Set<String> inCreationCheckExclusions = new HashSet<String>();
+	private final Set<String> inCreationCheckExclusions = Collections.synchronizedSet(new HashSet<String>());
+
+	/** Creation locks of singletons: bean name --> lock, modified under the creation monitor only */
+	private final ConcurrentMap<String, SingletonLock> singletonLocks = new ConcurrentHashMap<String, SingletonLock>();
+
+	/** Threads waiting for a creation lock: thread --> bean name, guarded by the creation monitor */
+	private final Map<Thread, String> waitingThreads = new HashMap<Thread, String>();
 
-	/** List of suppressed Exceptions, available for associating related causes */
-	private Set<Exception> suppressedExceptions;
+	/** Monitor for handing over creation locks between threads, only held briefly */
+	private final Object creationMonitor = new Object();
+
+	/** Suppressed Exceptions of the current thread, available for associating related causes */
+	private final ThreadLocal<Set<Exception>> suppressedExceptions =
+			new NamedThreadLocal<Set<Exception>>("Suppressed singleton creation exceptions");
 
 	/** Flag that indicates whether we're currently within destroySingletons */
-	private boolean singletonsCurrentlyInDestruction = false;
+	private volatile boolean singletonsCurrentlyInDestruction = false;
 
 	/** Disposable bean instances: bean name --> disposable instance */
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<String, Object>();
@@ -163,6 +185,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 				this.registeredSingletons.add(beanName);
 			}
 		}
+		// Threads waiting in a circular fashion may now be able to resolve an early reference.
+		synchronized (this.creationMonitor) {
+			if (!this.waitingThreads.isEmpty()) {
+				this.creationMonitor.notifyAll();
+			}
+		}
 	}
 
 	public Object getSingleton(String beanName) {
@@ -173,6 +201,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * Return the (raw) singleton object registered under the given name.
 	 * <p>Checks already instantiated singletons and also allows for an early
 	 * reference to a currently created singleton (resolving a circular reference).
+	 * <p>Early references to a singleton that is being created by another
+	 * thread are not exposed: <code>null</code> is returned in such a case,
+	 * unless early references are not to be created anyway.
 	 * @param beanName the name of the bean to look for
 	 * @param allowEarlyReference whether early references should be created or not
 	 * @return the registered singleton object, or <code>null</code> if none found
@@ -180,19 +211,46 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		Object singletonObject = this.singletonObjects.get(beanName);
 		if (singletonObject == null) {
-			synchronized (this.singletonObjects) {
+			if (!allowEarlyReference) {
 				singletonObject = this.earlySingletonObjects.get(beanName);
-				if (singletonObject == null && allowEarlyReference) {
-					ObjectFactory singletonFactory = this.singletonFactories.get(beanName);
-					if (singletonFactory != null) {
+			}
+			else if ((this.earlySingletonObjects.containsKey(beanName) || this.singletonFactories.containsKey(beanName)) &&
+					!isSingletonLockedByOtherThread(beanName)) {
+				singletonObject = getEarlySingletonReference(beanName);
+			}
+		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+	}
+
+	/**
+	 * Return an early reference to the specified singleton, obtaining it
+	 * from the registered singleton factory if necessary.
+	 * @param beanName the name of the bean
+	 * @return the early singleton reference, or <code>null</code> if none available
+	 */
+	private Object getEarlySingletonReference(String beanName) {
+		Object singletonObject = this.earlySingletonObjects.get(beanName);
+		if (singletonObject == null) {
+			ObjectFactory singletonFactory = this.singletonFactories.get(beanName);
+			if (singletonFactory != null) {
+				// Obtain the early reference only once, locking this singleton's factory only.
+				synchronized (singletonFactory) {
+					singletonObject = this.earlySingletonObjects.get(beanName);
+					if (singletonObject == null) {
 						singletonObject = singletonFactory.getObject();
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						this.singletonFactories.remove(beanName);
+						synchronized (this.singletonObjects) {
+							if (this.singletonFactories.get(beanName) == singletonFactory) {
+								if (singletonObject != null) {
+									this.earlySingletonObjects.put(beanName, singletonObject);
+								}
+								this.singletonFactories.remove(beanName);
+							}
+						}
 					}
 				}
 			}
 		}
-		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+		return singletonObject;
 	}
 
 	/**
@@ -205,43 +263,65 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
-		synchronized (this.singletonObjects) {
-			Object singletonObject = this.singletonObjects.get(beanName);
-			if (singletonObject == null) {
-				if (this.singletonsCurrentlyInDestruction) {
-					throw new BeanCreationNotAllowedException(beanName,
-							"Singleton bean creation not allowed while the singletons of this factory are in destruction " +
-							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject == null) {
+			if (!acquireSingletonLock(beanName)) {
+				// Circular wait between threads: resolve it like a circular reference within a thread.
+				singletonObject = getEarlySingletonReference(beanName);
+				if (singletonObject == null) {
+					throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in creation " +
+							"in another thread, which in turn waits for a bean that the current thread creates: " +
+							"Is there an unresolvable circular reference?");
 				}
 				if (logger.isDebugEnabled()) {
-					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
-				}
-				beforeSingletonCreation(beanName);
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
-				if (recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet<Exception>();
-				}
-				try {
-					singletonObject = singletonFactory.getObject();
+					logger.debug("Returning eagerly cached instance of singleton bean '" + beanName +
+							"' that is not fully initialized yet - a consequence of a circular reference between threads");
 				}
-				catch (BeanCreationException ex) {
+				return (singletonObject != NULL_OBJECT ? singletonObject : null);
+			}
+			try {
+				singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject == null) {
+					if (this.singletonsCurrentlyInDestruction) {
+						throw new BeanCreationNotAllowedException(beanName,
+								"Singleton bean creation not allowed while the singletons of this factory are in destruction " +
+								"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+					}
+					if (logger.isDebugEnabled()) {
+						logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+					}
+					beforeSingletonCreation(beanName);
+					Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+					boolean recordSuppressedExceptions = (suppressedExceptions == null);
 					if (recordSuppressedExceptions) {
-						for (Exception suppressedException : this.suppressedExceptions) {
-							ex.addRelatedCause(suppressedException);
+						suppressedExceptions = new LinkedHashSet<Exception>();
+						this.suppressedExceptions.set(suppressedExceptions);
+					}
+					try {
+						singletonObject = singletonFactory.getObject();
+					}
+					catch (BeanCreationException ex) {
+						if (recordSuppressedExceptions) {
+							for (Exception suppressedException : suppressedExceptions) {
+								ex.addRelatedCause(suppressedException);
+							}
 						}
+						throw ex;
 					}
-					throw ex;
-				}
-				finally {
-					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+					finally {
+						if (recordSuppressedExceptions) {
+							this.suppressedExceptions.remove();
+						}
+						afterSingletonCreation(beanName);
 					}
-					afterSingletonCreation(beanName);
+					addSingleton(beanName, singletonObject);
 				}
-				addSingleton(beanName, singletonObject);
 			}
-			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+			finally {
+				releaseSingletonLock(beanName);
+			}
 		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
 	}
 
 	/**
@@ -250,13 +330,141 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param ex the Exception to register
 	 */
 	protected void onSuppressedException(Exception ex) {
-		synchronized (this.singletonObjects) {
-			if (this.suppressedExceptions != null) {
-				this.suppressedExceptions.add(ex);
+		Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+		if (suppressedExceptions != null) {
+			suppressedExceptions.add(ex);
+		}
+	}
+
+	/**
+	 * Acquire the creation lock for the specified singleton, waiting for another
+	 * thread that currently holds it. The lock is reentrant for the current thread.
+	 * <p>Does not wait if the owning thread in turn (directly or indirectly) waits
+	 * for a singleton lock held by the current thread, as long as the circular
+	 * wait can be resolved through an early singleton reference.
+	 * @param beanName the name of the bean
+	 * @return <code>true</code> if the lock has been acquired (to be released through
+	 * {@link #releaseSingletonLock}), or <code>false</code> if waiting for it would
+	 * lead to a deadlock between threads
+	 * @since 3.1.3
+	 */
+	protected boolean acquireSingletonLock(String beanName) {
+		Thread currentThread = Thread.currentThread();
+		boolean waiting = false;
+		boolean interrupted = false;
+		synchronized (this.creationMonitor) {
+			try {
+				for (;;) {
+					SingletonLock lock = this.singletonLocks.get(beanName);
+					if (lock == null) {
+						this.singletonLocks.put(beanName, new SingletonLock(currentThread));
+						return true;
+					}
+					if (lock.owner == currentThread) {
+						lock.holdCount++;
+						return true;
+					}
+					List<String> cycle = findWaitCycle(currentThread, lock);
+					if (cycle != null) {
+						// Back off if we can use an early reference or if nobody in the cycle can.
+						if (hasEarlySingletonReference(beanName) || !hasEarlySingletonReference(cycle)) {
+							return false;
+						}
+					}
+					if (!waiting) {
+						this.waitingThreads.put(currentThread, beanName);
+						// Let other waiting threads check for a circular wait involving the current thread.
+						this.creationMonitor.notifyAll();
+						waiting = true;
+					}
+					try {
+						this.creationMonitor.wait();
+					}
+					catch (InterruptedException ex) {
+						// Singleton creation cannot be abandoned: keep waiting.
+						interrupted = true;
+					}
+				}
+			}
+			finally {
+				if (waiting) {
+					this.waitingThreads.remove(currentThread);
+				}
+				if (interrupted) {
+					currentThread.interrupt();
+				}
 			}
 		}
 	}
 
+	/**
+	 * Release the creation lock for the specified singleton.
+	 * @param beanName the name of the bean
+	 * @throws IllegalStateException if the current thread does not hold the lock
+	 * @since 3.1.3
+	 * @see #acquireSingletonLock
+	 */
+	protected void releaseSingletonLock(String beanName) {
+		synchronized (this.creationMonitor) {
+			SingletonLock lock = this.singletonLocks.get(beanName);
+			if (lock == null || lock.owner != Thread.currentThread()) {
+				throw new IllegalStateException("Singleton lock for '" + beanName + "' not held by current thread");
+			}
+			if (--lock.holdCount == 0) {
+				this.singletonLocks.remove(beanName);
+				if (!this.waitingThreads.isEmpty()) {
+					this.creationMonitor.notifyAll();
+				}
+			}
+		}
+	}
+
+	private boolean isSingletonLockedByOtherThread(String beanName) {
+		SingletonLock lock = this.singletonLocks.get(beanName);
+		return (lock != null && lock.owner != Thread.currentThread());
+	}
+
+	/**
+	 * Determine the names of the singletons that the threads in a circular
+	 * wait are waiting for, starting with the given lock's singleton.
+	 * To be called with the creation monitor held.
+	 * @return the bean names, or <code>null</code> if there is no circular wait
+	 */
+	private List<String> findWaitCycle(Thread currentThread, SingletonLock lock) {
+		List<String> cycle = new ArrayList<String>();
+		Set<Thread> visited = new HashSet<Thread>();
+		Thread owner = lock.owner;
+		while (visited.add(owner)) {
+			String awaited = this.waitingThreads.get(owner);
+			if (awaited == null) {
+				return null;
+			}
+			SingletonLock awaitedLock = this.singletonLocks.get(awaited);
+			if (awaitedLock == null) {
+				return null;
+			}
+			cycle.add(awaited);
+			if (awaitedLock.owner == currentThread) {
+				return cycle;
+			}
+			owner = awaitedLock.owner;
+		}
+		return null;
+	}
+
+	private boolean hasEarlySingletonReference(String beanName) {
+		return (this.earlySingletonObjects.containsKey(beanName) || this.singletonFactories.containsKey(beanName));
+	}
+
+	private boolean hasEarlySingletonReference(List<String> beanNames) {
+		for (String beanName : beanNames) {
+			if (hasEarlySingletonReference(beanName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Remove the bean with the given name from the singleton cache of this factory,
 	 * to be able to clean up eager registration of a singleton if creation failed.
@@ -432,9 +640,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (logger.isInfoEnabled()) {
 			logger.info("Destroying singletons in " + this);
 		}
-		synchronized (this.singletonObjects) {
-			this.singletonsCurrentlyInDestruction = true;
-		}
+		this.singletonsCurrentlyInDestruction = true;
 
 		synchronized (this.disposableBeans) {
 			String[] disposableBeanNames = StringUtils.toStringArray(this.disposableBeans.keySet());
@@ -532,9 +738,27 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * any sort of extended singleton creation phase. In particular, subclasses
 	 * should <i>not</i> have their own mutexes involved in singleton creation,
 	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>As of Spring 3.1.3, the registry itself only holds this mutex for
+	 * short-lived updates of its internal state; prefer the per-singleton
+	 * {@link #acquireSingletonLock} for extended creation phases.
 	 */
 	protected final Object getSingletonMutex() {
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Reentrant creation lock for a specific singleton, guarded by the creation monitor.
+	 */
+	private static class SingletonLock {
+
+		private final Thread owner;
+
+		private int holdCount = 1;
+
+		public SingletonLock(Thread owner) {
+			this.owner = owner;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,8 +21,8 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanCreationException;
@@ -43,7 +43,7 @@ import org.springframework.beans.factory.FactoryBeanNotInitializedException;
 public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanRegistry {
 
 	/** Cache of singleton objects created by FactoryBeans: FactoryBean name --> object */
-	private final Map<String, Object> factoryBeanObjectCache = new ConcurrentHashMap<String, Object>();
+	private final ConcurrentMap<String, Object> factoryBeanObjectCache = new ConcurrentHashMap<String, Object>();
 
 
 	/**
@@ -96,14 +96,32 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 	 */
 	protected Object getObjectFromFactoryBean(FactoryBean factory, String beanName, boolean shouldPostProcess) {
 		if (factory.isSingleton() && containsSingleton(beanName)) {
-			synchronized (getSingletonMutex()) {
-				Object object = this.factoryBeanObjectCache.get(beanName);
-				if (object == null) {
-					object = doGetObjectFromFactoryBean(factory, beanName, shouldPostProcess);
-					this.factoryBeanObjectCache.put(beanName, (object != null ? object : NULL_OBJECT));
+			Object object = this.factoryBeanObjectCache.get(beanName);
+			if (object == null) {
+				// Only lock the FactoryBean's own singleton: may back off in case of a circular wait.
+				boolean locked = acquireSingletonLock(beanName);
+				try {
+					object = this.factoryBeanObjectCache.get(beanName);
+					if (object == null) {
+						object = doGetObjectFromFactoryBean(factory, beanName, shouldPostProcess);
+						if (object == null) {
+							object = NULL_OBJECT;
+						}
+						// Without the lock, another thread may have cached an object in the meantime:
+						// keep the first one, so that all callers see the same singleton object.
+						Object alreadyCached = this.factoryBeanObjectCache.putIfAbsent(beanName, object);
+						if (alreadyCached != null) {
+							object = alreadyCached;
+						}
+					}
+				}
+				finally {
+					if (locked) {
+						releaseSingletonLock(beanName);
+					}
 				}
-				return (object != NULL_OBJECT ? object : null);
 			}
+			return (object != NULL_OBJECT ? object : null);
 		}
 		else {
 			return doGetObjectFromFactoryBean(factory, beanName, shouldPostProcess);
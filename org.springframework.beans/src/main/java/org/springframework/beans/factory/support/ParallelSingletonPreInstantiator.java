@@ -0,0 +1,388 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Helper class for pre-instantiating the non-lazy singletons of a
+ * {@link DefaultListableBeanFactory} in parallel.
+ *
+ * <p>Builds a dependency graph from the bean references, "depends-on" declarations
+ * and factory bean names in the bean definitions, as well as from the dependencies
+ * that the factory registered so far. Each bean is handed to the given Executor
+ * once all the beans that it depends on have been created. Beans marked through
+ * {@link DefaultListableBeanFactory#SEQUENTIAL_PRE_INSTANTIATION_ATTRIBUTE} and beans
+ * that are involved in circular references - or depend on such beans - are created
+ * sequentially on the calling thread first, in registration order.
+ *
+ * <p>Dependencies that are only known at creation time (e.g. autowired ones) are
+ * simply created on demand by whichever thread needs them first.
+ *
+ * @since 3.1.3
+ * @see DefaultListableBeanFactory#setPreInstantiationExecutor
+ */
+class ParallelSingletonPreInstantiator {
+
+	private final DefaultListableBeanFactory beanFactory;
+
+	private final Executor executor;
+
+	private final Log logger;
+
+	private final ClassLoader contextClassLoader;
+
+	/** Creation time per bean name, in nanoseconds */
+	private final Map<String, Long> creationTimes = new ConcurrentHashMap<String, Long>();
+
+	private final Object monitor = new Object();
+
+	/** Number of beans handed to the Executor but not completed yet: guarded by monitor */
+	private int running = 0;
+
+	/** First failure encountered during parallel creation: guarded by monitor */
+	private Throwable failure;
+
+
+	/**
+	 * Create a new ParallelSingletonPreInstantiator for the given bean factory and Executor.
+	 * @param beanFactory the bean factory to pre-instantiate singletons for
+	 * @param executor the Executor to create independent singletons with
+	 */
+	public ParallelSingletonPreInstantiator(DefaultListableBeanFactory beanFactory, Executor executor) {
+		this.beanFactory = beanFactory;
+		this.executor = executor;
+		this.logger = beanFactory.logger;
+		this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+	}
+
+
+	/**
+	 * Pre-instantiate all non-lazy singletons among the given bean names,
+	 * returning once all of them have been created.
+	 * @param beanNames the names of all bean definitions, in registration order
+	 */
+	public void preInstantiate(List<String> beanNames) {
+		long startTime = System.nanoTime();
+
+		// Collect eligible beans, separating the ones that need to be created sequentially.
+		Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+		Set<String> sequentialBeanNames = new LinkedHashSet<String>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = this.beanFactory.getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				if (isSequential(bd)) {
+					sequentialBeanNames.add(beanName);
+				}
+				else {
+					nodes.put(beanName, new Node(beanName));
+				}
+			}
+		}
+
+		// Link each bean to the beans that it depends on.
+		for (Node node : nodes.values()) {
+			for (String dependency : collectDependencies(node.beanName)) {
+				Node dependencyNode = nodes.get(dependency);
+				if (dependencyNode != null) {
+					node.unresolved++;
+					dependencyNode.dependents.add(node);
+				}
+			}
+		}
+
+		// Beans that never become ready are involved in (or depend on) circular references.
+		List<Node> ready = new ArrayList<Node>();
+		Set<Node> schedulable = determineSchedulableNodes(nodes.values(), ready);
+		int sequentialCount = sequentialBeanNames.size();
+		for (String beanName : beanNames) {
+			Node node = nodes.get(beanName);
+			if (sequentialBeanNames.contains(beanName) || (node != null && !schedulable.contains(node))) {
+				if (node != null) {
+					sequentialCount++;
+				}
+				instantiate(beanName);
+			}
+		}
+
+		if (!ready.isEmpty()) {
+			synchronized (this.monitor) {
+				this.running = ready.size();
+			}
+			for (Node node : ready) {
+				submit(node);
+			}
+			awaitCompletion();
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info("Pre-instantiated " + (schedulable.size() + sequentialCount) + " singletons in " +
+					(System.nanoTime() - startTime) / 1000000 + " ms (" + schedulable.size() + " in parallel, " +
+					sequentialCount + " sequentially)");
+		}
+		if (logger.isDebugEnabled()) {
+			logCreationTimes();
+		}
+	}
+
+	private boolean isSequential(BeanDefinition bd) {
+		Object value = bd.getAttribute(DefaultListableBeanFactory.SEQUENTIAL_PRE_INSTANTIATION_ATTRIBUTE);
+		return (Boolean.TRUE.equals(value) ||
+				(value instanceof String && Boolean.valueOf((String) value)));
+	}
+
+	/**
+	 * Simulate the creation order on the dependency graph, collecting the nodes
+	 * without dependencies into the given list and returning all nodes whose
+	 * dependencies can be fully resolved.
+	 */
+	private Set<Node> determineSchedulableNodes(Collection<Node> nodes, List<Node> ready) {
+		Map<Node, Integer> unresolved = new LinkedHashMap<Node, Integer>();
+		LinkedList<Node> queue = new LinkedList<Node>();
+		for (Node node : nodes) {
+			if (node.unresolved == 0) {
+				ready.add(node);
+				queue.add(node);
+			}
+			else {
+				unresolved.put(node, node.unresolved);
+			}
+		}
+		Set<Node> schedulable = new LinkedHashSet<Node>();
+		while (!queue.isEmpty()) {
+			Node node = queue.removeFirst();
+			schedulable.add(node);
+			for (Node dependent : node.dependents) {
+				int count = unresolved.get(dependent) - 1;
+				unresolved.put(dependent, count);
+				if (count == 0) {
+					queue.add(dependent);
+				}
+			}
+		}
+		return schedulable;
+	}
+
+	/**
+	 * Collect the canonical names of all beans that the given bean
+	 * is known to depend on before its creation.
+	 */
+	private Set<String> collectDependencies(String beanName) {
+		Set<String> references = new LinkedHashSet<String>();
+		collectReferences(this.beanFactory.getMergedLocalBeanDefinition(beanName), references);
+		Collections.addAll(references, this.beanFactory.getDependenciesForBean(beanName));
+		Set<String> dependencies = new LinkedHashSet<String>(references.size());
+		for (String reference : references) {
+			dependencies.add(this.beanFactory.canonicalName(BeanFactoryUtils.transformedBeanName(reference)));
+		}
+		return dependencies;
+	}
+
+	private void collectReferences(BeanDefinition bd, Set<String> references) {
+		if (bd instanceof AbstractBeanDefinition) {
+			String[] dependsOn = ((AbstractBeanDefinition) bd).getDependsOn();
+			if (dependsOn != null) {
+				Collections.addAll(references, dependsOn);
+			}
+		}
+		if (bd.getFactoryBeanName() != null) {
+			references.add(bd.getFactoryBeanName());
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+			collectReferences(pv.getValue(), references);
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+			collectReferences(valueHolder.getValue(), references);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			collectReferences(valueHolder.getValue(), references);
+		}
+	}
+
+	private void collectReferences(Object value, Set<String> references) {
+		if (value instanceof RuntimeBeanReference) {
+			references.add(((RuntimeBeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectReferences(((BeanDefinitionHolder) value).getBeanDefinition(), references);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectReferences((BeanDefinition) value, references);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectReferences(element, references);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectReferences(entry.getKey(), references);
+				collectReferences(entry.getValue(), references);
+			}
+		}
+	}
+
+	private void instantiate(String beanName) {
+		long startTime = System.nanoTime();
+		this.beanFactory.preInstantiateSingleton(beanName);
+		this.creationTimes.put(beanName, System.nanoTime() - startTime);
+	}
+
+	private void submit(Node node) {
+		CreationTask task = new CreationTask(node);
+		try {
+			this.executor.execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			task.run();
+		}
+	}
+
+	private void complete(Node node, Throwable ex) {
+		List<Node> ready = new ArrayList<Node>();
+		synchronized (this.monitor) {
+			this.running--;
+			if (ex != null && this.failure == null) {
+				this.failure = ex;
+			}
+			if (this.failure == null) {
+				for (Node dependent : node.dependents) {
+					if (--dependent.unresolved == 0) {
+						ready.add(dependent);
+					}
+				}
+				this.running += ready.size();
+			}
+			if (this.running == 0) {
+				this.monitor.notifyAll();
+			}
+		}
+		for (Node dependent : ready) {
+			submit(dependent);
+		}
+	}
+
+	private void awaitCompletion() {
+		boolean interrupted = false;
+		Throwable ex;
+		synchronized (this.monitor) {
+			while (this.running > 0) {
+				try {
+					this.monitor.wait();
+				}
+				catch (InterruptedException ie) {
+					// Creations in progress cannot be abandoned: keep waiting.
+					interrupted = true;
+				}
+			}
+			ex = this.failure;
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (ex != null) {
+			ReflectionUtils.rethrowRuntimeException(ex);
+		}
+	}
+
+	private void logCreationTimes() {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(this.creationTimes.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+				return o2.getValue().compareTo(o1.getValue());
+			}
+		});
+		StringBuilder sb = new StringBuilder("Singleton creation times (including on-demand dependencies):");
+		for (Map.Entry<String, Long> entry : entries) {
+			sb.append("\n  '").append(entry.getKey()).append("': ");
+			sb.append(entry.getValue() / 1000).append(" microseconds");
+		}
+		logger.debug(sb.toString());
+	}
+
+
+	/**
+	 * A bean in the dependency graph.
+	 */
+	private static class Node {
+
+		private final String beanName;
+
+		private final List<Node> dependents = new ArrayList<Node>(4);
+
+		/** Number of dependencies not created yet: guarded by the instantiator's monitor */
+		private int unresolved = 0;
+
+		public Node(String beanName) {
+			this.beanName = beanName;
+		}
+	}
+
+
+	/**
+	 * Task creating the singleton for a given node, reporting back on completion.
+	 */
+	private class CreationTask implements Runnable {
+
+		private final Node node;
+
+		public CreationTask(Node node) {
+			this.node = node;
+		}
+
+		public void run() {
+			Thread currentThread = Thread.currentThread();
+			ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+			currentThread.setContextClassLoader(contextClassLoader);
+			Throwable failure = null;
+			try {
+				instantiate(this.node.beanName);
+			}
+			catch (Throwable ex) {
+				failure = ex;
+			}
+			finally {
+				currentThread.setContextClassLoader(previousClassLoader);
+			}
+			complete(this.node, failure);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -80,6 +80,9 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 
 	final Object postProcessingLock = new Object();
 
+	/** Package-visible field for caching the creation plan of a non-singleton bean */
+	volatile BeanCreationPlan creationPlan;
+
 
 	/**
 	 * Create a new RootBeanDefinition, to be configured through its bean
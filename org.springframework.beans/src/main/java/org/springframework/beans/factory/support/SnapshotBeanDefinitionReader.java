@@ -0,0 +1,441 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.BeanMetadataAttributeAccessor;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.Conventions;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Bean definition reader for the binary snapshots written by a
+ * {@link BeanDefinitionSnapshotWriter}, registering the bean definitions
+ * (and aliases) contained in a snapshot without any further parsing.
+ *
+ * <p>Each registered bean definition is marked with the {@link #SNAPSHOT_ATTRIBUTE},
+ * allowing post-processors to skip work that is already reflected in the snapshot.
+ *
+ * <p>If an {@link #setExpectedFingerprint expected fingerprint} has been specified,
+ * a snapshot is only accepted if it has been written with the same fingerprint.
+ * Since a snapshot is completely read before any bean definition gets registered,
+ * an out-of-date or corrupt snapshot leaves the registry untouched. If a bean
+ * definition or alias cannot be registered, the bean definitions and aliases
+ * registered from the snapshot so far are removed again, restoring any bean
+ * definitions that they replaced.
+ *
+ * @since 3.1.3
+ * @see BeanDefinitionSnapshotWriter
+ */
+public class SnapshotBeanDefinitionReader extends AbstractBeanDefinitionReader {
+
+	/**
+	 * Bean definition attribute that marks a bean definition as restored from a snapshot.
+	 */
+	public static final String SNAPSHOT_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(SnapshotBeanDefinitionReader.class, "snapshot");
+
+
+	private String expectedFingerprint;
+
+
+	/**
+	 * Create new SnapshotBeanDefinitionReader for the given bean factory.
+	 * @param registry the BeanFactory to load bean definitions into,
+	 * in the form of a BeanDefinitionRegistry
+	 */
+	public SnapshotBeanDefinitionReader(BeanDefinitionRegistry registry) {
+		super(registry);
+	}
+
+
+	/**
+	 * Specify the fingerprint that a snapshot needs to have been written with,
+	 * typically identifying the current state of the original configuration sources.
+	 * <p>Default is none, accepting any snapshot.
+	 * @see BeanDefinitionSnapshotWriter#writeSnapshot
+	 */
+	public void setExpectedFingerprint(String expectedFingerprint) {
+		this.expectedFingerprint = expectedFingerprint;
+	}
+
+
+	/**
+	 * Load bean definitions from the specified snapshot.
+	 * @param resource the resource descriptor for the snapshot
+	 * @return the number of bean definitions found
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors,
+	 * or if the snapshot does not match the expected fingerprint
+	 */
+	public int loadBeanDefinitions(Resource resource) throws BeanDefinitionStoreException {
+		List<BeanDefinitionHolder> holders;
+		try {
+			InputStream inputStream = resource.getInputStream();
+			try {
+				holders = readSnapshot(resource, new SnapshotInputStream(new BufferedInputStream(inputStream)));
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("IOException reading bean definition snapshot from " + resource, ex);
+		}
+		catch (ClassNotFoundException ex) {
+			throw new BeanDefinitionStoreException("Class not found in bean definition snapshot from " + resource, ex);
+		}
+		registerBeanDefinitions(holders);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + holders.size() + " bean definitions from snapshot " + resource);
+		}
+		return holders.size();
+	}
+
+	/**
+	 * Register the given bean definitions and their aliases, either all of them
+	 * or - in case of an exception - none of them.
+	 */
+	private void registerBeanDefinitions(List<BeanDefinitionHolder> holders) {
+		BeanDefinitionRegistry registry = getRegistry();
+		// Bean names registered so far, mapped to the bean definitions that they replaced (if any)
+		Map<String, BeanDefinition> registeredNames = new LinkedHashMap<String, BeanDefinition>();
+		List<String> registeredAliases = new ArrayList<String>();
+		try {
+			for (BeanDefinitionHolder holder : holders) {
+				String beanName = holder.getBeanName();
+				BeanDefinition replaced = null;
+				if (registry.containsBeanDefinition(beanName) && !registeredNames.containsKey(beanName)) {
+					replaced = registry.getBeanDefinition(beanName);
+				}
+				registry.registerBeanDefinition(beanName, holder.getBeanDefinition());
+				if (!registeredNames.containsKey(beanName)) {
+					registeredNames.put(beanName, replaced);
+				}
+				String[] aliases = holder.getAliases();
+				if (aliases != null) {
+					for (String alias : aliases) {
+						boolean existing = registry.isAlias(alias);
+						registry.registerAlias(beanName, alias);
+						if (!existing) {
+							registeredAliases.add(alias);
+						}
+					}
+				}
+			}
+		}
+		catch (RuntimeException ex) {
+			for (String alias : registeredAliases) {
+				registry.removeAlias(alias);
+			}
+			for (Map.Entry<String, BeanDefinition> entry : registeredNames.entrySet()) {
+				if (entry.getValue() != null) {
+					registry.registerBeanDefinition(entry.getKey(), entry.getValue());
+				}
+				else {
+					registry.removeBeanDefinition(entry.getKey());
+				}
+			}
+			throw ex;
+		}
+	}
+
+	private List<BeanDefinitionHolder> readSnapshot(Resource resource, SnapshotInputStream in)
+			throws IOException, ClassNotFoundException {
+
+		if (in.readInt() != BeanDefinitionSnapshotWriter.MAGIC) {
+			throw new BeanDefinitionStoreException(resource.getDescription(), "Not a bean definition snapshot");
+		}
+		if (in.readInt() != BeanDefinitionSnapshotWriter.VERSION) {
+			throw new BeanDefinitionStoreException(resource.getDescription(), "Unsupported bean definition snapshot version");
+		}
+		String fingerprint = in.readString();
+		if (this.expectedFingerprint != null && !this.expectedFingerprint.equals(fingerprint)) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Bean definition snapshot is out of date: expected fingerprint [" + this.expectedFingerprint +
+					"] but found [" + fingerprint + "]");
+		}
+		int count = in.readInt();
+		List<BeanDefinitionHolder> holders = new ArrayList<BeanDefinitionHolder>(count);
+		for (int i = 0; i < count; i++) {
+			String beanName = in.readString();
+			String[] aliases = in.readStrings();
+			AbstractBeanDefinition bd = readBeanDefinition(in);
+			bd.setAttribute(SNAPSHOT_ATTRIBUTE, Boolean.TRUE);
+			holders.add(new BeanDefinitionHolder(bd, beanName, (ObjectUtils.isEmpty(aliases) ? null : aliases)));
+		}
+		return holders;
+	}
+
+	private AbstractBeanDefinition readBeanDefinition(SnapshotInputStream in) throws IOException, ClassNotFoundException {
+		AbstractBeanDefinition bd;
+		byte type = in.readByte();
+		if (type == BeanDefinitionSnapshotWriter.ROOT_BEAN_DEFINITION) {
+			bd = new RootBeanDefinition();
+		}
+		else if (type == BeanDefinitionSnapshotWriter.GENERIC_BEAN_DEFINITION) {
+			bd = new GenericBeanDefinition();
+			bd.setParentName(in.readString());
+		}
+		else {
+			throw new IOException("Unknown bean definition type: " + type);
+		}
+		bd.setBeanClassName(in.readString());
+		bd.setScope(in.readString());
+		bd.setAbstract(in.readBoolean());
+		bd.setLazyInit(in.readBoolean());
+		bd.setAutowireMode(in.readInt());
+		bd.setDependencyCheck(in.readInt());
+		bd.setDependsOn(in.readStrings());
+		bd.setAutowireCandidate(in.readBoolean());
+		bd.setPrimary(in.readBoolean());
+		bd.setNonPublicAccessAllowed(in.readBoolean());
+		bd.setLenientConstructorResolution(in.readBoolean());
+		bd.setFactoryBeanName(in.readString());
+		bd.setFactoryMethodName(in.readString());
+		bd.setInitMethodName(in.readString());
+		bd.setEnforceInitMethod(in.readBoolean());
+		bd.setDestroyMethodName(in.readString());
+		bd.setEnforceDestroyMethod(in.readBoolean());
+		bd.setSynthetic(in.readBoolean());
+		bd.setRole(in.readInt());
+		bd.setDescription(in.readString());
+		bd.setResourceDescription(in.readString());
+		readAttributes(in, bd);
+
+		int qualifierCount = in.readInt();
+		for (int i = 0; i < qualifierCount; i++) {
+			AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(in.readString());
+			readAttributes(in, qualifier);
+			bd.addQualifier(qualifier);
+		}
+
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		int indexedArgCount = in.readInt();
+		for (int i = 0; i < indexedArgCount; i++) {
+			int index = in.readInt();
+			cargs.addIndexedArgumentValue(index, readValueHolder(in));
+		}
+		int genericArgCount = in.readInt();
+		for (int i = 0; i < genericArgCount; i++) {
+			cargs.addGenericArgumentValue(readValueHolder(in));
+		}
+
+		MutablePropertyValues pvs = bd.getPropertyValues();
+		int propertyCount = in.readInt();
+		for (int i = 0; i < propertyCount; i++) {
+			PropertyValue pv = new PropertyValue(in.readString(), readValue(in));
+			pv.setOptional(in.readBoolean());
+			pvs.addPropertyValue(pv);
+		}
+
+		MethodOverrides overrides = bd.getMethodOverrides();
+		int overrideCount = in.readInt();
+		for (int i = 0; i < overrideCount; i++) {
+			byte overrideType = in.readByte();
+			if (overrideType == BeanDefinitionSnapshotWriter.LOOKUP_OVERRIDE) {
+				overrides.addOverride(new LookupOverride(in.readString(), in.readString()));
+			}
+			else if (overrideType == BeanDefinitionSnapshotWriter.REPLACE_OVERRIDE) {
+				ReplaceOverride replaceOverride = new ReplaceOverride(in.readString(), in.readString());
+				for (String typeIdentifier : in.readStrings()) {
+					replaceOverride.addTypeIdentifier(typeIdentifier);
+				}
+				overrides.addOverride(replaceOverride);
+			}
+			else {
+				throw new IOException("Unknown method override type: " + overrideType);
+			}
+		}
+
+		if (bd instanceof RootBeanDefinition) {
+			RootBeanDefinition rbd = (RootBeanDefinition) bd;
+			rbd.setDecoratedDefinition((BeanDefinitionHolder) readValue(in));
+			if (in.readBoolean()) {
+				rbd.setUniqueFactoryMethodName(rbd.getFactoryMethodName());
+			}
+		}
+		return bd;
+	}
+
+	private void readAttributes(SnapshotInputStream in, BeanMetadataAttributeAccessor accessor)
+			throws IOException, ClassNotFoundException {
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			accessor.setAttribute(in.readString(), readValue(in));
+		}
+	}
+
+	private ConstructorArgumentValues.ValueHolder readValueHolder(SnapshotInputStream in)
+			throws IOException, ClassNotFoundException {
+
+		Object value = readValue(in);
+		return new ConstructorArgumentValues.ValueHolder(value, in.readString(), in.readString());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readValue(SnapshotInputStream in) throws IOException, ClassNotFoundException {
+		byte type = in.readByte();
+		switch (type) {
+			case BeanDefinitionSnapshotWriter.NULL_VALUE:
+				return null;
+			case BeanDefinitionSnapshotWriter.STRING_VALUE:
+				return in.readString();
+			case BeanDefinitionSnapshotWriter.TYPED_STRING_VALUE:
+				TypedStringValue typedValue = new TypedStringValue(in.readString());
+				String targetTypeName = in.readString();
+				if (targetTypeName != null) {
+					typedValue.setTargetTypeName(targetTypeName);
+				}
+				typedValue.setSpecifiedTypeName(in.readString());
+				if (in.readBoolean()) {
+					typedValue.setDynamic();
+				}
+				return typedValue;
+			case BeanDefinitionSnapshotWriter.BEAN_REFERENCE_VALUE:
+				return new RuntimeBeanReference(in.readString(), in.readBoolean());
+			case BeanDefinitionSnapshotWriter.BEAN_NAME_REFERENCE_VALUE:
+				return new RuntimeBeanNameReference(in.readString());
+			case BeanDefinitionSnapshotWriter.BEAN_DEFINITION_HOLDER_VALUE:
+				String beanName = in.readString();
+				String[] aliases = in.readStrings();
+				return new BeanDefinitionHolder(readBeanDefinition(in), beanName, aliases);
+			case BeanDefinitionSnapshotWriter.BEAN_DEFINITION_VALUE:
+				return readBeanDefinition(in);
+			case BeanDefinitionSnapshotWriter.MANAGED_ARRAY_VALUE:
+				String arrayElementTypeName = in.readString();
+				boolean arrayMergeEnabled = in.readBoolean();
+				int arraySize = in.readInt();
+				ManagedArray array = new ManagedArray(arrayElementTypeName, arraySize);
+				array.setMergeEnabled(arrayMergeEnabled);
+				for (int i = 0; i < arraySize; i++) {
+					array.add(readValue(in));
+				}
+				return array;
+			case BeanDefinitionSnapshotWriter.MANAGED_LIST_VALUE:
+				ManagedList<Object> list = new ManagedList<Object>();
+				list.setElementTypeName(in.readString());
+				list.setMergeEnabled(in.readBoolean());
+				int listSize = in.readInt();
+				for (int i = 0; i < listSize; i++) {
+					list.add(readValue(in));
+				}
+				return list;
+			case BeanDefinitionSnapshotWriter.MANAGED_SET_VALUE:
+				ManagedSet<Object> set = new ManagedSet<Object>();
+				set.setElementTypeName(in.readString());
+				set.setMergeEnabled(in.readBoolean());
+				int setSize = in.readInt();
+				for (int i = 0; i < setSize; i++) {
+					set.add(readValue(in));
+				}
+				return set;
+			case BeanDefinitionSnapshotWriter.MANAGED_MAP_VALUE:
+				ManagedMap<Object, Object> map = new ManagedMap<Object, Object>();
+				map.setKeyTypeName(in.readString());
+				map.setValueTypeName(in.readString());
+				map.setMergeEnabled(in.readBoolean());
+				int mapSize = in.readInt();
+				for (int i = 0; i < mapSize; i++) {
+					map.put(readValue(in), readValue(in));
+				}
+				return map;
+			case BeanDefinitionSnapshotWriter.MANAGED_PROPERTIES_VALUE:
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(in.readBoolean());
+				int propsSize = in.readInt();
+				for (int i = 0; i < propsSize; i++) {
+					props.put(readValue(in), readValue(in));
+				}
+				return props;
+			case BeanDefinitionSnapshotWriter.BOOLEAN_VALUE:
+				return in.readBoolean();
+			case BeanDefinitionSnapshotWriter.INTEGER_VALUE:
+				return in.readInt();
+			case BeanDefinitionSnapshotWriter.LONG_VALUE:
+				return in.readLong();
+			case BeanDefinitionSnapshotWriter.DOUBLE_VALUE:
+				return in.readDouble();
+			case BeanDefinitionSnapshotWriter.CLASS_VALUE:
+				return ClassUtils.forName(in.readString(), getBeanClassLoader());
+			default:
+				throw new IOException("Unknown value type: " + type);
+		}
+	}
+
+
+	/**
+	 * DataInputStream that resolves references to previously read Strings.
+	 */
+	private static class SnapshotInputStream extends DataInputStream {
+
+		private final List<String> stringTable = new ArrayList<String>();
+
+		public SnapshotInputStream(InputStream in) {
+			super(in);
+		}
+
+		public String readString() throws IOException {
+			int index = readInt();
+			if (index == -1) {
+				return null;
+			}
+			if (index == -2) {
+				byte[] bytes = new byte[readInt()];
+				readFully(bytes);
+				String value = new String(bytes, "UTF-8");
+				this.stringTable.add(value);
+				return value;
+			}
+			if (index < 0 || index >= this.stringTable.size()) {
+				throw new IOException("Invalid string reference: " + index);
+			}
+			return this.stringTable.get(index);
+		}
+
+		public String[] readStrings() throws IOException {
+			int length = readInt();
+			if (length == -1) {
+				return null;
+			}
+			String[] values = new String[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = readString();
+			}
+			return values;
+		}
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Reads DOM {@link Element} fragments from a StAX {@link XMLStreamReader}:
+ * first the document element (attributes only), then one child of the
+ * document element at a time, each with its complete subtree.
+ *
+ * <p>Since the stream is not validated, the default attribute values declared
+ * by the "spring-beans" XSD (or DTD, historically) are added to the elements of
+ * the beans namespace, just like a validating DOM parser would do. Comments and
+ * processing instructions are not retained.
+ *
+ * @since 3.1.3
+ * @see StaxXmlBeanDefinitionReader
+ */
+class StaxElementReader {
+
+	/** Default attribute values per element, as declared by the "spring-beans" XSD */
+	private static final Map<String, String[]> schemaDefaults;
+
+	/** Default attribute values per element, as declared by the "spring-beans" DTD */
+	private static final Map<String, String[]> dtdDefaults;
+
+	static {
+		String defaultValue = BeanDefinitionParserDelegate.DEFAULT_VALUE;
+		String[] mergeDefaults = new String[] {BeanDefinitionParserDelegate.MERGE_ATTRIBUTE, defaultValue};
+
+		Map<String, String[]> schema = new HashMap<String, String[]>(16);
+		schema.put(DefaultBeanDefinitionDocumentReader.NESTED_BEANS_ELEMENT, new String[] {
+				BeanDefinitionParserDelegate.DEFAULT_LAZY_INIT_ATTRIBUTE, defaultValue,
+				BeanDefinitionParserDelegate.DEFAULT_MERGE_ATTRIBUTE, defaultValue,
+				BeanDefinitionParserDelegate.DEFAULT_AUTOWIRE_ATTRIBUTE, defaultValue});
+		schema.put(BeanDefinitionParserDelegate.BEAN_ELEMENT, new String[] {
+				BeanDefinitionParserDelegate.LAZY_INIT_ATTRIBUTE, defaultValue,
+				BeanDefinitionParserDelegate.AUTOWIRE_ATTRIBUTE, defaultValue,
+				BeanDefinitionParserDelegate.AUTOWIRE_CANDIDATE_ATTRIBUTE, defaultValue});
+		schema.put(BeanDefinitionParserDelegate.QUALIFIER_ELEMENT, new String[] {
+				BeanDefinitionParserDelegate.TYPE_ATTRIBUTE, "org.springframework.beans.factory.annotation.Qualifier"});
+		schema.put(BeanDefinitionParserDelegate.ARRAY_ELEMENT, mergeDefaults);
+		schema.put(BeanDefinitionParserDelegate.LIST_ELEMENT, mergeDefaults);
+		schema.put(BeanDefinitionParserDelegate.SET_ELEMENT, mergeDefaults);
+		schema.put(BeanDefinitionParserDelegate.MAP_ELEMENT, mergeDefaults);
+		schema.put(BeanDefinitionParserDelegate.PROPS_ELEMENT, mergeDefaults);
+		schemaDefaults = Collections.unmodifiableMap(schema);
+
+		Map<String, String[]> dtd = new HashMap<String, String[]>(16);
+		dtd.put(DefaultBeanDefinitionDocumentReader.NESTED_BEANS_ELEMENT, new String[] {
+				BeanDefinitionParserDelegate.DEFAULT_LAZY_INIT_ATTRIBUTE, BeanDefinitionParserDelegate.FALSE_VALUE,
+				BeanDefinitionParserDelegate.DEFAULT_MERGE_ATTRIBUTE, BeanDefinitionParserDelegate.FALSE_VALUE,
+				BeanDefinitionParserDelegate.DEFAULT_AUTOWIRE_ATTRIBUTE, BeanDefinitionParserDelegate.AUTOWIRE_NO_VALUE,
+				BeanDefinitionParserDelegate.DEFAULT_DEPENDENCY_CHECK_ATTRIBUTE, "none"});
+		dtd.put(BeanDefinitionParserDelegate.BEAN_ELEMENT, new String[] {
+				BeanDefinitionParserDelegate.LAZY_INIT_ATTRIBUTE, defaultValue,
+				BeanDefinitionParserDelegate.AUTOWIRE_ATTRIBUTE, defaultValue,
+				BeanDefinitionParserDelegate.DEPENDENCY_CHECK_ATTRIBUTE, defaultValue});
+		dtd.put(BeanDefinitionParserDelegate.LIST_ELEMENT, mergeDefaults);
+		dtd.put(BeanDefinitionParserDelegate.SET_ELEMENT, mergeDefaults);
+		dtd.put(BeanDefinitionParserDelegate.MAP_ELEMENT, mergeDefaults);
+		dtd.put(BeanDefinitionParserDelegate.PROPS_ELEMENT, mergeDefaults);
+		dtdDefaults = Collections.unmodifiableMap(dtd);
+	}
+
+
+	private final XMLStreamReader streamReader;
+
+	private final Document document;
+
+	private Element rootElement;
+
+	private boolean dtdDeclared;
+
+	private boolean rootElementClosed;
+
+
+	/**
+	 * Create a new StaxElementReader.
+	 * @param streamReader the StAX reader, positioned at the start of the document
+	 * @param document the (empty) DOM document to create the elements with
+	 */
+	public StaxElementReader(XMLStreamReader streamReader, Document document) {
+		this.streamReader = streamReader;
+		this.document = document;
+	}
+
+
+	/**
+	 * Return the DOM document that the elements are created with.
+	 */
+	public Document getDocument() {
+		return this.document;
+	}
+
+	/**
+	 * Read the document element, without any of its children.
+	 * @return the document element, appended to the DOM document
+	 */
+	public Element readRootElement() throws XMLStreamException {
+		if (this.rootElement == null) {
+			int event = this.streamReader.getEventType();
+			while (event != XMLStreamConstants.START_ELEMENT) {
+				if (event == XMLStreamConstants.DTD) {
+					this.dtdDeclared = true;
+				}
+				else if (event == XMLStreamConstants.END_DOCUMENT) {
+					throw new XMLStreamException("Premature end of file", this.streamReader.getLocation());
+				}
+				event = this.streamReader.next();
+			}
+			this.rootElement = createElement();
+			this.document.appendChild(this.rootElement);
+		}
+		return this.rootElement;
+	}
+
+	/**
+	 * Read the next child element of the document element, including its subtree.
+	 * <p>The returned element is not attached to the document element;
+	 * this is up to the caller.
+	 * @return the next child element, or <code>null</code> if there are no more
+	 */
+	public Element readNextChildElement() throws XMLStreamException {
+		readRootElement();
+		while (!this.rootElementClosed && this.streamReader.hasNext()) {
+			int event = this.streamReader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return readElement();
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				this.rootElementClosed = true;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Read all remaining child elements, appending them to the document element.
+	 * @return the document element
+	 */
+	public Element readRemainingChildElements() throws XMLStreamException {
+		Element root = readRootElement();
+		Element child;
+		while ((child = readNextChildElement()) != null) {
+			root.appendChild(child);
+		}
+		return root;
+	}
+
+
+	/**
+	 * Read the element that the stream is positioned at, up to its end tag.
+	 */
+	private Element readElement() throws XMLStreamException {
+		Element element = createElement();
+		while (true) {
+			int event = this.streamReader.next();
+			switch (event) {
+				case XMLStreamConstants.START_ELEMENT:
+					element.appendChild(readElement());
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					element.appendChild(this.document.createTextNode(this.streamReader.getText()));
+					break;
+				case XMLStreamConstants.CDATA:
+					element.appendChild(this.document.createCDATASection(this.streamReader.getText()));
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					return element;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new XMLStreamException("Premature end of file", this.streamReader.getLocation());
+			}
+		}
+	}
+
+	/**
+	 * Create an element for the start tag that the stream is positioned at,
+	 * including its attributes and namespace declarations.
+	 */
+	private Element createElement() {
+		String namespaceUri = getNamespaceUri(this.streamReader.getNamespaceURI());
+		String localName = this.streamReader.getLocalName();
+		Element element = this.document.createElementNS(
+				namespaceUri, getQualifiedName(this.streamReader.getPrefix(), localName));
+
+		for (int i = 0; i < this.streamReader.getNamespaceCount(); i++) {
+			String prefix = this.streamReader.getNamespacePrefix(i);
+			String uri = this.streamReader.getNamespaceURI(i);
+			element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+					(StringUtils.hasLength(prefix) ? XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix : XMLConstants.XMLNS_ATTRIBUTE),
+					(uri != null ? uri : ""));
+		}
+		for (int i = 0; i < this.streamReader.getAttributeCount(); i++) {
+			element.setAttributeNS(getNamespaceUri(this.streamReader.getAttributeNamespace(i)),
+					getQualifiedName(this.streamReader.getAttributePrefix(i), this.streamReader.getAttributeLocalName(i)),
+					this.streamReader.getAttributeValue(i));
+		}
+
+		String[] defaults = null;
+		if (this.dtdDeclared) {
+			if (namespaceUri == null) {
+				defaults = dtdDefaults.get(localName);
+			}
+		}
+		else if (BeanDefinitionParserDelegate.BEANS_NAMESPACE_URI.equals(namespaceUri)) {
+			defaults = schemaDefaults.get(localName);
+		}
+		if (defaults != null) {
+			for (int i = 0; i < defaults.length; i += 2) {
+				if (!element.hasAttribute(defaults[i])) {
+					element.setAttributeNS(null, defaults[i], defaults[i + 1]);
+				}
+			}
+		}
+		return element;
+	}
+
+	private static String getNamespaceUri(String namespaceUri) {
+		return (StringUtils.hasLength(namespaceUri) ? namespaceUri : null);
+	}
+
+	private static String getQualifiedName(String prefix, String localName) {
+		return (StringUtils.hasLength(prefix) ? prefix + ":" + localName : localName);
+	}
+
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+/**
+ * Alternative to {@link XmlBeanDefinitionReader} that reads XML bean definition
+ * files through a streaming StAX pipeline instead of loading each file into a
+ * complete DOM document first.
+ *
+ * <p>The document is read one top-level element at a time: each {@code <bean/>},
+ * {@code <alias/>}, {@code <import/>} or custom namespace element is turned into
+ * a small DOM fragment, handed to the regular {@link BeanDefinitionParserDelegate}
+ * (and, for custom elements and attributes, to the corresponding
+ * {@link NamespaceHandler}), and released before the next element is read.
+ * Bean definition semantics are therefore the same as with the DOM-based reader,
+ * while the memory footprint is bounded by the largest top-level element.
+ * A document whose {@code <beans/>} element declares an inactive profile is not
+ * read beyond its document element at all.
+ *
+ * <p>Optionally, a {@link #setParsingExecutor parsing executor} can be specified
+ * to parse independent files, as passed into {@link #loadBeanDefinitions(Resource...)},
+ * in parallel. Bean definitions are still registered on the calling thread, in the
+ * order of the given resources, so that the result is the same as in sequential mode.
+ *
+ * <p><b>Note:</b> Documents are not validated against their XSD or DTD; the validation
+ * mode, {@link #setDocumentLoader DocumentLoader} and {@link #setEntityResolver EntityResolver}
+ * settings do not apply to this reader. The default attribute values of the "spring-beans"
+ * schema are applied nonetheless, whereas elements of custom namespaces are passed to their
+ * {@link NamespaceHandler} as written, just like with {@link #VALIDATION_NONE}.
+ * The {@code preProcessXml}/{@code postProcessXml} template methods of the
+ * {@link DefaultBeanDefinitionDocumentReader} only see the document element,
+ * without its children, unless a custom {@link #setDocumentReaderClass document reader}
+ * class is specified (which receives the fully read document).
+ *
+ * @since 3.1.3
+ * @see #setParsingExecutor
+ * @see StaxElementReader
+ */
+public class StaxXmlBeanDefinitionReader extends XmlBeanDefinitionReader {
+
+	/**
+	 * Default number of files to parse ahead of the file currently being registered.
+	 * @see #setParseAheadLimit
+	 */
+	public static final int DEFAULT_PARSE_AHEAD_LIMIT = 4;
+
+
+	private final ThreadLocal<Map<Resource, FutureTask<Document>>> documentsParsedAhead =
+			new NamedThreadLocal<Map<Resource, FutureTask<Document>>>("XML bean definition documents parsed ahead");
+
+	private Executor parsingExecutor;
+
+	private int parseAheadLimit = DEFAULT_PARSE_AHEAD_LIMIT;
+
+	private volatile XMLInputFactory inputFactory;
+
+	private volatile DocumentBuilderFactory documentBuilderFactory;
+
+
+	/**
+	 * Create new StaxXmlBeanDefinitionReader for the given bean factory.
+	 * @param registry the BeanFactory to load bean definitions into,
+	 * in the form of a BeanDefinitionRegistry
+	 */
+	public StaxXmlBeanDefinitionReader(BeanDefinitionRegistry registry) {
+		super(registry);
+		setDocumentReaderClass(StreamingBeanDefinitionDocumentReader.class);
+	}
+
+
+	/**
+	 * Specify an Executor to parse multiple files with in parallel,
+	 * when loading bean definitions from several resources at once.
+	 * <p>Default is none, parsing all files sequentially on the calling thread.
+	 * @see #loadBeanDefinitions(Resource...)
+	 * @see #setParseAheadLimit
+	 */
+	public void setParsingExecutor(Executor parsingExecutor) {
+		this.parsingExecutor = parsingExecutor;
+	}
+
+	/**
+	 * Return the Executor to parse multiple files with in parallel, if any.
+	 */
+	public Executor getParsingExecutor() {
+		return this.parsingExecutor;
+	}
+
+	/**
+	 * Specify how many files may be parsed ahead of the file whose bean definitions
+	 * are currently being registered, bounding the number of fully read documents
+	 * held in memory at any time. Default is {@link #DEFAULT_PARSE_AHEAD_LIMIT}.
+	 * <p>Only applies in case of a {@link #setParsingExecutor parsing executor}.
+	 */
+	public void setParseAheadLimit(int parseAheadLimit) {
+		Assert.isTrue(parseAheadLimit > 0, "'parseAheadLimit' must be larger than 0");
+		this.parseAheadLimit = parseAheadLimit;
+	}
+
+	/**
+	 * Return how many files may be parsed ahead of the file currently being registered.
+	 */
+	public int getParseAheadLimit() {
+		return this.parseAheadLimit;
+	}
+
+
+	/**
+	 * Load bean definitions from the specified resources, parsing up to
+	 * {@link #setParseAheadLimit "parseAheadLimit"} files ahead with the
+	 * {@link #setParsingExecutor parsing executor}, if any.
+	 * <p>A file that has not been picked up by the executor by the time its bean
+	 * definitions are to be registered is parsed on the calling thread instead.
+	 */
+	@Override
+	public int loadBeanDefinitions(Resource... resources) throws BeanDefinitionStoreException {
+		Assert.notNull(resources, "Resource array must not be null");
+		if (this.parsingExecutor == null || resources.length < 2) {
+			return super.loadBeanDefinitions(resources);
+		}
+
+		Map<Resource, FutureTask<Document>> previousDocuments = this.documentsParsedAhead.get();
+		Map<Resource, FutureTask<Document>> documents = new HashMap<Resource, FutureTask<Document>>();
+		this.documentsParsedAhead.set(documents);
+		List<FutureTask<Document>> tasks = new ArrayList<FutureTask<Document>>(resources.length);
+		try {
+			int counter = 0;
+			for (int i = 0; i < resources.length; i++) {
+				while (tasks.size() < resources.length && tasks.size() <= i + this.parseAheadLimit) {
+					final Resource resource = resources[tasks.size()];
+					FutureTask<Document> task = new FutureTask<Document>(new Callable<Document>() {
+						public Document call() {
+							return parseDocument(resource);
+						}
+					});
+					tasks.add(task);
+					documents.put(resource, task);
+					try {
+						this.parsingExecutor.execute(task);
+					}
+					catch (RejectedExecutionException ex) {
+						// Parse it on the calling thread later on.
+						documents.remove(resource);
+					}
+				}
+				counter += loadBeanDefinitions(resources[i]);
+			}
+			return counter;
+		}
+		finally {
+			for (FutureTask<Document> task : tasks) {
+				task.cancel(false);
+			}
+			if (previousDocuments != null) {
+				this.documentsParsedAhead.set(previousDocuments);
+			}
+			else {
+				this.documentsParsedAhead.remove();
+			}
+		}
+	}
+
+	/**
+	 * Actually load bean definitions from the specified XML file,
+	 * streaming its top-level elements unless it has been parsed ahead.
+	 */
+	@Override
+	protected int doLoadBeanDefinitions(InputSource inputSource, Resource resource)
+			throws BeanDefinitionStoreException {
+
+		FutureTask<Document> documentParsedAhead = null;
+		Map<Resource, FutureTask<Document>> documents = this.documentsParsedAhead.get();
+		if (documents != null) {
+			documentParsedAhead = documents.remove(resource);
+		}
+		if (documentParsedAhead != null) {
+			return registerBeanDefinitions(getDocument(documentParsedAhead, resource), resource);
+		}
+
+		XMLStreamReader streamReader = null;
+		try {
+			streamReader = createStreamReader(inputSource);
+			StaxElementReader elementReader = new StaxElementReader(streamReader, createDocument());
+			elementReader.readRootElement();
+			return registerBeanDefinitions(elementReader, resource);
+		}
+		catch (BeanDefinitionStoreException ex) {
+			throw ex;
+		}
+		catch (XMLStreamException ex) {
+			throw createParsingException(ex, resource);
+		}
+		catch (ParserConfigurationException ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Parser configuration exception parsing XML from " + resource, ex);
+		}
+		catch (Throwable ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Unexpected exception parsing XML document from " + resource, ex);
+		}
+		finally {
+			closeStreamReader(streamReader);
+		}
+	}
+
+	/**
+	 * Register the bean definitions contained in the document that the given
+	 * element reader reads, streaming the top-level elements into a
+	 * {@link StreamingBeanDefinitionDocumentReader} if applicable.
+	 */
+	private int registerBeanDefinitions(StaxElementReader elementReader, Resource resource)
+			throws XMLStreamException {
+
+		BeanDefinitionDocumentReader documentReader = createBeanDefinitionDocumentReader();
+		if (documentReader instanceof StreamingBeanDefinitionDocumentReader) {
+			((StreamingBeanDefinitionDocumentReader) documentReader).setElementReader(elementReader);
+		}
+		else {
+			elementReader.readRemainingChildElements();
+		}
+		documentReader.setEnvironment(this.getEnvironment());
+		int countBefore = getRegistry().getBeanDefinitionCount();
+		documentReader.registerBeanDefinitions(elementReader.getDocument(), createReaderContext(resource));
+		return getRegistry().getBeanDefinitionCount() - countBefore;
+	}
+
+	/**
+	 * Fully read the given resource into a DOM document, for registering
+	 * its bean definitions later on.
+	 */
+	private Document parseDocument(Resource resource) throws BeanDefinitionStoreException {
+		XMLStreamReader streamReader = null;
+		try {
+			InputStream inputStream = resource.getInputStream();
+			try {
+				streamReader = createStreamReader(new InputSource(inputStream));
+				StaxElementReader elementReader = new StaxElementReader(streamReader, createDocument());
+				elementReader.readRemainingChildElements();
+				return elementReader.getDocument();
+			}
+			finally {
+				closeStreamReader(streamReader);
+				inputStream.close();
+			}
+		}
+		catch (XMLStreamException ex) {
+			throw createParsingException(ex, resource);
+		}
+		catch (ParserConfigurationException ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Parser configuration exception parsing XML from " + resource, ex);
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"IOException parsing XML document from " + resource, ex);
+		}
+	}
+
+	/**
+	 * Obtain the document that has been parsed ahead for the given resource,
+	 * parsing it on the calling thread if the executor has not started yet.
+	 */
+	private Document getDocument(FutureTask<Document> task, Resource resource) throws BeanDefinitionStoreException {
+		// Runs the task unless it has been started already.
+		task.run();
+		try {
+			return task.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Interrupted while parsing XML document from " + resource, ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof BeanDefinitionStoreException) {
+				throw (BeanDefinitionStoreException) cause;
+			}
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Unexpected exception parsing XML document from " + resource, cause);
+		}
+	}
+
+	/**
+	 * Create a StAX reader for the given InputSource.
+	 */
+	protected XMLStreamReader createStreamReader(InputSource inputSource) throws XMLStreamException {
+		XMLInputFactory factory = this.inputFactory;
+		if (factory == null) {
+			factory = createXmlInputFactory();
+			this.inputFactory = factory;
+		}
+		if (inputSource.getCharacterStream() != null) {
+			return factory.createXMLStreamReader(inputSource.getCharacterStream());
+		}
+		else if (inputSource.getEncoding() != null) {
+			return factory.createXMLStreamReader(inputSource.getByteStream(), inputSource.getEncoding());
+		}
+		else {
+			return factory.createXMLStreamReader(inputSource.getByteStream());
+		}
+	}
+
+	/**
+	 * Create the StAX {@link XMLInputFactory} to use for reading XML files.
+	 * <p>The default implementation returns a namespace-aware factory that
+	 * coalesces text and neither processes DTDs nor resolves external entities.
+	 */
+	protected XMLInputFactory createXmlInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	private Document createDocument() throws ParserConfigurationException {
+		DocumentBuilderFactory factory = this.documentBuilderFactory;
+		if (factory == null) {
+			factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			this.documentBuilderFactory = factory;
+		}
+		synchronized (factory) {
+			return factory.newDocumentBuilder().newDocument();
+		}
+	}
+
+	private static void closeStreamReader(XMLStreamReader streamReader) {
+		if (streamReader != null) {
+			try {
+				streamReader.close();
+			}
+			catch (XMLStreamException ex) {
+				// ignore
+			}
+		}
+	}
+
+	static BeanDefinitionStoreException createParsingException(XMLStreamException ex, Resource resource) {
+		Location location = ex.getLocation();
+		String msg = (location != null && location.getLineNumber() > 0 ?
+				"Line " + location.getLineNumber() + " in XML document from " + resource + " is invalid" :
+				"XML document from " + resource + " is invalid");
+		return new BeanDefinitionStoreException(resource.getDescription(), msg, ex);
+	}
+
+
+	/**
+	 * {@link DefaultBeanDefinitionDocumentReader} variant that reads the
+	 * children of the document element from a {@link StaxElementReader}
+	 * one at a time, releasing each of them once it has been parsed.
+	 */
+	static class StreamingBeanDefinitionDocumentReader extends DefaultBeanDefinitionDocumentReader {
+
+		private StaxElementReader elementReader;
+
+		public void setElementReader(StaxElementReader elementReader) {
+			this.elementReader = elementReader;
+		}
+
+		@Override
+		protected void parseBeanDefinitions(Element root, BeanDefinitionParserDelegate delegate) {
+			if (this.elementReader == null || root != this.elementReader.getDocument().getDocumentElement()) {
+				// Nested <beans> element or fully read document.
+				super.parseBeanDefinitions(root, delegate);
+				return;
+			}
+			try {
+				if (!delegate.isDefaultNamespace(root)) {
+					this.elementReader.readRemainingChildElements();
+					super.parseBeanDefinitions(root, delegate);
+					return;
+				}
+				Element child;
+				while ((child = this.elementReader.readNextChildElement()) != null) {
+					// The document element only ever holds the current child.
+					root.appendChild(child);
+					super.parseBeanDefinitions(root, delegate);
+					root.removeChild(child);
+				}
+			}
+			catch (XMLStreamException ex) {
+				throw createParsingException(ex, getReaderContext().getResource());
+			}
+		}
+	}
+
+}
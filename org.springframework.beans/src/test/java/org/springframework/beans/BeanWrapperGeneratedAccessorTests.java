@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Test;
+
+import test.beans.TestBean;
+
+/**
+ * Unit tests for {@link BeanWrapperImpl} with generated accessors enabled.
+ *
+ * @since 3.1.3
+ */
+public final class BeanWrapperGeneratedAccessorTests {
+
+	@Test
+	public void testInvokerGeneratedForPublicClass() {
+		GenericTypeAwarePropertyDescriptor pd = (GenericTypeAwarePropertyDescriptor)
+				CachedIntrospectionResults.forClass(TestBean.class).getPropertyDescriptor("age");
+		assertTrue(pd.getReadMethodIndex() >= 0);
+		assertTrue(pd.getWriteMethodIndex() >= 0);
+		assertNotNull(pd.getPropertyMethodInvoker(false));
+		assertNotNull(pd.getPropertyMethodInvoker(true));
+	}
+
+	@Test
+	public void testNoInvokerForNonPublicClass() {
+		GenericTypeAwarePropertyDescriptor pd = (GenericTypeAwarePropertyDescriptor)
+				CachedIntrospectionResults.forClass(PackagePrivateBean.class).getPropertyDescriptor("name");
+		assertNull(pd.getPropertyMethodInvoker(false));
+		assertNull(pd.getPropertyMethodInvoker(true));
+
+		BeanWrapperImpl bw = new BeanWrapperImpl(new PackagePrivateBean());
+		bw.setUseGeneratedAccessors(true);
+		bw.setPropertyValue("name", "juergen");
+		assertEquals("juergen", bw.getPropertyValue("name"));
+	}
+
+	@Test
+	public void testSimpleProperties() {
+		TestBean tb = new TestBean();
+		BeanWrapperImpl bw = new BeanWrapperImpl(tb);
+		bw.setUseGeneratedAccessors(true);
+		bw.setPropertyValue("name", "rod");
+		bw.setPropertyValue("age", 32);
+		bw.setPropertyValue("touchy", "valid");
+		assertEquals("rod", tb.getName());
+		assertEquals(32, tb.getAge());
+		assertEquals("rod", bw.getPropertyValue("name"));
+		assertEquals(32, bw.getPropertyValue("age"));
+		assertEquals("valid", bw.getPropertyValue("touchy"));
+	}
+
+	@Test
+	public void testPropertiesWithConversion() {
+		TestBean tb = new TestBean();
+		BeanWrapperImpl bw = new BeanWrapperImpl(tb);
+		bw.setUseGeneratedAccessors(true);
+		bw.setPropertyValue("age", "42");
+		bw.setPropertyValue("postProcessed", "true");
+		assertEquals(42, tb.getAge());
+		assertTrue(tb.isPostProcessed());
+	}
+
+	@Test
+	public void testNestedProperties() {
+		TestBean tb = new TestBean();
+		tb.setSpouse(new TestBean());
+		BeanWrapperImpl bw = new BeanWrapperImpl(tb);
+		bw.setUseGeneratedAccessors(true);
+		bw.setPropertyValue("spouse.name", "kerry");
+		bw.setPropertyValue("spouse.age", "35");
+		assertEquals("kerry", tb.getSpouse().getName());
+		assertEquals(35, tb.getSpouse().getAge());
+		assertEquals("kerry", bw.getPropertyValue("spouse.name"));
+		assertEquals(35, bw.getPropertyValue("spouse.age"));
+	}
+
+	@Test
+	public void testNullForPrimitiveProperty() {
+		BeanWrapperImpl bw = new BeanWrapperImpl(new TestBean());
+		bw.setUseGeneratedAccessors(true);
+		try {
+			bw.setPropertyValue("age", null);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testExceptionFromSetter() {
+		BeanWrapperImpl bw = new BeanWrapperImpl(new TestBean());
+		bw.setUseGeneratedAccessors(true);
+		try {
+			bw.setPropertyValue("touchy", "invalid.value");
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertEquals("Can't contain a .", ex.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testExceptionFromGetter() {
+		BeanWrapperImpl bw = new BeanWrapperImpl(new FailingBean());
+		bw.setUseGeneratedAccessors(true);
+		try {
+			bw.getPropertyValue("value");
+			fail("Should have thrown InvalidPropertyException");
+		}
+		catch (InvalidPropertyException ex) {
+			assertTrue(ex.getCause() instanceof InvocationTargetException);
+			assertTrue(((InvocationTargetException) ex.getCause()).getTargetException() instanceof IllegalStateException);
+		}
+	}
+
+
+	static class PackagePrivateBean {
+
+		private String name;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+
+	public static class FailingBean {
+
+		public String getValue() {
+			throw new IllegalStateException();
+		}
+
+		public void setValue(String value) {
+		}
+	}
+
+}
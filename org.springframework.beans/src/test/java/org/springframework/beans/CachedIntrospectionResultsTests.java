@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.beans;
 
 import static org.junit.Assert.*;
 
+import java.beans.PropertyDescriptor;
+
 import org.junit.Test;
 import org.springframework.core.OverridingClassLoader;
 
@@ -34,20 +36,53 @@ public final class CachedIntrospectionResultsTests {
 		BeanWrapper bw = new BeanWrapperImpl(TestBean.class);
 		assertTrue(bw.isWritableProperty("name"));
 		assertTrue(bw.isWritableProperty("age"));
-		assertTrue(CachedIntrospectionResults.classCache.containsKey(TestBean.class));
+		assertTrue(CachedIntrospectionResults.isCached(TestBean.class));
 
 		ClassLoader child = new OverridingClassLoader(getClass().getClassLoader());
 		Class<?> tbClass = child.loadClass("test.beans.TestBean");
-		assertFalse(CachedIntrospectionResults.classCache.containsKey(tbClass));
+		assertFalse(CachedIntrospectionResults.isCached(tbClass));
 		CachedIntrospectionResults.acceptClassLoader(child);
 		bw = new BeanWrapperImpl(tbClass);
 		assertTrue(bw.isWritableProperty("name"));
 		assertTrue(bw.isWritableProperty("age"));
-		assertTrue(CachedIntrospectionResults.classCache.containsKey(tbClass));
+		assertTrue(CachedIntrospectionResults.isCached(tbClass));
 		CachedIntrospectionResults.clearClassLoader(child);
-		assertFalse(CachedIntrospectionResults.classCache.containsKey(tbClass));
+		assertFalse(CachedIntrospectionResults.isCached(tbClass));
+
+		assertTrue(CachedIntrospectionResults.isCached(TestBean.class));
+	}
 
-		assertTrue(CachedIntrospectionResults.classCache.containsKey(TestBean.class));
+	@Test
+	public void testNonAcceptedClassLoader() throws Exception {
+		ClassLoader child = new OverridingClassLoader(getClass().getClassLoader());
+		Class<?> tbClass = child.loadClass("test.beans.TestBean");
+		CachedIntrospectionResults results = CachedIntrospectionResults.forClass(tbClass);
+		assertFalse(CachedIntrospectionResults.classCacheSegments.containsKey(child));
+		assertTrue(CachedIntrospectionResults.isCached(tbClass));
+		assertSame(results, CachedIntrospectionResults.forClass(tbClass));
+		CachedIntrospectionResults.clearClassLoader(child);
+		assertFalse(CachedIntrospectionResults.isCached(tbClass));
+	}
+
+	@Test
+	public void testCacheHitAndMissCounts() {
+		CachedIntrospectionResults.forClass(TestBean.class);
+		long hits = CachedIntrospectionResults.getCacheHitCount();
+		long misses = CachedIntrospectionResults.getCacheMissCount();
+		CachedIntrospectionResults.forClass(TestBean.class);
+		assertEquals(hits + 1, CachedIntrospectionResults.getCacheHitCount());
+		assertEquals(misses, CachedIntrospectionResults.getCacheMissCount());
+	}
+
+	@Test
+	public void testLenientPropertyDescriptorLookup() {
+		CachedIntrospectionResults results = CachedIntrospectionResults.forClass(TestBean.class);
+		PropertyDescriptor pd = results.getPropertyDescriptor("name");
+		assertNotNull(pd);
+		assertSame(pd, results.getPropertyDescriptor("Name"));
+		assertNull(results.getPropertyDescriptor("NAME"));
+		assertNull(results.getPropertyDescriptor(""));
+		assertNull(results.getPropertyDescriptor("1name"));
 	}
 
 }
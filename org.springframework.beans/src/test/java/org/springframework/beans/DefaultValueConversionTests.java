@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import static org.junit.Assert.*;
+
+import java.beans.PropertyEditor;
+import java.beans.PropertyEditorSupport;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import org.springframework.beans.propertyeditors.CustomBooleanEditor;
+
+/**
+ * Unit tests for {@link DefaultValueConversion}, checking equivalence
+ * with the default editors of {@link PropertyEditorRegistrySupport}.
+ *
+ * @since 3.1.3
+ */
+public final class DefaultValueConversionTests {
+
+	private static final Class<?>[] NUMBER_TYPES = new Class<?>[] {
+			byte.class, Byte.class, short.class, Short.class, int.class, Integer.class, long.class, Long.class,
+			float.class, Float.class, double.class, Double.class, BigDecimal.class, BigInteger.class};
+
+	private static final String[] NUMBER_VALUES = new String[] {
+			"0", "1", "-1", " 42 ", "127", "128", "0x10", "#10", "-0x1F", "3.5", "1e3", "", " ", "abc"};
+
+	private static final String[] BOOLEAN_VALUES = new String[] {
+			"true", "TRUE", " on ", "yes", "1", "false", "Off", "no", "0", "", " ", "maybe"};
+
+
+	@Test
+	public void testNumbersFromStringAsDefaultEditors() {
+		for (Class<?> type : NUMBER_TYPES) {
+			for (String value : NUMBER_VALUES) {
+				assertEquivalentToDefaultEditor(type, value);
+			}
+		}
+	}
+
+	@Test
+	public void testNumbersFromNumbersAsDefaultEditors() {
+		Object[] values = new Object[] {(byte) 1, (short) 2, 3, 4L, 5.5f, 6.5d, new BigDecimal("7.5"),
+				BigInteger.valueOf(8), 300, Long.MAX_VALUE};
+		for (Class<?> type : NUMBER_TYPES) {
+			for (Object value : values) {
+				assertEquivalentToDefaultEditor(type, value);
+			}
+		}
+	}
+
+	@Test
+	public void testBooleansFromStringAsDefaultEditors() {
+		for (String value : BOOLEAN_VALUES) {
+			assertEquivalentToDefaultEditor(boolean.class, value);
+			assertEquivalentToDefaultEditor(Boolean.class, value);
+		}
+	}
+
+	@Test
+	public void testNoConversionForOtherTypesAndValues() {
+		assertNull(DefaultValueConversion.forValue(String.class, "value"));
+		assertNull(DefaultValueConversion.forValue(char.class, "c"));
+		assertNull(DefaultValueConversion.forValue(int.class, new Object()));
+		assertNull(DefaultValueConversion.forValue(boolean.class, 1));
+	}
+
+	@Test
+	public void testNoConversionWithoutDefaultEditors() {
+		PropertyEditorRegistrySupport registry = new PropertyEditorRegistrySupport();
+		assertNull(registry.getDefaultValueConversion(int.class, "1"));
+		registry.registerDefaultEditors();
+		assertNotNull(registry.getDefaultValueConversion(int.class, "1"));
+		assertNull(registry.getDefaultValueConversion(int.class, null));
+	}
+
+	@Test
+	public void testOverriddenDefaultEditor() {
+		SimpleTypeConverter converter = new SimpleTypeConverter();
+		assertNotNull(converter.getDefaultValueConversion(boolean.class, "x"));
+		converter.overrideDefaultEditor(boolean.class, new CustomBooleanEditor("x", "y", false));
+		assertNull(converter.getDefaultValueConversion(boolean.class, "x"));
+		assertEquals(Boolean.TRUE, converter.convertIfNecessary("x", boolean.class));
+		assertEquals(Boolean.TRUE, converter.convertIfNecessary("true", Boolean.class));
+	}
+
+	@Test
+	public void testCustomEditorTakesPrecedence() {
+		SimpleTypeConverter converter = new SimpleTypeConverter();
+		converter.registerCustomEditor(int.class, new PropertyEditorSupport() {
+			@Override
+			public void setAsText(String text) {
+				setValue(text.length());
+			}
+		});
+		assertEquals(Integer.valueOf(3), converter.convertIfNecessary("abc", int.class));
+		assertEquals(Integer.valueOf(42), converter.convertIfNecessary("42", Integer.class));
+	}
+
+	@Test
+	public void testConversionFailure() {
+		SimpleTypeConverter converter = new SimpleTypeConverter();
+		try {
+			converter.convertIfNecessary("abc", int.class);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			assertTrue(ex.getCause() instanceof NumberFormatException);
+		}
+	}
+
+
+	private void assertEquivalentToDefaultEditor(Class<?> requiredType, Object value) {
+		PropertyEditorRegistrySupport registry = new PropertyEditorRegistrySupport();
+		registry.registerDefaultEditors();
+		PropertyEditor editor = registry.getDefaultEditor(requiredType);
+		Object expected;
+		try {
+			if (value instanceof String) {
+				editor.setAsText((String) value);
+			}
+			else {
+				editor.setValue(value);
+			}
+			expected = editor.getValue();
+		}
+		catch (IllegalArgumentException ex) {
+			expected = ex.getClass();
+		}
+
+		DefaultValueConversion conversion = DefaultValueConversion.forValue(requiredType, value);
+		assertNotNull(conversion);
+		Object actual;
+		try {
+			actual = conversion.convert(value);
+		}
+		catch (IllegalArgumentException ex) {
+			actual = ex.getClass();
+		}
+		assertEquals("Conversion of [" + value + "] to [" + requiredType.getName() + "]", expected, actual);
+	}
+
+}
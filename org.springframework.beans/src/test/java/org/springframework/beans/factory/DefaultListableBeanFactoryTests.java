@@ -28,6 +28,7 @@ import java.security.PrivilegedAction;
 import java.text.NumberFormat;
 import java.text.ParseException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -35,6 +36,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.security.auth.Subject;
 
@@ -45,6 +54,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.MethodInvocationException;
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.NotWritablePropertyException;
 import org.springframework.beans.PropertyEditorRegistrar;
@@ -54,9 +64,11 @@ import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.config.TypedStringValue;
@@ -68,6 +80,7 @@ import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.ManagedList;
 import org.springframework.beans.factory.support.PropertiesBeanDefinitionReader;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.support.SimpleAutowireCandidateResolver;
 import org.springframework.beans.factory.xml.ConstructorDependenciesBean;
 import org.springframework.beans.factory.xml.DependenciesBean;
 import org.springframework.beans.propertyeditors.CustomNumberEditor;
@@ -1737,6 +1750,159 @@ public class DefaultListableBeanFactoryTests {
 		assertTrue("Prototype creation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 3000);
 	}
 
+	@Test
+	public void testPrototypeCreationWithFrozenConfiguration() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final List<String> postProcessed = new ArrayList<String>();
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				postProcessed.add(beanName);
+				return true;
+			}
+		});
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.getPropertyValues().add("name", "myName");
+		rbd.getPropertyValues().add("age", "99");
+		rbd.getPropertyValues().add("spouse", new RuntimeBeanReference("spouse"));
+		rbd.getPropertyValues().add("touchy", "");
+		lbf.registerBeanDefinition("test", rbd);
+		lbf.freezeConfiguration();
+
+		for (int i = 0; i < 3; i++) {
+			TestBean tb = (TestBean) lbf.getBean("test");
+			assertEquals("myName", tb.getName());
+			assertEquals(99, tb.getAge());
+			assertSame(lbf.getBean("spouse"), tb.getSpouse());
+		}
+		assertEquals(4, postProcessed.size());
+
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				return false;
+			}
+		});
+		TestBean tb = (TestBean) lbf.getBean("test");
+		assertNull(tb.getName());
+		assertEquals(5, postProcessed.size());
+	}
+
+	@Test
+	public void testPrototypeCreationWithFrozenConfigurationAndReRegisteredPostProcessor() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final List<String> postProcessed = new ArrayList<String>();
+		InstantiationAwareBeanPostProcessorAdapter first = new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				postProcessed.add("first");
+				return true;
+			}
+		};
+		lbf.addBeanPostProcessor(first);
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				postProcessed.add("second");
+				return true;
+			}
+		});
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		lbf.registerBeanDefinition("test", rbd);
+		lbf.freezeConfiguration();
+
+		lbf.getBean("test");
+		lbf.getBean("test");
+		assertEquals(Arrays.asList("first", "second", "first", "second"), postProcessed);
+
+		// Same number of post-processors, but in a different order.
+		lbf.addBeanPostProcessor(first);
+		postProcessed.clear();
+		lbf.getBean("test");
+		assertEquals(Arrays.asList("second", "first"), postProcessed);
+	}
+
+	@Test
+	public void testPropertyPopulationWithGeneratedAccessors() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setUseGeneratedPropertyAccessors(true);
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.getPropertyValues().add("name", "myName");
+		rbd.getPropertyValues().add("age", "99");
+		rbd.getPropertyValues().add("spouse", new RuntimeBeanReference("spouse"));
+		lbf.registerBeanDefinition("test", rbd);
+
+		TestBean tb = (TestBean) lbf.getBean("test");
+		assertEquals("myName", tb.getName());
+		assertEquals(99, tb.getAge());
+		assertSame(lbf.getBean("spouse"), tb.getSpouse());
+
+		RootBeanDefinition invalid = new RootBeanDefinition(TestBean.class);
+		invalid.getPropertyValues().add("touchy", "invalid.value");
+		lbf.registerBeanDefinition("invalid", invalid);
+		try {
+			lbf.getBean("invalid");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertTrue(ex.contains(MethodInvocationException.class));
+		}
+	}
+
+	@Test
+	public void testAutowireCandidatesCachedInFrozenConfiguration() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final List<String> candidateChecks = new ArrayList<String>();
+		lbf.setAutowireCandidateResolver(new SimpleAutowireCandidateResolver() {
+			@Override
+			public boolean isAutowireCandidate(BeanDefinitionHolder bdHolder, DependencyDescriptor descriptor) {
+				candidateChecks.add(bdHolder.getBeanName());
+				return super.isAutowireCandidate(bdHolder, descriptor);
+			}
+		});
+		lbf.registerBeanDefinition("integer1", createIntegerDefinition(4));
+		lbf.registerBeanDefinition("integer2", createIntegerDefinition(5));
+		RootBeanDefinition rbd = new RootBeanDefinition(ArrayBean.class, RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		lbf.registerBeanDefinition("arrayBean", rbd);
+
+		assertEquals(2, ((ArrayBean) lbf.getBean("arrayBean")).getIntegerArray().length);
+		int checksBefore = candidateChecks.size();
+		lbf.getBean("arrayBean");
+		assertTrue(candidateChecks.size() > checksBefore);
+
+		lbf.freezeConfiguration();
+		lbf.getBean("arrayBean");
+		int checksAfterFreezing = candidateChecks.size();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(2, ((ArrayBean) lbf.getBean("arrayBean")).getIntegerArray().length);
+		}
+		assertEquals(checksAfterFreezing, candidateChecks.size());
+
+		lbf.registerBeanDefinition("integer3", createIntegerDefinition(6));
+		assertEquals(3, ((ArrayBean) lbf.getBean("arrayBean")).getIntegerArray().length);
+		assertTrue(candidateChecks.size() > checksAfterFreezing);
+
+		lbf.registerSingleton("integer4", new Integer(7));
+		Integer[] integers = ((ArrayBean) lbf.getBean("arrayBean")).getIntegerArray();
+		assertEquals(4, integers.length);
+		assertEquals(new Integer(7), integers[3]);
+
+		lbf.removeBeanDefinition("integer1");
+		assertEquals(3, ((ArrayBean) lbf.getBean("arrayBean")).getIntegerArray().length);
+	}
+
+	private static RootBeanDefinition createIntegerDefinition(int value) {
+		RootBeanDefinition bd = new RootBeanDefinition(Integer.class);
+		bd.getConstructorArgumentValues().addGenericArgumentValue(String.valueOf(value));
+		return bd;
+	}
+
 	/**
 	 * @Test
 	 * public void testPrototypeCreationIsFastEnough2() throws Exception {
@@ -2163,6 +2329,216 @@ public class DefaultListableBeanFactoryTests {
 		assertThat(bf.containsBean("bogus"), is(false));
 	}
 
+	@Test
+	public void testParallelPreInstantiation() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final Map<String, Thread> creatingThreads = new ConcurrentHashMap<String, Thread>();
+		lbf.addBeanPostProcessor(new BeanPostProcessor() {
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				creatingThreads.put(beanName, Thread.currentThread());
+				return bean;
+			}
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean;
+			}
+		});
+		for (int i = 0; i < 20; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			if (i > 0) {
+				bd.getPropertyValues().add("spouse", new RuntimeBeanReference("bean" + (i - 1)));
+			}
+			lbf.registerBeanDefinition("bean" + i, bd);
+		}
+		RootBeanDefinition circularA = new RootBeanDefinition(TestBean.class);
+		circularA.getPropertyValues().add("spouse", new RuntimeBeanReference("circularB"));
+		lbf.registerBeanDefinition("circularA", circularA);
+		RootBeanDefinition circularB = new RootBeanDefinition(TestBean.class);
+		circularB.getPropertyValues().add("spouse", new RuntimeBeanReference("circularA"));
+		lbf.registerBeanDefinition("circularB", circularB);
+		RootBeanDefinition sequential = new RootBeanDefinition(TestBean.class);
+		sequential.setAttribute(DefaultListableBeanFactory.SEQUENTIAL_PRE_INSTANTIATION_ATTRIBUTE, Boolean.TRUE);
+		lbf.registerBeanDefinition("sequential", sequential);
+		RootBeanDefinition lazy = new RootBeanDefinition(TestBean.class);
+		lazy.setLazyInit(true);
+		lbf.registerBeanDefinition("lazy", lazy);
+		lbf.registerBeanDefinition("eagerFactory", new RootBeanDefinition(EagerInitFactory.class));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		for (int i = 0; i < 20; i++) {
+			assertTrue(lbf.containsSingleton("bean" + i));
+		}
+		TestBean bean19 = lbf.getBean("bean19", TestBean.class);
+		assertSame(lbf.getBean("bean18"), bean19.getSpouse());
+		assertSame(lbf.getBean("circularB"), lbf.getBean("circularA", TestBean.class).getSpouse());
+		assertSame(lbf.getBean("circularA"), lbf.getBean("circularB", TestBean.class).getSpouse());
+		assertSame(Thread.currentThread(), creatingThreads.get("circularA"));
+		assertSame(Thread.currentThread(), creatingThreads.get("sequential"));
+		assertNotSame(Thread.currentThread(), creatingThreads.get("bean0"));
+		assertFalse(lbf.containsSingleton("lazy"));
+		assertTrue(lbf.getBean("&eagerFactory", EagerInitFactory.class).initialized);
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithFailure() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		for (int i = 0; i < 10; i++) {
+			lbf.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class));
+		}
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("age", "notANumber");
+		lbf.registerBeanDefinition("broken", bd);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			lbf.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("broken", ex.getBeanName());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testConcurrentCreationOfIndependentSingletons() throws Exception {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final CountDownLatch bothInCreation = new CountDownLatch(2);
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				bothInCreation.countDown();
+				try {
+					// Only completes if both singletons are being created at the same time.
+					return bothInCreation.await(2, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		});
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("name", "created");
+		lbf.registerBeanDefinition("a", bd);
+		lbf.registerBeanDefinition("b", bd);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> a = executor.submit(new BeanRetrievingCallable(lbf, "a"));
+			Future<Object> b = executor.submit(new BeanRetrievingCallable(lbf, "b"));
+			assertEquals("created", ((TestBean) a.get()).getName());
+			assertEquals("created", ((TestBean) b.get()).getName());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(0, bothInCreation.getCount());
+	}
+
+	@Test(timeout = 5000)
+	public void testCircularReferenceBetweenThreads() throws Exception {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final CountDownLatch bothInCreation = new CountDownLatch(2);
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				bothInCreation.countDown();
+				try {
+					// Make sure that each thread holds its singleton before requesting the other one.
+					bothInCreation.await(2, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+				return true;
+			}
+		});
+		RootBeanDefinition a = new RootBeanDefinition(TestBean.class);
+		a.getPropertyValues().add("spouse", new RuntimeBeanReference("b"));
+		lbf.registerBeanDefinition("a", a);
+		RootBeanDefinition b = new RootBeanDefinition(TestBean.class);
+		b.getPropertyValues().add("spouse", new RuntimeBeanReference("a"));
+		lbf.registerBeanDefinition("b", b);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> futureA = executor.submit(new BeanRetrievingCallable(lbf, "a"));
+			Future<Object> futureB = executor.submit(new BeanRetrievingCallable(lbf, "b"));
+			TestBean beanA = (TestBean) futureA.get();
+			TestBean beanB = (TestBean) futureB.get();
+			assertSame(beanB, beanA.getSpouse());
+			assertSame(beanA, beanB.getSpouse());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertSame(lbf.getBean("b"), lbf.getBean("a", TestBean.class).getSpouse());
+		assertFalse(lbf.isCurrentlyInCreation("a"));
+		assertFalse(lbf.isCurrentlyInCreation("b"));
+	}
+
+	@Test(timeout = 5000)
+	public void testConcurrentFactoryBeanObjectRetrieval() throws Exception {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("factory", new RootBeanDefinition(CountingFactoryBean.class));
+		CountingFactoryBean factory = (CountingFactoryBean) lbf.getBean("&factory");
+		factory.delay = 100;
+		List<Object> objects = getBeanConcurrently(lbf, "factory", 4);
+		assertEquals(1, factory.count.get());
+		for (Object object : objects) {
+			assertSame(objects.get(0), object);
+		}
+		assertSame(objects.get(0), lbf.getBean("factory"));
+	}
+
+	@Test(timeout = 5000)
+	public void testConcurrentFactoryBeanObjectRetrievalWithoutLock() throws Exception {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory() {
+			@Override
+			protected boolean acquireSingletonLock(String beanName) {
+				// Simulate a back-off from a circular wait between threads once the FactoryBean exists.
+				if ("factory".equals(beanName) && containsSingleton(beanName)) {
+					return false;
+				}
+				return super.acquireSingletonLock(beanName);
+			}
+		};
+		lbf.registerBeanDefinition("factory", new RootBeanDefinition(CountingFactoryBean.class));
+		CountingFactoryBean factory = (CountingFactoryBean) lbf.getBean("&factory");
+		factory.allInGetObject = new CountDownLatch(4);
+		List<Object> objects = getBeanConcurrently(lbf, "factory", 4);
+		assertEquals(4, factory.count.get());
+		for (Object object : objects) {
+			assertSame(objects.get(0), object);
+		}
+		assertSame(objects.get(0), lbf.getBean("factory"));
+	}
+
+	private List<Object> getBeanConcurrently(BeanFactory beanFactory, String beanName, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(new BeanRetrievingCallable(beanFactory, beanName)));
+			}
+			List<Object> objects = new ArrayList<Object>();
+			for (Future<Object> future : futures) {
+				objects.add(future.get());
+			}
+			return objects;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 
 	static class A { }
 	static class B { }
@@ -2192,6 +2568,51 @@ public class DefaultListableBeanFactoryTests {
 	}
 
 
+	private static class BeanRetrievingCallable implements Callable<Object> {
+
+		private final BeanFactory beanFactory;
+
+		private final String beanName;
+
+		public BeanRetrievingCallable(BeanFactory beanFactory, String beanName) {
+			this.beanFactory = beanFactory;
+			this.beanName = beanName;
+		}
+
+		public Object call() {
+			return this.beanFactory.getBean(this.beanName);
+		}
+	}
+
+
+	public static class CountingFactoryBean implements FactoryBean<Object> {
+
+		public final AtomicInteger count = new AtomicInteger();
+
+		public volatile long delay;
+
+		public volatile CountDownLatch allInGetObject;
+
+		public Object getObject() throws Exception {
+			this.count.incrementAndGet();
+			if (this.allInGetObject != null) {
+				this.allInGetObject.countDown();
+				this.allInGetObject.await(2, TimeUnit.SECONDS);
+			}
+			Thread.sleep(this.delay);
+			return new TestBean();
+		}
+
+		public Class<?> getObjectType() {
+			return TestBean.class;
+		}
+
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+
 	public static class NoDependencies {
 
 		private NoDependencies() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -924,6 +924,121 @@ public final class AutowiredAnnotationBeanPostProcessorTests {
 		bf.destroySingletons();
 	}
 
+	@Test
+	public void testCompiledInjection() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setAutowireCandidateResolver(new QualifierAnnotationAutowireCandidateResolver());
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setCompiledInjection(true);
+		bpp.setBeanFactory(bf);
+		bf.addBeanPostProcessor(bpp);
+		RootBeanDefinition bd = new RootBeanDefinition(CompiledInjectionBean.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("annotatedBean", bd);
+		bf.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		NestedTestBean ntb = new NestedTestBean();
+		bf.registerSingleton("nestedTestBean", ntb);
+		bf.freezeConfiguration();
+		TestBean tb = (TestBean) bf.getBean("testBean");
+
+		for (int i = 0; i < 3; i++) {
+			CompiledInjectionBean bean = (CompiledInjectionBean) bf.getBean("annotatedBean");
+			assertSame(tb, bean.testBean);
+			assertEquals(42, bean.number);
+			assertSame(ntb, bean.getNestedTestBean());
+			assertSame(tb, bean.getTestBean2());
+			assertSame(ntb, bean.getNestedTestBean2());
+			assertEquals(42L, bean.getNumber2());
+		}
+	}
+
+	@Test
+	public void testCompiledInjectionWithRecreatedDependency() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setAutowireCandidateResolver(new QualifierAnnotationAutowireCandidateResolver());
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setCompiledInjection(true);
+		bpp.setBeanFactory(bf);
+		bf.addBeanPostProcessor(bpp);
+		RootBeanDefinition bd = new RootBeanDefinition(CompiledInjectionBean.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("annotatedBean", bd);
+		bf.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		bf.registerSingleton("nestedTestBean", new NestedTestBean());
+		bf.freezeConfiguration();
+
+		TestBean tb = (TestBean) bf.getBean("testBean");
+		for (int i = 0; i < 2; i++) {
+			CompiledInjectionBean bean = (CompiledInjectionBean) bf.getBean("annotatedBean");
+			assertSame(tb, bean.testBean);
+			assertSame(tb, bean.getTestBean2());
+		}
+
+		bf.destroySingleton("testBean");
+		TestBean recreated = (TestBean) bf.getBean("testBean");
+		assertNotSame(tb, recreated);
+		CompiledInjectionBean bean = (CompiledInjectionBean) bf.getBean("annotatedBean");
+		assertSame(recreated, bean.testBean);
+		assertSame(recreated, bean.getTestBean2());
+	}
+
+	@Test
+	public void testCompiledInjectionWithFailingMethod() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setCompiledInjection(true);
+		bpp.setBeanFactory(bf);
+		bf.addBeanPostProcessor(bpp);
+		RootBeanDefinition bd = new RootBeanDefinition(FailingMethodInjectionBean.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("annotatedBean", bd);
+		bf.registerSingleton("testBean", new TestBean());
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				bf.getBean("annotatedBean");
+				fail("Should have thrown BeanCreationException");
+			}
+			catch (BeanCreationException ex) {
+				assertTrue(ex.getRootCause() instanceof IllegalStateException);
+			}
+		}
+	}
+
+	@Test
+	public void testAutowiredMemberInjectorGenerator() throws Throwable {
+		AutowiredMemberInjectorGenerator generator = new AutowiredMemberInjectorGenerator(CompiledInjectionBean.class);
+		assertEquals(0, generator.addField(CompiledInjectionBean.class.getField("testBean")));
+		assertEquals(1, generator.addField(CompiledInjectionBean.class.getField("number")));
+		assertEquals(-1, generator.addField(CompiledInjectionBean.class.getDeclaredField("nestedTestBean")));
+		assertEquals(-1, generator.addField(CompiledInjectionBean.class.getField("finalTestBean")));
+		assertEquals(0, generator.addMethod(CompiledInjectionBean.class.getMethod(
+				"inject", ITestBean.class, NestedTestBean.class, long.class)));
+		assertEquals(-1, generator.addMethod(CompiledInjectionBean.class.getDeclaredMethod("init")));
+
+		AutowiredMemberInjector injector = generator.getInjector();
+		assertNotNull(injector);
+		assertSame(injector, generator.getInjector());
+		CompiledInjectionBean bean = new CompiledInjectionBean();
+		TestBean tb = new TestBean();
+		NestedTestBean ntb = new NestedTestBean();
+		injector.injectField(0, bean, tb);
+		injector.injectField(1, bean, 7);
+		injector.injectMethod(0, bean, new Object[] {tb, ntb, 8L});
+		assertSame(tb, bean.testBean);
+		assertEquals(7, bean.number);
+		assertSame(tb, bean.getTestBean2());
+		assertSame(ntb, bean.getNestedTestBean2());
+		assertEquals(8L, bean.getNumber2());
+		try {
+			injector.injectField(2, bean, tb);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
 
 	public static class ResourceInjectionBean {
 
@@ -1408,6 +1523,62 @@ public final class AutowiredAnnotationBeanPostProcessorTests {
 	}
 
 
+	public static class CompiledInjectionBean {
+
+		@Autowired
+		public TestBean testBean;
+
+		@Value("42")
+		public int number;
+
+		@Autowired
+		private NestedTestBean nestedTestBean;
+
+		public final TestBean finalTestBean = null;
+
+		private ITestBean testBean2;
+
+		private NestedTestBean nestedTestBean2;
+
+		private long number2;
+
+		@Autowired
+		public void inject(ITestBean testBean2, NestedTestBean nestedTestBean2, @Value("42") long number2) {
+			this.testBean2 = testBean2;
+			this.nestedTestBean2 = nestedTestBean2;
+			this.number2 = number2;
+		}
+
+		private void init() {
+		}
+
+		public NestedTestBean getNestedTestBean() {
+			return this.nestedTestBean;
+		}
+
+		public ITestBean getTestBean2() {
+			return this.testBean2;
+		}
+
+		public NestedTestBean getNestedTestBean2() {
+			return this.nestedTestBean2;
+		}
+
+		public long getNumber2() {
+			return this.number2;
+		}
+	}
+
+
+	public static class FailingMethodInjectionBean {
+
+		@Autowired
+		public void setTestBean(TestBean testBean) {
+			throw new IllegalStateException("Injection failed");
+		}
+	}
+
+
 	/**
 	 * Bean with a dependency on a {@link FactoryBean}.
 	 */
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import test.beans.DerivedTestBean;
+import test.beans.TestBean;
+
+/**
+ * Unit tests for {@link SnapshotBeanDefinitionReader} and {@link BeanDefinitionSnapshotWriter}.
+ *
+ * @since 3.1.3
+ */
+public final class SnapshotBeanDefinitionReaderTests {
+
+	private static final String[] XML_FILES = new String[] {
+			"collections.xml", "collectionMerging.xml", "factory-methods.xml", "withMeta.xml",
+			"testUtilNamespace.xml", "autowire-with-selective-inclusion.xml", "test.xml"};
+
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		for (String file : XML_FILES) {
+			DefaultListableBeanFactory expected = new DefaultListableBeanFactory();
+			new XmlBeanDefinitionReader(expected).loadBeanDefinitions(
+					new ClassPathResource("/org/springframework/beans/factory/xml/" + file));
+
+			DefaultListableBeanFactory actual = new DefaultListableBeanFactory();
+			SnapshotBeanDefinitionReader reader = new SnapshotBeanDefinitionReader(actual);
+			assertEquals(expected.getBeanDefinitionCount(), reader.loadBeanDefinitions(writeSnapshot(expected, "v1")));
+
+			assertArrayEquals(file, expected.getBeanDefinitionNames(), actual.getBeanDefinitionNames());
+			for (String beanName : expected.getBeanDefinitionNames()) {
+				BeanDefinition bd = actual.getBeanDefinition(beanName);
+				assertEquals(Boolean.TRUE, bd.removeAttribute(SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE));
+				assertEquals(file + " - " + beanName, expected.getMergedBeanDefinition(beanName), bd);
+				assertArrayEquals(file + " - " + beanName, expected.getAliases(beanName), actual.getAliases(beanName));
+			}
+		}
+	}
+
+	@Test
+	public void testBeanCreation() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		new XmlBeanDefinitionReader(original).loadBeanDefinitions(
+				new ClassPathResource("/org/springframework/beans/factory/xml/collections.xml"));
+
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		new SnapshotBeanDefinitionReader(bf).loadBeanDefinitions(writeSnapshot(original, null));
+		TestBean jenny = (TestBean) bf.getBean("jenny");
+		assertEquals("Jenny", jenny.getName());
+		assertEquals("David", jenny.getSpouse().getName());
+		assertEquals(((TestBean) original.getBean("verbose")).getName(), ((TestBean) bf.getBean("verbose")).getName());
+	}
+
+	@Test
+	public void testExpectedFingerprint() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		original.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		Resource snapshot = writeSnapshot(original, "v1");
+
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		SnapshotBeanDefinitionReader reader = new SnapshotBeanDefinitionReader(bf);
+		reader.setExpectedFingerprint("v2");
+		try {
+			reader.loadBeanDefinitions(snapshot);
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (BeanDefinitionStoreException ex) {
+			assertTrue(ex.getMessage().contains("out of date"));
+		}
+		assertEquals(0, bf.getBeanDefinitionCount());
+
+		reader.setExpectedFingerprint("v1");
+		assertEquals(1, reader.loadBeanDefinitions(snapshot));
+		assertTrue(bf.getBean("testBean") instanceof TestBean);
+	}
+
+	@Test
+	public void testInvalidSnapshot() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		try {
+			new SnapshotBeanDefinitionReader(bf).loadBeanDefinitions(new ByteArrayResource("<beans/>".getBytes()));
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (BeanDefinitionStoreException ex) {
+			// expected
+		}
+		assertEquals(0, bf.getBeanDefinitionCount());
+	}
+
+	@Test
+	public void testRegistrationRolledBackOnConflict() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		original.registerBeanDefinition("a", new RootBeanDefinition(TestBean.class));
+		original.registerAlias("a", "aliasForA");
+		original.registerBeanDefinition("b", new RootBeanDefinition(TestBean.class));
+		original.registerBeanDefinition("c", new RootBeanDefinition(TestBean.class));
+		Resource snapshot = writeSnapshot(original, null);
+
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setAllowBeanDefinitionOverriding(false);
+		RootBeanDefinition existing = new RootBeanDefinition(DerivedTestBean.class);
+		bf.registerBeanDefinition("c", existing);
+		try {
+			new SnapshotBeanDefinitionReader(bf).loadBeanDefinitions(snapshot);
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (BeanDefinitionStoreException ex) {
+			assertEquals("c", ex.getBeanName());
+		}
+		assertArrayEquals(new String[] {"c"}, bf.getBeanDefinitionNames());
+		assertSame(existing, bf.getBeanDefinition("c"));
+		assertFalse(bf.isAlias("aliasForA"));
+	}
+
+	@Test
+	public void testRegistrationRolledBackWithReplacedBeanDefinition() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		original.registerBeanDefinition("a", new RootBeanDefinition(TestBean.class));
+		original.registerBeanDefinition("b", new RootBeanDefinition(TestBean.class));
+		original.registerAlias("b", "existingAlias");
+		Resource snapshot = writeSnapshot(original, null);
+
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory() {
+			@Override
+			protected boolean allowAliasOverriding() {
+				return false;
+			}
+		};
+		RootBeanDefinition existing = new RootBeanDefinition(DerivedTestBean.class);
+		bf.registerBeanDefinition("a", existing);
+		bf.registerBeanDefinition("other", new RootBeanDefinition(DerivedTestBean.class));
+		bf.registerAlias("other", "existingAlias");
+		try {
+			new SnapshotBeanDefinitionReader(bf).loadBeanDefinitions(snapshot);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// alias conflict
+		}
+		assertArrayEquals(new String[] {"a", "other"}, bf.getBeanDefinitionNames());
+		assertSame(existing, bf.getBeanDefinition("a"));
+		assertArrayEquals(new String[] {"existingAlias"}, bf.getAliases("other"));
+	}
+
+	@Test
+	public void testUnsupportedValue() throws IOException {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new TestBean());
+		bf.registerBeanDefinition("testBean", bd);
+		try {
+			writeSnapshot(bf, null);
+			fail("Should have thrown NotSerializableException");
+		}
+		catch (NotSerializableException ex) {
+			assertTrue(ex.getMessage().contains("testBean"));
+		}
+	}
+
+
+	private static Resource writeSnapshot(DefaultListableBeanFactory beanFactory, String fingerprint) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BeanDefinitionSnapshotWriter(beanFactory).writeSnapshot(out, fingerprint);
+		return new ByteArrayResource(out.toByteArray(), "snapshot");
+	}
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import test.beans.TestBean;
+
+/**
+ * Unit tests for {@link StaxXmlBeanDefinitionReader}, checking that it
+ * registers the same bean definitions as {@link XmlBeanDefinitionReader}.
+ *
+ * @since 3.1.3
+ */
+public final class StaxXmlBeanDefinitionReaderTests {
+
+	private static final String[] SCHEMA_BASED_FILES = new String[] {
+			"collections.xml", "collectionMerging.xml", "collectionsWithDefaultTypes.xml", "factory-methods.xml",
+			"autowire-with-inclusion.xml", "autowire-with-selective-inclusion.xml", "defaultLifecycleMethods.xml",
+			"simplePropertyNamespaceHandlerTests.xml", "simpleConstructorNamespaceHandlerTests.xml",
+			"testUtilNamespace.xml", "NestedBeansElementTests-context.xml",
+			"NestedBeansElementAttributeRecursionTests-autowire-candidates-context.xml",
+			"NestedBeansElementAttributeRecursionTests-autowire-context.xml",
+			"NestedBeansElementAttributeRecursionTests-lazy-context.xml",
+			"NestedBeansElementAttributeRecursionTests-merge-context.xml",
+			"NestedBeansElementAttributeRecursionTests-init-destroy-context.xml"};
+
+	private static final String[] DTD_BASED_FILES = new String[] {
+			"test.xml", "import.xml", "beanNameGeneration.xml", "validateWithDtd.xml"};
+
+
+	@Test
+	public void testSchemaBasedFiles() {
+		for (String file : SCHEMA_BASED_FILES) {
+			assertEquivalentToDomReader(null, new ClassPathResource(file, getClass()));
+		}
+	}
+
+	@Test
+	public void testDtdBasedFiles() {
+		for (String file : DTD_BASED_FILES) {
+			assertEquivalentToDomReader(null, new ClassPathResource(file, getClass()));
+		}
+	}
+
+	@Test
+	public void testProfiles() {
+		Resource resource = new ClassPathResource("ProfileXmlBeanDefinitionTests-devProfile.xml", getClass());
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		new StaxXmlBeanDefinitionReader(bf).loadBeanDefinitions(resource);
+		assertEquals(0, bf.getBeanDefinitionCount());
+
+		StandardEnvironment env = new StandardEnvironment();
+		env.setActiveProfiles("dev");
+		StaxXmlBeanDefinitionReader reader = new StaxXmlBeanDefinitionReader(bf);
+		reader.setEnvironment(env);
+		reader.loadBeanDefinitions(resource);
+		assertTrue(bf.getBeanDefinitionCount() > 0);
+	}
+
+	@Test
+	public void testBeanCreation() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		new StaxXmlBeanDefinitionReader(bf).loadBeanDefinitions(new ClassPathResource("collections.xml", getClass()));
+		TestBean jenny = (TestBean) bf.getBean("jenny");
+		assertEquals("Jenny", jenny.getName());
+		assertEquals("David", jenny.getSpouse().getName());
+		assertEquals(5, ((MixedCollectionBean) bf.getBean("jumble")).getJumble().size());
+		assertEquals("verbose", ((TestBean) bf.getBean("verbose")).getName());
+	}
+
+	@Test
+	public void testParallelParsing() {
+		Resource[] resources = new Resource[SCHEMA_BASED_FILES.length];
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] = new ClassPathResource(SCHEMA_BASED_FILES[i], getClass());
+		}
+		assertEquivalentToDomReader(new SimpleAsyncTaskExecutor(), resources);
+		assertEquivalentToDomReader(new SyncTaskExecutor(), resources);
+		assertEquivalentToDomReader(new Executor() {
+			public void execute(Runnable task) {
+				// never runs the task: parsed on the calling thread instead
+			}
+		}, resources);
+	}
+
+	@Test
+	public void testParallelParsingWithInvalidFile() {
+		StaxXmlBeanDefinitionReader reader = new StaxXmlBeanDefinitionReader(new DefaultListableBeanFactory());
+		reader.setParsingExecutor(new SimpleAsyncTaskExecutor());
+		try {
+			reader.loadBeanDefinitions(new ClassPathResource("collections.xml", getClass()),
+					new ByteArrayResource("<beans>\n<bean id='a'>\n</beans>".getBytes()));
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (BeanDefinitionStoreException ex) {
+			assertTrue(ex.getMessage().contains("Line 3"));
+		}
+	}
+
+	@Test
+	public void testInvalidFile() {
+		StaxXmlBeanDefinitionReader reader = new StaxXmlBeanDefinitionReader(new DefaultListableBeanFactory());
+		try {
+			reader.loadBeanDefinitions(new ByteArrayResource("<beans>\n<bean id='a'></beans>".getBytes()));
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (BeanDefinitionStoreException ex) {
+			assertTrue(ex.getMessage().contains("Line 2"));
+		}
+	}
+
+
+	private void assertEquivalentToDomReader(Executor parsingExecutor, Resource... resources) {
+		DefaultListableBeanFactory expected = new DefaultListableBeanFactory();
+		new XmlBeanDefinitionReader(expected).loadBeanDefinitions(resources);
+
+		DefaultListableBeanFactory actual = new DefaultListableBeanFactory();
+		StaxXmlBeanDefinitionReader reader = new StaxXmlBeanDefinitionReader(actual);
+		reader.setParsingExecutor(parsingExecutor);
+		assertEquals(expected.getBeanDefinitionCount(), reader.loadBeanDefinitions(resources));
+
+		String description = Arrays.asList(resources).toString();
+		assertArrayEquals(description, expected.getBeanDefinitionNames(), actual.getBeanDefinitionNames());
+		for (String beanName : expected.getBeanDefinitionNames()) {
+			assertEquals(description + " - " + beanName,
+					normalizeInnerBeanNames(expected.getBeanDefinition(beanName)),
+					normalizeInnerBeanNames(actual.getBeanDefinition(beanName)));
+			assertArrayEquals(description + " - " + beanName,
+					expected.getAliases(beanName), actual.getAliases(beanName));
+		}
+	}
+
+	/**
+	 * Replace the generated names of inner beans, which are based on identity
+	 * hash codes, so that bean definitions can be compared across factories.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object normalizeInnerBeanNames(Object value) {
+		if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			normalizeInnerBeanNames(holder.getBeanDefinition());
+			String beanName = holder.getBeanName();
+			if (beanName.contains(BeanFactoryUtils.GENERATED_BEAN_NAME_SEPARATOR)) {
+				beanName = "(inner bean)";
+			}
+			return new BeanDefinitionHolder(holder.getBeanDefinition(), beanName, holder.getAliases());
+		}
+		else if (value instanceof BeanDefinition) {
+			BeanDefinition bd = (BeanDefinition) value;
+			List<PropertyValue> pvs = bd.getPropertyValues().getPropertyValueList();
+			for (int i = 0; i < pvs.size(); i++) {
+				PropertyValue pv = pvs.get(i);
+				pvs.set(i, new PropertyValue(pv.getName(), normalizeInnerBeanNames(pv.getValue())));
+			}
+			for (ValueHolder valueHolder : bd.getConstructorArgumentValues().getIndexedArgumentValues().values()) {
+				valueHolder.setValue(normalizeInnerBeanNames(valueHolder.getValue()));
+			}
+			for (ValueHolder valueHolder : bd.getConstructorArgumentValues().getGenericArgumentValues()) {
+				valueHolder.setValue(normalizeInnerBeanNames(valueHolder.getValue()));
+			}
+		}
+		else if (value instanceof List) {
+			List<Object> list = (List<Object>) value;
+			for (int i = 0; i < list.size(); i++) {
+				list.set(i, normalizeInnerBeanNames(list.get(i)));
+			}
+		}
+		else if (value instanceof Set) {
+			Set<Object> set = (Set<Object>) value;
+			List<Object> elements = new ArrayList<Object>(set);
+			set.clear();
+			for (Object element : elements) {
+				set.add(normalizeInnerBeanNames(element));
+			}
+		}
+		else if (value instanceof Map) {
+			Map<Object, Object> map = (Map<Object, Object>) value;
+			Map<Object, Object> entries = new LinkedHashMap<Object, Object>(map);
+			map.clear();
+			for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+				map.put(normalizeInnerBeanNames(entry.getKey()), normalizeInnerBeanNames(entry.getValue()));
+			}
+		}
+		return value;
+	}
+
+}
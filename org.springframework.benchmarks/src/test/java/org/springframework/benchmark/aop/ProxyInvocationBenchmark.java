@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.aop;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.aop.framework.DefaultAopProxyFactory;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Benchmarks for method invocation through JDK dynamic proxies, CGLIB proxies
+ * and generated proxy classes with a short interceptor chain, against a direct
+ * call on the target, with and without reuse of MethodInvocation objects.
+ * Generated proxies without advice are frozen, for direct dispatch to the target.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProxyInvocationBenchmark {
+
+	@Param({"false", "true"})
+	public boolean reuseMethodInvocations;
+
+	private Echo target;
+
+	private Echo jdkProxy;
+
+	private Echo cglibProxy;
+
+	private Echo jdkProxyWithoutAdvice;
+
+	private Echo generatedProxy;
+
+	private Echo generatedProxyWithoutAdvice;
+
+
+	@Setup
+	public void setUp() {
+		this.target = new DefaultEcho();
+		this.jdkProxy = createProxy(false, false, 2);
+		this.cglibProxy = createProxy(true, false, 2);
+		this.jdkProxyWithoutAdvice = createProxy(false, false, 0);
+		this.generatedProxy = createProxy(false, true, 2);
+		this.generatedProxyWithoutAdvice = createProxy(false, true, 0);
+	}
+
+	private Echo createProxy(boolean proxyTargetClass, boolean generateProxyClass, int interceptorCount) {
+		ProxyFactory proxyFactory = new ProxyFactory(this.target);
+		if (generateProxyClass) {
+			DefaultAopProxyFactory aopProxyFactory = new DefaultAopProxyFactory();
+			aopProxyFactory.setGenerateProxyClasses(true);
+			proxyFactory.setAopProxyFactory(aopProxyFactory);
+		}
+		proxyFactory.setProxyTargetClass(proxyTargetClass);
+		proxyFactory.setReuseMethodInvocations(this.reuseMethodInvocations);
+		if (!proxyTargetClass) {
+			proxyFactory.addInterface(Echo.class);
+		}
+		for (int i = 0; i < interceptorCount; i++) {
+			proxyFactory.addAdvice(new PassThroughInterceptor());
+		}
+		proxyFactory.setFrozen(generateProxyClass && interceptorCount == 0);
+		return (Echo) proxyFactory.getProxy();
+	}
+
+
+	@Benchmark
+	public String directInvocation() {
+		return this.target.echo("spring");
+	}
+
+	@Benchmark
+	public String jdkProxyInvocation() {
+		return this.jdkProxy.echo("spring");
+	}
+
+	@Benchmark
+	public String cglibProxyInvocation() {
+		return this.cglibProxy.echo("spring");
+	}
+
+	@Benchmark
+	public String jdkProxyInvocationWithoutAdvice() {
+		return this.jdkProxyWithoutAdvice.echo("spring");
+	}
+
+	@Benchmark
+	public String generatedProxyInvocation() {
+		return this.generatedProxy.echo("spring");
+	}
+
+	@Benchmark
+	public String generatedProxyInvocationWithoutAdvice() {
+		return this.generatedProxyWithoutAdvice.echo("spring");
+	}
+
+
+	public interface Echo {
+
+		String echo(String message);
+	}
+
+
+	public static class DefaultEcho implements Echo {
+
+		public String echo(String message) {
+			return message;
+		}
+	}
+
+
+	private static class PassThroughInterceptor implements MethodInterceptor {
+
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			return invocation.proceed();
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.beans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+
+/**
+ * Benchmarks for property access through {@link BeanWrapperImpl}, including
+ * type conversion of String values and nested property paths, with
+ * reflective as well as generated accessors, and for concurrent access
+ * to cached introspection results.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BeanWrapperBenchmark {
+
+	@Param({"false", "true"})
+	public boolean generatedAccessors;
+
+	private Person person;
+
+	private BeanWrapperImpl beanWrapper;
+
+
+	@Setup
+	public void setUp() {
+		this.person = new Person();
+		this.person.setAddress(new Address());
+		this.beanWrapper = new BeanWrapperImpl(this.person);
+		this.beanWrapper.setUseGeneratedAccessors(this.generatedAccessors);
+	}
+
+
+	@Benchmark
+	public BeanWrapper createBeanWrapper() {
+		return new BeanWrapperImpl(this.person);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public boolean introspectConcurrently() {
+		return new BeanWrapperImpl(this.person).isReadableProperty("Name");
+	}
+
+	@Benchmark
+	public Object getProperty() {
+		return this.beanWrapper.getPropertyValue("name");
+	}
+
+	@Benchmark
+	public Object getNestedProperty() {
+		return this.beanWrapper.getPropertyValue("address.city");
+	}
+
+	@Benchmark
+	public Person setProperty() {
+		this.beanWrapper.setPropertyValue("name", "Juergen");
+		return this.person;
+	}
+
+	@Benchmark
+	public Person setPropertyWithConversion() {
+		this.beanWrapper.setPropertyValue("age", "42");
+		return this.person;
+	}
+
+	@Benchmark
+	public Person setNestedProperty() {
+		this.beanWrapper.setPropertyValue("address.city", "Linz");
+		return this.person;
+	}
+
+
+	public static class Person {
+
+		private String name;
+
+		private int age;
+
+		private Address address;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+
+		public void setAddress(Address address) {
+			this.address = address;
+		}
+	}
+
+
+	public static class Address {
+
+		private String city;
+
+		public String getCity() {
+			return this.city;
+		}
+
+		public void setCity(String city) {
+			this.city = city;
+		}
+	}
+
+}
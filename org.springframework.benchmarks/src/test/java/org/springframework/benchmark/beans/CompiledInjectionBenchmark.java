@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.beans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for the creation of prototype beans with autowired fields and
+ * methods that refer to singleton beans, with reflective and with compiled
+ * injection in a frozen configuration.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompiledInjectionBenchmark {
+
+	@Param({"false", "true"})
+	public boolean compiledInjection;
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Setup
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		AutowiredAnnotationBeanPostProcessor autowiredProcessor = new AutowiredAnnotationBeanPostProcessor();
+		autowiredProcessor.setCompiledInjection(this.compiledInjection);
+		autowiredProcessor.setBeanFactory(this.beanFactory);
+		this.beanFactory.addBeanPostProcessor(autowiredProcessor);
+		this.beanFactory.registerBeanDefinition("repository", new RootBeanDefinition(Repository.class));
+		this.beanFactory.registerBeanDefinition("service", new RootBeanDefinition(Service.class));
+		RootBeanDefinition bd = new RootBeanDefinition(Handler.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("handler", bd);
+		this.beanFactory.freezeConfiguration();
+		this.beanFactory.preInstantiateSingletons();
+	}
+
+
+	@Benchmark
+	public Object createPrototype() {
+		return this.beanFactory.getBean("handler");
+	}
+
+
+	public static class Repository {
+	}
+
+
+	public static class Service {
+	}
+
+
+	public static class Handler {
+
+		@Autowired
+		public Repository repository;
+
+		@Autowired
+		public Service service;
+
+		private Repository otherRepository;
+
+		private Service otherService;
+
+		@Autowired
+		public void setCollaborators(Repository otherRepository, Service otherService) {
+			this.otherRepository = otherRepository;
+			this.otherService = otherService;
+		}
+
+		public Repository getOtherRepository() {
+			return this.otherRepository;
+		}
+
+		public Service getOtherService() {
+			return this.otherService;
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.beans;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.QualifierAnnotationAutowireCandidateResolver;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for the creation of prototype beans with qualified collection
+ * dependencies, which are resolved against all candidate beans on every
+ * creation, with and without a frozen configuration (which allows for
+ * caching the autowire candidates per injection point).
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrototypeAutowiringBenchmark {
+
+	@Param({"false", "true"})
+	public boolean frozen;
+
+	@Param({"50"})
+	public int listenerCount;
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Setup
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.beanFactory.setAutowireCandidateResolver(new QualifierAnnotationAutowireCandidateResolver());
+		AutowiredAnnotationBeanPostProcessor autowiredProcessor = new AutowiredAnnotationBeanPostProcessor();
+		autowiredProcessor.setBeanFactory(this.beanFactory);
+		this.beanFactory.addBeanPostProcessor(autowiredProcessor);
+		for (int i = 0; i < this.listenerCount; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(Listener.class);
+			bd.addQualifier(new AutowireCandidateQualifier(Qualifier.class, (i % 2 == 0 ? "audit" : "metrics")));
+			this.beanFactory.registerBeanDefinition("listener" + i, bd);
+		}
+		RootBeanDefinition bd = new RootBeanDefinition(Handler.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("handler", bd);
+		if (this.frozen) {
+			this.beanFactory.freezeConfiguration();
+		}
+	}
+
+
+	@Benchmark
+	public Object createPrototype() {
+		return this.beanFactory.getBean("handler");
+	}
+
+
+	public static class Listener {
+	}
+
+
+	public static class Handler {
+
+		@Autowired
+		@Qualifier("audit")
+		private List<Listener> auditListeners;
+
+		@Autowired
+		@Qualifier("metrics")
+		private Listener[] metricsListeners;
+
+		public List<Listener> getAuditListeners() {
+			return this.auditListeners;
+		}
+
+		public Listener[] getMetricsListeners() {
+			return this.metricsListeners;
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.beans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.RequiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for the creation of prototype beans with property values and
+ * annotation-driven injection, with and without a frozen configuration
+ * (which allows for replaying a recorded creation plan).
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrototypeCreationBenchmark {
+
+	@Param({"false", "true"})
+	public boolean frozen;
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Setup
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		AutowiredAnnotationBeanPostProcessor autowiredProcessor = new AutowiredAnnotationBeanPostProcessor();
+		autowiredProcessor.setBeanFactory(this.beanFactory);
+		this.beanFactory.addBeanPostProcessor(autowiredProcessor);
+		this.beanFactory.addBeanPostProcessor(new RequiredAnnotationBeanPostProcessor());
+		this.beanFactory.registerBeanDefinition("repository", new RootBeanDefinition(Repository.class));
+		RootBeanDefinition bd = new RootBeanDefinition(Handler.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getPropertyValues().add("name", "handler");
+		bd.getPropertyValues().add("timeout", "30");
+		bd.getPropertyValues().add("fallback", new RuntimeBeanReference("repository"));
+		this.beanFactory.registerBeanDefinition("handler", bd);
+		if (this.frozen) {
+			this.beanFactory.freezeConfiguration();
+		}
+	}
+
+
+	@Benchmark
+	public Object createPrototype() {
+		return this.beanFactory.getBean("handler");
+	}
+
+
+	public static class Repository {
+	}
+
+
+	public static class Handler {
+
+		@Autowired
+		private Repository repository;
+
+		private String name;
+
+		private int timeout;
+
+		private Repository fallback;
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setTimeout(int timeout) {
+			this.timeout = timeout;
+		}
+
+		public int getTimeout() {
+			return this.timeout;
+		}
+
+		public void setFallback(Repository fallback) {
+			this.fallback = fallback;
+		}
+
+		public Repository getFallback() {
+			return this.fallback;
+		}
+
+		public Repository getRepository() {
+			return this.repository;
+		}
+	}
+
+}
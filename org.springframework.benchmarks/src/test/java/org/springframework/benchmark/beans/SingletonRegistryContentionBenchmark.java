@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.beans;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for concurrent access to the singleton registry of a
+ * {@link DefaultListableBeanFactory}: lookups of prototypes and of
+ * FactoryBean-exposed objects from many threads, as well as the parallel
+ * creation of singletons with an expensive initialization phase.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SingletonRegistryContentionBenchmark {
+
+	@Param({"200"})
+	public int singletonCount;
+
+	private DefaultListableBeanFactory beanFactory;
+
+	private ExecutorService executor;
+
+
+	@Setup
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		RootBeanDefinition prototype = new RootBeanDefinition(Component.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("prototype", prototype);
+		this.beanFactory.registerBeanDefinition("singleton", new RootBeanDefinition(Component.class));
+		this.beanFactory.registerBeanDefinition("factoryBean", new RootBeanDefinition(ComponentFactoryBean.class));
+		this.beanFactory.preInstantiateSingletons();
+		this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Benchmark
+	@Threads(8)
+	public Object getSingleton() {
+		return this.beanFactory.getBean("singleton");
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object getPrototype() {
+		return this.beanFactory.getBean("prototype");
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object getFactoryBeanObject() {
+		return this.beanFactory.getBean("factoryBean");
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@BenchmarkMode(Mode.AverageTime)
+	public DefaultListableBeanFactory preInstantiateExpensiveSingletons() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		for (int i = 0; i < this.singletonCount; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(ExpensiveComponent.class);
+			bd.setInitMethodName("init");
+			beanFactory.registerBeanDefinition("expensive" + i, bd);
+		}
+		beanFactory.setPreInstantiationExecutor(this.executor);
+		beanFactory.preInstantiateSingletons();
+		return beanFactory;
+	}
+
+
+	public static class Component {
+	}
+
+
+	public static class ComponentFactoryBean implements FactoryBean<Component> {
+
+		private final Component component = new Component();
+
+		public Component getObject() {
+			return this.component;
+		}
+
+		public Class<?> getObjectType() {
+			return Component.class;
+		}
+
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+
+	public static class ExpensiveComponent {
+
+		private long checksum;
+
+		public void init() {
+			long checksum = 17;
+			for (int i = 0; i < 100000; i++) {
+				checksum = checksum * 31 + i;
+			}
+			this.checksum = checksum;
+		}
+
+		public long getChecksum() {
+			return this.checksum;
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.beans;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.StaxXmlBeanDefinitionReader;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Benchmarks for loading a large XML bean definition configuration, split
+ * into many files, with the DOM-based {@link XmlBeanDefinitionReader} and the
+ * {@link StaxXmlBeanDefinitionReader}, the latter sequentially as well as with
+ * parallel parsing of the files.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XmlBeanDefinitionReaderBenchmark {
+
+	@Param({"100"})
+	public int fileCount;
+
+	@Param({"100"})
+	public int beansPerFile;
+
+	private Resource[] resources;
+
+	private ExecutorService executor;
+
+
+	@Setup
+	public void setUp() {
+		this.resources = new Resource[this.fileCount];
+		for (int i = 0; i < this.fileCount; i++) {
+			StringBuilder xml = new StringBuilder();
+			xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			xml.append("<beans xmlns=\"http://www.springframework.org/schema/beans\"\n");
+			xml.append("\t\txmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+			xml.append("\t\txmlns:p=\"http://www.springframework.org/schema/p\"\n");
+			xml.append("\t\txsi:schemaLocation=\"http://www.springframework.org/schema/beans ");
+			xml.append("http://www.springframework.org/schema/beans/spring-beans-3.1.xsd\">\n");
+			for (int j = 0; j < this.beansPerFile; j++) {
+				String name = "bean" + i + "_" + j;
+				xml.append("\t<!-- bean ").append(j).append(" of file ").append(i).append(" -->\n");
+				xml.append("\t<bean id=\"").append(name).append("\" class=\"java.util.HashMap\" p:loadFactor=\"0.75\">\n");
+				xml.append("\t\t<constructor-arg>\n\t\t\t<map>\n");
+				xml.append("\t\t\t\t<entry key=\"name\" value=\"").append(name).append("\"/>\n");
+				xml.append("\t\t\t\t<entry key=\"index\"><value type=\"int\">").append(j).append("</value></entry>\n");
+				if (j > 0) {
+					xml.append("\t\t\t\t<entry key=\"previous\" value-ref=\"bean").append(i).append('_').append(j - 1).append("\"/>\n");
+				}
+				xml.append("\t\t\t\t<entry key=\"list\"><list><value>a</value><value>b</value></list></entry>\n");
+				xml.append("\t\t\t</map>\n\t\t</constructor-arg>\n");
+				xml.append("\t</bean>\n");
+			}
+			xml.append("</beans>\n");
+			this.resources[i] = new ByteArrayResource(xml.toString().getBytes(), "generated file " + i);
+		}
+		this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.executor.shutdown();
+	}
+
+
+	@Benchmark
+	public DefaultListableBeanFactory domReader() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		new XmlBeanDefinitionReader(beanFactory).loadBeanDefinitions(this.resources);
+		return beanFactory;
+	}
+
+	@Benchmark
+	public DefaultListableBeanFactory staxReader() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		new StaxXmlBeanDefinitionReader(beanFactory).loadBeanDefinitions(this.resources);
+		return beanFactory;
+	}
+
+	@Benchmark
+	public DefaultListableBeanFactory staxReaderWithParallelParsing() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		StaxXmlBeanDefinitionReader reader = new StaxXmlBeanDefinitionReader(beanFactory);
+		reader.setParsingExecutor(this.executor);
+		reader.loadBeanDefinitions(this.resources);
+		return beanFactory;
+	}
+
+}
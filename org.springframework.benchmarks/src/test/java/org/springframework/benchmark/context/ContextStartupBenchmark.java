@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.context;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Benchmarks for the startup of an annotation-driven application context with
+ * a large number of beans, where every bean class is introspected by several
+ * annotation post-processors through {@link ReflectionUtils}.
+ *
+ * <p>The <code>reflectionCache</code> parameter compares the default behavior
+ * with a run that clears the {@link ReflectionUtils} declared members cache
+ * before each bean instantiation, approximating startup without that cache.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContextStartupBenchmark {
+
+	private static final Class<?>[] BEAN_CLASSES = {ServiceA.class, ServiceB.class, ServiceC.class,
+			ServiceD.class, ServiceE.class};
+
+	@Param({"1000"})
+	public int beanCount;
+
+	@Param({"true", "false"})
+	public boolean reflectionCache;
+
+
+	@Benchmark
+	public GenericApplicationContext refreshAndClose() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+		if (!this.reflectionCache) {
+			context.getBeanFactory().addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+				@Override
+				public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+					ReflectionUtils.clearCache();
+					return null;
+				}
+			});
+		}
+		context.registerBeanDefinition("repository", new RootBeanDefinition(Repository.class));
+		for (int i = 0; i < this.beanCount; i++) {
+			context.registerBeanDefinition("service" + i, new RootBeanDefinition(BEAN_CLASSES[i % BEAN_CLASSES.length]));
+		}
+		context.refresh();
+		context.close();
+		return context;
+	}
+
+
+	public static class Repository {
+	}
+
+
+	public abstract static class AbstractService {
+
+		@Autowired
+		private Repository repository;
+
+		private boolean initialized;
+
+		@PostConstruct
+		public void init() {
+			this.initialized = (this.repository != null);
+		}
+
+		@PreDestroy
+		public void destroy() {
+			this.initialized = false;
+		}
+
+		public boolean isInitialized() {
+			return this.initialized;
+		}
+
+		public void process(String input) {
+		}
+
+		public String describe() {
+			return getClass().getName();
+		}
+	}
+
+
+	public static class ServiceA extends AbstractService {
+
+		@Resource
+		private Repository resourceRepository;
+
+		public String getName() {
+			return "a";
+		}
+	}
+
+
+	public static class ServiceB extends AbstractService {
+
+		private Repository repository;
+
+		@Autowired
+		public void setRepository(Repository repository) {
+			this.repository = repository;
+		}
+
+		public Repository getRepository() {
+			return this.repository;
+		}
+	}
+
+
+	public static class ServiceC extends AbstractService {
+
+		private int timeout;
+
+		public int getTimeout() {
+			return this.timeout;
+		}
+
+		public void setTimeout(int timeout) {
+			this.timeout = timeout;
+		}
+	}
+
+
+	public static class ServiceD extends ServiceC {
+
+		@Autowired(required = false)
+		private Runnable optionalTask;
+
+		@Override
+		public void process(String input) {
+		}
+	}
+
+
+	public static class ServiceE extends ServiceB {
+
+		@Resource
+		public void setAlternativeRepository(Repository repository) {
+		}
+	}
+
+}
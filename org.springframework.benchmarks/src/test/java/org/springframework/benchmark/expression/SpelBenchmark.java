@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.expression;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for parsing and evaluating SpEL expressions against a root object.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpelBenchmark {
+
+	private final ExpressionParser parser = new SpelExpressionParser();
+
+	private StandardEvaluationContext context;
+
+	private Expression propertyExpression;
+
+	private Expression methodExpression;
+
+	private Expression arithmeticExpression;
+
+
+	@Setup
+	public void setUp() {
+		this.context = new StandardEvaluationContext(new Inventor("Nikola Tesla", 1856));
+		this.propertyExpression = this.parser.parseExpression("name");
+		this.methodExpression = this.parser.parseExpression("name.substring(0, 6).toUpperCase()");
+		this.arithmeticExpression = this.parser.parseExpression("birthYear > 1800 and birthYear < 1900 ? birthYear + 100 : 0");
+	}
+
+
+	@Benchmark
+	public Expression parse() {
+		return this.parser.parseExpression("name.substring(0, 6).toUpperCase()");
+	}
+
+	@Benchmark
+	public Object evaluateProperty() {
+		return this.propertyExpression.getValue(this.context);
+	}
+
+	@Benchmark
+	public Object evaluateMethodChain() {
+		return this.methodExpression.getValue(this.context);
+	}
+
+	@Benchmark
+	public Object evaluateArithmetic() {
+		return this.arithmeticExpression.getValue(this.context);
+	}
+
+
+	public static class Inventor {
+
+		private final String name;
+
+		private final int birthYear;
+
+		public Inventor(String name, int birthYear) {
+			this.name = name;
+			this.birthYear = birthYear;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getBirthYear() {
+			return this.birthYear;
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Benchmarks for {@link JdbcTemplate} queries against an in-memory HSQL database,
+ * comparing a hand-written {@link RowMapper}, {@link BeanPropertyRowMapper} and
+ * column map rows.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RowMapperBenchmark {
+
+	private static final int ROW_COUNT = 100;
+
+	private static final String QUERY = "SELECT id, first_name, last_name, age FROM person";
+
+	private static final RowMapper<Person> PERSON_ROW_MAPPER = new RowMapper<Person>() {
+		public Person mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Person person = new Person();
+			person.setId(rs.getLong(1));
+			person.setFirstName(rs.getString(2));
+			person.setLastName(rs.getString(3));
+			person.setAge(rs.getInt(4));
+			return person;
+		}
+	};
+
+	private final BeanPropertyRowMapper<Person> beanPropertyRowMapper = new BeanPropertyRowMapper<Person>(Person.class);
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+
+	@Setup
+	public void setUp() {
+		this.database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).setName("benchmark").build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("CREATE TABLE person (id BIGINT PRIMARY KEY, first_name VARCHAR(50), " +
+				"last_name VARCHAR(50), age INTEGER)");
+		List<Object[]> rows = new ArrayList<Object[]>(ROW_COUNT);
+		for (int i = 0; i < ROW_COUNT; i++) {
+			rows.add(new Object[] {i, "First" + i, "Last" + i, 20 + (i % 50)});
+		}
+		this.jdbcTemplate.batchUpdate("INSERT INTO person VALUES (?, ?, ?, ?)", rows);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.database.shutdown();
+	}
+
+
+	@Benchmark
+	public List<Person> customRowMapper() {
+		return this.jdbcTemplate.query(QUERY, PERSON_ROW_MAPPER);
+	}
+
+	@Benchmark
+	public List<Person> beanPropertyRowMapper() {
+		return this.jdbcTemplate.query(QUERY, this.beanPropertyRowMapper);
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> queryForList() {
+		return this.jdbcTemplate.queryForList(QUERY);
+	}
+
+
+	public static class Person {
+
+		private long id;
+
+		private String firstName;
+
+		private String lastName;
+
+		private int age;
+
+		public long getId() {
+			return this.id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getFirstName() {
+			return this.firstName;
+		}
+
+		public void setFirstName(String firstName) {
+			this.firstName = firstName;
+		}
+
+		public String getLastName() {
+			return this.lastName;
+		}
+
+		public void setLastName(String lastName) {
+			this.lastName = lastName;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.core.serializer.CompactDeserializer;
+import org.springframework.core.serializer.CompactSerializer;
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+
+/**
+ * Benchmarks comparing {@link CompactSerializer} with Java Serialization through
+ * {@link DefaultSerializer}, for a typical graph of beans, collections and values.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializerBenchmark {
+
+	private final Serializer<Object> defaultSerializer = new DefaultSerializer();
+
+	private final Deserializer<Object> defaultDeserializer = new DefaultDeserializer();
+
+	private final Serializer<Object> compactSerializer = new CompactSerializer();
+
+	private final Deserializer<Object> compactDeserializer = new CompactDeserializer();
+
+	private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(4096);
+
+	private Customer customer;
+
+	private byte[] defaultBytes;
+
+	private byte[] compactBytes;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		this.customer = new Customer("Juergen", "Hoeller", new Address("Main Street 1", "Linz", "4020"));
+		for (int i = 0; i < 10; i++) {
+			Order order = new Order(1000L + i, new Date(1356998400000L + i), i % 2 == 0);
+			for (int j = 0; j < 5; j++) {
+				order.items.add(new OrderItem("SKU-" + j, j + 1, 9.99 * j));
+			}
+			order.attributes.put("channel", "web");
+			order.attributes.put("priority", i);
+			order.customer = this.customer;
+			this.customer.orders.add(order);
+		}
+		this.defaultBytes = serialize(this.defaultSerializer);
+		this.compactBytes = serialize(this.compactSerializer);
+	}
+
+
+	@Benchmark
+	public byte[] serializeDefault() throws IOException {
+		return serialize(this.defaultSerializer);
+	}
+
+	@Benchmark
+	public byte[] serializeCompact() throws IOException {
+		return serialize(this.compactSerializer);
+	}
+
+	@Benchmark
+	public Object deserializeDefault() throws IOException {
+		return this.defaultDeserializer.deserialize(new ByteArrayInputStream(this.defaultBytes));
+	}
+
+	@Benchmark
+	public Object deserializeCompact() throws IOException {
+		return this.compactDeserializer.deserialize(new ByteArrayInputStream(this.compactBytes));
+	}
+
+	private byte[] serialize(Serializer<Object> serializer) throws IOException {
+		this.outputStream.reset();
+		serializer.serialize(this.customer, this.outputStream);
+		return this.outputStream.toByteArray();
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class Customer implements Serializable {
+
+		private String firstName;
+
+		private String lastName;
+
+		private Address address;
+
+		private List<Order> orders = new ArrayList<Order>();
+
+		public Customer() {
+		}
+
+		public Customer(String firstName, String lastName, Address address) {
+			this.firstName = firstName;
+			this.lastName = lastName;
+			this.address = address;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class Address implements Serializable {
+
+		private String street;
+
+		private String city;
+
+		private String zipCode;
+
+		public Address() {
+		}
+
+		public Address(String street, String city, String zipCode) {
+			this.street = street;
+			this.city = city;
+			this.zipCode = zipCode;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class Order implements Serializable {
+
+		private long id;
+
+		private Date created;
+
+		private boolean shipped;
+
+		private Customer customer;
+
+		private List<OrderItem> items = new ArrayList<OrderItem>();
+
+		private Map<String, Object> attributes = new HashMap<String, Object>();
+
+		public Order() {
+		}
+
+		public Order(long id, Date created, boolean shipped) {
+			this.id = id;
+			this.created = created;
+			this.shipped = shipped;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class OrderItem implements Serializable {
+
+		private String sku;
+
+		private int quantity;
+
+		private double price;
+
+		public OrderItem() {
+		}
+
+		public OrderItem(String sku, int quantity, double price) {
+			this.sku = sku;
+			this.quantity = quantity;
+			this.price = price;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.task;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Benchmarks for bursts of short-lived tasks submitted to a
+ * {@link SimpleAsyncTaskExecutor}, comparing a new thread per task
+ * with thread reuse, with and without a non-blocking throttle.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimpleAsyncTaskExecutorBenchmark {
+
+	@Param({"100"})
+	public int burstSize;
+
+	@Param({"false", "true"})
+	public boolean reuseThreads;
+
+	@Param({"-1", "8"})
+	public int concurrencyLimit;
+
+	private SimpleAsyncTaskExecutor executor;
+
+
+	@Setup
+	public void setUp() {
+		this.executor = new SimpleAsyncTaskExecutor();
+		this.executor.setDaemon(true);
+		this.executor.setReuseThreads(this.reuseThreads);
+		this.executor.setConcurrencyLimit(this.concurrencyLimit);
+		this.executor.setQueueCapacity(this.burstSize);
+	}
+
+
+	@Benchmark
+	public long burst() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(this.burstSize);
+		for (int i = 0; i < this.burstSize; i++) {
+			this.executor.execute(new Runnable() {
+				public void run() {
+					latch.countDown();
+				}
+			});
+		}
+		latch.await();
+		return this.executor.getCreatedThreadCount();
+	}
+
+}
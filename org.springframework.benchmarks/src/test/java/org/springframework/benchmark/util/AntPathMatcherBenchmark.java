@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Benchmarks for {@link AntPathMatcher} matching and URI template variable
+ * extraction, using the kind of patterns found in typical request mappings.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AntPathMatcherBenchmark {
+
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+
+	@Benchmark
+	public boolean matchLiteral() {
+		return this.pathMatcher.match("/hotels/list", "/hotels/list");
+	}
+
+	@Benchmark
+	public boolean matchWildcard() {
+		return this.pathMatcher.match("/static/**/*.js", "/static/scripts/lib/jquery.js");
+	}
+
+	@Benchmark
+	public boolean matchUriTemplate() {
+		return this.pathMatcher.match("/hotels/{hotel}/bookings/{booking}", "/hotels/1/bookings/2");
+	}
+
+	@Benchmark
+	public boolean noMatch() {
+		return this.pathMatcher.match("/hotels/{hotel}/bookings/{booking}", "/customers/1/orders/2");
+	}
+
+	@Benchmark
+	public Map<String, String> extractUriTemplateVariables() {
+		return this.pathMatcher.extractUriTemplateVariables("/hotels/{hotel}/bookings/{booking}", "/hotels/1/bookings/2");
+	}
+
+	@Benchmark
+	public String extractPathWithinPattern() {
+		return this.pathMatcher.extractPathWithinPattern("/docs/**/*.html", "/docs/reference/html/beans.html");
+	}
+
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.validation;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.DataBinder;
+
+/**
+ * Benchmark for binding request parameters to a form object with 200 fields
+ * (ten nested sections of twenty String, number and boolean fields each),
+ * using a new {@link DataBinder} per binding as in a web request.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataBinderBenchmark {
+
+	private static final int SECTION_COUNT = 10;
+
+	private MutablePropertyValues values;
+
+
+	@Setup
+	public void setUp() {
+		this.values = new MutablePropertyValues();
+		for (int i = 0; i < SECTION_COUNT; i++) {
+			String prefix = "section" + i + ".";
+			this.values.add(prefix + "text1", "value");
+			this.values.add(prefix + "text2", "value");
+			this.values.add(prefix + "text3", "value");
+			this.values.add(prefix + "text4", "value");
+			this.values.add(prefix + "count1", "42");
+			this.values.add(prefix + "count2", "42");
+			this.values.add(prefix + "count3", "42");
+			this.values.add(prefix + "count4", "42");
+			this.values.add(prefix + "total1", "1234567890");
+			this.values.add(prefix + "total2", "1234567890");
+			this.values.add(prefix + "flag1", "true");
+			this.values.add(prefix + "flag2", "true");
+			this.values.add(prefix + "flag3", "true");
+			this.values.add(prefix + "enabled1", "on");
+			this.values.add(prefix + "quantity1", "7");
+			this.values.add(prefix + "quantity2", "7");
+			this.values.add(prefix + "amount1", "19.99");
+			this.values.add(prefix + "amount2", "19.99");
+			this.values.add(prefix + "ratio1", "0.75");
+			this.values.add(prefix + "ratio2", "0.75");
+		}
+	}
+
+
+	@Benchmark
+	public BindingResult bindForm() {
+		DataBinder binder = new DataBinder(new Form());
+		binder.bind(this.values);
+		return binder.getBindingResult();
+	}
+
+
+	public static class Form {
+
+		private final Section section0 = new Section();
+
+		private final Section section1 = new Section();
+
+		private final Section section2 = new Section();
+
+		private final Section section3 = new Section();
+
+		private final Section section4 = new Section();
+
+		private final Section section5 = new Section();
+
+		private final Section section6 = new Section();
+
+		private final Section section7 = new Section();
+
+		private final Section section8 = new Section();
+
+		private final Section section9 = new Section();
+
+		public Section getSection0() {
+			return this.section0;
+		}
+
+		public Section getSection1() {
+			return this.section1;
+		}
+
+		public Section getSection2() {
+			return this.section2;
+		}
+
+		public Section getSection3() {
+			return this.section3;
+		}
+
+		public Section getSection4() {
+			return this.section4;
+		}
+
+		public Section getSection5() {
+			return this.section5;
+		}
+
+		public Section getSection6() {
+			return this.section6;
+		}
+
+		public Section getSection7() {
+			return this.section7;
+		}
+
+		public Section getSection8() {
+			return this.section8;
+		}
+
+		public Section getSection9() {
+			return this.section9;
+		}
+	}
+
+
+	public static class Section {
+
+		private String text1;
+
+		private String text2;
+
+		private String text3;
+
+		private String text4;
+
+		private int count1;
+
+		private int count2;
+
+		private int count3;
+
+		private int count4;
+
+		private long total1;
+
+		private long total2;
+
+		private boolean flag1;
+
+		private boolean flag2;
+
+		private boolean flag3;
+
+		private Boolean enabled1;
+
+		private Integer quantity1;
+
+		private Integer quantity2;
+
+		private BigDecimal amount1;
+
+		private BigDecimal amount2;
+
+		private double ratio1;
+
+		private double ratio2;
+
+		public String getText1() {
+			return this.text1;
+		}
+
+		public void setText1(String text1) {
+			this.text1 = text1;
+		}
+
+		public String getText2() {
+			return this.text2;
+		}
+
+		public void setText2(String text2) {
+			this.text2 = text2;
+		}
+
+		public String getText3() {
+			return this.text3;
+		}
+
+		public void setText3(String text3) {
+			this.text3 = text3;
+		}
+
+		public String getText4() {
+			return this.text4;
+		}
+
+		public void setText4(String text4) {
+			this.text4 = text4;
+		}
+
+		public int getCount1() {
+			return this.count1;
+		}
+
+		public void setCount1(int count1) {
+			this.count1 = count1;
+		}
+
+		public int getCount2() {
+			return this.count2;
+		}
+
+		public void setCount2(int count2) {
+			this.count2 = count2;
+		}
+
+		public int getCount3() {
+			return this.count3;
+		}
+
+		public void setCount3(int count3) {
+			this.count3 = count3;
+		}
+
+		public int getCount4() {
+			return this.count4;
+		}
+
+		public void setCount4(int count4) {
+			this.count4 = count4;
+		}
+
+		public long getTotal1() {
+			return this.total1;
+		}
+
+		public void setTotal1(long total1) {
+			this.total1 = total1;
+		}
+
+		public long getTotal2() {
+			return this.total2;
+		}
+
+		public void setTotal2(long total2) {
+			this.total2 = total2;
+		}
+
+		public boolean isFlag1() {
+			return this.flag1;
+		}
+
+		public void setFlag1(boolean flag1) {
+			this.flag1 = flag1;
+		}
+
+		public boolean isFlag2() {
+			return this.flag2;
+		}
+
+		public void setFlag2(boolean flag2) {
+			this.flag2 = flag2;
+		}
+
+		public boolean isFlag3() {
+			return this.flag3;
+		}
+
+		public void setFlag3(boolean flag3) {
+			this.flag3 = flag3;
+		}
+
+		public Boolean getEnabled1() {
+			return this.enabled1;
+		}
+
+		public void setEnabled1(Boolean enabled1) {
+			this.enabled1 = enabled1;
+		}
+
+		public Integer getQuantity1() {
+			return this.quantity1;
+		}
+
+		public void setQuantity1(Integer quantity1) {
+			this.quantity1 = quantity1;
+		}
+
+		public Integer getQuantity2() {
+			return this.quantity2;
+		}
+
+		public void setQuantity2(Integer quantity2) {
+			this.quantity2 = quantity2;
+		}
+
+		public BigDecimal getAmount1() {
+			return this.amount1;
+		}
+
+		public void setAmount1(BigDecimal amount1) {
+			this.amount1 = amount1;
+		}
+
+		public BigDecimal getAmount2() {
+			return this.amount2;
+		}
+
+		public void setAmount2(BigDecimal amount2) {
+			this.amount2 = amount2;
+		}
+
+		public double getRatio1() {
+			return this.ratio1;
+		}
+
+		public void setRatio1(double ratio1) {
+			this.ratio1 = ratio1;
+		}
+
+		public double getRatio2() {
+			return this.ratio2;
+		}
+
+		public void setRatio2(double ratio2) {
+			this.ratio2 = ratio2;
+		}
+	}
+
+}
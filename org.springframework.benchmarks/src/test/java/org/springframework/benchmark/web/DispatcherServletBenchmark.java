@@ -0,0 +1,141 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmark.web;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * Benchmarks for request dispatching through a {@link DispatcherServlet} configured
+ * with {@link EnableWebMvc @EnableWebMvc}, from handler lookup to writing a
+ * {@link ResponseBody @ResponseBody} return value.
+ *
+ * @since 3.1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DispatcherServletBenchmark {
+
+	private DispatcherServlet servlet;
+
+	private MockServletContext servletContext;
+
+
+	@Setup
+	public void setUp() throws Exception {
+		this.servletContext = new MockServletContext();
+		AnnotationConfigWebApplicationContext wac = new AnnotationConfigWebApplicationContext();
+		wac.register(WebConfig.class);
+		this.servlet = new DispatcherServlet(wac);
+		this.servlet.init(new MockServletConfig(this.servletContext, "benchmark"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.servlet.destroy();
+	}
+
+
+	@Benchmark
+	public MockHttpServletResponse dispatchLiteralMapping() throws Exception {
+		return dispatch(new MockHttpServletRequest(this.servletContext, "GET", "/hotels"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse dispatchUriTemplateMapping() throws Exception {
+		return dispatch(new MockHttpServletRequest(this.servletContext, "GET", "/hotels/42/bookings/7"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse dispatchWithRequestParam() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(this.servletContext, "GET", "/search");
+		request.addParameter("q", "spring");
+		request.addParameter("page", "2");
+		return dispatch(request);
+	}
+
+	private MockHttpServletResponse dispatch(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.servlet.service(request, response);
+		return response;
+	}
+
+
+	@Configuration
+	@EnableWebMvc
+	static class WebConfig {
+
+		@Bean
+		public HotelController hotelController() {
+			return new HotelController();
+		}
+	}
+
+
+	@Controller
+	static class HotelController {
+
+		@RequestMapping("/hotels")
+		@ResponseBody
+		public String hotels() {
+			return "hotels";
+		}
+
+		@RequestMapping("/hotels/{hotel}/bookings/{booking}")
+		@ResponseBody
+		public String booking(@PathVariable("hotel") long hotel, @PathVariable("booking") long booking) {
+			return hotel + "/" + booking;
+		}
+
+		@RequestMapping("/search")
+		@ResponseBody
+		public String search(@RequestParam("q") String q, @RequestParam("page") int page) {
+			return q + ":" + page;
+		}
+	}
+
+}
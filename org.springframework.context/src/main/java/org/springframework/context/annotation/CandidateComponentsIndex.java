@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Index of candidate component classes, as read from the
+ * <code>META-INF/spring.components</code> files on the classpath.
+ *
+ * <p>Each index file is a properties file that maps the fully qualified name of
+ * a class to a comma-separated list of "stereotypes": the names of the
+ * annotation types that are present on the class, directly or as
+ * meta-annotations. Index files are typically generated at build time through
+ * {@link CandidateComponentsIndexWriter}.
+ *
+ * <p>An index file only describes the classes in its own classpath root
+ * (the jar file or directory that contains it). {@link #isComplete} allows for
+ * checking whether every classpath root that contains a given package provides
+ * an index, since only then can the index stand in for scanning that package.
+ *
+ * @since 3.1.3
+ * @see ClassPathScanningCandidateComponentProvider
+ * @see CandidateComponentsIndexWriter
+ */
+public class CandidateComponentsIndex {
+
+	/**
+	 * The location to look for index files. Can be present in multiple JAR files.
+	 */
+	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
+
+	private static final Log logger = LogFactory.getLog(CandidateComponentsIndex.class);
+
+
+	private final Set<String> indexedRoots;
+
+	private final Map<String, SortedSet<String>> typesByStereotype = new HashMap<String, SortedSet<String>>();
+
+
+	/**
+	 * Create a new CandidateComponentsIndex from the given index files.
+	 * @param indexes the content of the index files, keyed by the URL of
+	 * the classpath root that each index file belongs to
+	 */
+	CandidateComponentsIndex(Map<String, Properties> indexes) {
+		this.indexedRoots = new LinkedHashSet<String>(indexes.keySet());
+		for (Properties index : indexes.values()) {
+			for (Map.Entry<Object, Object> entry : index.entrySet()) {
+				String type = ((String) entry.getKey()).trim();
+				for (String stereotype : StringUtils.commaDelimitedListToStringArray((String) entry.getValue())) {
+					stereotype = stereotype.trim();
+					SortedSet<String> types = this.typesByStereotype.get(stereotype);
+					if (types == null) {
+						types = new TreeSet<String>();
+						this.typesByStereotype.put(stereotype, types);
+					}
+					types.add(type);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Load all index files that are visible to the given ClassLoader.
+	 * @param classLoader the ClassLoader to use for loading
+	 * @return the merged index, or <code>null</code> if there is no
+	 * index file on the classpath
+	 * @throws IllegalStateException if an index file could not be read
+	 */
+	public static CandidateComponentsIndex loadIndex(ClassLoader classLoader) {
+		Assert.notNull(classLoader, "ClassLoader must not be null");
+		try {
+			Enumeration<URL> urls = classLoader.getResources(COMPONENTS_RESOURCE_LOCATION);
+			if (!urls.hasMoreElements()) {
+				return null;
+			}
+			Map<String, Properties> indexes = new HashMap<String, Properties>();
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				String root = getRoot(url, COMPONENTS_RESOURCE_LOCATION);
+				if (root != null) {
+					indexes.put(root, PropertiesLoaderUtils.loadProperties(new UrlResource(url)));
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded candidate components index for classpath roots " + indexes.keySet());
+			}
+			return new CandidateComponentsIndex(indexes);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(
+					"Unable to load candidate components index from location [" + COMPONENTS_RESOURCE_LOCATION + "]", ex);
+		}
+	}
+
+
+	/**
+	 * Determine whether every classpath root that contains the given package
+	 * is covered by an index file.
+	 * @param basePackage the package to check, e.g. "com.example"
+	 * @param classLoader the ClassLoader to resolve the package against
+	 * @return <code>true</code> if all classes in the package are indexed,
+	 * <code>false</code> if the package needs to be scanned instead
+	 * @throws IOException in case of I/O errors
+	 */
+	public boolean isComplete(String basePackage, ClassLoader classLoader) throws IOException {
+		String packagePath = basePackage.replace('.', '/');
+		Enumeration<URL> urls = classLoader.getResources(packagePath);
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			String root = getRoot(url, packagePath);
+			if (root == null || !this.indexedRoots.contains(root)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("No candidate components index for package '" + basePackage + "' in " + url);
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the indexed types in the given package (or any of its subpackages)
+	 * that carry the given stereotype.
+	 * @param basePackage the package to look in, e.g. "com.example"
+	 * @param stereotype the fully qualified name of the annotation type
+	 * @return the matching class names, sorted by name (never <code>null</code>)
+	 */
+	public Set<String> getCandidateTypes(String basePackage, String stereotype) {
+		SortedSet<String> types = this.typesByStereotype.get(stereotype);
+		if (types == null) {
+			return new LinkedHashSet<String>();
+		}
+		String prefix = basePackage + ".";
+		Set<String> result = new LinkedHashSet<String>();
+		for (String type : types.tailSet(prefix)) {
+			if (!type.startsWith(prefix)) {
+				break;
+			}
+			result.add(type);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Determine the URL of the classpath root that the given resource URL
+	 * has been resolved from.
+	 * @param url the resource URL
+	 * @param path the classpath-relative path that has been resolved
+	 * @return the root URL, or <code>null</code> if it cannot be determined
+	 */
+	static String getRoot(URL url, String path) {
+		String urlString = url.toString();
+		if (urlString.endsWith("/")) {
+			urlString = urlString.substring(0, urlString.length() - 1);
+		}
+		if (!urlString.endsWith(path)) {
+			return null;
+		}
+		return urlString.substring(0, urlString.length() - path.length());
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Build-time generator for the <code>META-INF/spring.components</code> index
+ * that {@link ClassPathScanningCandidateComponentProvider} consults instead of
+ * scanning the classpath.
+ *
+ * <p>Reads every class file in a class output directory and records each
+ * annotated class along with its annotation types and meta-annotation types
+ * (leaving out <code>java.lang.annotation</code> types such as <code>@Target</code>).
+ * Meant to be invoked after compilation, for example from an Ant
+ * <code>&lt;java&gt;</code> task:
+ *
+ * <pre class="code">
+ * &lt;java classname="org.springframework.context.annotation.CandidateComponentsIndexWriter"&gt;
+ *   &lt;arg file="${main.output.dir}"/&gt;
+ * &lt;/java&gt;</pre>
+ *
+ * The index has to be regenerated whenever the classes in the directory
+ * change; an index that refers to a class which no longer exists is detected
+ * and ignored at runtime.
+ *
+ * @since 3.1.3
+ * @see CandidateComponentsIndex
+ */
+public abstract class CandidateComponentsIndexWriter {
+
+	/**
+	 * Write the index for the given class output directory to
+	 * <code>META-INF/spring.components</code> within that directory.
+	 * @param classesDirectory the root directory of the compiled classes
+	 * @return the index file that has been written
+	 * @throws IOException in case of I/O errors
+	 */
+	public static File writeIndex(File classesDirectory) throws IOException {
+		Assert.isTrue(classesDirectory.isDirectory(), "Not a directory: " + classesDirectory);
+		ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		MetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory(resolver);
+		Resource root = new FileSystemResource(classesDirectory);
+		Resource[] resources = resolver.getResources(
+				root.getURL().toString() + "/" + ClassPathScanningCandidateComponentProvider.DEFAULT_RESOURCE_PATTERN);
+
+		Map<String, Set<String>> index = new TreeMap<String, Set<String>>();
+		for (Resource resource : resources) {
+			AnnotationMetadata metadata = metadataReaderFactory.getMetadataReader(resource).getAnnotationMetadata();
+			Set<String> stereotypes = new LinkedHashSet<String>();
+			for (String annotationType : metadata.getAnnotationTypes()) {
+				stereotypes.add(annotationType);
+				for (String metaAnnotationType : metadata.getMetaAnnotationTypes(annotationType)) {
+					if (!metaAnnotationType.startsWith("java.lang.annotation.")) {
+						stereotypes.add(metaAnnotationType);
+					}
+				}
+			}
+			if (!stereotypes.isEmpty()) {
+				index.put(metadata.getClassName(), stereotypes);
+			}
+		}
+
+		File indexFile = new File(classesDirectory, CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION);
+		indexFile.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), "ISO-8859-1");
+		try {
+			for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+				writer.write(entry.getKey());
+				writer.write('=');
+				writer.write(StringUtils.collectionToCommaDelimitedString(entry.getValue()));
+				writer.write('\n');
+			}
+		}
+		finally {
+			writer.close();
+		}
+		return indexFile;
+	}
+
+	/**
+	 * Write the index for each class output directory given as argument.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: CandidateComponentsIndexWriter <classes directory>...");
+			System.exit(1);
+		}
+		for (String arg : args) {
+			File indexFile = writeIndex(new File(arg));
+			System.out.println("Wrote candidate components index " + indexFile);
+		}
+	}
+
+}
@@ -18,10 +18,13 @@ package org.springframework.context.annotation;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,6 +53,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * A component provider that scans the classpath from a base package. It then
@@ -59,6 +63,10 @@ import org.springframework.util.ClassUtils;
  * {@link org.springframework.core.type.classreading.MetadataReader MetadataReader}
  * facility, backed by an ASM {@link org.springframework.asm.ClassReader ClassReader}.
  *
+ * <p>If a {@link CandidateComponentsIndex} is present on the classpath and covers
+ * the base package, only the indexed classes are read instead of scanning all
+ * classes in the package. See {@link #findCandidateComponents} for details.
+ *
  * @author Mark Fisher
  * @author Juergen Hoeller
  * @author Ramnivas Laddad
@@ -72,6 +80,13 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
 	static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
 
+	/**
+	 * Name of the property that instructs the provider to ignore any
+	 * {@link CandidateComponentsIndex} and to always scan the classpath.
+	 * Resolved against the {@link Environment}, so typically set as a system property.
+	 */
+	public static final String IGNORE_INDEX_PROPERTY_NAME = "spring.index.ignore";
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private Environment environment;
@@ -86,6 +101,10 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
 	private final List<TypeFilter> excludeFilters = new LinkedList<TypeFilter>();
 
+	private CandidateComponentsIndex componentsIndex;
+
+	private boolean componentsIndexLoaded = false;
+
 
 	/**
 	 * Create a ClassPathScanningCandidateComponentProvider.
@@ -118,6 +137,8 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	public void setResourceLoader(ResourceLoader resourceLoader) {
 		this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
 		this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+		this.componentsIndex = null;
+		this.componentsIndexLoaded = false;
 	}
 
 	/**
@@ -141,6 +162,27 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		return this.resourcePatternResolver;
 	}
 
+	/**
+	 * Set the {@link MetadataReaderFactory} to use.
+	 * <p>Default is a {@link CachingMetadataReaderFactory} for the specified
+	 * {@linkplain #setResourceLoader resource loader}. Specify a shared factory
+	 * such as {@link org.springframework.core.type.classreading.SharedMetadataReaderFactory}
+	 * in order to reuse class metadata across several application contexts.
+	 * <p>Call this setter method <i>after</i> {@link #setResourceLoader} in order
+	 * for the given MetadataReaderFactory to override the default factory.
+	 */
+	public void setMetadataReaderFactory(MetadataReaderFactory metadataReaderFactory) {
+		Assert.notNull(metadataReaderFactory, "MetadataReaderFactory must not be null");
+		this.metadataReaderFactory = metadataReaderFactory;
+	}
+
+	/**
+	 * Return the MetadataReaderFactory used by this component provider.
+	 */
+	public final MetadataReaderFactory getMetadataReaderFactory() {
+		return this.metadataReaderFactory;
+	}
+
 	/**
 	 * Set the resource pattern to use when scanning the classpath.
 	 * This value will be appended to each base package name.
@@ -217,62 +259,169 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
 	/**
 	 * Scan the class path for candidate components.
+	 * <p>If a {@link CandidateComponentsIndex} covers the base package, only the
+	 * indexed classes are considered. The index is not used if any include filter
+	 * is something other than a plain {@link AnnotationTypeFilter} for a non-inherited
+	 * annotation that does not consider interfaces, if a custom resource pattern has
+	 * been set, if a classpath root containing the package has no index, or if the
+	 * index refers to a class that does not exist (i.e. the index is stale); the
+	 * classpath is scanned in those cases.
 	 * @param basePackage the package to check for annotated classes
 	 * @return a corresponding Set of autodetected bean definitions
+	 * @see #IGNORE_INDEX_PROPERTY_NAME
 	 */
 	public Set<BeanDefinition> findCandidateComponents(String basePackage) {
-		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
 		try {
-			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
-					resolveBasePackage(basePackage) + "/" + this.resourcePattern;
-			Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
+			Set<BeanDefinition> candidates = findCandidateComponentsInIndex(basePackage);
+			if (candidates != null) {
+				return candidates;
+			}
+			return scanCandidateComponents(basePackage);
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		}
+	}
+
+	private Set<BeanDefinition> scanCandidateComponents(String basePackage) throws IOException {
+		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
+		String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
+				resolveBasePackage(basePackage) + "/" + this.resourcePattern;
+		Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
+		for (Resource resource : resources) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Scanning " + resource);
+			}
+			addCandidateComponent(resource, candidates);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Determine the candidate components from the {@link CandidateComponentsIndex},
+	 * if it is present and covers the given base package.
+	 * @return the candidate components, or <code>null</code> if the package
+	 * needs to be scanned
+	 */
+	private Set<BeanDefinition> findCandidateComponentsInIndex(String basePackage) throws IOException {
+		if (!DEFAULT_RESOURCE_PATTERN.equals(this.resourcePattern)) {
+			return null;
+		}
+		Set<String> stereotypes = getIndexedStereotypes();
+		if (stereotypes == null) {
+			return null;
+		}
+		CandidateComponentsIndex index = getComponentsIndex();
+		if (index == null) {
+			return null;
+		}
+		String packageName = ClassUtils.convertResourcePathToClassName(resolveBasePackage(basePackage));
+		if (!StringUtils.hasLength(packageName) || packageName.indexOf('*') != -1 || packageName.indexOf('?') != -1 ||
+				!index.isComplete(packageName, this.resourcePatternResolver.getClassLoader())) {
+			return null;
+		}
+		Set<String> types = new TreeSet<String>();
+		for (String stereotype : stereotypes) {
+			types.addAll(index.getCandidateTypes(packageName, stereotype));
+		}
+		List<Resource> resources = new ArrayList<Resource>(types.size());
+		for (String type : types) {
+			Resource resource = this.resourcePatternResolver.getResource(ResourceLoader.CLASSPATH_URL_PREFIX +
+					ClassUtils.convertClassNameToResourcePath(type) + ClassUtils.CLASS_FILE_SUFFIX);
+			if (!resource.exists()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Candidate components index is stale: class [" + type + "] not found - " +
+							"scanning package '" + packageName + "' instead");
 				}
-				if (resource.isReadable()) {
-					try {
-						MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
-						if (isCandidateComponent(metadataReader)) {
-							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-							sbd.setResource(resource);
-							sbd.setSource(resource);
-							if (isCandidateComponent(sbd)) {
-								if (debugEnabled) {
-									logger.debug("Identified candidate component class: " + resource);
-								}
-								candidates.add(sbd);
-							}
-							else {
-								if (debugEnabled) {
-									logger.debug("Ignored because not a concrete top-level class: " + resource);
-								}
-							}
-						}
-						else {
-							if (traceEnabled) {
-								logger.trace("Ignored because not matching any filter: " + resource);
-							}
+				return null;
+			}
+			resources.add(resource);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Using candidate components index for package '" + packageName + "'");
+		}
+		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
+		for (Resource resource : resources) {
+			addCandidateComponent(resource, candidates);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Return the names of the annotation types that the include filters match,
+	 * or <code>null</code> if the include filters cannot be answered by the index.
+	 */
+	private Set<String> getIndexedStereotypes() {
+		Set<String> stereotypes = new LinkedHashSet<String>();
+		for (TypeFilter filter : this.includeFilters) {
+			// The index only records the annotations declared on a class itself (directly
+			// or as meta-annotations), so custom matching logic cannot be answered by it
+			if (filter.getClass() != AnnotationTypeFilter.class ||
+					((AnnotationTypeFilter) filter).isConsiderInterfaces()) {
+				return null;
+			}
+			Class<? extends Annotation> annotationType = ((AnnotationTypeFilter) filter).getAnnotationType();
+			if (annotationType.isAnnotationPresent(Inherited.class)) {
+				// would have to consider the annotations on superclasses as well
+				return null;
+			}
+			stereotypes.add(annotationType.getName());
+		}
+		return stereotypes;
+	}
+
+	private CandidateComponentsIndex getComponentsIndex() {
+		if (!this.componentsIndexLoaded) {
+			if (!this.environment.getProperty(IGNORE_INDEX_PROPERTY_NAME, Boolean.class, false)) {
+				ClassLoader classLoader = this.resourcePatternResolver.getClassLoader();
+				if (classLoader == null) {
+					classLoader = ClassUtils.getDefaultClassLoader();
+				}
+				this.componentsIndex = CandidateComponentsIndex.loadIndex(classLoader);
+			}
+			this.componentsIndexLoaded = true;
+		}
+		return this.componentsIndex;
+	}
+
+	private void addCandidateComponent(Resource resource, Set<BeanDefinition> candidates) {
+		boolean traceEnabled = logger.isTraceEnabled();
+		boolean debugEnabled = logger.isDebugEnabled();
+		if (resource.isReadable()) {
+			try {
+				MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
+				if (isCandidateComponent(metadataReader)) {
+					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+					sbd.setResource(resource);
+					sbd.setSource(resource);
+					if (isCandidateComponent(sbd)) {
+						if (debugEnabled) {
+							logger.debug("Identified candidate component class: " + resource);
 						}
+						candidates.add(sbd);
 					}
-					catch (Throwable ex) {
-						throw new BeanDefinitionStoreException(
-								"Failed to read candidate component class: " + resource, ex);
+					else {
+						if (debugEnabled) {
+							logger.debug("Ignored because not a concrete top-level class: " + resource);
+						}
 					}
 				}
 				else {
 					if (traceEnabled) {
-						logger.trace("Ignored because not readable: " + resource);
+						logger.trace("Ignored because not matching any filter: " + resource);
 					}
 				}
 			}
+			catch (Throwable ex) {
+				throw new BeanDefinitionStoreException(
+						"Failed to read candidate component class: " + resource, ex);
+			}
 		}
-		catch (IOException ex) {
-			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		else {
+			if (traceEnabled) {
+				logger.trace("Ignored because not readable: " + resource);
+			}
 		}
-		return candidates;
 	}
 
 
@@ -87,6 +87,9 @@ class ConfigurationClassParser {
 	private final Stack<PropertySource<?>> propertySources =
 		new Stack<PropertySource<?>>();
 
+	private final Set<ConfigurationClass> propertySourceClasses =
+		new LinkedHashSet<ConfigurationClass>();
+
 	private final Environment environment;
 
 	private final ResourceLoader resourceLoader;
@@ -135,13 +138,36 @@ class ConfigurationClassParser {
 		processConfigurationClass(new ConfigurationClass(clazz, beanName));
 	}
 
+	/**
+	 * Process the {@link org.springframework.context.annotation.PropertySource @PropertySource}
+	 * annotations of the specified class and its superclasses only, without parsing
+	 * the class any further.
+	 * <p>Used for configuration classes whose bean definitions have been derived before,
+	 * e.g. when restored from a bean definition snapshot.
+	 * @param className the name of the class to process
+	 * @since 3.1.3
+	 */
+	public void parsePropertySources(String className) throws IOException {
+		AnnotationMetadata metadata = this.metadataReaderFactory.getMetadataReader(className).getAnnotationMetadata();
+		if (!isProfileActive(metadata)) {
+			return;
+		}
+		while (metadata != null) {
+			AnnotationAttributes propertySource =
+					attributesFor(metadata, org.springframework.context.annotation.PropertySource.class);
+			if (propertySource != null) {
+				processPropertySource(propertySource);
+			}
+			String superclass = (metadata.hasSuperClass() ? metadata.getSuperClassName() : null);
+			metadata = (superclass != null && this.knownSuperclasses.add(superclass) ?
+					this.metadataReaderFactory.getMetadataReader(superclass).getAnnotationMetadata() : null);
+		}
+	}
+
 	protected void processConfigurationClass(ConfigurationClass configClass) throws IOException {
 		AnnotationMetadata metadata = configClass.getMetadata();
-		if (this.environment != null && metadata.isAnnotated(Profile.class.getName())) {
-			AnnotationAttributes profile = MetadataUtils.attributesFor(metadata, Profile.class);
-			if (!this.environment.acceptsProfiles(profile.getStringArray("value"))) {
-				return;
-			}
+		if (!isProfileActive(metadata)) {
+			return;
 		}
 
 		// recursively process the configuration class and its superclass hierarchy
@@ -178,33 +204,8 @@ class ConfigurationClassParser {
 		AnnotationAttributes propertySource =
 				attributesFor(metadata, org.springframework.context.annotation.PropertySource.class);
 		if (propertySource != null) {
-			String name = propertySource.getString("name");
-			String[] locations = propertySource.getStringArray("value");
-			int nLocations = locations.length;
-			if (nLocations == 0) {
-				throw new IllegalArgumentException("At least one @PropertySource(value) location is required");
-			}
-			for (int i = 0; i < nLocations; i++) {
-				locations[i] = this.environment.resolveRequiredPlaceholders(locations[i]);
-			}
-			ClassLoader classLoader = this.resourceLoader.getClassLoader();
-			if (!StringUtils.hasText(name)) {
-				for (String location : locations) {
-					this.propertySources.push(new ResourcePropertySource(location, classLoader));
-				}
-			}
-			else {
-				if (nLocations == 1) {
-					this.propertySources.push(new ResourcePropertySource(name, locations[0], classLoader));
-				}
-				else {
-					CompositePropertySource ps = new CompositePropertySource(name);
-					for (String location : locations) {
-						ps.addPropertySource(new ResourcePropertySource(location, classLoader));
-					}
-					this.propertySources.push(ps);
-				}
-			}
+			processPropertySource(propertySource);
+			this.propertySourceClasses.add(configClass);
 		}
 
 		// process any @ComponentScan annotions
@@ -264,6 +265,44 @@ class ConfigurationClassParser {
 		return null;
 	}
 
+	private boolean isProfileActive(AnnotationMetadata metadata) {
+		if (this.environment != null && metadata.isAnnotated(Profile.class.getName())) {
+			AnnotationAttributes profile = MetadataUtils.attributesFor(metadata, Profile.class);
+			return this.environment.acceptsProfiles(profile.getStringArray("value"));
+		}
+		return true;
+	}
+
+	private void processPropertySource(AnnotationAttributes propertySource) throws IOException {
+		String name = propertySource.getString("name");
+		String[] locations = propertySource.getStringArray("value");
+		int nLocations = locations.length;
+		if (nLocations == 0) {
+			throw new IllegalArgumentException("At least one @PropertySource(value) location is required");
+		}
+		for (int i = 0; i < nLocations; i++) {
+			locations[i] = this.environment.resolveRequiredPlaceholders(locations[i]);
+		}
+		ClassLoader classLoader = this.resourceLoader.getClassLoader();
+		if (!StringUtils.hasText(name)) {
+			for (String location : locations) {
+				this.propertySources.push(new ResourcePropertySource(location, classLoader));
+			}
+		}
+		else {
+			if (nLocations == 1) {
+				this.propertySources.push(new ResourcePropertySource(name, locations[0], classLoader));
+			}
+			else {
+				CompositePropertySource ps = new CompositePropertySource(name);
+				for (String location : locations) {
+					ps.addPropertySource(new ResourcePropertySource(location, classLoader));
+				}
+				this.propertySources.push(ps);
+			}
+		}
+	}
+
 	/**
 	 * Return a list of attribute maps for all declarations of the given annotation
 	 * on the given annotated class using the given MetadataReaderFactory to introspect
@@ -361,6 +400,16 @@ class ConfigurationClassParser {
 		return this.propertySources;
 	}
 
+	/**
+	 * Return the parsed configuration classes that declare
+	 * {@link org.springframework.context.annotation.PropertySource @PropertySource}
+	 * annotations themselves or through their superclasses.
+	 * @since 3.1.3
+	 */
+	public Set<ConfigurationClass> getPropertySourceClasses() {
+		return this.propertySourceClasses;
+	}
+
 	public ImportRegistry getImportRegistry() {
 		return this.importStack;
 	}
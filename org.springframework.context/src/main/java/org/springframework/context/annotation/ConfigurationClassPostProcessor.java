@@ -17,6 +17,7 @@
 package org.springframework.context.annotation;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -48,9 +49,11 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.factory.support.BeanNameGenerator;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.support.SnapshotBeanDefinitionReader;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.annotation.ConfigurationClassParser.ImportRegistry;
+import org.springframework.core.Conventions;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.env.ConfigurableEnvironment;
@@ -93,6 +96,13 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			"net.sf.cglib.proxy.Enhancer", ConfigurationClassPostProcessor.class.getClassLoader());
 
 
+	private static final String IMPORTING_CLASS_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "importingClass");
+
+	private static final String PROPERTY_SOURCES_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "propertySources");
+
+
 	private final Log logger = LogFactory.getLog(getClass());
 
 	private SourceExtractor sourceExtractor = new PassThroughSourceExtractor();
@@ -189,7 +199,9 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	 * Derive further bean definitions from the configuration classes in the registry.
 	 */
 	public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
-		BeanDefinitionReaderUtils.registerWithGeneratedName(new RootBeanDefinition(ImportAwareBeanPostProcessor.class), registry);
+		if (!containsRestoredImportAwareBeanPostProcessor(registry)) {
+			BeanDefinitionReaderUtils.registerWithGeneratedName(new RootBeanDefinition(ImportAwareBeanPostProcessor.class), registry);
+		}
 		int registryId = System.identityHashCode(registry);
 		if (this.registriesPostProcessed.contains(registryId)) {
 			throw new IllegalStateException(
@@ -203,6 +215,17 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		processConfigBeanDefinitions(registry);
 	}
 
+	private boolean containsRestoredImportAwareBeanPostProcessor(BeanDefinitionRegistry registry) {
+		for (String beanName : registry.getBeanDefinitionNames()) {
+			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+			if (isRestoredFromSnapshot(beanDef) &&
+					ImportAwareBeanPostProcessor.class.getName().equals(beanDef.getBeanClassName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Prepare the Configuration classes for servicing bean requests at runtime
 	 * by replacing them with CGLIB-enhanced subclasses.
@@ -225,25 +248,48 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	/**
 	 * Build and validate a configuration model based on the registry of
 	 * {@link Configuration} classes.
+	 * <p>Configuration classes restored from a bean definition snapshot are not
+	 * parsed again, since the bean definitions derived from them are part of the
+	 * snapshot already. Only their {@code @PropertySource} annotations, if any,
+	 * are processed again in order to populate the environment.
+	 * @see org.springframework.beans.factory.support.SnapshotBeanDefinitionReader
 	 */
 	public void processConfigBeanDefinitions(BeanDefinitionRegistry registry) {
 		Set<BeanDefinitionHolder> configCandidates = new LinkedHashSet<BeanDefinitionHolder>();
+		Set<String> restoredPropertySourceClasses = new LinkedHashSet<String>();
+		Map<String, String> restoredImports = new HashMap<String, String>();
 		for (String beanName : registry.getBeanDefinitionNames()) {
 			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
-			if (ConfigurationClassUtils.checkConfigurationClassCandidate(beanDef, this.metadataReaderFactory)) {
+			if (isRestoredConfigurationClass(beanDef)) {
+				if (beanDef.getAttribute(PROPERTY_SOURCES_ATTRIBUTE) != null) {
+					restoredPropertySourceClasses.add(beanDef.getBeanClassName());
+				}
+				String importingClass = (String) beanDef.getAttribute(IMPORTING_CLASS_ATTRIBUTE);
+				if (importingClass != null) {
+					restoredImports.put(beanDef.getBeanClassName(), importingClass);
+				}
+			}
+			else if (ConfigurationClassUtils.checkConfigurationClassCandidate(beanDef, this.metadataReaderFactory)) {
 				configCandidates.add(new BeanDefinitionHolder(beanDef, beanName));
 			}
 		}
 
-		// Return immediately if no @Configuration classes were found
-		if (configCandidates.isEmpty()) {
-			return;
-		}
-
 		// Detect any custom bean name generation strategy supplied through the enclosing application context
 		SingletonBeanRegistry singletonRegistry = null;
 		if (registry instanceof SingletonBeanRegistry) {
 			singletonRegistry = (SingletonBeanRegistry) registry;
+		}
+
+		// Return immediately if no @Configuration classes need to be parsed
+		if (configCandidates.isEmpty() && restoredPropertySourceClasses.isEmpty()) {
+			if (!restoredImports.isEmpty() && singletonRegistry != null &&
+					!singletonRegistry.containsSingleton("importRegistry")) {
+				singletonRegistry.registerSingleton("importRegistry", new RestoredImportRegistry(restoredImports, null));
+			}
+			return;
+		}
+
+		if (singletonRegistry != null) {
 			if (singletonRegistry.containsSingleton(CONFIGURATION_BEAN_NAME_GENERATOR)) {
 				this.beanNameGenerator = (BeanNameGenerator) singletonRegistry.getSingleton(CONFIGURATION_BEAN_NAME_GENERATOR);
 			}
@@ -267,6 +313,14 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 				throw new BeanDefinitionStoreException("Failed to load bean class: " + bd.getBeanClassName(), ex);
 			}
 		}
+		for (String className : restoredPropertySourceClasses) {
+			try {
+				parser.parsePropertySources(className);
+			}
+			catch (IOException ex) {
+				throw new BeanDefinitionStoreException("Failed to load bean class: " + className, ex);
+			}
+		}
 		parser.validate();
 
 		// Handle any @PropertySource annotations
@@ -293,14 +347,43 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 		this.reader.loadBeanDefinitions(parser.getConfigurationClasses());
 
+		// Keep track of importing classes and property source declarations for bean definition snapshots
+		ImportRegistry importRegistry = parser.getImportRegistry();
+		for (ConfigurationClass configClass : parser.getConfigurationClasses()) {
+			String beanName = configClass.getBeanName();
+			if (beanName == null || !registry.containsBeanDefinition(beanName)) {
+				continue;
+			}
+			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+			String importingClass = importRegistry.getImportingClassFor(configClass.getMetadata().getClassName());
+			if (importingClass != null) {
+				beanDef.setAttribute(IMPORTING_CLASS_ATTRIBUTE, importingClass);
+			}
+			if (parser.getPropertySourceClasses().contains(configClass)) {
+				beanDef.setAttribute(PROPERTY_SOURCES_ATTRIBUTE, Boolean.TRUE);
+			}
+		}
+
 		// Register the ImportRegistry as a bean in order to support ImportAware @Configuration classes
 		if (singletonRegistry != null) {
 			if (!singletonRegistry.containsSingleton("importRegistry")) {
-				singletonRegistry.registerSingleton("importRegistry", parser.getImportRegistry());
+				if (!restoredImports.isEmpty()) {
+					importRegistry = new RestoredImportRegistry(restoredImports, importRegistry);
+				}
+				singletonRegistry.registerSingleton("importRegistry", importRegistry);
 			}
 		}
 	}
 
+	private static boolean isRestoredFromSnapshot(BeanDefinition beanDef) {
+		return (beanDef.getAttribute(SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE) != null);
+	}
+
+	private static boolean isRestoredConfigurationClass(BeanDefinition beanDef) {
+		return (isRestoredFromSnapshot(beanDef) && (ConfigurationClassUtils.isFullConfigurationClass(beanDef) ||
+				ConfigurationClassUtils.isLiteConfigurationClass(beanDef)));
+	}
+
 	/**
 	 * Post-processes a BeanFactory in search of Configuration class BeanDefinitions;
 	 * any candidates are then enhanced by a {@link ConfigurationClassEnhancer}.
@@ -349,6 +432,31 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	}
 
 
+	/**
+	 * {@link ImportRegistry} for configuration classes restored from a bean definition
+	 * snapshot, based on the importing classes recorded in their bean definitions.
+	 */
+	private static class RestoredImportRegistry implements ImportRegistry {
+
+		private final Map<String, String> imports;
+
+		private final ImportRegistry parsedImports;
+
+		public RestoredImportRegistry(Map<String, String> imports, ImportRegistry parsedImports) {
+			this.imports = imports;
+			this.parsedImports = parsedImports;
+		}
+
+		public String getImportingClassFor(String importedClass) {
+			String importingClass = this.imports.get(importedClass);
+			if (importingClass == null && this.parsedImports != null) {
+				importingClass = this.parsedImports.getImportingClassFor(importedClass);
+			}
+			return importingClass;
+		}
+	}
+
+
 	private static class ImportAwareBeanPostProcessor implements PriorityOrdered, BeanFactoryAware, BeanPostProcessor {
 
 		private BeanFactory beanFactory;
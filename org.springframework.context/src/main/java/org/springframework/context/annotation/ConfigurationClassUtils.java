@@ -114,4 +114,11 @@ abstract class ConfigurationClassUtils {
 		return CONFIGURATION_CLASS_FULL.equals(beanDef.getAttribute(CONFIGURATION_CLASS_ATTRIBUTE));
 	}
 
+	/**
+	 * Determine whether the given bean definition indicates a lite @Configuration class.
+	 */
+	public static boolean isLiteConfigurationClass(BeanDefinition beanDef) {
+		return CONFIGURATION_CLASS_LITE.equals(beanDef.getAttribute(CONFIGURATION_CLASS_ATTRIBUTE));
+	}
+
 }
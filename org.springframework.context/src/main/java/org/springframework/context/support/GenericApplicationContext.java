@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,12 @@
 
 package org.springframework.context.support;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
@@ -25,13 +30,18 @@ import org.springframework.beans.factory.annotation.QualifierAnnotationAutowireC
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshotWriter;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.SnapshotBeanDefinitionReader;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * Generic ApplicationContext implementation that holds a single internal
@@ -87,10 +97,18 @@ import org.springframework.util.Assert;
  */
 public class GenericApplicationContext extends AbstractApplicationContext implements BeanDefinitionRegistry {
 
+	private static final String SNAPSHOT_FINGERPRINT_ENCODING = "UTF-8";
+
 	private final DefaultListableBeanFactory beanFactory;
 
 	private ResourceLoader resourceLoader;
 
+	private Resource beanDefinitionSnapshot;
+
+	private String snapshotFingerprint;
+
+	private boolean restoredFromSnapshot = false;
+
 	private boolean refreshed = false;
 
 
@@ -198,6 +216,20 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.resourceLoader = resourceLoader;
 	}
 
+	/**
+	 * Set a file to hold a snapshot of this context's bean definitions, as
+	 * they are after all BeanFactoryPostProcessors have been applied.
+	 * <p>The snapshot is read by {@link #loadBeanDefinitionSnapshot} and is
+	 * (re-)written on refresh whenever it could not be loaded, so that subsequent
+	 * startups of an unchanged deployment can skip parsing the bean definition
+	 * resources and processing configuration classes.
+	 * @see #loadBeanDefinitionSnapshot
+	 * @see org.springframework.beans.factory.support.SnapshotBeanDefinitionReader
+	 */
+	public void setBeanDefinitionSnapshot(Resource beanDefinitionSnapshot) {
+		this.beanDefinitionSnapshot = beanDefinitionSnapshot;
+	}
+
 
 	/**
 	 * This implementation delegates to this context's ResourceLoader if set,
@@ -226,6 +258,80 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		return super.getResources(locationPattern);
 	}
 
+	/**
+	 * Load the bean definitions of this context from the snapshot file,
+	 * provided that it has been written for the given bean definition resources
+	 * and the currently active profiles.
+	 * <p>Usage example:
+	 * <pre>
+	 * GenericApplicationContext ctx = new GenericApplicationContext();
+	 * ctx.setBeanDefinitionSnapshot(new FileSystemResource("/var/myapp/beans.snapshot"));
+	 * Resource config = new ClassPathResource("applicationContext.xml");
+	 * if (!ctx.loadBeanDefinitionSnapshot(config)) {
+	 *   new XmlBeanDefinitionReader(ctx).loadBeanDefinitions(config);
+	 * }
+	 * ctx.refresh();</pre>
+	 * The snapshot only reflects the given resources: Configuration classes and
+	 * component classes are not part of the fingerprint, so any such classes
+	 * should be passed in as resources as well (or the snapshot be deleted on
+	 * redeployment). Placeholders are resolved against the environment of the
+	 * run that wrote the snapshot.
+	 * @param sourceResources the resources that the bean definitions are loaded from
+	 * @return <code>true</code> if the bean definitions have been loaded from the
+	 * snapshot; <code>false</code> if the snapshot does not exist or is out of date,
+	 * in which case the caller is expected to load the bean definitions from the
+	 * given resources, with a new snapshot being written on refresh
+	 * @throws BeanDefinitionStoreException if a given resource could not be read
+	 * @see #setBeanDefinitionSnapshot
+	 */
+	public boolean loadBeanDefinitionSnapshot(Resource... sourceResources) throws BeanDefinitionStoreException {
+		Assert.state(this.beanDefinitionSnapshot != null, "No bean definition snapshot set");
+		this.snapshotFingerprint = computeSnapshotFingerprint(sourceResources);
+		if (!this.beanDefinitionSnapshot.exists()) {
+			return false;
+		}
+		SnapshotBeanDefinitionReader reader = new SnapshotBeanDefinitionReader(this);
+		reader.setExpectedFingerprint(this.snapshotFingerprint);
+		try {
+			reader.loadBeanDefinitions(this.beanDefinitionSnapshot);
+		}
+		catch (BeanDefinitionStoreException ex) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Could not load bean definition snapshot - falling back to bean definition resources: " +
+						ex.getMessage());
+			}
+			return false;
+		}
+		this.restoredFromSnapshot = true;
+		return true;
+	}
+
+	/**
+	 * Compute a fingerprint of the given resources' descriptions and contents,
+	 * as well as of the active and default profiles of this context.
+	 */
+	private String computeSnapshotFingerprint(Resource[] sourceResources) throws BeanDefinitionStoreException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (Resource resource : sourceResources) {
+			try {
+				out.write(resource.getDescription().getBytes(SNAPSHOT_FINGERPRINT_ENCODING));
+				FileCopyUtils.copy(resource.getInputStream(), out);
+			}
+			catch (IOException ex) {
+				throw new BeanDefinitionStoreException("Could not read bean definition resource " + resource, ex);
+			}
+		}
+		String profiles = StringUtils.arrayToCommaDelimitedString(getEnvironment().getActiveProfiles()) + ";" +
+				StringUtils.arrayToCommaDelimitedString(getEnvironment().getDefaultProfiles());
+		try {
+			out.write(profiles.getBytes(SNAPSHOT_FINGERPRINT_ENCODING));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return DigestUtils.md5DigestAsHex(out.toByteArray());
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementations of AbstractApplicationContext's template methods
@@ -246,6 +352,58 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.refreshed = true;
 	}
 
+	/**
+	 * Write the bean definition snapshot, if one has been requested through
+	 * {@link #loadBeanDefinitionSnapshot} but could not be loaded, once all
+	 * BeanFactoryPostProcessors have been invoked.
+	 */
+	@Override
+	protected void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory) {
+		super.invokeBeanFactoryPostProcessors(beanFactory);
+		if (this.snapshotFingerprint != null && !this.restoredFromSnapshot) {
+			writeBeanDefinitionSnapshot();
+		}
+	}
+
+	/**
+	 * Write the current bean definitions to the snapshot file, replacing any
+	 * out-of-date snapshot. Failures are logged rather than propagated, since
+	 * they do not affect this context.
+	 */
+	private void writeBeanDefinitionSnapshot() {
+		try {
+			File snapshotFile = this.beanDefinitionSnapshot.getFile();
+			File tempFile = new File(snapshotFile.getPath() + ".tmp");
+			int count;
+			boolean replaced = false;
+			try {
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+				try {
+					count = new BeanDefinitionSnapshotWriter(this.beanFactory).writeSnapshot(out, this.snapshotFingerprint);
+				}
+				finally {
+					out.close();
+				}
+				if ((snapshotFile.exists() && !snapshotFile.delete()) || !tempFile.renameTo(snapshotFile)) {
+					throw new IOException("Could not replace snapshot file [" + snapshotFile + "]");
+				}
+				replaced = true;
+			}
+			finally {
+				if (!replaced) {
+					// Do not leave a partially written snapshot behind
+					tempFile.delete();
+				}
+			}
+			if (logger.isInfoEnabled()) {
+				logger.info("Wrote " + count + " bean definitions to snapshot " + this.beanDefinitionSnapshot);
+			}
+		}
+		catch (IOException ex) {
+			logger.warn("Could not write bean definition snapshot " + this.beanDefinitionSnapshot, ex);
+		}
+	}
+
 	@Override
 	protected void cancelRefresh(BeansException ex) {
 		this.beanFactory.setSerializationId(null);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,23 @@
 
 package org.springframework.scheduling.annotation;
 
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
 /**
  * A pass-through <code>Future</code> handle that can be used for method signatures
  * which are declared with a Future return type for asynchronous execution.
  *
+ * <p>As of Spring 3.1.3, this class implements {@link ListenableFuture}, so that
+ * it may also be returned from methods declared with a ListenableFuture type.
+ *
  * @author Juergen Hoeller
  * @since 3.0
  * @see org.springframework.scheduling.annotation.Async
  */
-public class AsyncResult<V> implements Future<V> {
+public class AsyncResult<V> implements ListenableFuture<V> {
 
 	private final V value;
 
@@ -60,4 +65,8 @@ public class AsyncResult<V> implements Future<V> {
 		return this.value;
 	}
 
+	public void addCallback(ListenableFutureCallback<? super V> callback) {
+		callback.onSuccess(this.value);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,9 +24,11 @@ import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.TaskRejectedException;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.scheduling.SchedulingTaskExecutor;
+import org.springframework.util.concurrent.ListenableFuture;
 
 /**
  * Adapter that takes a JDK 1.5 <code>java.util.concurrent.Executor</code> and
@@ -48,7 +50,7 @@ import org.springframework.scheduling.SchedulingTaskExecutor;
  * @see java.util.concurrent.Executors
  * @see ThreadPoolTaskExecutor
  */
-public class ConcurrentTaskExecutor implements SchedulingTaskExecutor {
+public class ConcurrentTaskExecutor implements AsyncListenableTaskExecutor, SchedulingTaskExecutor {
 
 	private Executor concurrentExecutor;
 
@@ -107,6 +109,14 @@ public class ConcurrentTaskExecutor implements SchedulingTaskExecutor {
 		return this.adaptedExecutor.submit(task);
 	}
 
+	public ListenableFuture<?> submitListenable(Runnable task) {
+		return this.adaptedExecutor.submitListenable(task);
+	}
+
+	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+		return this.adaptedExecutor.submitListenable(task);
+	}
+
 	/**
 	 * This task executor prefers short-lived work units.
 	 */
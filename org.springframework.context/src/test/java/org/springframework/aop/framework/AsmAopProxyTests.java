@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Test;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.beans.IOther;
+import org.springframework.beans.ITestBean;
+import org.springframework.beans.TestBean;
+
+import test.interceptor.NopInterceptor;
+
+/**
+ * Additional and overridden tests for generated proxy classes.
+ *
+ * @since 3.1.3
+ */
+public final class AsmAopProxyTests extends AbstractAopProxyTests {
+
+	protected Object createProxy(ProxyCreatorSupport as) {
+		assertFalse("Not forcible CGLIB", as.isProxyTargetClass());
+		as.setAopProxyFactory(createAopProxyFactory());
+		Object proxy = as.createAopProxy().getProxy();
+		assertTrue("Should be an AOP proxy: " + proxy.getClass(), AopUtils.isAopProxy(proxy));
+		return proxy;
+	}
+
+	private Object createGeneratedProxy(ProxyCreatorSupport as) {
+		Object proxy = createProxy(as);
+		assertTrue("Should be a generated proxy: " + proxy.getClass(), proxy instanceof GeneratedAopProxySupport);
+		return proxy;
+	}
+
+	protected AopProxy createAopProxy(AdvisedSupport as) {
+		return new AsmAopProxy(as);
+	}
+
+	private static DefaultAopProxyFactory createAopProxyFactory() {
+		DefaultAopProxyFactory aopProxyFactory = new DefaultAopProxyFactory();
+		aopProxyFactory.setGenerateProxyClasses(true);
+		return aopProxyFactory;
+	}
+
+
+	@Test
+	public void testNullConfig() {
+		try {
+			new AsmAopProxy(null);
+			fail("Shouldn't allow null interceptors");
+		}
+		catch (IllegalArgumentException ex) {
+			// Ok
+		}
+	}
+
+	@Test
+	public void testProxyIsJustInterface() {
+		TestBean raw = new TestBean();
+		raw.setAge(32);
+		AdvisedSupport pc = new AdvisedSupport(new Class[] {ITestBean.class});
+		pc.setTarget(raw);
+
+		Object proxy = createAopProxy(pc).getProxy();
+		assertTrue(proxy instanceof GeneratedAopProxySupport);
+		assertTrue(AopUtils.isAopProxy(proxy));
+		assertTrue(proxy instanceof ITestBean);
+		assertFalse(proxy instanceof TestBean);
+		assertFalse(proxy instanceof IOther);
+		assertTrue(proxy instanceof Advised);
+		assertEquals(32, ((ITestBean) proxy).getAge());
+		assertEquals(1, AopProxyUtils.proxiedUserInterfaces(proxy).length);
+	}
+
+	@Test
+	public void testProxyClassSharedForSameConfiguration() {
+		ProxyFactory pf1 = new ProxyFactory(new TestBean("tb1"));
+		pf1.addAdvisor(new NameMatchMethodPointcutAdvisor(new NopInterceptor()));
+		pf1.setFrozen(true);
+		ProxyFactory pf2 = new ProxyFactory(new TestBean("tb2"));
+		pf2.addAdvisor(new NameMatchMethodPointcutAdvisor(new NopInterceptor()));
+		pf2.setFrozen(true);
+		ProxyFactory pf3 = new ProxyFactory(new TestBean("tb3"));
+		NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new NopInterceptor());
+		advisor.setMappedName("getName");
+		pf3.addAdvisor(advisor);
+		pf3.setFrozen(true);
+
+		ITestBean proxy1 = (ITestBean) createGeneratedProxy(pf1);
+		ITestBean proxy2 = (ITestBean) createGeneratedProxy(pf2);
+		ITestBean proxy3 = (ITestBean) createGeneratedProxy(pf3);
+		assertSame(proxy1.getClass(), proxy2.getClass());
+		assertNotSame(proxy1.getClass(), proxy3.getClass());
+		assertEquals("tb1", proxy1.getName());
+		assertEquals("tb2", proxy2.getName());
+		assertEquals("tb3", proxy3.getName());
+	}
+
+	@Test
+	public void testUnadvisedMethodsOfFrozenConfiguration() throws Throwable {
+		TestBean target = new TestBean("tb", 30);
+		target.setSpouse(target);
+		ProxyFactory pf = new ProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(nop);
+		advisor.setMappedName("getAge");
+		pf.addAdvisor(advisor);
+		pf.setFrozen(true);
+		ITestBean proxy = (ITestBean) createGeneratedProxy(pf);
+
+		proxy.setName("name");
+		assertEquals("name", proxy.getName());
+		assertEquals(30, proxy.haveBirthday());
+		assertEquals(0, nop.getCount());
+		assertEquals(31, proxy.getAge());
+		assertEquals(1, nop.getCount());
+		assertSame("Proxy should be returned instead of target", proxy, proxy.returnsThis());
+		assertSame("Proxy should be returned instead of target", proxy, proxy.getSpouse());
+		assertEquals(target.toString(), proxy.toString());
+		assertSame(pf.getTargetSource(), ((Advised) proxy).getTargetSource());
+
+		IOException ex = new IOException();
+		try {
+			proxy.exceptional(ex);
+			fail("Should have thrown IOException");
+		}
+		catch (IOException caught) {
+			assertSame(ex, caught);
+		}
+	}
+
+	@Test
+	public void testAdvisedMethodsWithPrimitivesAndExceptions() throws Throwable {
+		TestBean target = new TestBean("tb", 30);
+		target.setStringArray(new String[] {"a"});
+		ProxyFactory pf = new ProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		pf.addAdvice(nop);
+		ITestBean proxy = (ITestBean) createGeneratedProxy(pf);
+
+		proxy.setAge(40);
+		assertEquals(40, proxy.getAge());
+		assertEquals(40, proxy.haveBirthday());
+		assertEquals(41, proxy.getAge());
+		assertArrayEquals(new String[] {"a"}, proxy.getStringArray());
+		assertSame(proxy, proxy.returnsThis());
+		assertEquals(6, nop.getCount());
+
+		IOException ex = new IOException();
+		try {
+			proxy.exceptional(ex);
+			fail("Should have thrown IOException");
+		}
+		catch (IOException caught) {
+			assertSame(ex, caught);
+		}
+	}
+
+	@Test
+	public void testReuseMethodInvocations() {
+		TestBean target = new TestBean();
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setReuseMethodInvocations(true);
+		final List<MethodInvocation> invocations = new ArrayList<MethodInvocation>();
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				invocations.add(invocation);
+				return invocation.proceed();
+			}
+		});
+		ITestBean proxy = (ITestBean) createGeneratedProxy(pf);
+		proxy.setName("a");
+		proxy.setName("b");
+		assertEquals("b", target.getName());
+		assertSame(invocations.get(0), invocations.get(1));
+	}
+
+	@Test
+	public void testUndeclaredCheckedExceptionFromAdvice() {
+		final Exception ex = new Exception();
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				throw ex;
+			}
+		});
+		ITestBean proxy = (ITestBean) createGeneratedProxy(pf);
+		try {
+			proxy.getAge();
+			fail("Should have thrown UndeclaredThrowableException");
+		}
+		catch (UndeclaredThrowableException caught) {
+			assertSame(ex, caught.getUndeclaredThrowable());
+		}
+	}
+
+	@Test
+	public void testNullReturnValueForPrimitiveReturnType() {
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				return null;
+			}
+		});
+		ITestBean proxy = (ITestBean) createGeneratedProxy(pf);
+		assertNull(proxy.getName());
+		try {
+			proxy.getAge();
+			fail("Should have thrown AopInvocationException");
+		}
+		catch (org.springframework.aop.AopInvocationException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testProxyNotWrappedIfIncompatible() {
+		JdkDynamicProxyTests.FooBar bean = new JdkDynamicProxyTests.FooBar();
+		ProxyCreatorSupport as = new ProxyCreatorSupport();
+		as.setInterfaces(new Class[] {JdkDynamicProxyTests.Foo.class});
+		as.setTarget(bean);
+		as.setFrozen(true);
+
+		JdkDynamicProxyTests.Foo proxy = (JdkDynamicProxyTests.Foo) createGeneratedProxy(as);
+		assertSame("Target should be returned when return types are incompatible", bean, proxy.getBarThis());
+		assertSame("Proxy should be returned when return types are compatible", proxy, proxy.getFooThis());
+	}
+
+	@Test
+	public void testFallbackForEqualsAndHashCodeDefined() {
+		AdvisedSupport as = new AdvisedSupport(new Class[] {JdkDynamicProxyTests.Named.class});
+		as.setTarget(new JdkDynamicProxyTests.Person());
+		JdkDynamicProxyTests.Named proxy = (JdkDynamicProxyTests.Named) createAopProxy(as).getProxy();
+		assertTrue(AopUtils.isJdkDynamicProxy(proxy));
+		JdkDynamicProxyTests.Named named = new JdkDynamicProxyTests.Person();
+		assertEquals("equals() returned false", proxy, named);
+		assertEquals("hashCode() not equal", proxy.hashCode(), named.hashCode());
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+
+import example.scannable.FooServiceImpl;
+
+/**
+ * Tests for {@link CandidateComponentsIndex} and its use by
+ * {@link ClassPathScanningCandidateComponentProvider}.
+ */
+public class CandidateComponentsIndexTests {
+
+	private static final String TEST_BASE_PACKAGE = "example.scannable";
+
+	private static final String STEREOTYPES = "org.springframework.stereotype.Service,org.springframework.stereotype.Component";
+
+	private File indexFile;
+
+	private String testRoot;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.indexFile = File.createTempFile("spring", ".components");
+		URL packageUrl = getClass().getClassLoader().getResource(TEST_BASE_PACKAGE.replace('.', '/'));
+		this.testRoot = CandidateComponentsIndex.getRoot(packageUrl, TEST_BASE_PACKAGE.replace('.', '/'));
+	}
+
+	@After
+	public void tearDown() {
+		this.indexFile.delete();
+	}
+
+
+	@Test
+	public void noIndexPresent() {
+		assertNull(CandidateComponentsIndex.loadIndex(getClass().getClassLoader()));
+	}
+
+	@Test
+	public void candidateTypes() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES,
+				"example.scannable.sub.Other=org.springframework.stereotype.Component",
+				"example.scannableOther.Other=org.springframework.stereotype.Component");
+		CandidateComponentsIndex index = CandidateComponentsIndex.loadIndex(new IndexClassLoader(this.testRoot));
+		Set<String> types = index.getCandidateTypes(TEST_BASE_PACKAGE, "org.springframework.stereotype.Component");
+		assertEquals(2, types.size());
+		assertTrue(types.contains("example.scannable.FooServiceImpl"));
+		assertTrue(types.contains("example.scannable.sub.Other"));
+		assertEquals(Collections.singleton("example.scannable.FooServiceImpl"),
+				index.getCandidateTypes(TEST_BASE_PACKAGE, "org.springframework.stereotype.Service"));
+		assertTrue(index.getCandidateTypes(TEST_BASE_PACKAGE, "org.springframework.stereotype.Controller").isEmpty());
+		assertTrue(index.isComplete(TEST_BASE_PACKAGE, getClass().getClassLoader()));
+		index = CandidateComponentsIndex.loadIndex(new IndexClassLoader("file:/not/the/test/root/"));
+		assertFalse(index.isComplete(TEST_BASE_PACKAGE, getClass().getClassLoader()));
+	}
+
+	@Test
+	public void providerUsesIndex() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES);
+		Set<BeanDefinition> candidates = createProvider(new IndexClassLoader(this.testRoot))
+				.findCandidateComponents(TEST_BASE_PACKAGE);
+		assertEquals(1, candidates.size());
+		assertEquals(FooServiceImpl.class.getName(), candidates.iterator().next().getBeanClassName());
+	}
+
+	@Test
+	public void providerScansIfIndexIsStale() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES,
+				"example.scannable.DoesNotExist=org.springframework.stereotype.Component");
+		Set<BeanDefinition> candidates = createProvider(new IndexClassLoader(this.testRoot))
+				.findCandidateComponents(TEST_BASE_PACKAGE);
+		assertEquals(6, candidates.size());
+	}
+
+	@Test
+	public void providerScansIfPackageRootIsNotIndexed() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES);
+		Set<BeanDefinition> candidates = createProvider(new IndexClassLoader("file:/not/the/test/root/"))
+				.findCandidateComponents(TEST_BASE_PACKAGE);
+		assertEquals(6, candidates.size());
+	}
+
+	@Test
+	public void providerScansWithNonAnnotationIncludeFilter() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES);
+		ClassPathScanningCandidateComponentProvider provider = createProvider(new IndexClassLoader(this.testRoot));
+		provider.addIncludeFilter(new AssignableTypeFilter(Object.class));
+		assertTrue(provider.findCandidateComponents(TEST_BASE_PACKAGE).size() > 1);
+	}
+
+	@Test
+	public void providerScansWithInterfaceMatchingAnnotationFilter() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES);
+		ClassPathScanningCandidateComponentProvider provider = createProvider(new IndexClassLoader(this.testRoot));
+		provider.resetFilters(false);
+		provider.addIncludeFilter(new AnnotationTypeFilter(Component.class, true, true));
+		assertTrue(provider.findCandidateComponents(TEST_BASE_PACKAGE).size() > 1);
+	}
+
+	@Test
+	public void providerScansWithCustomAnnotationFilter() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES);
+		ClassPathScanningCandidateComponentProvider provider = createProvider(new IndexClassLoader(this.testRoot));
+		provider.resetFilters(false);
+		provider.addIncludeFilter(new AnnotationTypeFilter(Component.class) {
+		});
+		assertTrue(provider.findCandidateComponents(TEST_BASE_PACKAGE).size() > 1);
+	}
+
+	@Test
+	public void providerUsesIndexForCustomBasePackageResolution() throws IOException {
+		writeIndex("example.scannable.FooServiceImpl=" + STEREOTYPES);
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true) {
+			@Override
+			protected String resolveBasePackage(String basePackage) {
+				return super.resolveBasePackage(basePackage.replace("alias", TEST_BASE_PACKAGE));
+			}
+		};
+		provider.setResourceLoader(new DefaultResourceLoader(new IndexClassLoader(this.testRoot)));
+		Set<BeanDefinition> candidates = provider.findCandidateComponents("alias");
+		assertEquals(1, candidates.size());
+		assertEquals(FooServiceImpl.class.getName(), candidates.iterator().next().getBeanClassName());
+	}
+
+	@Test
+	public void writeIndexForClassesDirectory() throws IOException {
+		File classesDir = new File(this.indexFile.getPath() + ".classes");
+		try {
+			String classFile = FooServiceImpl.class.getName().replace('.', '/') + ".class";
+			File target = new File(classesDir, classFile);
+			target.getParentFile().mkdirs();
+			FileCopyUtils.copy(getClass().getClassLoader().getResourceAsStream(classFile), new FileOutputStream(target));
+
+			File written = CandidateComponentsIndexWriter.writeIndex(classesDir);
+			assertEquals(new File(classesDir, CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION), written);
+			Properties index = PropertiesLoaderUtils.loadProperties(new FileSystemResource(written));
+			assertEquals(1, index.size());
+			String stereotypes = index.getProperty(FooServiceImpl.class.getName());
+			assertTrue(stereotypes.contains("org.springframework.stereotype.Service"));
+			assertTrue(stereotypes.contains("org.springframework.stereotype.Component"));
+			assertTrue(stereotypes.contains(Lazy.class.getName()));
+			assertFalse(stereotypes.contains("java.lang.annotation.Target"));
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(classesDir);
+		}
+	}
+
+
+	private ClassPathScanningCandidateComponentProvider createProvider(ClassLoader classLoader) {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(classLoader));
+		return provider;
+	}
+
+	private void writeIndex(String... entries) throws IOException {
+		OutputStream out = new FileOutputStream(this.indexFile);
+		try {
+			for (String entry : entries) {
+				out.write((entry + "\n").getBytes("ISO-8859-1"));
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+
+	/**
+	 * Exposes the temporary index file as if it was located in the given classpath root.
+	 */
+	private class IndexClassLoader extends ClassLoader {
+
+		private final String root;
+
+		public IndexClassLoader(String root) {
+			super(CandidateComponentsIndexTests.class.getClassLoader());
+			this.root = root;
+		}
+
+		@Override
+		public Enumeration<URL> getResources(String name) throws IOException {
+			if (CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION.equals(name)) {
+				URL url = new URL(null, this.root + name, new URLStreamHandler() {
+					@Override
+					protected URLConnection openConnection(URL url) throws IOException {
+						return indexFile.toURI().toURL().openConnection();
+					}
+				});
+				return Collections.enumeration(Collections.singleton(url));
+			}
+			return super.getResources(name);
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.support.SnapshotBeanDefinitionReader;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConfigurationClassPostProcessor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.Conventions;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotationMetadata;
+
+import test.beans.TestBean;
+
+/**
+ * Tests for bean definition snapshots of a {@link GenericApplicationContext}.
+ *
+ * @since 3.1.3
+ */
+public class GenericApplicationContextSnapshotTests {
+
+	private final Resource config = new ClassPathResource("GenericApplicationContextSnapshotTests-context.xml", getClass());
+
+	private File snapshotFile;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.snapshotFile = File.createTempFile("beans", ".snapshot");
+		this.snapshotFile.delete();
+	}
+
+	@After
+	public void tearDown() {
+		this.snapshotFile.delete();
+	}
+
+
+	@Test
+	public void writeAndLoadSnapshot() {
+		GenericApplicationContext ctx = createContext(this.config);
+		assertTrue(this.snapshotFile.exists());
+		assertFalse(ctx.getBeanFactory().getBeanDefinition("testBean").hasAttribute(
+				SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE));
+		assertBeans(ctx);
+		ctx.close();
+
+		long lastModified = this.snapshotFile.lastModified();
+		ctx = createContext(this.config);
+		assertEquals(lastModified, this.snapshotFile.lastModified());
+		assertTrue(ctx.getBeanFactory().getBeanDefinition("testBean").hasAttribute(
+				SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE));
+		assertBeans(ctx);
+		ctx.close();
+	}
+
+	@Test
+	public void fallBackOnChangedResources() {
+		createContext(this.config).close();
+
+		Resource additionalConfig = new ByteArrayResource("<beans/>".getBytes(), "additional");
+		GenericApplicationContext ctx = new GenericApplicationContext();
+		ctx.setBeanDefinitionSnapshot(new FileSystemResource(this.snapshotFile));
+		assertFalse(ctx.loadBeanDefinitionSnapshot(this.config, additionalConfig));
+		assertEquals(0, ctx.getBeanDefinitionCount());
+
+		ctx.getEnvironment().setActiveProfiles("other");
+		assertFalse(ctx.loadBeanDefinitionSnapshot(this.config));
+		assertEquals(0, ctx.getBeanDefinitionCount());
+
+		ctx.getEnvironment().setActiveProfiles();
+		assertTrue(ctx.loadBeanDefinitionSnapshot(this.config));
+	}
+
+	@Test
+	public void fallBackOnCorruptSnapshot() throws IOException {
+		new FileSystemResource(this.snapshotFile).getOutputStream().close();
+		GenericApplicationContext ctx = createContext(this.config);
+		assertBeans(ctx);
+		ctx.close();
+		assertTrue(this.snapshotFile.length() > 0);
+
+		ctx = createContext(this.config);
+		assertTrue(ctx.getBeanFactory().getBeanDefinition("testBean").hasAttribute(
+				SnapshotBeanDefinitionReader.SNAPSHOT_ATTRIBUTE));
+		ctx.close();
+	}
+
+	@Test
+	public void restorePropertySourcesWithoutReloadingConfiguration() {
+		Resource config = new ClassPathResource("GenericApplicationContextSnapshotTests-propertySource.xml", getClass());
+		GenericApplicationContext ctx = createContext(config);
+		assertEquals("property source", ctx.getEnvironment().getProperty("snapshot.source"));
+		assertEquals(2, ctx.getBeansOfType(TestBean.class).size());
+		ctx.close();
+
+		ctx = new GenericApplicationContext();
+		ctx.setAllowBeanDefinitionOverriding(false);
+		ctx.setBeanDefinitionSnapshot(new FileSystemResource(this.snapshotFile));
+		assertTrue(ctx.loadBeanDefinitionSnapshot(config));
+		ctx.refresh();
+		assertEquals("property source", ctx.getEnvironment().getProperty("snapshot.source"));
+		assertEquals(2, ctx.getBeansOfType(TestBean.class).size());
+		assertEquals(PropertySourceConfig.class.getName(),
+				ctx.getBean(ImportedConfig.class).importMetadata.getClassName());
+
+		String propertySourcesAttribute = Conventions.getQualifiedAttributeName(
+				ConfigurationClassPostProcessor.class, "propertySources");
+		String[] configNames = ctx.getBeanNamesForType(PropertySourceConfig.class);
+		assertTrue(ctx.getBeanDefinition(configNames[0]).hasAttribute(propertySourcesAttribute));
+		String[] importedNames = ctx.getBeanNamesForType(ImportedConfig.class);
+		assertFalse(ctx.getBeanDefinition(importedNames[0]).hasAttribute(propertySourcesAttribute));
+		ctx.close();
+	}
+
+	@Test
+	public void noSnapshotLeftOnWriteFailure() {
+		GenericApplicationContext ctx = new GenericApplicationContext();
+		ctx.setBeanDefinitionSnapshot(new FileSystemResource(this.snapshotFile));
+		assertFalse(ctx.loadBeanDefinitionSnapshot(this.config));
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new TestBean());
+		ctx.registerBeanDefinition("testBean", bd);
+		ctx.refresh();
+		assertFalse(this.snapshotFile.exists());
+		assertFalse(new File(this.snapshotFile.getPath() + ".tmp").exists());
+		ctx.close();
+	}
+
+
+	private GenericApplicationContext createContext(Resource... resources) {
+		GenericApplicationContext ctx = new GenericApplicationContext();
+		ctx.setBeanDefinitionSnapshot(new FileSystemResource(this.snapshotFile));
+		if (!ctx.loadBeanDefinitionSnapshot(resources)) {
+			new XmlBeanDefinitionReader(ctx).loadBeanDefinitions(resources);
+		}
+		ctx.refresh();
+		return ctx;
+	}
+
+	private static void assertBeans(GenericApplicationContext ctx) {
+		TestBean testBean = ctx.getBean("testBean", TestBean.class);
+		assertEquals("snapshot", testBean.getName());
+		assertEquals(42, testBean.getAge());
+		assertEquals("spouse of snapshot", testBean.getSpouse().getName());
+
+		SnapshotConfig config = ctx.getBean(SnapshotConfig.class);
+		assertNotSame(SnapshotConfig.class, config.getClass());
+		assertSame(ctx.getBean("configuredBean"), config.configuredBean());
+		assertEquals("configured", ctx.getBean("configuredBean", TestBean.class).getName());
+
+		ImportedConfig importedConfig = ctx.getBean(ImportedConfig.class);
+		assertEquals(SnapshotConfig.class.getName(), importedConfig.importMetadata.getClassName());
+		assertSame(ctx.getBean("importedBean"), importedConfig.importedBean());
+	}
+
+
+	@Configuration
+	@Import(ImportedConfig.class)
+	public static class SnapshotConfig {
+
+		@Bean
+		public TestBean configuredBean() {
+			return new TestBean("configured");
+		}
+	}
+
+
+	@Configuration
+	@PropertySource("classpath:org/springframework/context/support/GenericApplicationContextSnapshotTests.properties")
+	@ImportResource("classpath:org/springframework/context/support/GenericApplicationContextSnapshotTests-imported.xml")
+	@Import(ImportedConfig.class)
+	public static class PropertySourceConfig {
+	}
+
+
+	@Configuration
+	public static class ImportedConfig implements ImportAware {
+
+		private AnnotationMetadata importMetadata;
+
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+
+		@Bean
+		public TestBean importedBean() {
+			return new TestBean("imported");
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Helper methods for classes that generate bytecode with ASM at runtime and
+ * define the generated classes in a dedicated child ClassLoader.
+ *
+ * <p>Mainly for use within the framework.
+ *
+ * @since 3.1.3
+ */
+public abstract class GeneratedClassSupport {
+
+	/**
+	 * Determine whether the given class is accessible from a generated class
+	 * in any package, i.e. whether it is public and, for a nested class or an
+	 * array, whether all enclosing classes or component types are public as well.
+	 * @param clazz the class to check
+	 * @return whether generated code may refer to the class
+	 */
+	public static boolean isPublic(Class<?> clazz) {
+		Class<?> classToCheck = clazz;
+		while (classToCheck.isArray()) {
+			classToCheck = classToCheck.getComponentType();
+		}
+		while (classToCheck != null) {
+			if (!classToCheck.isPrimitive() && !Modifier.isPublic(classToCheck.getModifiers())) {
+				return false;
+			}
+			classToCheck = classToCheck.getDeclaringClass();
+		}
+		return true;
+	}
+
+	/**
+	 * Convert the value of the given type on top of the stack to an Object,
+	 * boxing primitive values. Must not be called for <code>void</code>.
+	 * @param mv the MethodVisitor to generate the conversion with
+	 * @param type the type of the value on top of the stack
+	 */
+	public static void box(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			String wrapperName = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(type));
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapperName, "valueOf",
+					"(" + Type.getDescriptor(type) + ")L" + wrapperName + ";");
+		}
+	}
+
+	/**
+	 * Convert the Object on top of the stack to the given type,
+	 * unboxing primitive values and casting references.
+	 * @param mv the MethodVisitor to generate the conversion with
+	 * @param type the type to convert to
+	 */
+	public static void unbox(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			String wrapperName = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(type));
+			mv.visitTypeInsn(Opcodes.CHECKCAST, wrapperName);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapperName, type.getName() + "Value",
+					"()" + Type.getDescriptor(type));
+		}
+		else {
+			checkCast(mv, type);
+		}
+	}
+
+	/**
+	 * Cast the reference on top of the stack to the given type,
+	 * unless the type is <code>java.lang.Object</code>.
+	 * @param mv the MethodVisitor to generate the cast with
+	 * @param type the reference type to cast to
+	 */
+	public static void checkCast(MethodVisitor mv, Class<?> type) {
+		if (!Object.class.equals(type)) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+	/**
+	 * Invoke the given method on the target and with the arguments on top of the
+	 * stack, through <code>invokeinterface</code> or <code>invokevirtual</code>.
+	 * @param mv the MethodVisitor to generate the invocation with
+	 * @param method the public instance method to invoke
+	 */
+	public static void invokeMethod(MethodVisitor mv, Method method) {
+		Class<?> owner = method.getDeclaringClass();
+		mv.visitMethodInsn((owner.isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL),
+				Type.getInternalName(owner), method.getName(), Type.getMethodDescriptor(method));
+	}
+
+	/**
+	 * Define the given generated class in a new child ClassLoader of the given
+	 * ClassLoader. The child ClassLoader resolves the given shared classes to
+	 * the very classes passed in, even if the parent ClassLoader does not see
+	 * them, and delegates to the parent ClassLoader for all other classes.
+	 * @param className the name of the generated class
+	 * @param bytes the bytecode of the generated class
+	 * @param parent the parent ClassLoader (typically the ClassLoader of the
+	 * classes that the generated class refers to)
+	 * @param sharedClasses framework classes that the generated class refers to
+	 * @return the generated class
+	 */
+	public static Class<?> defineClass(String className, byte[] bytes, ClassLoader parent, Class<?>... sharedClasses) {
+		Assert.notNull(className, "Class name must not be null");
+		Assert.notNull(bytes, "Class bytes must not be null");
+		return new GeneratedClassLoader(parent, sharedClasses).defineGeneratedClass(className, bytes);
+	}
+
+
+	/**
+	 * ClassLoader for a single generated class.
+	 */
+	private static class GeneratedClassLoader extends ClassLoader {
+
+		private final Class<?>[] sharedClasses;
+
+		public GeneratedClassLoader(ClassLoader parent, Class<?>[] sharedClasses) {
+			super(parent);
+			this.sharedClasses = sharedClasses;
+		}
+
+		public Class<?> defineGeneratedClass(String className, byte[] bytes) {
+			return defineClass(className, bytes, 0, bytes.length);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			for (Class<?> sharedClass : this.sharedClasses) {
+				if (sharedClass.getName().equals(name)) {
+					return sharedClass;
+				}
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+}
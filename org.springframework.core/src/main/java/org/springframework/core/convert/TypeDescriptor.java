@@ -19,8 +19,8 @@ package org.springframework.core.convert;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.core.MethodParameter;
 import org.springframework.util.ClassUtils;
@@ -38,7 +38,10 @@ public class TypeDescriptor {
 
 	static final Annotation[] EMPTY_ANNOTATION_ARRAY = new Annotation[0];
 
-	private static final Map<Class<?>, TypeDescriptor> typeDescriptorCache = new HashMap<Class<?>, TypeDescriptor>();
+	private static final ClassLoader typeDescriptorClassLoader = TypeDescriptor.class.getClassLoader();
+
+	private static final Map<Class<?>, TypeDescriptor> typeDescriptorCache =
+			new ConcurrentHashMap<Class<?>, TypeDescriptor>(64);
 
 	static {
 		typeDescriptorCache.put(boolean.class, new TypeDescriptor(boolean.class));
@@ -104,12 +107,23 @@ public class TypeDescriptor {
 	 * Create a new type descriptor from the given type.
 	 * Use this to instruct the conversion system to convert an object to a specific target type, when no type location such as a method parameter or field is available to provide additional conversion context.
 	 * Generally prefer use of {@link #forObject(Object)} for constructing type descriptors from source objects, as it handles the null object case.
+	 * <p>Descriptors for classes that are visible to the ClassLoader that loaded this class are interned,
+	 * so repeated calls for such a class return the same TypeDescriptor instance.
 	 * @param type the class
 	 * @return the type descriptor
 	 */
 	public static TypeDescriptor valueOf(Class<?> type) {
+		if (type == null) {
+			return new TypeDescriptor(type);
+		}
 		TypeDescriptor desc = typeDescriptorCache.get(type);
-		return (desc != null ? desc : new TypeDescriptor(type));
+		if (desc == null) {
+			desc = new TypeDescriptor(type);
+			if (type.getClassLoader() == null || ClassUtils.isCacheSafe(type, typeDescriptorClassLoader)) {
+				typeDescriptorCache.put(type, desc);
+			}
+		}
+		return desc;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -86,6 +86,9 @@ public class GenericConversionService implements ConfigurableConversionService {
 	private final Map<ConverterCacheKey, GenericConverter> converterCache =
 			new ConcurrentHashMap<ConverterCacheKey, GenericConverter>();
 
+	private final Map<Class<?>, Map<Class<?>, GenericConverter>> classPairConverterCache =
+			new ConcurrentHashMap<Class<?>, Map<Class<?>, GenericConverter>>();
+
 
 	// implementing ConverterRegistry
 
@@ -167,6 +170,9 @@ public class GenericConversionService implements ConfigurableConversionService {
 					sourceType + "; instead it was a " + source.getClass().getName());
 		}
 		GenericConverter converter = getConverter(sourceType, targetType);
+		if (converter == NO_OP_CONVERTER) {
+			return handleResult(sourceType, targetType, source);
+		}
 		if (converter != null) {
 			Object result = ConversionUtils.invokeConverter(converter, source, sourceType, targetType);
 			return handleResult(sourceType, targetType, result);
@@ -228,6 +234,11 @@ public class GenericConversionService implements ConfigurableConversionService {
 	 * First queries this ConversionService's converter cache.
 	 * On a cache miss, then performs an exhaustive search for a matching converter.
 	 * If no converter matches, returns the default converter.
+	 * <p>Converters obtained from a {@link ConverterFactory} are resolved for the
+	 * specific target type once and cached in that form. Lookups for plain
+	 * {@link TypeDescriptor#valueOf(Class) Class-based} descriptors are served
+	 * from a cache keyed by the source and target classes, without creating a
+	 * cache key per lookup.
 	 * Subclasses may override.
 	 * @param sourceType the source type to convert from
 	 * @param targetType the target type to convert to
@@ -235,25 +246,40 @@ public class GenericConversionService implements ConfigurableConversionService {
 	 * @see #getDefaultConverter(TypeDescriptor, TypeDescriptor)
 	 */
 	protected GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		boolean classPair = (isPlainClassDescriptor(sourceType) && isPlainClassDescriptor(targetType));
+		Map<Class<?>, GenericConverter> targetCache = null;
+		if (classPair) {
+			targetCache = this.classPairConverterCache.get(sourceType.getType());
+			if (targetCache != null) {
+				GenericConverter converter = targetCache.get(targetType.getType());
+				if (converter != null) {
+					return (converter != NO_MATCH ? converter : null);
+				}
+			}
+		}
 		ConverterCacheKey key = new ConverterCacheKey(sourceType, targetType);
 		GenericConverter converter = this.converterCache.get(key);
-		if (converter != null) {
-			return (converter != NO_MATCH ? converter : null);
-		}
-		else {
+		if (converter == null) {
 			converter = findConverterForClassPair(sourceType, targetType);
 			if (converter == null) {
-				converter = getDefaultConverter(sourceType, targetType);				
+				converter = getDefaultConverter(sourceType, targetType);
 			}
-			if (converter != null) {
-				this.converterCache.put(key, converter);
-				return converter;
+			if (converter instanceof ConverterFactoryAdapter) {
+				converter = ((ConverterFactoryAdapter) converter).getConverterForTarget(targetType);
 			}
-			else {
-				this.converterCache.put(key, NO_MATCH);
-				return null;
+			if (converter == null) {
+				converter = NO_MATCH;
 			}
+			this.converterCache.put(key, converter);
 		}
+		if (classPair) {
+			if (targetCache == null) {
+				targetCache = new ConcurrentHashMap<Class<?>, GenericConverter>();
+				this.classPairConverterCache.put(sourceType.getType(), targetCache);
+			}
+			targetCache.put(targetType.getType(), converter);
+		}
+		return (converter != NO_MATCH ? converter : null);
 	}
 
 	/**
@@ -288,6 +314,16 @@ public class GenericConversionService implements ConfigurableConversionService {
 	
 	private void invalidateCache() {
 		this.converterCache.clear();
+		this.classPairConverterCache.clear();
+	}
+
+	/**
+	 * Determine whether the given descriptor is the interned descriptor for its
+	 * class, i.e. carries no information beyond the class itself.
+	 */
+	private boolean isPlainClassDescriptor(TypeDescriptor typeDescriptor) {
+		Class<?> type = typeDescriptor.getType();
+		return (type != null && TypeDescriptor.valueOf(type) == typeDescriptor);
 	}
 
 	private Map<Class<?>, MatchableConverters> getSourceConverterMap(Class<?> sourceType) {
@@ -547,6 +583,24 @@ public class GenericConversionService implements ConfigurableConversionService {
 			return this.converterFactory.getConverter(targetType.getObjectType()).convert(source);
 		}
 
+		/**
+		 * Return a GenericConverter that delegates to the Converter obtained
+		 * from the factory for the given target type, saving the factory lookup
+		 * on every conversion. Falls back to this adapter itself if the factory
+		 * rejects the target type, leaving the failure to the actual conversion.
+		 */
+		public GenericConverter getConverterForTarget(TypeDescriptor targetType) {
+			Class<?> targetObjectType = targetType.getObjectType();
+			Converter<Object, ?> converter;
+			try {
+				converter = this.converterFactory.getConverter(targetObjectType);
+			}
+			catch (RuntimeException ex) {
+				return this;
+			}
+			return new ConverterAdapter(new ConvertiblePair(this.typeInfo.getSourceType(), targetObjectType), converter);
+		}
+
 		public String toString() {
 			return this.typeInfo.getSourceType().getName() + " -> " + this.typeInfo.getTargetType().getName() +
 					" : " + this.converterFactory.toString();
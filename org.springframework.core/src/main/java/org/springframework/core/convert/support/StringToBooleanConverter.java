@@ -47,6 +47,13 @@ final class StringToBooleanConverter implements Converter<String, Boolean> {
 	}
 	
 	public Boolean convert(String source) {
+		// fast path for the canonical representations
+		if ("true".equals(source)) {
+			return Boolean.TRUE;
+		}
+		if ("false".equals(source)) {
+			return Boolean.FALSE;
+		}
 		String value = source.trim();
 		if ("".equals(value)) {
 			return null;
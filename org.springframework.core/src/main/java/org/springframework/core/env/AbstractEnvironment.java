@@ -97,7 +97,7 @@ public abstract class AbstractEnvironment implements ConfigurableEnvironment {
 	private final MutablePropertySources propertySources =
 			new MutablePropertySources(this.logger);
 
-	private final ConfigurablePropertyResolver propertyResolver =
+	private final PropertySourcesPropertyResolver propertyResolver =
 			new PropertySourcesPropertyResolver(this.propertySources);
 
 
@@ -476,6 +476,41 @@ public abstract class AbstractEnvironment implements ConfigurableEnvironment {
 		this.propertyResolver.setValueSeparator(valueSeparator);
 	}
 
+	/**
+	 * Set whether to cache property lookups against this environment's
+	 * property sources. Default is "false".
+	 * @see PropertySourcesPropertyResolver#setCacheResolvedProperties
+	 */
+	public void setCacheResolvedProperties(boolean cacheResolvedProperties) {
+		this.propertyResolver.setCacheResolvedProperties(cacheResolvedProperties);
+	}
+
+	/**
+	 * Remove all cached property lookups, e.g. after the content of one
+	 * of the property sources has changed.
+	 * @see #setCacheResolvedProperties
+	 */
+	public void clearPropertyCache() {
+		this.propertyResolver.clearCache();
+	}
+
+	/**
+	 * Return the number of property lookups served from the cache so far.
+	 * @see #setCacheResolvedProperties
+	 */
+	public long getPropertyCacheHitCount() {
+		return this.propertyResolver.getCacheHitCount();
+	}
+
+	/**
+	 * Return the number of property lookups that had to search the
+	 * property sources while the cache was enabled.
+	 * @see #setCacheResolvedProperties
+	 */
+	public long getPropertyCacheMissCount() {
+		return this.propertyResolver.getCacheMissCount();
+	}
+
 
 	@Override
 	public String toString() {
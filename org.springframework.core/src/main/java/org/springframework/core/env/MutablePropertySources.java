@@ -46,6 +46,8 @@ public class MutablePropertySources implements PropertySources {
 
 	private final LinkedList<PropertySource<?>> propertySourceList = new LinkedList<PropertySource<?>>();
 
+	private volatile int modificationCount;
+
 
 	/**
 	 * Create a new {@link MutablePropertySources} object.
@@ -95,6 +97,7 @@ public class MutablePropertySources implements PropertySources {
 				propertySource.getName()));
 		removeIfPresent(propertySource);
 		this.propertySourceList.addFirst(propertySource);
+		this.modificationCount++;
 	}
 
 	/**
@@ -105,6 +108,7 @@ public class MutablePropertySources implements PropertySources {
 				propertySource.getName()));
 		removeIfPresent(propertySource);
 		this.propertySourceList.addLast(propertySource);
+		this.modificationCount++;
 	}
 
 	/**
@@ -147,7 +151,11 @@ public class MutablePropertySources implements PropertySources {
 	public PropertySource<?> remove(String name) {
 		logger.debug(String.format("Removing [%s] PropertySource", name));
 		int index = this.propertySourceList.indexOf(PropertySource.named(name));
-		return index == -1 ? null : this.propertySourceList.remove(index);
+		if (index == -1) {
+			return null;
+		}
+		this.modificationCount++;
+		return this.propertySourceList.remove(index);
 	}
 
 	/**
@@ -162,6 +170,7 @@ public class MutablePropertySources implements PropertySources {
 				name, propertySource.getName()));
 		int index = assertPresentAndGetIndex(name);
 		this.propertySourceList.set(index, propertySource);
+		this.modificationCount++;
 	}
 
 	/**
@@ -171,6 +180,14 @@ public class MutablePropertySources implements PropertySources {
 		return this.propertySourceList.size();
 	}
 
+	/**
+	 * Return the number of structural changes made to this set of property sources,
+	 * allowing {@link PropertySourcesPropertyResolver} to detect stale cache entries.
+	 */
+	int getModificationCount() {
+		return this.modificationCount;
+	}
+
 	@Override
 	public synchronized String toString() {
 		String[] names = new String[this.size()];
@@ -204,6 +221,7 @@ public class MutablePropertySources implements PropertySources {
 	private void addAtIndex(int index, PropertySource<?> propertySource) {
 		removeIfPresent(propertySource);
 		this.propertySourceList.add(index, propertySource);
+		this.modificationCount++;
 	}
 
 	/**
@@ -18,7 +18,12 @@ package org.springframework.core.env;
 
 import static java.lang.String.format;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.ConfigurableConversionService;
 import org.springframework.util.ClassUtils;
 
 /**
@@ -35,6 +40,16 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 
 	private final PropertySources propertySources;
 
+	private volatile boolean cacheResolvedProperties = false;
+
+	private final Map<PropertyCacheKey, CachedProperty> propertyCache =
+			new ConcurrentHashMap<PropertyCacheKey, CachedProperty>(64);
+
+	private final AtomicLong cacheHitCount = new AtomicLong();
+
+	private final AtomicLong cacheMissCount = new AtomicLong();
+
+
 	/**
 	 * Create a new resolver against the given property sources.
 	 * @param propertySources the set of {@link PropertySource} objects to use
@@ -43,6 +58,61 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 		this.propertySources = propertySources;
 	}
 
+
+	/**
+	 * Set whether to cache the outcome of {@link #getProperty(String, Class)} per
+	 * property key and target type: the property source that holds the property
+	 * (or the fact that none does) and, for String, primitive wrapper and enum
+	 * target types, the converted value.
+	 * <p>Default is "false". Cached entries are discarded automatically whenever
+	 * a {@link MutablePropertySources} instance is modified, or the conversion service
+	 * is replaced. Changes to the content of a property source (for example, a call
+	 * to {@link System#setProperty}) are not detected; call {@link #clearCache()}
+	 * after making such changes.
+	 */
+	public void setCacheResolvedProperties(boolean cacheResolvedProperties) {
+		this.cacheResolvedProperties = cacheResolvedProperties;
+		clearCache();
+	}
+
+	/**
+	 * Return whether resolved properties are cached.
+	 */
+	public boolean isCacheResolvedProperties() {
+		return this.cacheResolvedProperties;
+	}
+
+	/**
+	 * Remove all cached property resolution results.
+	 */
+	public void clearCache() {
+		this.propertyCache.clear();
+	}
+
+	/**
+	 * Return the number of property lookups served from the cache so far.
+	 * @see #setCacheResolvedProperties
+	 */
+	public long getCacheHitCount() {
+		return this.cacheHitCount.get();
+	}
+
+	/**
+	 * Return the number of property lookups that had to search the property
+	 * sources while the cache was enabled.
+	 * @see #setCacheResolvedProperties
+	 */
+	public long getCacheMissCount() {
+		return this.cacheMissCount.get();
+	}
+
+	@Override
+	public void setConversionService(ConfigurableConversionService conversionService) {
+		super.setConversionService(conversionService);
+		clearCache();
+	}
+
+
 	public boolean containsProperty(String key) {
 		for (PropertySource<?> propertySource : this.propertySources) {
 			if (propertySource.getProperty(key) != null) {
@@ -60,41 +130,97 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 	}
 
 	public <T> T getProperty(String key, Class<T> targetValueType) {
-		boolean debugEnabled = logger.isDebugEnabled();
 		if (logger.isTraceEnabled()) {
 			logger.trace(format("getProperty(\"%s\", %s)", key, targetValueType.getSimpleName()));
 		}
 
+		if (this.cacheResolvedProperties) {
+			return getCachedProperty(key, targetValueType);
+		}
 		for (PropertySource<?> propertySource : this.propertySources) {
-			if (debugEnabled) {
-				logger.debug(format("Searching for key '%s' in [%s]", key, propertySource.getName()));
+			Object value = getPropertyValue(propertySource, key);
+			if (value != null) {
+				return convertPropertyValue(key, propertySource, value, targetValueType);
 			}
-			Object value;
-			if ((value = propertySource.getProperty(key)) != null) {
-				Class<?> valueType = value.getClass();
-				if (String.class.equals(valueType)) {
-					value = this.resolveRequiredPlaceholders((String) value);
-				}
-				if (debugEnabled) {
-					logger.debug(
-							format("Found key '%s' in [%s] with type [%s] and value '%s'",
-									key, propertySource.getName(), valueType.getSimpleName(), value));
-				}
-				if (!this.conversionService.canConvert(valueType, targetValueType)) {
-					throw new IllegalArgumentException(
-							format("Cannot convert value [%s] from source type [%s] to target type [%s]",
-									value, valueType.getSimpleName(), targetValueType.getSimpleName()));
-				}
-				return conversionService.convert(value, targetValueType);
+		}
+		return propertyNotFound(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getCachedProperty(String key, Class<T> targetValueType) {
+		int modificationCount = getModificationCount();
+		PropertyCacheKey cacheKey = new PropertyCacheKey(key, targetValueType);
+		CachedProperty cachedProperty = this.propertyCache.get(cacheKey);
+		if (cachedProperty != null && cachedProperty.modificationCount == modificationCount) {
+			if (cachedProperty.propertySource == null) {
+				this.cacheHitCount.incrementAndGet();
+				return null;
+			}
+			if (cachedProperty.convertedValue != null) {
+				this.cacheHitCount.incrementAndGet();
+				return (T) cachedProperty.convertedValue;
+			}
+			Object value = cachedProperty.propertySource.getProperty(key);
+			if (value != null) {
+				this.cacheHitCount.incrementAndGet();
+				return convertPropertyValue(key, cachedProperty.propertySource, value, targetValueType);
 			}
 		}
 
-		if (debugEnabled) {
+		this.cacheMissCount.incrementAndGet();
+		for (PropertySource<?> propertySource : this.propertySources) {
+			Object value = getPropertyValue(propertySource, key);
+			if (value != null) {
+				T convertedValue = convertPropertyValue(key, propertySource, value, targetValueType);
+				// Only share converted values of immutable types between callers
+				boolean cacheValue = (String.class.equals(targetValueType) ||
+						ClassUtils.isPrimitiveOrWrapper(targetValueType) || targetValueType.isEnum());
+				this.propertyCache.put(cacheKey,
+						new CachedProperty(propertySource, (cacheValue ? convertedValue : null), modificationCount));
+				return convertedValue;
+			}
+		}
+		this.propertyCache.put(cacheKey, new CachedProperty(null, null, modificationCount));
+		return propertyNotFound(key);
+	}
+
+	private Object getPropertyValue(PropertySource<?> propertySource, String key) {
+		if (logger.isDebugEnabled()) {
+			logger.debug(format("Searching for key '%s' in [%s]", key, propertySource.getName()));
+		}
+		return propertySource.getProperty(key);
+	}
+
+	private <T> T convertPropertyValue(String key, PropertySource<?> propertySource, Object value, Class<T> targetValueType) {
+		Class<?> valueType = value.getClass();
+		if (String.class.equals(valueType)) {
+			value = this.resolveRequiredPlaceholders((String) value);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(
+					format("Found key '%s' in [%s] with type [%s] and value '%s'",
+							key, propertySource.getName(), valueType.getSimpleName(), value));
+		}
+		if (!this.conversionService.canConvert(valueType, targetValueType)) {
+			throw new IllegalArgumentException(
+					format("Cannot convert value [%s] from source type [%s] to target type [%s]",
+							value, valueType.getSimpleName(), targetValueType.getSimpleName()));
+		}
+		return conversionService.convert(value, targetValueType);
+	}
+
+	private <T> T propertyNotFound(String key) {
+		if (logger.isDebugEnabled()) {
 			logger.debug(format("Could not find key '%s' in any property source. Returning [null]", key));
 		}
 		return null;
 	}
 
+	private int getModificationCount() {
+		return (this.propertySources instanceof MutablePropertySources ?
+				((MutablePropertySources) this.propertySources).getModificationCount() : 0);
+	}
+
 	public <T> Class<T> getPropertyAsClass(String key, Class<T> targetValueType) {
 		boolean debugEnabled = logger.isDebugEnabled();
 		if (logger.isTraceEnabled()) {
@@ -141,6 +267,59 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 		return null;
 	}
 
+	/**
+	 * Key for the property cache: the property name and the target type.
+	 */
+	private static class PropertyCacheKey {
+
+		private final String key;
+
+		private final Class<?> targetType;
+
+		public PropertyCacheKey(String key, Class<?> targetType) {
+			this.key = key;
+			this.targetType = targetType;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof PropertyCacheKey)) {
+				return false;
+			}
+			PropertyCacheKey otherKey = (PropertyCacheKey) other;
+			return (this.key.equals(otherKey.key) && this.targetType.equals(otherKey.targetType));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.key.hashCode() * 29 + this.targetType.hashCode();
+		}
+	}
+
+
+	/**
+	 * Cached outcome of a property lookup, valid for the given modification
+	 * count of the underlying property sources.
+	 */
+	private static class CachedProperty {
+
+		private final PropertySource<?> propertySource;
+
+		private final Object convertedValue;
+
+		private final int modificationCount;
+
+		public CachedProperty(PropertySource<?> propertySource, Object convertedValue, int modificationCount) {
+			this.propertySource = propertySource;
+			this.convertedValue = convertedValue;
+			this.modificationCount = modificationCount;
+		}
+	}
+
+
 	@SuppressWarnings("serial")
 	static class ClassConversionException extends ConversionException {
 		public ClassConversionException(Class<?> actual, Class<?> expected) {
@@ -24,22 +24,32 @@ import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.NestedIOException;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.UrlResource;
 import org.springframework.core.io.VfsResource;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.PathMatcher;
@@ -154,6 +164,19 @@ import org.springframework.util.StringUtils;
  * Ant-style pattern in such a case, which will search <i>all</i> class path
  * locations that contain the root package.
  *
+ * <p><b>Performance options:</b>
+ *
+ * <p>The entry listing of each jar file in the file system is cached, keyed by
+ * the jar file location and validated against its last-modified timestamp and
+ * size, so that repeated lookups (for example, one per base package during
+ * component scanning) do not have to reopen the same jar files. See
+ * {@link #setCacheJarEntries} and {@link #clearCache}.
+ *
+ * <p>If a {@link #setTaskExecutor task executor} has been specified, the root
+ * directories and jar files found for a pattern are searched concurrently. The
+ * results are merged in the order of the root directories, so the outcome is the
+ * same as with sequential resolution.
+ *
  * @author Juergen Hoeller
  * @author Colin Sampaleanu
  * @author Marius Bogoevici
@@ -188,6 +211,15 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
+	private AsyncTaskExecutor taskExecutor;
+
+	private boolean cacheJarEntries = true;
+
+	/** Cache of jar entry paths, keyed by jar file URL */
+	private final Map<String, JarEntryPaths> jarEntryPathsCache = new ConcurrentHashMap<String, JarEntryPaths>();
+
+	private final AtomicLong jarEntryPathsCacheHitCount = new AtomicLong();
+
 
 	/**
 	 * Create a new PathMatchingResourcePatternResolver with a DefaultResourceLoader.
@@ -252,6 +284,68 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return this.pathMatcher;
 	}
 
+	/**
+	 * Set the executor to search multiple root directories and jar files with,
+	 * concurrently. Default is none, searching them one after the other in the
+	 * calling thread.
+	 * <p>The executor's tasks must not wait for each other; a thread pool with a
+	 * few threads per CPU core (given that searching is mostly I/O) is a good fit.
+	 * @since 3.1.3
+	 * @see org.springframework.core.task.SimpleAsyncTaskExecutor
+	 */
+	public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the executor that this resource pattern resolver uses
+	 * for concurrent searching, if any.
+	 * @since 3.1.3
+	 */
+	public AsyncTaskExecutor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Set whether to cache the entry listings of jar files in the file system.
+	 * Default is "true".
+	 * <p>A cached listing is only used while the jar file's last-modified
+	 * timestamp and size are unchanged. Turn this off to keep the memory for
+	 * the listings when very large jar files are searched once only.
+	 * @since 3.1.3
+	 * @see #clearCache()
+	 */
+	public void setCacheJarEntries(boolean cacheJarEntries) {
+		this.cacheJarEntries = cacheJarEntries;
+		if (!cacheJarEntries) {
+			clearCache();
+		}
+	}
+
+	/**
+	 * Return whether this resource pattern resolver caches jar entry listings.
+	 * @since 3.1.3
+	 */
+	public boolean isCacheJarEntries() {
+		return this.cacheJarEntries;
+	}
+
+	/**
+	 * Clear the cache of jar entry listings, typically once all resources
+	 * of an application context have been resolved.
+	 * @since 3.1.3
+	 */
+	public void clearCache() {
+		this.jarEntryPathsCache.clear();
+	}
+
+	/**
+	 * Return the number of jar entry listings served from the cache so far.
+	 */
+	long getJarEntryPathsCacheHitCount() {
+		return this.jarEntryPathsCacheHitCount.get();
+	}
+
 
 	public Resource getResource(String location) {
 		return getResourceLoader().getResource(location);
@@ -332,19 +426,25 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 	 */
 	protected Resource[] findPathMatchingResources(String locationPattern) throws IOException {
 		String rootDirPath = determineRootDir(locationPattern);
-		String subPattern = locationPattern.substring(rootDirPath.length());
+		final String subPattern = locationPattern.substring(rootDirPath.length());
 		Resource[] rootDirResources = getResources(rootDirPath);
 		Set<Resource> result = new LinkedHashSet<Resource>(16);
-		for (Resource rootDirResource : rootDirResources) {
-			rootDirResource = resolveRootDirResource(rootDirResource);
-			if (isJarResource(rootDirResource)) {
-				result.addAll(doFindPathMatchingJarResources(rootDirResource, subPattern));
+		if (this.taskExecutor != null && rootDirResources.length > 1) {
+			List<Future<Set<Resource>>> futures = new ArrayList<Future<Set<Resource>>>(rootDirResources.length);
+			for (final Resource rootDirResource : rootDirResources) {
+				futures.add(this.taskExecutor.submit(new Callable<Set<Resource>>() {
+					public Set<Resource> call() throws IOException {
+						return findMatchingResourcesInRootDir(rootDirResource, subPattern);
+					}
+				}));
 			}
-			else if (rootDirResource.getURL().getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
-				result.addAll(VfsResourceMatchingDelegate.findMatchingResources(rootDirResource, subPattern, getPathMatcher()));
+			for (Future<Set<Resource>> future : futures) {
+				result.addAll(getResult(future, locationPattern));
 			}
-			else {
-				result.addAll(doFindPathMatchingFileResources(rootDirResource, subPattern));
+		}
+		else {
+			for (Resource rootDirResource : rootDirResources) {
+				result.addAll(findMatchingResourcesInRootDir(rootDirResource, subPattern));
 			}
 		}
 		if (logger.isDebugEnabled()) {
@@ -353,6 +453,44 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return result.toArray(new Resource[result.size()]);
 	}
 
+	private Set<Resource> findMatchingResourcesInRootDir(Resource rootDirResource, String subPattern)
+			throws IOException {
+
+		rootDirResource = resolveRootDirResource(rootDirResource);
+		if (isJarResource(rootDirResource)) {
+			return doFindPathMatchingJarResources(rootDirResource, subPattern);
+		}
+		else if (rootDirResource.getURL().getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
+			return VfsResourceMatchingDelegate.findMatchingResources(rootDirResource, subPattern, getPathMatcher());
+		}
+		else {
+			return doFindPathMatchingFileResources(rootDirResource, subPattern);
+		}
+	}
+
+	private Set<Resource> getResult(Future<Set<Resource>> future, String locationPattern) throws IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new NestedIOException("Interrupted while resolving location pattern [" + locationPattern + "]", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new NestedIOException("Failed to resolve location pattern [" + locationPattern + "]", cause);
+		}
+	}
+
 	/**
 	 * Determine the root directory for the given location.
 	 * <p>Used for determining the starting point for file matching,
@@ -425,19 +563,16 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			throws IOException {
 
 		URLConnection con = rootDirResource.getURL().openConnection();
-		JarFile jarFile;
 		String jarFileUrl;
 		String rootEntryPath;
-		boolean newJarFile = false;
 
 		if (con instanceof JarURLConnection) {
 			// Should usually be the case for traditional JAR files.
 			JarURLConnection jarCon = (JarURLConnection) con;
 			ResourceUtils.useCachesIfNecessary(jarCon);
-			jarFile = jarCon.getJarFile();
 			jarFileUrl = jarCon.getJarFileURL().toExternalForm();
-			JarEntry jarEntry = jarCon.getJarEntry();
-			rootEntryPath = (jarEntry != null ? jarEntry.getName() : "");
+			String entryName = jarCon.getEntryName();
+			rootEntryPath = (entryName != null ? entryName : "");
 		}
 		else {
 			// No JarURLConnection -> need to resort to URL file parsing.
@@ -449,37 +584,93 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			if (separatorIndex != -1) {
 				jarFileUrl = urlFile.substring(0, separatorIndex);
 				rootEntryPath = urlFile.substring(separatorIndex + ResourceUtils.JAR_URL_SEPARATOR.length());
-				jarFile = getJarFile(jarFileUrl);
 			}
 			else {
-				jarFile = new JarFile(urlFile);
 				jarFileUrl = urlFile;
 				rootEntryPath = "";
 			}
-			newJarFile = true;
 		}
 
-		try {
-			if (logger.isDebugEnabled()) {
-				logger.debug("Looking for matching resources in jar file [" + jarFileUrl + "]");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Looking for matching resources in jar file [" + jarFileUrl + "]");
+		}
+		if (!"".equals(rootEntryPath) && !rootEntryPath.endsWith("/")) {
+			// Root entry path must end with slash to allow for proper matching.
+			// The Sun JRE does not return a slash here, but BEA JRockit does.
+			rootEntryPath = rootEntryPath + "/";
+		}
+		Set<Resource> result = new LinkedHashSet<Resource>(8);
+		for (String entryPath : getJarEntryPaths(con, jarFileUrl)) {
+			if (entryPath.startsWith(rootEntryPath)) {
+				String relativePath = entryPath.substring(rootEntryPath.length());
+				if (getPathMatcher().match(subPattern, relativePath)) {
+					result.add(rootDirResource.createRelative(relativePath));
+				}
 			}
-			if (!"".equals(rootEntryPath) && !rootEntryPath.endsWith("/")) {
-				// Root entry path must end with slash to allow for proper matching.
-				// The Sun JRE does not return a slash here, but BEA JRockit does.
-				rootEntryPath = rootEntryPath + "/";
+		}
+		return result;
+	}
+
+	/**
+	 * Return the paths of all entries in the given jar file, from the cache
+	 * if the jar file has not changed since it was last listed.
+	 */
+	private String[] getJarEntryPaths(URLConnection con, String jarFileUrl) throws IOException {
+		File file = (this.cacheJarEntries ? getJarFileForCaching(jarFileUrl) : null);
+		if (file == null) {
+			return readJarEntryPaths(con, jarFileUrl);
+		}
+		long lastModified = file.lastModified();
+		long length = file.length();
+		JarEntryPaths cached = this.jarEntryPathsCache.get(jarFileUrl);
+		if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+			this.jarEntryPathsCacheHitCount.incrementAndGet();
+			return cached.paths;
+		}
+		String[] paths = readJarEntryPaths(con, jarFileUrl);
+		this.jarEntryPathsCache.put(jarFileUrl, new JarEntryPaths(paths, lastModified, length));
+		return paths;
+	}
+
+	/**
+	 * Determine the file in the file system that the given jar file URL
+	 * points to, or <code>null</code> if the jar file is not a plain file.
+	 */
+	private File getJarFileForCaching(String jarFileUrl) {
+		File file;
+		if (jarFileUrl.startsWith(ResourceUtils.FILE_URL_PREFIX)) {
+			try {
+				file = new File(ResourceUtils.toURI(jarFileUrl).getSchemeSpecificPart());
 			}
-			Set<Resource> result = new LinkedHashSet<Resource>(8);
+			catch (URISyntaxException ex) {
+				file = new File(jarFileUrl.substring(ResourceUtils.FILE_URL_PREFIX.length()));
+			}
+		}
+		else if (jarFileUrl.startsWith("/")) {
+			file = new File(jarFileUrl);
+		}
+		else {
+			return null;
+		}
+		return (file.isFile() ? file : null);
+	}
+
+	private String[] readJarEntryPaths(URLConnection con, String jarFileUrl) throws IOException {
+		JarFile jarFile;
+		boolean newJarFile = false;
+		if (con instanceof JarURLConnection) {
+			jarFile = ((JarURLConnection) con).getJarFile();
+		}
+		else {
+			jarFile = getJarFile(jarFileUrl);
+			newJarFile = true;
+		}
+		try {
+			List<String> paths = new ArrayList<String>(jarFile.size());
 			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
-				JarEntry entry = entries.nextElement();
-				String entryPath = entry.getName();
-				if (entryPath.startsWith(rootEntryPath)) {
-					String relativePath = entryPath.substring(rootEntryPath.length());
-					if (getPathMatcher().match(subPattern, relativePath)) {
-						result.add(rootDirResource.createRelative(relativePath));
-					}
-				}
+				paths.add(entries.nextElement().getName());
 			}
-			return result;
+			return paths.toArray(new String[paths.size()]);
 		}
 		finally {
 			// Close jar file, but only if freshly obtained -
@@ -639,6 +830,26 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 	}
 
 
+	/**
+	 * Cached entry paths of a jar file, along with the file attributes
+	 * that the paths are valid for.
+	 */
+	private static class JarEntryPaths {
+
+		private final String[] paths;
+
+		private final long lastModified;
+
+		private final long length;
+
+		public JarEntryPaths(String[] paths, long lastModified, long length) {
+			this.paths = paths;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+
+
 	/**
 	 * Inner delegate class, avoiding a hard JBoss VFS API dependency at runtime.
 	 */
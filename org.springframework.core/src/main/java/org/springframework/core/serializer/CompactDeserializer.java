@@ -0,0 +1,490 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.NestedIOException;
+import org.springframework.core.serializer.CompactFormat.ClassDescriptor;
+import org.springframework.core.serializer.CompactFormat.DescriptorCache;
+import org.springframework.core.serializer.CompactFormat.Input;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Deserializer that reads an object graph written by a {@link CompactSerializer}.
+ *
+ * <p>Each invocation of {@link #deserialize} consumes exactly one frame from the
+ * given stream, so objects written one after another can be read back one at a time.
+ * The input buffer is reused across invocations on the same thread.
+ *
+ * <p>This deserializer is thread-safe.
+ *
+ * @since 3.1.3
+ * @see CompactSerializer
+ */
+public class CompactDeserializer implements Deserializer<Object> {
+
+	/** Buffers that have grown beyond this size are not kept for reuse */
+	private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+	/** Default maximum size of a frame: 16 MB */
+	public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+	private final ClassLoader classLoader;
+
+	private final List<Class<?>> registeredClasses;
+
+	private final DescriptorCache descriptorCache = new DescriptorCache();
+
+	private final ThreadLocal<Input> inputHolder = new ThreadLocal<Input>();
+
+	private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+
+
+	/**
+	 * Create a new CompactDeserializer for the default class loader,
+	 * without registered classes.
+	 */
+	public CompactDeserializer() {
+		this(null);
+	}
+
+	/**
+	 * Create a new CompactDeserializer for the given class loader and registered classes.
+	 * @param classLoader the ClassLoader to resolve classes with
+	 * (<code>null</code> for the default class loader)
+	 * @param registeredClasses the classes registered with the corresponding
+	 * {@link CompactSerializer}, in the same order
+	 */
+	public CompactDeserializer(ClassLoader classLoader, Class<?>... registeredClasses) {
+		this.classLoader = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+		this.registeredClasses = CompactFormat.registeredClasses(registeredClasses);
+	}
+
+
+	/**
+	 * Set the maximum size of a frame to accept, in bytes, as a guard against
+	 * corrupt or malicious frame headers. Default is {@link #DEFAULT_MAX_FRAME_SIZE}.
+	 */
+	public void setMaxFrameSize(int maxFrameSize) {
+		this.maxFrameSize = maxFrameSize;
+	}
+
+	/**
+	 * Return the maximum size of a frame to accept, in bytes.
+	 */
+	public int getMaxFrameSize() {
+		return this.maxFrameSize;
+	}
+
+
+	/**
+	 * Reads the next frame from the input stream and returns the object it contains.
+	 */
+	public Object deserialize(InputStream inputStream) throws IOException {
+		Input input = this.inputHolder.get();
+		if (input == null) {
+			input = new Input(256);
+		}
+		else {
+			// guard against reentrant use, e.g. from within a nested readObject method
+			this.inputHolder.remove();
+		}
+		try {
+			input.readFrame(inputStream, this.maxFrameSize);
+			Object result = new GraphReader(input).readValue();
+			if (!input.isComplete()) {
+				throw new IOException("Unexpected trailing content in serialized object frame");
+			}
+			return result;
+		}
+		catch (ClassCastException ex) {
+			throw new NestedIOException("Corrupt serialized object frame", ex);
+		}
+		catch (IndexOutOfBoundsException ex) {
+			throw new NestedIOException("Corrupt serialized object frame", ex);
+		}
+		catch (NegativeArraySizeException ex) {
+			throw new NestedIOException("Corrupt serialized object frame", ex);
+		}
+		finally {
+			if (input.capacity() <= MAX_REUSED_BUFFER_SIZE) {
+				this.inputHolder.set(input);
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a single object graph, keeping track of the objects and
+	 * classes read so far.
+	 */
+	private class GraphReader {
+
+		private final Input input;
+
+		private final List<Object> handles = new ArrayList<Object>();
+
+		private List<Class<?>> classes;
+
+		private Set<Class<?>> describedClasses;
+
+		public GraphReader(Input input) {
+			this.input = input;
+		}
+
+		public Object readValue() throws IOException {
+			Input input = this.input;
+			int tag = input.readByte();
+			switch (tag) {
+				case CompactFormat.TAG_NULL:
+					return null;
+				case CompactFormat.TAG_TRUE:
+					return Boolean.TRUE;
+				case CompactFormat.TAG_FALSE:
+					return Boolean.FALSE;
+				case CompactFormat.TAG_BYTE:
+					return (byte) input.readByte();
+				case CompactFormat.TAG_SHORT:
+					return (short) input.readVarInt();
+				case CompactFormat.TAG_CHAR:
+					return (char) input.readUnsignedVarInt();
+				case CompactFormat.TAG_INT:
+					return input.readVarInt();
+				case CompactFormat.TAG_LONG:
+					return input.readVarLong();
+				case CompactFormat.TAG_FLOAT:
+					return Float.intBitsToFloat(input.readFixedInt());
+				case CompactFormat.TAG_DOUBLE:
+					return Double.longBitsToDouble(input.readFixedLong());
+				case CompactFormat.TAG_STRING:
+					return input.readString();
+				case CompactFormat.TAG_ENUM:
+					return readEnum();
+				case CompactFormat.TAG_CLASS:
+					return readClassValue();
+				case CompactFormat.TAG_DATE:
+					return new Date(input.readVarLong());
+				case CompactFormat.TAG_BIG_INTEGER:
+					return readBigInteger();
+				case CompactFormat.TAG_BIG_DECIMAL:
+					BigInteger unscaledValue = readBigInteger();
+					return new BigDecimal(unscaledValue, input.readVarInt());
+				case CompactFormat.TAG_REFERENCE:
+					return this.handles.get(input.readUnsignedVarInt());
+				case CompactFormat.TAG_PRIMITIVE_ARRAY:
+					return readPrimitiveArray();
+				case CompactFormat.TAG_OBJECT_ARRAY:
+					return readObjectArray();
+				case CompactFormat.TAG_COLLECTION:
+					return readCollection();
+				case CompactFormat.TAG_MAP:
+					return readMap();
+				case CompactFormat.TAG_OBJECT:
+					return readObject();
+				case CompactFormat.TAG_JAVA:
+					return readJavaSerialized();
+				default:
+					throw new IOException("Invalid type tag " + tag);
+			}
+		}
+
+		private Object readEnum() throws IOException {
+			Class<?> enumType = readClass();
+			int ordinal = this.input.readUnsignedVarInt();
+			Object[] constants = enumType.getEnumConstants();
+			if (constants == null || ordinal < 0 || ordinal >= constants.length) {
+				throw new IOException("Invalid constant " + ordinal + " for enum [" + enumType.getName() + "]");
+			}
+			return constants[ordinal];
+		}
+
+		private Object readPrimitiveArray() throws IOException {
+			Input input = this.input;
+			int handle = reserveHandle();
+			Class<?> componentType = CompactFormat.getPrimitiveType(input.readByte());
+			int length = input.readLength(componentType == double.class ? 8 : (componentType == float.class ? 4 : 1));
+			Object array;
+			if (componentType == byte.class) {
+				array = input.readBytes(length);
+			}
+			else if (componentType == int.class) {
+				int[] ints = new int[length];
+				for (int i = 0; i < length; i++) {
+					ints[i] = input.readVarInt();
+				}
+				array = ints;
+			}
+			else if (componentType == long.class) {
+				long[] longs = new long[length];
+				for (int i = 0; i < length; i++) {
+					longs[i] = input.readVarLong();
+				}
+				array = longs;
+			}
+			else if (componentType == boolean.class) {
+				boolean[] booleans = new boolean[length];
+				for (int i = 0; i < length; i++) {
+					booleans[i] = (input.readByte() != 0);
+				}
+				array = booleans;
+			}
+			else if (componentType == short.class) {
+				short[] shorts = new short[length];
+				for (int i = 0; i < length; i++) {
+					shorts[i] = (short) input.readVarInt();
+				}
+				array = shorts;
+			}
+			else if (componentType == char.class) {
+				char[] chars = new char[length];
+				for (int i = 0; i < length; i++) {
+					chars[i] = (char) input.readUnsignedVarInt();
+				}
+				array = chars;
+			}
+			else if (componentType == float.class) {
+				float[] floats = new float[length];
+				for (int i = 0; i < length; i++) {
+					floats[i] = Float.intBitsToFloat(input.readFixedInt());
+				}
+				array = floats;
+			}
+			else {
+				double[] doubles = new double[length];
+				for (int i = 0; i < length; i++) {
+					doubles[i] = Double.longBitsToDouble(input.readFixedLong());
+				}
+				array = doubles;
+			}
+			this.handles.set(handle, array);
+			return array;
+		}
+
+		private Object readObjectArray() throws IOException {
+			int handle = reserveHandle();
+			Class<?> componentType = readClass();
+			int length = this.input.readLength(1);
+			Object[] array = (Object[]) Array.newInstance(componentType, length);
+			this.handles.set(handle, array);
+			for (int i = 0; i < length; i++) {
+				array[i] = readValue();
+			}
+			return array;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object readCollection() throws IOException {
+			int handle = reserveHandle();
+			Class<?> type = readClass();
+			if (!CompactSerializer.isSupportedCollectionType(type)) {
+				throw new IOException("Unsupported collection type [" + type.getName() + "]");
+			}
+			int size = this.input.readLength(1);
+			Collection<Object> collection = (Collection<Object>) instantiate(type);
+			this.handles.set(handle, collection);
+			for (int i = 0; i < size; i++) {
+				collection.add(readValue());
+			}
+			return collection;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object readMap() throws IOException {
+			int handle = reserveHandle();
+			Class<?> type = readClass();
+			if (!CompactSerializer.isSupportedMapType(type)) {
+				throw new IOException("Unsupported map type [" + type.getName() + "]");
+			}
+			int size = this.input.readLength(2);
+			Map<Object, Object> map = (Map<Object, Object>) instantiate(type);
+			this.handles.set(handle, map);
+			for (int i = 0; i < size; i++) {
+				Object key = readValue();
+				map.put(key, readValue());
+			}
+			return map;
+		}
+
+		private Object readObject() throws IOException {
+			Input input = this.input;
+			int handle = reserveHandle();
+			Class<?> type = readClass();
+			ClassDescriptor descriptor = descriptorCache.getDescriptor(type);
+			if (!descriptor.isFieldSerializable()) {
+				throw new IOException("Class [" + type.getName() + "] cannot be read field by field");
+			}
+			if (this.describedClasses == null) {
+				this.describedClasses = new HashSet<Class<?>>(8);
+			}
+			if (this.describedClasses.add(type)) {
+				int layoutFingerprint = input.readFixedInt();
+				if (layoutFingerprint != descriptor.getLayoutFingerprint()) {
+					throw new InvalidClassException(type.getName(), "local class field layout (fingerprint " +
+							Integer.toHexString(descriptor.getLayoutFingerprint()) +
+							") is incompatible with serialized field layout (fingerprint " +
+							Integer.toHexString(layoutFingerprint) + ")");
+				}
+			}
+			Object object = instantiate(descriptor);
+			this.handles.set(handle, object);
+			Field[] fields = descriptor.getFields();
+			int[] fieldTags = descriptor.getFieldTags();
+			try {
+				for (int i = 0; i < fields.length; i++) {
+					Field field = fields[i];
+					switch (fieldTags[i]) {
+						case CompactFormat.TAG_INT:
+							field.setInt(object, input.readVarInt());
+							break;
+						case CompactFormat.TAG_LONG:
+							field.setLong(object, input.readVarLong());
+							break;
+						case CompactFormat.TAG_TRUE:
+							field.setBoolean(object, input.readByte() != 0);
+							break;
+						case CompactFormat.TAG_DOUBLE:
+							field.setDouble(object, Double.longBitsToDouble(input.readFixedLong()));
+							break;
+						case CompactFormat.TAG_FLOAT:
+							field.setFloat(object, Float.intBitsToFloat(input.readFixedInt()));
+							break;
+						case CompactFormat.TAG_SHORT:
+							field.setShort(object, (short) input.readVarInt());
+							break;
+						case CompactFormat.TAG_BYTE:
+							field.setByte(object, (byte) input.readByte());
+							break;
+						case CompactFormat.TAG_CHAR:
+							field.setChar(object, (char) input.readUnsignedVarInt());
+							break;
+						default:
+							field.set(object, readValue());
+					}
+				}
+			}
+			catch (IllegalAccessException ex) {
+				throw new NestedIOException("Could not set field of [" + type.getName() + "]", ex);
+			}
+			catch (IllegalArgumentException ex) {
+				throw new NestedIOException("Could not set field of [" + type.getName() + "]", ex);
+			}
+			return object;
+		}
+
+		private Object readJavaSerialized() throws IOException {
+			int handle = reserveHandle();
+			int length = this.input.readLength(1);
+			ObjectInputStream objectInputStream = new ConfigurableObjectInputStream(
+					new ByteArrayInputStream(this.input.readBytes(length)), classLoader);
+			try {
+				Object object = objectInputStream.readObject();
+				this.handles.set(handle, object);
+				return object;
+			}
+			catch (ClassNotFoundException ex) {
+				throw new NestedIOException("Failed to deserialize object type", ex);
+			}
+		}
+
+		private BigInteger readBigInteger() throws IOException {
+			int length = this.input.readLength(1);
+			return new BigInteger(this.input.readBytes(length));
+		}
+
+		private Class<?> readClassValue() throws IOException {
+			int tag = this.input.readByte();
+			if (tag == CompactFormat.TAG_CLASS) {
+				return readClass();
+			}
+			if (tag == CompactFormat.TAG_NULL) {
+				return void.class;
+			}
+			return CompactFormat.getPrimitiveType(tag);
+		}
+
+		/**
+		 * Read a class reference as written by the corresponding serializer.
+		 */
+		private Class<?> readClass() throws IOException {
+			int id = this.input.readUnsignedVarInt();
+			if (id == CompactFormat.NEW_CLASS) {
+				String className = this.input.readString();
+				Class<?> clazz;
+				try {
+					clazz = ClassUtils.forName(className, classLoader);
+				}
+				catch (ClassNotFoundException ex) {
+					throw new NestedIOException("Failed to deserialize object type", ex);
+				}
+				if (this.classes == null) {
+					this.classes = new ArrayList<Class<?>>(8);
+				}
+				this.classes.add(clazz);
+				return clazz;
+			}
+			if (id <= registeredClasses.size()) {
+				return registeredClasses.get(id - 1);
+			}
+			int index = id - registeredClasses.size() - 1;
+			if (this.classes == null || index >= this.classes.size()) {
+				throw new IOException("Invalid class reference " + id);
+			}
+			return this.classes.get(index);
+		}
+
+		private int reserveHandle() {
+			this.handles.add(null);
+			return this.handles.size() - 1;
+		}
+
+		private Object instantiate(Class<?> type) throws IOException {
+			try {
+				return type.newInstance();
+			}
+			catch (Exception ex) {
+				throw new NestedIOException("Could not instantiate [" + type.getName() + "]", ex);
+			}
+		}
+
+		private Object instantiate(ClassDescriptor descriptor) throws IOException {
+			try {
+				return descriptor.newInstance();
+			}
+			catch (Exception ex) {
+				throw new NestedIOException("Could not instantiate deserialized object", ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,626 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.serializer;
+
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Constants and shared infrastructure for the binary format written by
+ * {@link CompactSerializer} and read by {@link CompactDeserializer}.
+ *
+ * <p>Every serialized object is written as one frame: the {@link #MAGIC} byte,
+ * the payload length as an unsigned variable-length integer, and the payload.
+ * The payload is a single tagged value; see the <code>TAG_*</code> constants.
+ * Integral numbers are written as zigzag-encoded variable-length integers.
+ *
+ * <p>Objects written field by field carry a fingerprint of the field layout of
+ * their class (field names and types, in order) on the first occurrence of the
+ * class within a frame, so that a class that has changed incompatibly in the
+ * meantime is rejected rather than having its fields read into the wrong slots.
+ *
+ * @since 3.1.3
+ */
+abstract class CompactFormat {
+
+	static final int MAGIC = 0xCA;
+
+	static final int TAG_NULL = 0;
+
+	static final int TAG_TRUE = 1;
+
+	static final int TAG_FALSE = 2;
+
+	static final int TAG_BYTE = 3;
+
+	static final int TAG_SHORT = 4;
+
+	static final int TAG_CHAR = 5;
+
+	static final int TAG_INT = 6;
+
+	static final int TAG_LONG = 7;
+
+	static final int TAG_FLOAT = 8;
+
+	static final int TAG_DOUBLE = 9;
+
+	static final int TAG_STRING = 10;
+
+	static final int TAG_ENUM = 11;
+
+	static final int TAG_CLASS = 12;
+
+	static final int TAG_DATE = 13;
+
+	static final int TAG_BIG_INTEGER = 14;
+
+	static final int TAG_BIG_DECIMAL = 15;
+
+	/** Back-reference to an object written earlier in the same frame */
+	static final int TAG_REFERENCE = 16;
+
+	static final int TAG_PRIMITIVE_ARRAY = 17;
+
+	static final int TAG_OBJECT_ARRAY = 18;
+
+	static final int TAG_COLLECTION = 19;
+
+	static final int TAG_MAP = 20;
+
+	/** Serializable object written field by field */
+	static final int TAG_OBJECT = 21;
+
+	/** Object written with standard Java Serialization */
+	static final int TAG_JAVA = 22;
+
+	/** Class reference code that introduces a class by name */
+	static final int NEW_CLASS = 0;
+
+
+	private static final Class<?>[] PRIMITIVE_TYPES = {boolean.class, byte.class, short.class, char.class,
+			int.class, long.class, float.class, double.class};
+
+	private static final int[] PRIMITIVE_TAGS = {TAG_TRUE, TAG_BYTE, TAG_SHORT, TAG_CHAR,
+			TAG_INT, TAG_LONG, TAG_FLOAT, TAG_DOUBLE};
+
+	private static final Map<Class<?>, Integer> primitiveTypeTags = new HashMap<Class<?>, Integer>(16);
+
+	static {
+		for (int i = 0; i < PRIMITIVE_TYPES.length; i++) {
+			primitiveTypeTags.put(PRIMITIVE_TYPES[i], PRIMITIVE_TAGS[i]);
+		}
+	}
+
+
+	/**
+	 * Return the tag for the given primitive type, or -1 if the type is not primitive.
+	 * {@link #TAG_TRUE} stands for <code>boolean</code>.
+	 */
+	static int getPrimitiveTag(Class<?> type) {
+		Integer tag = primitiveTypeTags.get(type);
+		return (tag != null ? tag : -1);
+	}
+
+	/**
+	 * Return the primitive type for the given tag.
+	 * @see #getPrimitiveTag
+	 */
+	static Class<?> getPrimitiveType(int tag) throws IOException {
+		for (int i = 0; i < PRIMITIVE_TAGS.length; i++) {
+			if (PRIMITIVE_TAGS[i] == tag) {
+				return PRIMITIVE_TYPES[i];
+			}
+		}
+		throw new IOException("Invalid primitive type tag " + tag);
+	}
+
+	/**
+	 * Validate the given classes to register and return them as list.
+	 */
+	static List<Class<?>> registeredClasses(Class<?>... classes) {
+		List<Class<?>> result = new ArrayList<Class<?>>(classes.length);
+		for (Class<?> clazz : classes) {
+			if (result.contains(clazz)) {
+				throw new IllegalArgumentException("Class [" + clazz.getName() + "] registered twice");
+			}
+			result.add(clazz);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Cache of {@link ClassDescriptor ClassDescriptors}, held per serializer
+	 * or deserializer instance.
+	 */
+	static class DescriptorCache {
+
+		private final Map<Class<?>, ClassDescriptor> descriptors = new ConcurrentHashMap<Class<?>, ClassDescriptor>(64);
+
+		public ClassDescriptor getDescriptor(Class<?> clazz) {
+			ClassDescriptor descriptor = this.descriptors.get(clazz);
+			if (descriptor == null) {
+				descriptor = new ClassDescriptor(clazz);
+				this.descriptors.put(clazz, descriptor);
+			}
+			return descriptor;
+		}
+	}
+
+
+	/**
+	 * Describes how instances of a given class are written: field by field, if the
+	 * class is Serializable, has a no-arg constructor and does not customize its
+	 * serialized form; with standard Java Serialization otherwise.
+	 */
+	static class ClassDescriptor {
+
+		private static final Comparator<Field> FIELD_NAME_COMPARATOR = new Comparator<Field>() {
+			public int compare(Field field1, Field field2) {
+				return field1.getName().compareTo(field2.getName());
+			}
+		};
+
+		private final Constructor<?> constructor;
+
+		private final Field[] fields;
+
+		private final int[] fieldTags;
+
+		private final int layoutFingerprint;
+
+		public ClassDescriptor(Class<?> clazz) {
+			Constructor<?> constructor = null;
+			if (isFieldSerializable(clazz)) {
+				try {
+					constructor = clazz.getDeclaredConstructor();
+					ReflectionUtils.makeAccessible(constructor);
+				}
+				catch (NoSuchMethodException ex) {
+					// fall back to Java Serialization
+				}
+			}
+			this.constructor = constructor;
+			if (constructor == null) {
+				this.fields = null;
+				this.fieldTags = null;
+				this.layoutFingerprint = 0;
+				return;
+			}
+
+			LinkedList<Field> fields = new LinkedList<Field>();
+			for (Class<?> current = clazz; current != null && Serializable.class.isAssignableFrom(current);
+					current = current.getSuperclass()) {
+				Field[] declaredFields = current.getDeclaredFields();
+				Arrays.sort(declaredFields, FIELD_NAME_COMPARATOR);
+				for (int i = declaredFields.length - 1; i >= 0; i--) {
+					Field field = declaredFields[i];
+					int modifiers = field.getModifiers();
+					if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+						ReflectionUtils.makeAccessible(field);
+						fields.addFirst(field);
+					}
+				}
+			}
+			this.fields = fields.toArray(new Field[fields.size()]);
+			this.fieldTags = new int[this.fields.length];
+			for (int i = 0; i < this.fields.length; i++) {
+				this.fieldTags[i] = getPrimitiveTag(this.fields[i].getType());
+			}
+			this.layoutFingerprint = calculateLayoutFingerprint(this.fields);
+		}
+
+		/**
+		 * Calculate a 32-bit FNV-1a hash of the names and types of the given fields.
+		 */
+		private static int calculateLayoutFingerprint(Field[] fields) {
+			int hash = 0x811C9DC5;
+			for (Field field : fields) {
+				String entry = field.getName() + ':' + field.getType().getName() + ';';
+				for (int i = 0; i < entry.length(); i++) {
+					hash = (hash ^ entry.charAt(i)) * 0x01000193;
+				}
+			}
+			return hash;
+		}
+
+		private static boolean isFieldSerializable(Class<?> clazz) {
+			if (!Serializable.class.isAssignableFrom(clazz) || Externalizable.class.isAssignableFrom(clazz) ||
+					Proxy.isProxyClass(clazz) || clazz.isAnonymousClass() || clazz.isLocalClass() ||
+					(clazz.isMemberClass() && !Modifier.isStatic(clazz.getModifiers()))) {
+				return false;
+			}
+			for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+				if (hasMethod(current, "writeReplace") || hasMethod(current, "readResolve")) {
+					return false;
+				}
+				if (Serializable.class.isAssignableFrom(current) &&
+						(hasMethod(current, "writeObject", java.io.ObjectOutputStream.class) ||
+						hasMethod(current, "readObject", java.io.ObjectInputStream.class) ||
+						hasMethod(current, "readObjectNoData") || hasField(current, "serialPersistentFields"))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean hasMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+			try {
+				clazz.getDeclaredMethod(name, parameterTypes);
+				return true;
+			}
+			catch (NoSuchMethodException ex) {
+				return false;
+			}
+		}
+
+		private static boolean hasField(Class<?> clazz, String name) {
+			try {
+				clazz.getDeclaredField(name);
+				return true;
+			}
+			catch (NoSuchFieldException ex) {
+				return false;
+			}
+		}
+
+		/**
+		 * Return whether instances are written field by field.
+		 */
+		public boolean isFieldSerializable() {
+			return (this.constructor != null);
+		}
+
+		public Object newInstance() throws Exception {
+			return this.constructor.newInstance();
+		}
+
+		public Field[] getFields() {
+			return this.fields;
+		}
+
+		/**
+		 * Return the primitive type tag for each field, or -1 for reference fields.
+		 */
+		public int[] getFieldTags() {
+			return this.fieldTags;
+		}
+
+		/**
+		 * Return the fingerprint of the field layout, to be compared between
+		 * the writing and the reading side.
+		 */
+		public int getLayoutFingerprint() {
+			return this.layoutFingerprint;
+		}
+	}
+
+
+	/**
+	 * Growable byte buffer with variable-length integer encoding,
+	 * meant to be reused for consecutive frames.
+	 */
+	static class Output {
+
+		private byte[] buffer;
+
+		private int position;
+
+		public Output(int initialCapacity) {
+			this.buffer = new byte[initialCapacity];
+		}
+
+		public void reset() {
+			this.position = 0;
+		}
+
+		public int size() {
+			return this.position;
+		}
+
+		public int capacity() {
+			return this.buffer.length;
+		}
+
+		private void ensureCapacity(int additional) {
+			int required = this.position + additional;
+			if (required > this.buffer.length) {
+				byte[] newBuffer = new byte[Math.max(required, this.buffer.length * 2)];
+				System.arraycopy(this.buffer, 0, newBuffer, 0, this.position);
+				this.buffer = newBuffer;
+			}
+		}
+
+		public void writeByte(int value) {
+			ensureCapacity(1);
+			this.buffer[this.position++] = (byte) value;
+		}
+
+		public void writeBytes(byte[] bytes) {
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+			this.position += bytes.length;
+		}
+
+		public void writeUnsignedVarInt(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.buffer[this.position++] = (byte) value;
+		}
+
+		public void writeVarInt(int value) {
+			writeUnsignedVarInt((value << 1) ^ (value >> 31));
+		}
+
+		public void writeVarLong(long value) {
+			ensureCapacity(10);
+			value = (value << 1) ^ (value >> 63);
+			while ((value & ~0x7FL) != 0) {
+				this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.buffer[this.position++] = (byte) value;
+		}
+
+		public void writeFixedInt(int value) {
+			ensureCapacity(4);
+			this.buffer[this.position++] = (byte) (value >>> 24);
+			this.buffer[this.position++] = (byte) (value >>> 16);
+			this.buffer[this.position++] = (byte) (value >>> 8);
+			this.buffer[this.position++] = (byte) value;
+		}
+
+		public void writeFixedLong(long value) {
+			writeFixedInt((int) (value >>> 32));
+			writeFixedInt((int) value);
+		}
+
+		/**
+		 * Write the given String as its length in chars followed by
+		 * one to three bytes per char.
+		 */
+		public void writeString(String value) {
+			int length = value.length();
+			writeUnsignedVarInt(length);
+			ensureCapacity(length * 3);
+			byte[] buffer = this.buffer;
+			int position = this.position;
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if (c > 0 && c < 0x80) {
+					buffer[position++] = (byte) c;
+				}
+				else if (c < 0x800) {
+					buffer[position++] = (byte) (0xC0 | (c >> 6));
+					buffer[position++] = (byte) (0x80 | (c & 0x3F));
+				}
+				else {
+					buffer[position++] = (byte) (0xE0 | (c >> 12));
+					buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					buffer[position++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+			this.position = position;
+		}
+
+		public void writeTo(OutputStream outputStream) throws IOException {
+			outputStream.write(this.buffer, 0, this.position);
+		}
+	}
+
+
+	/**
+	 * Reader for a frame payload that has been read into a byte array.
+	 */
+	static class Input {
+
+		private byte[] buffer;
+
+		private int position;
+
+		private int limit;
+
+		public Input(int initialCapacity) {
+			this.buffer = new byte[initialCapacity];
+		}
+
+		public int capacity() {
+			return this.buffer.length;
+		}
+
+		/**
+		 * Read the next frame from the given stream into this buffer,
+		 * consuming exactly the bytes of that frame.
+		 * @param inputStream the stream to read from
+		 * @param maxFrameSize the maximum payload length to accept
+		 */
+		public void readFrame(InputStream inputStream, int maxFrameSize) throws IOException {
+			int magic = inputStream.read();
+			if (magic == -1) {
+				throw new EOFException("No serialized object found in stream");
+			}
+			if (magic != MAGIC) {
+				throw new IOException("Invalid stream header: expected 0x" + Integer.toHexString(MAGIC) +
+						" but found 0x" + Integer.toHexString(magic));
+			}
+			int length = 0;
+			for (int shift = 0; ; shift += 7) {
+				int b = inputStream.read();
+				if (b == -1) {
+					throw new EOFException("Unexpected end of stream in frame header");
+				}
+				if (shift == 28 && (b & 0xF0) != 0) {
+					throw new IOException("Malformed frame length");
+				}
+				length |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					break;
+				}
+			}
+			if (length < 0 || length > maxFrameSize) {
+				throw new IOException("Invalid frame length " + (length & 0xFFFFFFFFL) +
+						": maximum frame size is " + maxFrameSize + " bytes");
+			}
+			int offset = 0;
+			while (offset < length) {
+				if (offset == this.buffer.length) {
+					// Grow as the content actually arrives, rather than trusting the header upfront.
+					byte[] newBuffer = new byte[(int) Math.min(length, this.buffer.length * 2L)];
+					System.arraycopy(this.buffer, 0, newBuffer, 0, offset);
+					this.buffer = newBuffer;
+				}
+				int count = inputStream.read(this.buffer, offset, Math.min(length, this.buffer.length) - offset);
+				if (count == -1) {
+					throw new EOFException("Unexpected end of stream: frame of " + length +
+							" bytes, found " + offset + " bytes");
+				}
+				offset += count;
+			}
+			this.position = 0;
+			this.limit = length;
+		}
+
+		private void require(int count) throws IOException {
+			if (count < 0 || count > this.limit - this.position) {
+				throw new EOFException("Unexpected end of frame");
+			}
+		}
+
+		public int readByte() throws IOException {
+			require(1);
+			return this.buffer[this.position++];
+		}
+
+		public byte[] readBytes(int length) throws IOException {
+			require(length);
+			byte[] bytes = new byte[length];
+			System.arraycopy(this.buffer, this.position, bytes, 0, length);
+			this.position += length;
+			return bytes;
+		}
+
+		public int readUnsignedVarInt() throws IOException {
+			int result = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = readByte();
+				if (shift == 28 && (b & 0xF0) != 0) {
+					// more than 32 bits
+					break;
+				}
+				result |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+			}
+			throw new IOException("Malformed variable-length int");
+		}
+
+		public int readVarInt() throws IOException {
+			int value = readUnsignedVarInt();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		public long readVarLong() throws IOException {
+			long result = 0;
+			for (int shift = 0; shift < 70; shift += 7) {
+				int b = readByte();
+				result |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return (result >>> 1) ^ -(result & 1);
+				}
+			}
+			throw new IOException("Malformed variable-length long");
+		}
+
+		public int readFixedInt() throws IOException {
+			require(4);
+			byte[] buffer = this.buffer;
+			int position = this.position;
+			this.position += 4;
+			return ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16) |
+					((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+		}
+
+		public long readFixedLong() throws IOException {
+			return ((long) readFixedInt() << 32) | (readFixedInt() & 0xFFFFFFFFL);
+		}
+
+		/**
+		 * Read a length or element count, checking it against the remaining
+		 * content of the frame.
+		 * @param minBytesPerElement the minimum number of bytes that each
+		 * element takes up in the frame
+		 */
+		public int readLength(int minBytesPerElement) throws IOException {
+			int length = readUnsignedVarInt();
+			if (length < 0 || length > (this.limit - this.position) / minBytesPerElement) {
+				throw new IOException("Invalid length " + (length & 0xFFFFFFFFL) + ": only " +
+						(this.limit - this.position) + " bytes left in frame");
+			}
+			return length;
+		}
+
+		public String readString() throws IOException {
+			int length = readLength(1);
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				int b = readByte() & 0xFF;
+				if (b < 0x80) {
+					chars[i] = (char) b;
+				}
+				else if ((b & 0xE0) == 0xC0) {
+					chars[i] = (char) (((b & 0x1F) << 6) | (readByte() & 0x3F));
+				}
+				else {
+					int b2 = readByte() & 0x3F;
+					chars[i] = (char) (((b & 0x0F) << 12) | (b2 << 6) | (readByte() & 0x3F));
+				}
+			}
+			return new String(chars);
+		}
+
+		/**
+		 * Return whether the whole frame has been consumed.
+		 */
+		public boolean isComplete() {
+			return (this.position == this.limit);
+		}
+	}
+
+}
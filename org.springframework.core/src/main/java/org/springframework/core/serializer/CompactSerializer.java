@@ -0,0 +1,472 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.core.NestedIOException;
+import org.springframework.core.serializer.CompactFormat.ClassDescriptor;
+import org.springframework.core.serializer.CompactFormat.DescriptorCache;
+import org.springframework.core.serializer.CompactFormat.Output;
+
+/**
+ * Serializer that writes an object graph in a compact tagged binary format,
+ * as an alternative to the standard Java Serialization of {@link DefaultSerializer}.
+ * Objects need to be readable by a {@link CompactDeserializer} with the same
+ * registered classes.
+ *
+ * <p>Strings, primitive wrappers, enums, dates, big numbers, arrays and the common
+ * JDK collection types are written in a dedicated form; primitive values are written
+ * as variable-length integers without boxing. Other {@link Serializable} objects are
+ * written field by field, including all non-static, non-transient fields of their
+ * Serializable class hierarchy, provided that they have a no-arg constructor (of any
+ * visibility) to be recreated with. Objects that customize their serialized form
+ * (through <code>writeObject</code>, <code>writeReplace</code>, <code>readResolve</code>,
+ * {@link java.io.Externalizable} etc.) or do not have a no-arg constructor are written
+ * using standard Java Serialization, embedded in the binary format.
+ *
+ * <p>Shared references and cycles within a graph are preserved. Classes are written
+ * by name on their first occurrence within each serialized object; classes that are
+ * {@linkplain #CompactSerializer(Class...) registered} up front are written as a
+ * numeric id instead.
+ *
+ * <p>Each object is written as a self-contained length-prefixed frame, so several
+ * objects may be written to the same stream and read back one at a time. The output
+ * buffer is reused across invocations on the same thread.
+ *
+ * <p>This serializer is thread-safe.
+ *
+ * @since 3.1.3
+ * @see CompactDeserializer
+ */
+public class CompactSerializer implements Serializer<Object> {
+
+	/** Buffers that have grown beyond this size are not kept for reuse */
+	private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+	private final Map<Class<?>, Integer> registeredClassIds = new HashMap<Class<?>, Integer>();
+
+	private final int firstClassId;
+
+	private final DescriptorCache descriptorCache = new DescriptorCache();
+
+	private final ThreadLocal<Output> outputHolder = new ThreadLocal<Output>();
+
+
+	/**
+	 * Create a new CompactSerializer without registered classes.
+	 */
+	public CompactSerializer() {
+		this(new Class<?>[0]);
+	}
+
+	/**
+	 * Create a new CompactSerializer for the given registered classes.
+	 * @param registeredClasses classes to write as numeric ids rather than by name;
+	 * the corresponding {@link CompactDeserializer} needs to register the same
+	 * classes in the same order
+	 */
+	public CompactSerializer(Class<?>... registeredClasses) {
+		List<Class<?>> classes = CompactFormat.registeredClasses(registeredClasses);
+		for (int i = 0; i < classes.size(); i++) {
+			this.registeredClassIds.put(classes.get(i), i + 1);
+		}
+		this.firstClassId = classes.size() + 1;
+	}
+
+
+	/**
+	 * Writes the source object to an output stream as a single frame.
+	 * The source object must implement {@link Serializable}.
+	 */
+	public void serialize(Object object, OutputStream outputStream) throws IOException {
+		if (!(object instanceof Serializable)) {
+			throw new IllegalArgumentException(getClass().getSimpleName() + " requires a Serializable payload " +
+					"but received an object of type [" + object.getClass().getName() + "]");
+		}
+		Output output = this.outputHolder.get();
+		if (output == null) {
+			output = new Output(256);
+		}
+		else {
+			// guard against reentrant use, e.g. from within a nested writeObject method
+			this.outputHolder.remove();
+		}
+		try {
+			output.reset();
+			new GraphWriter(output).writeValue(object);
+			int length = output.size();
+			int header = 1;
+			for (int value = length; (value & ~0x7F) != 0; value >>>= 7) {
+				header++;
+			}
+			byte[] frameHeader = new byte[header + 1];
+			frameHeader[0] = (byte) CompactFormat.MAGIC;
+			for (int i = 1, value = length; i <= header; i++, value >>>= 7) {
+				frameHeader[i] = (byte) ((i < header ? 0x80 : 0) | (value & 0x7F));
+			}
+			outputStream.write(frameHeader);
+			output.writeTo(outputStream);
+		}
+		finally {
+			if (output.capacity() <= MAX_REUSED_BUFFER_SIZE) {
+				this.outputHolder.set(output);
+			}
+		}
+	}
+
+
+	/**
+	 * Writes a single object graph, keeping track of the objects and
+	 * classes written so far.
+	 */
+	private class GraphWriter {
+
+		private final Output output;
+
+		private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+
+		private Map<Class<?>, Integer> classIds;
+
+		private int nextClassId = firstClassId;
+
+		private Set<Class<?>> describedClasses;
+
+		public GraphWriter(Output output) {
+			this.output = output;
+		}
+
+		public void writeValue(Object value) throws IOException {
+			Output output = this.output;
+			if (value == null) {
+				output.writeByte(CompactFormat.TAG_NULL);
+				return;
+			}
+			Class<?> type = value.getClass();
+			if (type == String.class) {
+				output.writeByte(CompactFormat.TAG_STRING);
+				output.writeString((String) value);
+			}
+			else if (type == Integer.class) {
+				output.writeByte(CompactFormat.TAG_INT);
+				output.writeVarInt((Integer) value);
+			}
+			else if (type == Long.class) {
+				output.writeByte(CompactFormat.TAG_LONG);
+				output.writeVarLong((Long) value);
+			}
+			else if (type == Boolean.class) {
+				output.writeByte((Boolean) value ? CompactFormat.TAG_TRUE : CompactFormat.TAG_FALSE);
+			}
+			else if (type == Double.class) {
+				output.writeByte(CompactFormat.TAG_DOUBLE);
+				output.writeFixedLong(Double.doubleToLongBits((Double) value));
+			}
+			else if (type == Float.class) {
+				output.writeByte(CompactFormat.TAG_FLOAT);
+				output.writeFixedInt(Float.floatToIntBits((Float) value));
+			}
+			else if (type == Short.class) {
+				output.writeByte(CompactFormat.TAG_SHORT);
+				output.writeVarInt((Short) value);
+			}
+			else if (type == Byte.class) {
+				output.writeByte(CompactFormat.TAG_BYTE);
+				output.writeByte((Byte) value);
+			}
+			else if (type == Character.class) {
+				output.writeByte(CompactFormat.TAG_CHAR);
+				output.writeUnsignedVarInt((Character) value);
+			}
+			else if (value instanceof Enum) {
+				output.writeByte(CompactFormat.TAG_ENUM);
+				writeClass(((Enum<?>) value).getDeclaringClass());
+				output.writeUnsignedVarInt(((Enum<?>) value).ordinal());
+			}
+			else if (type == Class.class) {
+				output.writeByte(CompactFormat.TAG_CLASS);
+				writeClassValue((Class<?>) value);
+			}
+			else if (type == Date.class) {
+				output.writeByte(CompactFormat.TAG_DATE);
+				output.writeVarLong(((Date) value).getTime());
+			}
+			else if (type == BigInteger.class) {
+				output.writeByte(CompactFormat.TAG_BIG_INTEGER);
+				writeBigInteger((BigInteger) value);
+			}
+			else if (type == BigDecimal.class) {
+				output.writeByte(CompactFormat.TAG_BIG_DECIMAL);
+				writeBigInteger(((BigDecimal) value).unscaledValue());
+				output.writeVarInt(((BigDecimal) value).scale());
+			}
+			else {
+				Integer handle = this.handles.get(value);
+				if (handle != null) {
+					output.writeByte(CompactFormat.TAG_REFERENCE);
+					output.writeUnsignedVarInt(handle);
+					return;
+				}
+				this.handles.put(value, this.handles.size());
+				if (type.isArray()) {
+					writeArray(value, type.getComponentType());
+				}
+				else if (isSupportedCollectionType(type) && hasNaturalOrder(value)) {
+					output.writeByte(CompactFormat.TAG_COLLECTION);
+					writeClass(type);
+					Collection<?> collection = (Collection<?>) value;
+					output.writeUnsignedVarInt(collection.size());
+					for (Object element : collection) {
+						writeValue(element);
+					}
+				}
+				else if (isSupportedMapType(type) && hasNaturalOrder(value)) {
+					output.writeByte(CompactFormat.TAG_MAP);
+					writeClass(type);
+					Map<?, ?> map = (Map<?, ?>) value;
+					output.writeUnsignedVarInt(map.size());
+					for (Map.Entry<?, ?> entry : map.entrySet()) {
+						writeValue(entry.getKey());
+						writeValue(entry.getValue());
+					}
+				}
+				else {
+					if (!(value instanceof Serializable)) {
+						throw new NotSerializableException(type.getName());
+					}
+					ClassDescriptor descriptor = descriptorCache.getDescriptor(type);
+					if (descriptor.isFieldSerializable()) {
+						output.writeByte(CompactFormat.TAG_OBJECT);
+						writeClass(type);
+						if (this.describedClasses == null) {
+							this.describedClasses = new HashSet<Class<?>>(8);
+						}
+						if (this.describedClasses.add(type)) {
+							output.writeFixedInt(descriptor.getLayoutFingerprint());
+						}
+						writeFields(value, descriptor);
+					}
+					else {
+						output.writeByte(CompactFormat.TAG_JAVA);
+						writeJavaSerialized(value);
+					}
+				}
+			}
+		}
+
+		private void writeArray(Object array, Class<?> componentType) throws IOException {
+			Output output = this.output;
+			int length = Array.getLength(array);
+			int primitiveTag = CompactFormat.getPrimitiveTag(componentType);
+			if (primitiveTag == -1) {
+				output.writeByte(CompactFormat.TAG_OBJECT_ARRAY);
+				writeClass(componentType);
+				output.writeUnsignedVarInt(length);
+				Object[] objects = (Object[]) array;
+				for (Object element : objects) {
+					writeValue(element);
+				}
+				return;
+			}
+			output.writeByte(CompactFormat.TAG_PRIMITIVE_ARRAY);
+			output.writeByte(primitiveTag);
+			output.writeUnsignedVarInt(length);
+			switch (primitiveTag) {
+				case CompactFormat.TAG_BYTE:
+					output.writeBytes((byte[]) array);
+					break;
+				case CompactFormat.TAG_INT:
+					for (int element : (int[]) array) {
+						output.writeVarInt(element);
+					}
+					break;
+				case CompactFormat.TAG_LONG:
+					for (long element : (long[]) array) {
+						output.writeVarLong(element);
+					}
+					break;
+				case CompactFormat.TAG_TRUE:
+					for (boolean element : (boolean[]) array) {
+						output.writeByte(element ? 1 : 0);
+					}
+					break;
+				case CompactFormat.TAG_SHORT:
+					for (short element : (short[]) array) {
+						output.writeVarInt(element);
+					}
+					break;
+				case CompactFormat.TAG_CHAR:
+					for (char element : (char[]) array) {
+						output.writeUnsignedVarInt(element);
+					}
+					break;
+				case CompactFormat.TAG_FLOAT:
+					for (float element : (float[]) array) {
+						output.writeFixedInt(Float.floatToIntBits(element));
+					}
+					break;
+				case CompactFormat.TAG_DOUBLE:
+					for (double element : (double[]) array) {
+						output.writeFixedLong(Double.doubleToLongBits(element));
+					}
+					break;
+			}
+		}
+
+		private void writeFields(Object object, ClassDescriptor descriptor) throws IOException {
+			Output output = this.output;
+			Field[] fields = descriptor.getFields();
+			int[] fieldTags = descriptor.getFieldTags();
+			try {
+				for (int i = 0; i < fields.length; i++) {
+					Field field = fields[i];
+					switch (fieldTags[i]) {
+						case CompactFormat.TAG_INT:
+							output.writeVarInt(field.getInt(object));
+							break;
+						case CompactFormat.TAG_LONG:
+							output.writeVarLong(field.getLong(object));
+							break;
+						case CompactFormat.TAG_TRUE:
+							output.writeByte(field.getBoolean(object) ? 1 : 0);
+							break;
+						case CompactFormat.TAG_DOUBLE:
+							output.writeFixedLong(Double.doubleToLongBits(field.getDouble(object)));
+							break;
+						case CompactFormat.TAG_FLOAT:
+							output.writeFixedInt(Float.floatToIntBits(field.getFloat(object)));
+							break;
+						case CompactFormat.TAG_SHORT:
+							output.writeVarInt(field.getShort(object));
+							break;
+						case CompactFormat.TAG_BYTE:
+							output.writeByte(field.getByte(object));
+							break;
+						case CompactFormat.TAG_CHAR:
+							output.writeUnsignedVarInt(field.getChar(object));
+							break;
+						default:
+							writeValue(field.get(object));
+					}
+				}
+			}
+			catch (IllegalAccessException ex) {
+				throw new NestedIOException("Could not read field of [" + object.getClass().getName() + "]", ex);
+			}
+		}
+
+		private void writeBigInteger(BigInteger value) {
+			byte[] bytes = value.toByteArray();
+			this.output.writeUnsignedVarInt(bytes.length);
+			this.output.writeBytes(bytes);
+		}
+
+		private void writeJavaSerialized(Object value) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes);
+			objectOutputStream.writeObject(value);
+			objectOutputStream.flush();
+			this.output.writeUnsignedVarInt(bytes.size());
+			this.output.writeBytes(bytes.toByteArray());
+		}
+
+		/**
+		 * Write a Class value, which may also be a primitive or array type.
+		 */
+		private void writeClassValue(Class<?> clazz) throws IOException {
+			int primitiveTag = CompactFormat.getPrimitiveTag(clazz);
+			if (primitiveTag != -1) {
+				this.output.writeByte(primitiveTag);
+			}
+			else if (clazz == void.class) {
+				this.output.writeByte(CompactFormat.TAG_NULL);
+			}
+			else {
+				this.output.writeByte(CompactFormat.TAG_CLASS);
+				writeClass(clazz);
+			}
+		}
+
+		/**
+		 * Write a reference to the given (non-primitive) class: its registered id,
+		 * the id assigned on its first occurrence, or {@link CompactFormat#NEW_CLASS}
+		 * followed by its name.
+		 */
+		private void writeClass(Class<?> clazz) {
+			Integer id = registeredClassIds.get(clazz);
+			if (id == null && this.classIds != null) {
+				id = this.classIds.get(clazz);
+			}
+			if (id != null) {
+				this.output.writeUnsignedVarInt(id);
+				return;
+			}
+			if (this.classIds == null) {
+				this.classIds = new HashMap<Class<?>, Integer>(8);
+			}
+			this.classIds.put(clazz, this.nextClassId++);
+			this.output.writeUnsignedVarInt(CompactFormat.NEW_CLASS);
+			this.output.writeString(clazz.getName());
+		}
+	}
+
+
+	static boolean isSupportedCollectionType(Class<?> type) {
+		return (type == ArrayList.class || type == LinkedList.class || type == HashSet.class ||
+				type == LinkedHashSet.class || type == TreeSet.class);
+	}
+
+	static boolean isSupportedMapType(Class<?> type) {
+		return (type == HashMap.class || type == TreeMap.class);
+	}
+
+	/**
+	 * Sorted collections are only supported without a custom comparator.
+	 */
+	private static boolean hasNaturalOrder(Object collectionOrMap) {
+		if (collectionOrMap instanceof TreeSet) {
+			return (((TreeSet<?>) collectionOrMap).comparator() == null);
+		}
+		if (collectionOrMap instanceof TreeMap) {
+			return (((TreeMap<?, ?>) collectionOrMap).comparator() == null);
+		}
+		return true;
+	}
+
+}
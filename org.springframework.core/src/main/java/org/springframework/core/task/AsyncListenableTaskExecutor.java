@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Extension of the {@link AsyncTaskExecutor} interface, adding the capability to submit
+ * tasks for {@link ListenableFuture ListenableFutures}, so that callers can react to
+ * the outcome of a task through callbacks instead of blocking on <code>get()</code>.
+ *
+ * @since 3.1.3
+ * @see ListenableFuture
+ */
+public interface AsyncListenableTaskExecutor extends AsyncTaskExecutor {
+
+	/**
+	 * Submit a <code>Runnable</code> task for execution, receiving a <code>ListenableFuture</code>
+	 * representing that task. The Future will return a <code>null</code> result upon completion.
+	 * @param task the <code>Runnable</code> to execute (never <code>null</code>)
+	 * @return a <code>ListenableFuture</code> representing pending completion of the task
+	 * @throws TaskRejectedException if the given task was not accepted
+	 */
+	ListenableFuture<?> submitListenable(Runnable task);
+
+	/**
+	 * Submit a <code>Callable</code> task for execution, receiving a <code>ListenableFuture</code>
+	 * representing that task. The Future will return the Callable's result upon completion.
+	 * @param task the <code>Callable</code> to execute (never <code>null</code>)
+	 * @return a <code>ListenableFuture</code> representing pending completion of the task
+	 * @throws TaskRejectedException if the given task was not accepted
+	 */
+	<T> ListenableFuture<T> submitListenable(Callable<T> task);
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,25 @@
 
 package org.springframework.core.task;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.util.Assert;
 import org.springframework.util.ConcurrencyThrottleSupport;
 import org.springframework.util.CustomizableThreadCreator;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
 
 /**
  * {@link TaskExecutor} implementation that fires up a new Thread for each task,
@@ -32,19 +42,26 @@ import org.springframework.util.CustomizableThreadCreator;
  *
  * <p>Supports limiting concurrent threads through the "concurrencyLimit"
  * bean property. By default, the number of concurrent threads is unlimited.
+ * Once the limit is reached, submitters are blocked by default; alternatively,
+ * a "queueCapacity" may be specified, in which case excess tasks are queued
+ * up to that capacity and rejected beyond it, without ever blocking.
  *
- * <p><b>NOTE: This implementation does not reuse threads!</b> Consider a
- * thread-pooling TaskExecutor implementation instead, in particular for
- * executing a large number of short-lived tasks.
+ * <p><b>NOTE: By default, this implementation does not reuse threads!</b>
+ * As of Spring 3.1.3, the "reuseThreads" flag allows for handing tasks off
+ * to idle threads that completed a previous task, with idle threads being
+ * reaped after the "keepAliveSeconds" period. Consider a full thread-pooling
+ * TaskExecutor implementation for more sophisticated needs.
  *
  * @author Juergen Hoeller
  * @since 2.0
  * @see #setConcurrencyLimit
+ * @see #setQueueCapacity
+ * @see #setReuseThreads
  * @see SyncTaskExecutor
  * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
  * @see org.springframework.scheduling.commonj.WorkManagerTaskExecutor
  */
-public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implements AsyncTaskExecutor, Serializable {
+public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implements AsyncListenableTaskExecutor, Serializable {
 
 	/**
 	 * Permit any number of concurrent invocations: that is, don't throttle concurrency.
@@ -62,6 +79,26 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 
 	private ThreadFactory threadFactory;
 
+	private volatile int queueCapacity = -1;
+
+	private volatile boolean reuseThreads = false;
+
+	private volatile int keepAliveSeconds = 60;
+
+	/** Hand-off point between submitters and idle threads, in thread reuse mode */
+	private transient SynchronousQueue<Runnable> idleHandOff = new SynchronousQueue<Runnable>();
+
+	/** Tasks waiting for a concurrency permit, in non-blocking throttle mode */
+	private transient Queue<Runnable> queuedTasks = new ConcurrentLinkedQueue<Runnable>();
+
+	private transient AtomicInteger queuedCount = new AtomicInteger();
+
+	private transient AtomicInteger permitCount = new AtomicInteger();
+
+	private transient AtomicInteger activeCount = new AtomicInteger();
+
+	private transient AtomicLong createdThreadCount = new AtomicLong();
+
 
 	/**
 	 * Create a new SimpleAsyncTaskExecutor with default thread name prefix.
@@ -137,6 +174,87 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 		return this.concurrencyThrottle.isThrottleActive();
 	}
 
+	/**
+	 * Set the number of tasks that may be queued once the concurrency limit
+	 * has been reached. Default is -1, blocking the submitting thread until
+	 * a running task completes.
+	 * <p>A value of 0 or more switches to a non-blocking throttle: tasks beyond
+	 * the concurrency limit are queued up to the given capacity, to be picked up
+	 * by the threads of completing tasks, and rejected with a
+	 * {@link TaskRejectedException} beyond that capacity.
+	 * <p>Only applies if a concurrency limit has been set.
+	 * @see #setConcurrencyLimit
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Return the number of tasks that may be queued once the concurrency limit
+	 * has been reached, or -1 if submitters get blocked instead.
+	 */
+	public final int getQueueCapacity() {
+		return this.queueCapacity;
+	}
+
+	/**
+	 * Specify whether to reuse threads that completed a task for subsequent tasks,
+	 * rather than creating a new Thread for each task. Default is "false".
+	 * <p>Note that reused threads keep their thread-local state across tasks.
+	 * @see #setKeepAliveSeconds
+	 */
+	public void setReuseThreads(boolean reuseThreads) {
+		this.reuseThreads = reuseThreads;
+	}
+
+	/**
+	 * Return whether threads get reused for subsequent tasks.
+	 */
+	public final boolean isReuseThreads() {
+		return this.reuseThreads;
+	}
+
+	/**
+	 * Set the number of seconds that an idle thread waits for a subsequent task
+	 * before terminating, in case of thread reuse. Default is 60.
+	 * <p>Note that idle non-daemon threads keep the VM alive for this period.
+	 * @see #setReuseThreads
+	 * @see #setDaemon
+	 */
+	public void setKeepAliveSeconds(int keepAliveSeconds) {
+		this.keepAliveSeconds = keepAliveSeconds;
+	}
+
+	/**
+	 * Return the number of seconds that an idle thread waits for a subsequent task.
+	 */
+	public final int getKeepAliveSeconds() {
+		return this.keepAliveSeconds;
+	}
+
+	/**
+	 * Return the number of tasks that are currently being executed.
+	 */
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	/**
+	 * Return the number of tasks currently waiting for a concurrency permit,
+	 * in case of a non-blocking throttle.
+	 * @see #setQueueCapacity
+	 */
+	public int getQueuedCount() {
+		return this.queuedCount.get();
+	}
+
+	/**
+	 * Return the total number of threads that this executor has created so far.
+	 */
+	public long getCreatedThreadCount() {
+		return this.createdThreadCount.get();
+	}
+
 
 	/**
 	 * Executes the given task, within a concurrency throttle
@@ -153,17 +271,36 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 	 * <p>Executes urgent tasks (with 'immediate' timeout) directly,
 	 * bypassing the concurrency throttle (if active). All other
 	 * tasks are subject to throttling.
+	 * @throws TaskRejectedException if the concurrency limit has been reached
+	 * and the task queue is full, in case of a non-blocking throttle
 	 * @see #TIMEOUT_IMMEDIATE
+	 * @see #setQueueCapacity
 	 * @see #doExecute(Runnable)
 	 */
 	public void execute(Runnable task, long startTimeout) {
 		Assert.notNull(task, "Runnable must not be null");
 		if (isThrottleActive() && startTimeout > TIMEOUT_IMMEDIATE) {
-			this.concurrencyThrottle.beforeAccess();
-			doExecute(new ConcurrencyThrottlingRunnable(task));
+			if (this.queueCapacity < 0) {
+				this.concurrencyThrottle.beforeAccess();
+				doExecute(new ConcurrencyThrottlingRunnable(task));
+			}
+			else if (tryAcquirePermit()) {
+				doExecuteWithPermit(task);
+			}
+			else if (tryEnqueue(task)) {
+				// A running task may have released its permit before our task got queued.
+				Runnable queuedTask = acquireQueuedTask();
+				if (queuedTask != null) {
+					doExecuteWithPermit(queuedTask);
+				}
+			}
+			else {
+				throw new TaskRejectedException("Concurrency limit of " + getConcurrencyLimit() +
+						" reached and task queue with capacity " + this.queueCapacity + " full - rejecting " + task);
+			}
 		}
 		else {
-			doExecute(task);
+			doExecute(new TrackingRunnable(task));
 		}
 	}
 
@@ -179,17 +316,138 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 		return future;
 	}
 
+	public ListenableFuture<?> submitListenable(Runnable task) {
+		ListenableFutureTask<Object> future = new ListenableFutureTask<Object>(task, null);
+		execute(future, TIMEOUT_INDEFINITE);
+		return future;
+	}
+
+	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+		ListenableFutureTask<T> future = new ListenableFutureTask<T>(task);
+		execute(future, TIMEOUT_INDEFINITE);
+		return future;
+	}
+
 	/**
 	 * Template method for the actual execution of a task.
-	 * <p>The default implementation creates a new Thread and starts it.
+	 * <p>The default implementation creates a new Thread and starts it,
+	 * unless thread reuse is active and an idle thread accepts the task.
 	 * @param task the Runnable to execute
 	 * @see #setThreadFactory
+	 * @see #setReuseThreads
 	 * @see #createThread
 	 * @see java.lang.Thread#start()
 	 */
 	protected void doExecute(Runnable task) {
-		Thread thread = (this.threadFactory != null ? this.threadFactory.newThread(task) : createThread(task));
-		thread.start();
+		if (this.reuseThreads) {
+			if (!this.idleHandOff.offer(task)) {
+				newThread(new ReusableThreadRunnable(task)).start();
+			}
+		}
+		else {
+			newThread(task).start();
+		}
+	}
+
+	/**
+	 * Execute the given task with a concurrency permit that has been acquired for it,
+	 * releasing the permit again if the task could not be started (e.g. because no
+	 * new thread could be created).
+	 * @throws TaskRejectedException if the task could not be started
+	 */
+	private void doExecuteWithPermit(Runnable task) {
+		try {
+			doExecute(new QueueDrainingRunnable(task));
+		}
+		catch (Throwable ex) {
+			releasePermit();
+			throw new TaskRejectedException("Failed to start execution of " + task, ex);
+		}
+	}
+
+	private Thread newThread(Runnable task) {
+		this.createdThreadCount.incrementAndGet();
+		return (this.threadFactory != null ? this.threadFactory.newThread(task) : createThread(task));
+	}
+
+	private void runTask(Runnable task) {
+		this.activeCount.incrementAndGet();
+		try {
+			task.run();
+		}
+		finally {
+			this.activeCount.decrementAndGet();
+		}
+	}
+
+	private boolean tryAcquirePermit() {
+		int limit = getConcurrencyLimit();
+		for (;;) {
+			int permits = this.permitCount.get();
+			if (permits >= limit) {
+				return false;
+			}
+			if (this.permitCount.compareAndSet(permits, permits + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void releasePermit() {
+		this.permitCount.decrementAndGet();
+	}
+
+	private boolean tryEnqueue(Runnable task) {
+		for (;;) {
+			int queued = this.queuedCount.get();
+			if (queued >= this.queueCapacity) {
+				return false;
+			}
+			if (this.queuedCount.compareAndSet(queued, queued + 1)) {
+				this.queuedTasks.offer(task);
+				return true;
+			}
+		}
+	}
+
+	private Runnable pollQueuedTask() {
+		Runnable task = this.queuedTasks.poll();
+		if (task != null) {
+			this.queuedCount.decrementAndGet();
+		}
+		return task;
+	}
+
+	/**
+	 * Take the next queued task along with a concurrency permit, if both are available.
+	 */
+	private Runnable acquireQueuedTask() {
+		while (!this.queuedTasks.isEmpty() && tryAcquirePermit()) {
+			Runnable task = pollQueuedTask();
+			if (task != null) {
+				return task;
+			}
+			releasePermit();
+		}
+		return null;
+	}
+
+
+	//---------------------------------------------------------------------
+	// Serialization support
+	//---------------------------------------------------------------------
+
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		// Rely on default serialization, just initialize state after deserialization.
+		ois.defaultReadObject();
+
+		// Initialize transient fields.
+		this.idleHandOff = new SynchronousQueue<Runnable>();
+		this.queuedTasks = new ConcurrentLinkedQueue<Runnable>();
+		this.queuedCount = new AtomicInteger();
+		this.permitCount = new AtomicInteger();
+		this.activeCount = new AtomicInteger();
+		this.createdThreadCount = new AtomicLong();
 	}
 
 
@@ -212,6 +470,24 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 	}
 
 
+	/**
+	 * This Runnable keeps track of the target Runnable's execution
+	 * in the active task count.
+	 */
+	private class TrackingRunnable implements Runnable {
+
+		private final Runnable target;
+
+		public TrackingRunnable(Runnable target) {
+			this.target = target;
+		}
+
+		public void run() {
+			runTask(this.target);
+		}
+	}
+
+
 	/**
 	 * This Runnable calls <code>afterAccess()</code> after the
 	 * target Runnable has finished its execution.
@@ -226,7 +502,7 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 
 		public void run() {
 			try {
-				this.target.run();
+				runTask(this.target);
 			}
 			finally {
 				concurrencyThrottle.afterAccess();
@@ -234,4 +510,77 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator implement
 		}
 	}
 
+
+	/**
+	 * This Runnable holds a concurrency permit for the target Runnable and
+	 * subsequently executes queued tasks with it, releasing the permit
+	 * once the queue is empty.
+	 */
+	private class QueueDrainingRunnable implements Runnable {
+
+		private final Runnable target;
+
+		public QueueDrainingRunnable(Runnable target) {
+			this.target = target;
+		}
+
+		public void run() {
+			Runnable task = this.target;
+			while (task != null) {
+				boolean completed = false;
+				try {
+					runTask(task);
+					completed = true;
+				}
+				finally {
+					if (!completed) {
+						// Let the exception propagate, passing the permit on to a new thread.
+						Runnable next = pollQueuedTask();
+						if (next != null) {
+							doExecuteWithPermit(next);
+						}
+						else {
+							releasePermit();
+						}
+					}
+				}
+				task = pollQueuedTask();
+				if (task == null) {
+					releasePermit();
+					task = acquireQueuedTask();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * This Runnable executes the initial task and then waits for
+	 * subsequent tasks to be handed off, terminating once it has
+	 * been idle for the keep-alive period.
+	 */
+	private class ReusableThreadRunnable implements Runnable {
+
+		private final Runnable initialTask;
+
+		public ReusableThreadRunnable(Runnable initialTask) {
+			this.initialTask = initialTask;
+		}
+
+		public void run() {
+			Runnable task = this.initialTask;
+			while (task != null) {
+				task.run();
+				// Do not let an interrupt from the previous task affect the idle wait.
+				Thread.interrupted();
+				try {
+					task = idleHandOff.poll(keepAliveSeconds, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					task = null;
+				}
+			}
+		}
+	}
+
 }
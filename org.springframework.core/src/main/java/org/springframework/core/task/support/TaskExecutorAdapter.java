@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,15 +23,18 @@ import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
 
-import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.TaskRejectedException;
 import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
 
 /**
  * Adapter that takes a JDK 1.5 <code>java.util.concurrent.Executor</code> and
  * exposes a Spring {@link org.springframework.core.task.TaskExecutor} for it.
  * Also detects an extended <code>java.util.concurrent.ExecutorService</code>, adapting
  * the {@link org.springframework.core.task.AsyncTaskExecutor} interface accordingly.
+ * Listenable futures are supported for any kind of <code>Executor</code>.
  *
  * @author Juergen Hoeller
  * @since 3.0
@@ -39,7 +42,7 @@ import org.springframework.util.Assert;
  * @see java.util.concurrent.ExecutorService
  * @see java.util.concurrent.Executors
  */
-public class TaskExecutorAdapter implements AsyncTaskExecutor {
+public class TaskExecutorAdapter implements AsyncListenableTaskExecutor {
 
 	private Executor concurrentExecutor;
 
@@ -107,4 +110,28 @@ public class TaskExecutorAdapter implements AsyncTaskExecutor {
 		}
 	}
 
+	public ListenableFuture<?> submitListenable(Runnable task) {
+		try {
+			ListenableFutureTask<Object> future = new ListenableFutureTask<Object>(task, null);
+			this.concurrentExecutor.execute(future);
+			return future;
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException(
+					"Executor [" + this.concurrentExecutor + "] did not accept task: " + task, ex);
+		}
+	}
+
+	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+		try {
+			ListenableFutureTask<T> future = new ListenableFutureTask<T>(task);
+			this.concurrentExecutor.execute(future);
+			return future;
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException(
+					"Executor [" + this.concurrentExecutor + "] did not accept task: " + task, ex);
+		}
+	}
+
 }
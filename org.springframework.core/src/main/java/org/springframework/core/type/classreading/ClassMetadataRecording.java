@@ -0,0 +1,676 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassAdapter;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodAdapter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
+
+/**
+ * Record of the ASM visitor events that make up the metadata of a class:
+ * the class header, the outer and inner class declarations, and the
+ * annotations declared on the class and on its methods.
+ *
+ * <p>Replaying a recording onto a fresh {@link AnnotationMetadataReadingVisitor}
+ * yields the same metadata as parsing the class file again, without reading
+ * method bodies or the constant pool. Annotation attribute values of type
+ * {@link Type} are kept as type descriptors, and enum and annotation types are
+ * resolved against the ClassLoader of the visitor that the recording is
+ * replayed onto.
+ *
+ * <p>Recordings are stored in an explicit binary format through
+ * {@link #writeTo} and {@link #readFrom} rather than through Java serialization,
+ * so that reading a stored recording never instantiates arbitrary classes.
+ * Annotation attribute values are restricted to the types that ASM reports
+ * through {@link AnnotationVisitor#visit}: primitive wrappers, Strings and
+ * arrays of primitives.
+ *
+ * <p>Package-visible in order to allow for repackaging the ASM library
+ * without effect on users of the <code>core.type</code> package.
+ *
+ * @since 3.1.3
+ * @see SharedMetadataReaderFactory
+ */
+final class ClassMetadataRecording {
+
+	private static final int MAGIC = 0x53434d52;
+
+	private static final int FORMAT_VERSION = 1;
+
+	/** Maximum number of elements, as per the u2 counts of the class file format */
+	private static final int MAX_COUNT = 0xFFFF;
+
+	/** Maximum nesting depth of annotation values accepted when reading */
+	private static final int MAX_DEPTH = 64;
+
+	/** Element value tags of the class file format for the primitive types below */
+	private static final String PRIMITIVE_TAGS = "ZBCSIJFD";
+
+	private static final Class<?>[] PRIMITIVE_TYPES = new Class<?>[] {
+			boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class};
+
+	private static final Class<?>[] PRIMITIVE_WRAPPER_TYPES = new Class<?>[] {
+			Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class, Float.class, Double.class};
+
+
+	private int version;
+
+	private int access;
+
+	private String name;
+
+	private String signature;
+
+	private String superName;
+
+	private String[] interfaces;
+
+	private String[] outerClass;
+
+	private final List<String[]> innerClasses = new ArrayList<String[]>();
+
+	private final List<Integer> innerClassAccess = new ArrayList<Integer>();
+
+	private final List<AnnotationEvent> annotations = new ArrayList<AnnotationEvent>();
+
+	private final List<MethodRecord> methods = new ArrayList<MethodRecord>();
+
+
+	/**
+	 * Parse the given class and record its metadata events, passing every
+	 * event on to the given visitor as well.
+	 * @param classReader the reader for the class file
+	 * @param visitor the visitor to populate while recording
+	 * @return the recording
+	 */
+	public static ClassMetadataRecording record(ClassReader classReader, ClassVisitor visitor) {
+		ClassMetadataRecording recording = new ClassMetadataRecording();
+		classReader.accept(recording.new RecordingClassVisitor(visitor), true);
+		return recording;
+	}
+
+	/**
+	 * Replay the recorded events onto the given visitor, in the order in which
+	 * a {@link ClassReader} would have reported them.
+	 * @param visitor the visitor to populate
+	 */
+	public void replay(ClassVisitor visitor) {
+		visitor.visit(this.version, this.access, this.name, this.signature, this.superName, this.interfaces);
+		if (this.outerClass != null) {
+			visitor.visitOuterClass(this.outerClass[0], this.outerClass[1], this.outerClass[2]);
+		}
+		for (AnnotationEvent annotation : this.annotations) {
+			annotation.replay(visitor.visitAnnotation(annotation.desc, annotation.visible));
+		}
+		for (int i = 0; i < this.innerClasses.size(); i++) {
+			String[] innerClass = this.innerClasses.get(i);
+			visitor.visitInnerClass(innerClass[0], innerClass[1], innerClass[2], this.innerClassAccess.get(i));
+		}
+		for (MethodRecord method : this.methods) {
+			MethodVisitor mv = visitor.visitMethod(
+					method.access, method.name, method.desc, method.signature, method.exceptions);
+			if (mv != null) {
+				for (AnnotationEvent annotation : method.annotations) {
+					annotation.replay(mv.visitAnnotation(annotation.desc, annotation.visible));
+				}
+				mv.visitEnd();
+			}
+		}
+		visitor.visitEnd();
+	}
+
+	/**
+	 * Write this recording to the given output.
+	 * @param out the output to write to
+	 * @throws IOException in case of I/O errors, or if an annotation attribute
+	 * value is of an unsupported type
+	 * @see #readFrom
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(this.version);
+		out.writeInt(this.access);
+		writeString(out, this.name);
+		writeString(out, this.signature);
+		writeString(out, this.superName);
+		writeStrings(out, this.interfaces);
+		writeStrings(out, this.outerClass);
+		out.writeShort(this.innerClasses.size());
+		for (int i = 0; i < this.innerClasses.size(); i++) {
+			writeStrings(out, this.innerClasses.get(i));
+			out.writeInt(this.innerClassAccess.get(i));
+		}
+		writeAnnotations(out, this.annotations);
+		out.writeShort(this.methods.size());
+		for (MethodRecord method : this.methods) {
+			out.writeInt(method.access);
+			writeString(out, method.name);
+			writeString(out, method.desc);
+			writeString(out, method.signature);
+			writeStrings(out, method.exceptions);
+			writeAnnotations(out, method.annotations);
+		}
+	}
+
+	/**
+	 * Read a recording that has been written through {@link #writeTo}.
+	 * @param in the input to read from
+	 * @return the recording
+	 * @throws IOException in case of I/O errors or invalid content
+	 */
+	public static ClassMetadataRecording readFrom(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("Not a class metadata recording");
+		}
+		ClassMetadataRecording recording = new ClassMetadataRecording();
+		recording.version = in.readInt();
+		recording.access = in.readInt();
+		recording.name = readString(in);
+		recording.signature = readString(in);
+		recording.superName = readString(in);
+		recording.interfaces = readStrings(in);
+		recording.outerClass = readStrings(in, 3);
+		int innerClassCount = in.readUnsignedShort();
+		for (int i = 0; i < innerClassCount; i++) {
+			recording.innerClasses.add(readStrings(in, 3));
+			recording.innerClassAccess.add(in.readInt());
+		}
+		readAnnotations(in, recording.annotations, 0);
+		int methodCount = in.readUnsignedShort();
+		for (int i = 0; i < methodCount; i++) {
+			MethodRecord method = new MethodRecord(
+					in.readInt(), readString(in), readString(in), readString(in), readStrings(in));
+			readAnnotations(in, method.annotations, 0);
+			recording.methods.add(method);
+		}
+		return recording;
+	}
+
+	private static void writeAnnotations(DataOutput out, List<AnnotationEvent> events) throws IOException {
+		if (events == null) {
+			out.writeShort(0);
+			return;
+		}
+		checkCount(events.size());
+		out.writeShort(events.size());
+		for (AnnotationEvent event : events) {
+			out.writeByte(event.kind);
+			writeString(out, event.name);
+			writeString(out, event.desc);
+			out.writeBoolean(event.visible);
+			if (event.kind == AnnotationEvent.VALUE) {
+				writeValue(out, event.value);
+			}
+			else if (event.kind == AnnotationEvent.ENUM) {
+				writeString(out, (String) event.value);
+			}
+			else if (event.kind == AnnotationEvent.ANNOTATION || event.kind == AnnotationEvent.ARRAY) {
+				writeAnnotations(out, event.children);
+			}
+		}
+	}
+
+	private static void readAnnotations(DataInput in, List<AnnotationEvent> events, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new IOException("Annotation values nested too deeply");
+		}
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			int kind = in.readByte();
+			String name = readString(in);
+			String desc = readString(in);
+			boolean visible = in.readBoolean();
+			AnnotationEvent event;
+			switch (kind) {
+				case AnnotationEvent.VALUE:
+					event = new AnnotationEvent(kind, name, desc, readValue(in));
+					break;
+				case AnnotationEvent.ENUM:
+					event = new AnnotationEvent(kind, name, desc, readString(in));
+					break;
+				case AnnotationEvent.TYPE:
+					event = new AnnotationEvent(kind, name, desc, null);
+					break;
+				case AnnotationEvent.ANNOTATION:
+				case AnnotationEvent.ARRAY:
+					event = new AnnotationEvent(kind, name, desc, null);
+					List<AnnotationEvent> children = new ArrayList<AnnotationEvent>();
+					readAnnotations(in, children, depth + 1);
+					if (!children.isEmpty()) {
+						event.children = children;
+					}
+					break;
+				default:
+					throw new IOException("Invalid annotation event kind: " + kind);
+			}
+			event.visible = visible;
+			events.add(event);
+		}
+	}
+
+	/**
+	 * Write an annotation attribute value, tagged like an element value in the
+	 * class file format. Arrays of primitives are tagged with '[' followed by
+	 * the tag of their component type.
+	 */
+	private static void writeValue(DataOutput out, Object value) throws IOException {
+		Class<?> valueType = (value != null ? value.getClass() : null);
+		if (valueType != null && valueType.isArray()) {
+			char tag = getTag(valueType.getComponentType());
+			int length = Array.getLength(value);
+			checkCount(length);
+			out.writeByte('[');
+			out.writeByte(tag);
+			out.writeShort(length);
+			for (int i = 0; i < length; i++) {
+				writeElement(out, tag, Array.get(value, i));
+			}
+		}
+		else {
+			char tag = getTag(valueType);
+			out.writeByte(tag);
+			writeElement(out, tag, value);
+		}
+	}
+
+	private static Object readValue(DataInput in) throws IOException {
+		char tag = (char) in.readByte();
+		if (tag != '[') {
+			return readElement(in, tag);
+		}
+		char componentTag = (char) in.readByte();
+		Class<?> componentType = getPrimitiveType(componentTag);
+		int length = in.readUnsignedShort();
+		Object array = Array.newInstance(componentType, length);
+		for (int i = 0; i < length; i++) {
+			Array.set(array, i, readElement(in, componentTag));
+		}
+		return array;
+	}
+
+	private static char getTag(Class<?> type) throws IOException {
+		if (type == String.class) {
+			return 's';
+		}
+		for (int i = 0; i < PRIMITIVE_TYPES.length; i++) {
+			if (type == PRIMITIVE_TYPES[i] || type == PRIMITIVE_WRAPPER_TYPES[i]) {
+				return PRIMITIVE_TAGS.charAt(i);
+			}
+		}
+		throw new IOException("Unsupported annotation value type: " + type);
+	}
+
+	private static Class<?> getPrimitiveType(char tag) throws IOException {
+		int index = PRIMITIVE_TAGS.indexOf(tag);
+		if (index == -1) {
+			throw new IOException("Invalid annotation array component tag: " + tag);
+		}
+		return PRIMITIVE_TYPES[index];
+	}
+
+	private static void writeElement(DataOutput out, char tag, Object value) throws IOException {
+		switch (tag) {
+			case 's':
+				out.writeUTF((String) value);
+				break;
+			case 'Z':
+				out.writeBoolean((Boolean) value);
+				break;
+			case 'B':
+				out.writeByte((Byte) value);
+				break;
+			case 'C':
+				out.writeChar((Character) value);
+				break;
+			case 'S':
+				out.writeShort((Short) value);
+				break;
+			case 'I':
+				out.writeInt((Integer) value);
+				break;
+			case 'J':
+				out.writeLong((Long) value);
+				break;
+			case 'F':
+				out.writeFloat((Float) value);
+				break;
+			case 'D':
+				out.writeDouble((Double) value);
+				break;
+		}
+	}
+
+	private static Object readElement(DataInput in, char tag) throws IOException {
+		switch (tag) {
+			case 's':
+				return in.readUTF();
+			case 'Z':
+				return in.readBoolean();
+			case 'B':
+				return in.readByte();
+			case 'C':
+				return in.readChar();
+			case 'S':
+				return in.readShort();
+			case 'I':
+				return in.readInt();
+			case 'J':
+				return in.readLong();
+			case 'F':
+				return in.readFloat();
+			case 'D':
+				return in.readDouble();
+			default:
+				throw new IOException("Invalid annotation value tag: " + tag);
+		}
+	}
+
+	private static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	private static void writeStrings(DataOutput out, String[] values) throws IOException {
+		out.writeBoolean(values != null);
+		if (values != null) {
+			checkCount(values.length);
+			out.writeShort(values.length);
+			for (String value : values) {
+				writeString(out, value);
+			}
+		}
+	}
+
+	private static String[] readStrings(DataInput in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		String[] values = new String[in.readUnsignedShort()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = readString(in);
+		}
+		return values;
+	}
+
+	private static String[] readStrings(DataInput in, int expectedLength) throws IOException {
+		String[] values = readStrings(in);
+		if (values != null && values.length != expectedLength) {
+			throw new IOException("Expected " + expectedLength + " elements but found " + values.length);
+		}
+		return values;
+	}
+
+	private static void checkCount(int count) throws IOException {
+		if (count > MAX_COUNT) {
+			throw new IOException("Too many elements: " + count);
+		}
+	}
+
+
+	/**
+	 * ClassVisitor that records the metadata events before delegating them.
+	 * Only methods that declare annotations are recorded, since other methods
+	 * do not contribute any metadata.
+	 */
+	private class RecordingClassVisitor extends ClassAdapter {
+
+		public RecordingClassVisitor(ClassVisitor cv) {
+			super(cv);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			ClassMetadataRecording.this.version = version;
+			ClassMetadataRecording.this.access = access;
+			ClassMetadataRecording.this.name = name;
+			ClassMetadataRecording.this.signature = signature;
+			ClassMetadataRecording.this.superName = superName;
+			ClassMetadataRecording.this.interfaces = interfaces;
+			super.visit(version, access, name, signature, superName, interfaces);
+		}
+
+		@Override
+		public void visitOuterClass(String owner, String name, String desc) {
+			outerClass = new String[] {owner, name, desc};
+			super.visitOuterClass(owner, name, desc);
+		}
+
+		@Override
+		public void visitInnerClass(String name, String outerName, String innerName, int access) {
+			innerClasses.add(new String[] {name, outerName, innerName});
+			innerClassAccess.add(access);
+			super.visitInnerClass(name, outerName, innerName, access);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			AnnotationEvent annotation = new AnnotationEvent(AnnotationEvent.ANNOTATION, null, desc, null);
+			annotation.visible = visible;
+			annotations.add(annotation);
+			return RecordingAnnotationVisitor.wrap(super.visitAnnotation(desc, visible), annotation);
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+			MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+			if (mv == null) {
+				return null;
+			}
+			return new RecordingMethodVisitor(mv, new MethodRecord(access, name, desc, signature, exceptions));
+		}
+	}
+
+
+	/**
+	 * MethodVisitor that records the annotations of a method, registering the
+	 * method with the recording once its first annotation has been visited.
+	 */
+	private class RecordingMethodVisitor extends MethodAdapter {
+
+		private final MethodRecord method;
+
+		public RecordingMethodVisitor(MethodVisitor mv, MethodRecord method) {
+			super(mv);
+			this.method = method;
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			if (this.method.annotations.isEmpty()) {
+				methods.add(this.method);
+			}
+			AnnotationEvent annotation = new AnnotationEvent(AnnotationEvent.ANNOTATION, null, desc, null);
+			annotation.visible = visible;
+			this.method.annotations.add(annotation);
+			return RecordingAnnotationVisitor.wrap(super.visitAnnotation(desc, visible), annotation);
+		}
+	}
+
+
+	/**
+	 * AnnotationVisitor that records attribute events into the children of
+	 * the given {@link AnnotationEvent} before delegating them.
+	 */
+	private static class RecordingAnnotationVisitor implements AnnotationVisitor {
+
+		private final AnnotationVisitor target;
+
+		private final AnnotationEvent parent;
+
+		public static AnnotationVisitor wrap(AnnotationVisitor target, AnnotationEvent parent) {
+			return (target != null ? new RecordingAnnotationVisitor(target, parent) : null);
+		}
+
+		private RecordingAnnotationVisitor(AnnotationVisitor target, AnnotationEvent parent) {
+			this.target = target;
+			this.parent = parent;
+		}
+
+		public void visit(String name, Object value) {
+			if (value instanceof Type) {
+				this.parent.add(new AnnotationEvent(AnnotationEvent.TYPE, name, ((Type) value).getDescriptor(), null));
+			}
+			else {
+				this.parent.add(new AnnotationEvent(AnnotationEvent.VALUE, name, null, value));
+			}
+			this.target.visit(name, value);
+		}
+
+		public void visitEnum(String name, String desc, String value) {
+			this.parent.add(new AnnotationEvent(AnnotationEvent.ENUM, name, desc, value));
+			this.target.visitEnum(name, desc, value);
+		}
+
+		public AnnotationVisitor visitAnnotation(String name, String desc) {
+			AnnotationEvent nested = new AnnotationEvent(AnnotationEvent.ANNOTATION, name, desc, null);
+			this.parent.add(nested);
+			return wrap(this.target.visitAnnotation(name, desc), nested);
+		}
+
+		public AnnotationVisitor visitArray(String name) {
+			AnnotationEvent array = new AnnotationEvent(AnnotationEvent.ARRAY, name, null, null);
+			this.parent.add(array);
+			return wrap(this.target.visitArray(name), array);
+		}
+
+		public void visitEnd() {
+			this.target.visitEnd();
+		}
+	}
+
+
+	/**
+	 * A recorded method that declares at least one annotation.
+	 */
+	private static class MethodRecord {
+
+		private final int access;
+
+		private final String name;
+
+		private final String desc;
+
+		private final String signature;
+
+		private final String[] exceptions;
+
+		private final List<AnnotationEvent> annotations = new ArrayList<AnnotationEvent>(2);
+
+		public MethodRecord(int access, String name, String desc, String signature, String[] exceptions) {
+			this.access = access;
+			this.name = name;
+			this.desc = desc;
+			this.signature = signature;
+			this.exceptions = exceptions;
+		}
+	}
+
+
+	/**
+	 * A recorded annotation or annotation attribute event. Annotations and
+	 * arrays hold the events for their nested attributes or elements.
+	 */
+	private static class AnnotationEvent {
+
+		public static final int VALUE = 0;
+
+		public static final int TYPE = 1;
+
+		public static final int ENUM = 2;
+
+		public static final int ANNOTATION = 3;
+
+		public static final int ARRAY = 4;
+
+		private final int kind;
+
+		private final String name;
+
+		private final String desc;
+
+		private final Object value;
+
+		private boolean visible;
+
+		private List<AnnotationEvent> children;
+
+		public AnnotationEvent(int kind, String name, String desc, Object value) {
+			this.kind = kind;
+			this.name = name;
+			this.desc = desc;
+			this.value = value;
+		}
+
+		public void add(AnnotationEvent child) {
+			if (this.children == null) {
+				this.children = new ArrayList<AnnotationEvent>(4);
+			}
+			this.children.add(child);
+		}
+
+		/**
+		 * Replay the nested events of this annotation or array onto the given
+		 * visitor, followed by {@link AnnotationVisitor#visitEnd()}.
+		 */
+		public void replay(AnnotationVisitor av) {
+			if (av == null) {
+				return;
+			}
+			if (this.children != null) {
+				for (AnnotationEvent child : this.children) {
+					switch (child.kind) {
+						case VALUE:
+							av.visit(child.name, child.value);
+							break;
+						case TYPE:
+							av.visit(child.name, Type.getType(child.desc));
+							break;
+						case ENUM:
+							av.visitEnum(child.name, child.desc, (String) child.value);
+							break;
+						case ANNOTATION:
+							child.replay(av.visitAnnotation(child.name, child.desc));
+							break;
+						case ARRAY:
+							child.replay(av.visitArray(child.name));
+							break;
+					}
+				}
+			}
+			av.visitEnd();
+		}
+	}
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Thread-safe caching implementation of the {@link MetadataReaderFactory}
+ * interface, suitable for sharing a single instance between several
+ * application contexts (for example, the contexts of a test suite or the
+ * child contexts of a modular application) that scan the same classes.
+ *
+ * <p>In contrast to {@link CachingMetadataReaderFactory}, the cache is split
+ * into independently locked segments, and class files are parsed outside of
+ * any lock, so concurrent lookups do not serialize on a single monitor.
+ * Each segment evicts its least recently used entries once the overall
+ * {@link #setCacheLimit cache limit} has been reached.
+ *
+ * <p>Optionally, a {@link #setCacheDirectory cache directory} may be specified
+ * in which the metadata of every parsed class is stored, keyed by an MD5 hash
+ * of the class file content. On subsequent startups, metadata for unchanged
+ * class files is read from that directory instead of being parsed by ASM.
+ * Stored entries are never invalidated: a modified class file simply has
+ * a different hash. Unreadable entries are ignored and overwritten. Entries are
+ * stored in a plain binary format, not through Java serialization, so reading
+ * them never instantiates any classes.
+ *
+ * <p>All application contexts that share an instance need to use the same
+ * ClassLoader for loading annotation types, since the metadata readers are
+ * bound to the ClassLoader of this factory.
+ *
+ * @since 3.1.3
+ * @see org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider#setMetadataReaderFactory
+ * @see org.springframework.context.annotation.ConfigurationClassPostProcessor#setMetadataReaderFactory
+ */
+public class SharedMetadataReaderFactory extends SimpleMetadataReaderFactory {
+
+	/** Default maximum number of entries for the MetadataReader cache: 4096 */
+	public static final int DEFAULT_CACHE_LIMIT = 4096;
+
+	private static final int SEGMENT_COUNT = 16;
+
+	private static final String CACHE_FILE_SUFFIX = ".metadata";
+
+	private static final Log logger = LogFactory.getLog(SharedMetadataReaderFactory.class);
+
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	private volatile File cacheDirectory;
+
+	private final Segment[] segments;
+
+
+	/**
+	 * Create a new SharedMetadataReaderFactory for the default class loader.
+	 */
+	public SharedMetadataReaderFactory() {
+		super();
+		this.segments = createSegments();
+	}
+
+	/**
+	 * Create a new SharedMetadataReaderFactory for the given resource loader.
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * (also determines the ClassLoader to use)
+	 */
+	public SharedMetadataReaderFactory(ResourceLoader resourceLoader) {
+		super(resourceLoader);
+		this.segments = createSegments();
+	}
+
+	/**
+	 * Create a new SharedMetadataReaderFactory for the given class loader.
+	 * @param classLoader the ClassLoader to use
+	 */
+	public SharedMetadataReaderFactory(ClassLoader classLoader) {
+		super(classLoader);
+		this.segments = createSegments();
+	}
+
+	private Segment[] createSegments() {
+		Segment[] segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment();
+		}
+		return segments;
+	}
+
+
+	/**
+	 * Specify the maximum number of entries for the MetadataReader cache.
+	 * Default is 4096. A limit of 0 or less turns in-memory caching off.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the MetadataReader cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Specify a directory for storing class metadata across restarts.
+	 * The directory will be created if it does not exist yet.
+	 * <p>Default is none, i.e. every class file is parsed on first access.
+	 */
+	public void setCacheDirectory(File cacheDirectory) {
+		if (cacheDirectory != null && !cacheDirectory.isDirectory()) {
+			Assert.isTrue(cacheDirectory.mkdirs(), "Unable to create metadata cache directory " + cacheDirectory);
+		}
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * Return the directory for storing class metadata across restarts, if any.
+	 */
+	public File getCacheDirectory() {
+		return this.cacheDirectory;
+	}
+
+	/**
+	 * Return the number of MetadataReaders currently held in memory.
+	 */
+	public int getCacheSize() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Clear the in-memory MetadataReader cache.
+	 * <p>The content of the {@link #setCacheDirectory cache directory} is kept.
+	 */
+	public void clearCache() {
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+
+	@Override
+	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		if (getCacheLimit() <= 0) {
+			return createMetadataReader(resource);
+		}
+		Segment segment = this.segments[(resource.hashCode() & 0x7fffffff) % SEGMENT_COUNT];
+		MetadataReader metadataReader;
+		synchronized (segment) {
+			metadataReader = segment.get(resource);
+		}
+		if (metadataReader == null) {
+			// Parse outside of the segment lock; concurrent requests for the same
+			// resource may parse it twice, with the first reader being kept.
+			MetadataReader newReader = createMetadataReader(resource);
+			synchronized (segment) {
+				metadataReader = segment.get(resource);
+				if (metadataReader == null) {
+					metadataReader = newReader;
+					segment.put(resource, metadataReader);
+				}
+			}
+		}
+		return metadataReader;
+	}
+
+	/**
+	 * Create a MetadataReader for the given resource, going through the
+	 * cache directory if one has been specified.
+	 */
+	protected MetadataReader createMetadataReader(Resource resource) throws IOException {
+		File cacheDirectory = this.cacheDirectory;
+		if (cacheDirectory == null) {
+			return super.getMetadataReader(resource);
+		}
+		byte[] content = FileCopyUtils.copyToByteArray(resource.getInputStream());
+		File cacheFile = new File(cacheDirectory, DigestUtils.md5DigestAsHex(content) + CACHE_FILE_SUFFIX);
+		AnnotationMetadataReadingVisitor visitor =
+				new AnnotationMetadataReadingVisitor(getResourceLoader().getClassLoader());
+		ClassMetadataRecording recording = readRecording(cacheFile);
+		if (recording != null) {
+			recording.replay(visitor);
+		}
+		else {
+			recording = ClassMetadataRecording.record(new ClassReader(content), visitor);
+			writeRecording(cacheFile, recording);
+		}
+		return new SimpleMetadataReader(resource, visitor);
+	}
+
+	private ClassMetadataRecording readRecording(File cacheFile) {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			try {
+				return ClassMetadataRecording.readFrom(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring unreadable class metadata cache entry " + cacheFile, ex);
+			}
+			return null;
+		}
+	}
+
+	private void writeRecording(File cacheFile, ClassMetadataRecording recording) {
+		File tempFile = null;
+		try {
+			// Write to a temporary file first so that concurrent readers never see partial content
+			tempFile = File.createTempFile("class", CACHE_FILE_SUFFIX, cacheFile.getParentFile());
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				recording.writeTo(out);
+			}
+			finally {
+				out.close();
+			}
+			if (tempFile.renameTo(cacheFile)) {
+				tempFile = null;
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not write class metadata cache entry " + cacheFile, ex);
+			}
+		}
+		finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+
+	/**
+	 * Access-ordered segment of the MetadataReader cache,
+	 * to be accessed while synchronized on the segment itself.
+	 */
+	@SuppressWarnings("serial")
+	private class Segment extends LinkedHashMap<Resource, MetadataReader> {
+
+		public Segment() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Resource, MetadataReader> eldest) {
+			return size() > Math.max(1, getCacheLimit() / SEGMENT_COUNT);
+		}
+	}
+
+}
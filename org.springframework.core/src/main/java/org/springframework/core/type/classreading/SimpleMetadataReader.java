@@ -64,6 +64,16 @@ final class SimpleMetadataReader implements MetadataReader {
 		this.resource = resource;
 	}
 
+	/**
+	 * Create a new SimpleMetadataReader for a visitor that has already been
+	 * populated, e.g. from a {@link ClassMetadataRecording}.
+	 */
+	SimpleMetadataReader(Resource resource, AnnotationMetadataReadingVisitor visitor) {
+		this.annotationMetadata = visitor;
+		this.classMetadata = visitor;
+		this.resource = resource;
+	}
+
 	public Resource getResource() {
 		return this.resource;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.util;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,6 +39,12 @@ import java.util.regex.Pattern;
  * <li><code>org/&#42;&#42;/servlet/bla.jsp</code> - matches <code>org/springframework/servlet/bla.jsp</code> but also
  * <code>org/springframework/testing/servlet/bla.jsp</code> and <code>org/servlet/bla.jsp</code></li> </ul>
  *
+ * <p>Tokenized patterns and the compiled matchers for their individual segments are
+ * cached by default, so that repeated matching against the same set of patterns does
+ * not re-parse those patterns. The cache deactivates itself once it grows beyond a
+ * threshold, which typically indicates that patterns are being generated dynamically;
+ * see {@link #setCachePatterns}.
+ *
  * @author Alef Arendsen
  * @author Juergen Hoeller
  * @author Rob Harrop
@@ -46,17 +53,55 @@ import java.util.regex.Pattern;
  */
 public class AntPathMatcher implements PathMatcher {
 
-	private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^/]+?\\}");
-
 	/** Default path separator: "/" */
 	public static final String DEFAULT_PATH_SEPARATOR = "/";
 
+	private static final int CACHE_TURNOFF_THRESHOLD = 65536;
+
+	private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^/]+?\\}");
+
+
 	private String pathSeparator = DEFAULT_PATH_SEPARATOR;
 
+	private volatile Boolean cachePatterns;
 
-	/** Set the path separator to use for pattern parsing. Default is "/", as in Ant. */
+	private final Map<String, String[]> tokenizedPatternCache = new ConcurrentHashMap<String, String[]>(256);
+
+	final Map<String, AntPathStringMatcher> stringMatcherCache =
+			new ConcurrentHashMap<String, AntPathStringMatcher>(256);
+
+
+	/**
+	 * Set the path separator to use for pattern parsing. Default is "/", as in Ant.
+	 * <p>Any patterns cached for the previous separator will be discarded.
+	 */
 	public void setPathSeparator(String pathSeparator) {
 		this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
+		this.tokenizedPatternCache.clear();
+	}
+
+	/**
+	 * Specify whether to cache parsed pattern metadata for patterns passed
+	 * into this matcher's {@link #match} method. A value of <code>true</code>
+	 * activates an unlimited pattern cache; a value of <code>false</code> turns
+	 * the pattern cache off completely.
+	 * <p>Default is for the cache to be on, but with the variant to automatically
+	 * turn it off when encountering too many patterns to cache at runtime
+	 * (the threshold is 65536), assuming that arbitrary permutations of patterns
+	 * are coming in, with little chance for encountering a reoccurring pattern.
+	 * @see #tokenizePattern(String)
+	 */
+	public void setCachePatterns(boolean cachePatterns) {
+		this.cachePatterns = cachePatterns;
+		if (!cachePatterns) {
+			deactivatePatternCache();
+		}
+	}
+
+	private void deactivatePatternCache() {
+		this.cachePatterns = false;
+		this.tokenizedPatternCache.clear();
+		this.stringMatcherCache.clear();
 	}
 
 
@@ -88,8 +133,8 @@ public class AntPathMatcher implements PathMatcher {
 			return false;
 		}
 
-		String[] pattDirs = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
-		String[] pathDirs = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+		String[] pattDirs = tokenizePattern(pattern);
+		String[] pathDirs = tokenizePath(path);
 
 		int pattIdxStart = 0;
 		int pattIdxEnd = pattDirs.length - 1;
@@ -216,8 +261,128 @@ public class AntPathMatcher implements PathMatcher {
 	 * @return <code>true</code> if the string matches against the pattern, or <code>false</code> otherwise.
 	 */
 	private boolean matchStrings(String pattern, String str, Map<String, String> uriTemplateVariables) {
-		AntPathStringMatcher matcher = new AntPathStringMatcher(pattern, str, uriTemplateVariables);
-		return matcher.matchStrings();
+		return getStringMatcher(pattern).matchStrings(str, uriTemplateVariables);
+	}
+
+	/**
+	 * Tokenize the given path pattern into parts, based on this matcher's settings.
+	 * <p>Performs caching based on {@link #setCachePatterns}, delegating to
+	 * {@link #tokenizePath(String)} for the actual tokenization algorithm.
+	 * @param pattern the pattern to tokenize
+	 * @return the tokenized pattern parts (not to be modified by the caller)
+	 */
+	protected String[] tokenizePattern(String pattern) {
+		String[] tokenized = null;
+		Boolean cachePatterns = this.cachePatterns;
+		if (cachePatterns == null || cachePatterns.booleanValue()) {
+			tokenized = this.tokenizedPatternCache.get(pattern);
+		}
+		if (tokenized == null) {
+			tokenized = tokenizePath(pattern);
+			if (cachePatterns == null && this.tokenizedPatternCache.size() >= CACHE_TURNOFF_THRESHOLD) {
+				// Try to adapt to the runtime situation that we're encountering:
+				// There are obviously too many different patterns coming in here...
+				// So let's turn off the cache since the patterns are unlikely to be reoccurring.
+				deactivatePatternCache();
+				return tokenized;
+			}
+			if (cachePatterns == null || cachePatterns.booleanValue()) {
+				this.tokenizedPatternCache.put(pattern, tokenized);
+			}
+		}
+		return tokenized;
+	}
+
+	/**
+	 * Tokenize the given path String into parts, based on this matcher's settings.
+	 * <p>Equivalent to {@link StringUtils#tokenizeToStringArray(String, String)}
+	 * (trimming tokens and ignoring empty ones), but walks a single-character
+	 * separator directly instead of going through a <code>StringTokenizer</code>
+	 * and an intermediate <code>List</code>.
+	 * @param path the path to tokenize
+	 * @return the tokenized path parts
+	 */
+	protected String[] tokenizePath(String path) {
+		if (this.pathSeparator.length() != 1) {
+			return StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+		}
+		char separator = this.pathSeparator.charAt(0);
+		int length = path.length();
+		int count = 0;
+		int segmentStart = 0;
+		for (int i = 0; i <= length; i++) {
+			if (i == length || path.charAt(i) == separator) {
+				if (trimmedStart(path, segmentStart, i) < trimmedEnd(path, segmentStart, i)) {
+					count++;
+				}
+				segmentStart = i + 1;
+			}
+		}
+		String[] segments = new String[count];
+		int index = 0;
+		segmentStart = 0;
+		for (int i = 0; i <= length && index < count; i++) {
+			if (i == length || path.charAt(i) == separator) {
+				int start = trimmedStart(path, segmentStart, i);
+				int end = trimmedEnd(path, segmentStart, i);
+				if (start < end) {
+					segments[index++] = path.substring(start, end);
+				}
+				segmentStart = i + 1;
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Trim the given range the same way as {@link String#trim()} does.
+	 */
+	private static int trimmedStart(String str, int start, int end) {
+		while (start < end && str.charAt(start) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	private static int trimmedEnd(String str, int start, int end) {
+		while (end > start && str.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Build or retrieve an {@link AntPathStringMatcher} for the given pattern segment.
+	 * <p>The default implementation checks this AntPathMatcher's internal cache
+	 * (see {@link #setCachePatterns}), creating a new AntPathStringMatcher instance
+	 * if no cached copy is found. When encountering too many patterns to cache at
+	 * runtime (the threshold is 65536), it turns the default cache off, assuming
+	 * that arbitrary permutations of patterns are coming in, with little chance
+	 * for encountering a reoccurring pattern.
+	 * @param pattern the pattern segment to match against (never <code>null</code>)
+	 * @return a corresponding AntPathStringMatcher (never <code>null</code>)
+	 * @see #setCachePatterns
+	 */
+	AntPathStringMatcher getStringMatcher(String pattern) {
+		AntPathStringMatcher matcher = null;
+		Boolean cachePatterns = this.cachePatterns;
+		if (cachePatterns == null || cachePatterns.booleanValue()) {
+			matcher = this.stringMatcherCache.get(pattern);
+		}
+		if (matcher == null) {
+			matcher = new AntPathStringMatcher(pattern);
+			if (cachePatterns == null && this.stringMatcherCache.size() >= CACHE_TURNOFF_THRESHOLD) {
+				// Try to adapt to the runtime situation that we're encountering:
+				// There are obviously too many different patterns coming in here...
+				// So let's turn off the cache since the patterns are unlikely to be reoccurring.
+				deactivatePatternCache();
+				return matcher;
+			}
+			if (cachePatterns == null || cachePatterns.booleanValue()) {
+				this.stringMatcherCache.put(pattern, matcher);
+			}
+		}
+		return matcher;
 	}
 
 	/**
@@ -234,8 +399,8 @@ public class AntPathMatcher implements PathMatcher {
 	 * does <strong>not</strong> enforce this.
 	 */
 	public String extractPathWithinPattern(String pattern, String path) {
-		String[] patternParts = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
-		String[] pathParts = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+		String[] patternParts = tokenizePattern(pattern);
+		String[] pathParts = tokenizePath(path);
 
 		StringBuilder builder = new StringBuilder();
 
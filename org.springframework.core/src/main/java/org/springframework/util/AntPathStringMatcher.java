@@ -16,7 +16,7 @@
 
 package org.springframework.util;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -39,22 +39,21 @@ class AntPathStringMatcher {
 
 	private static final String DEFAULT_VARIABLE_PATTERN = "(.*)";
 
-	private final Pattern pattern;
+	private final String rawPattern;
 
-	private String str;
+	private final Pattern pattern;
 
-	private final List<String> variableNames = new LinkedList<String>();
+	private final boolean exactMatch;
 
-	private final Map<String, String> uriTemplateVariables;
+	private final List<String> variableNames = new ArrayList<String>();
 
-	/** Construct a new instance of the <code>AntPatchStringMatcher</code>. */
-	AntPathStringMatcher(String pattern, String str, Map<String, String> uriTemplateVariables) {
-		this.str = str;
-		this.uriTemplateVariables = uriTemplateVariables;
-		this.pattern = createPattern(pattern);
-	}
 
-	private Pattern createPattern(String pattern) {
+	/**
+	 * Construct a new instance of the <code>AntPathStringMatcher</code> for the given pattern.
+	 * <p>Instances are immutable once constructed and may therefore be shared and cached.
+	 */
+	AntPathStringMatcher(String pattern) {
+		this.rawPattern = pattern;
 		StringBuilder patternBuilder = new StringBuilder();
 		Matcher m = GLOB_PATTERN.matcher(pattern);
 		int end = 0;
@@ -71,7 +70,7 @@ class AntPathStringMatcher {
 				int colonIdx = match.indexOf(':');
 				if (colonIdx == -1) {
 					patternBuilder.append(DEFAULT_VARIABLE_PATTERN);
-					variableNames.add(m.group(1));
+					this.variableNames.add(m.group(1));
 				}
 				else {
 					String variablePattern = match.substring(colonIdx + 1, match.length() - 1);
@@ -79,13 +78,21 @@ class AntPathStringMatcher {
 					patternBuilder.append(variablePattern);
 					patternBuilder.append(')');
 					String variableName = match.substring(1, colonIdx);
-					variableNames.add(variableName);
+					this.variableNames.add(variableName);
 				}
 			}
 			end = m.end();
 		}
-		patternBuilder.append(quote(pattern, end, pattern.length()));
-		return Pattern.compile(patternBuilder.toString());
+		if (end == 0) {
+			// no wildcards or URI template variables: plain String comparison suffices
+			this.exactMatch = true;
+			this.pattern = null;
+		}
+		else {
+			this.exactMatch = false;
+			patternBuilder.append(quote(pattern, end, pattern.length()));
+			this.pattern = Pattern.compile(patternBuilder.toString());
+		}
 	}
 
 	private String quote(String s, int start, int end) {
@@ -97,18 +104,25 @@ class AntPathStringMatcher {
 
 	/**
 	 * Main entry point.
-	 *
+	 * @param str the string to match against the pattern
+	 * @param uriTemplateVariables the map to populate with URI template variables
+	 * (may be <code>null</code> if not needed)
 	 * @return <code>true</code> if the string matches against the pattern, or <code>false</code> otherwise.
 	 */
-	public boolean matchStrings() {
-		Matcher matcher = pattern.matcher(str);
+	public boolean matchStrings(String str, Map<String, String> uriTemplateVariables) {
+		if (this.exactMatch) {
+			return this.rawPattern.equals(str);
+		}
+		Matcher matcher = this.pattern.matcher(str);
 		if (matcher.matches()) {
 			if (uriTemplateVariables != null) {
 				// SPR-8455
-				Assert.isTrue(variableNames.size() == matcher.groupCount(), 
-						"The number of capturing groups in the pattern segment " + pattern + 
-						" does not match the number of URI template variables it defines, which can occur if " + 
-						" capturing groups are used in a URI template regex. Use non-capturing groups instead.");
+				if (this.variableNames.size() != matcher.groupCount()) {
+					throw new IllegalArgumentException("The number of capturing groups in the pattern segment " +
+							this.pattern + " does not match the number of URI template variables it defines, " +
+							"which can occur if capturing groups are used in a URI template regex. " +
+							"Use non-capturing groups instead.");
+				}
 				for (int i = 1; i <= matcher.groupCount(); i++) {
 					String name = this.variableNames.get(i - 1);
 					String value = matcher.group(i);
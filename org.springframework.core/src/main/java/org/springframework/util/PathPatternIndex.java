@@ -0,0 +1,261 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over a set of path patterns that determines the patterns which may
+ * match a given path in a single walk, instead of matching each registered
+ * pattern in turn.
+ *
+ * <p>Patterns are split into segments and stored in a trie: literal segments
+ * are looked up by name, segments of the form <code>name.*</code> are looked up
+ * by the part of the path segment before its first dot, <code>**</code> consumes
+ * zero or more path segments, and all other wildcard or URI template segments
+ * (e.g. <code>*</code>, <code>t?st</code>, <code>{hotel}</code>) accept any
+ * single path segment.
+ *
+ * <p>The segment semantics are those of {@link AntPathMatcher}. For any other
+ * {@link PathMatcher} implementation, including subclasses of AntPathMatcher,
+ * patterns are not indexed and every registered pattern is returned as a candidate.
+ *
+ * <p>{@link #getCandidatePatterns} may return patterns that do not actually
+ * match the path (for example, a <code>{hotel}</code> segment with a regular
+ * expression that rejects the path segment); it never omits a pattern that
+ * does match. Use {@link #getMatchingPatterns} to have the candidates checked
+ * against the {@link PathMatcher}.
+ *
+ * <p>Registration is not thread-safe. Lookups may be performed concurrently
+ * once all patterns have been added.
+ *
+ * @since 3.1.3
+ * @see AntPathMatcher
+ */
+public class PathPatternIndex {
+
+	private final PathMatcher pathMatcher;
+
+	private final AntPathMatcher antPathMatcher;
+
+	private final Map<String, Integer> patternIds = new LinkedHashMap<String, Integer>();
+
+	private final List<String> patterns = new ArrayList<String>();
+
+	private final Node root = new Node();
+
+	private final BitSet unindexedPatterns = new BitSet();
+
+
+	/**
+	 * Create a new PathPatternIndex for the given PathMatcher.
+	 * @param pathMatcher the PathMatcher that registered patterns are meant for
+	 */
+	public PathPatternIndex(PathMatcher pathMatcher) {
+		Assert.notNull(pathMatcher, "PathMatcher must not be null");
+		this.pathMatcher = pathMatcher;
+		// Subclasses may override the matching semantics that the index relies on.
+		this.antPathMatcher = (pathMatcher.getClass() == AntPathMatcher.class ? (AntPathMatcher) pathMatcher : null);
+	}
+
+
+	/**
+	 * Return the PathMatcher that this index has been built for.
+	 */
+	public PathMatcher getPathMatcher() {
+		return this.pathMatcher;
+	}
+
+	/**
+	 * Add the given pattern to this index. Adding a pattern that has been
+	 * registered before has no effect.
+	 * @param pattern the path pattern to add
+	 */
+	public void addPattern(String pattern) {
+		Assert.notNull(pattern, "Pattern must not be null");
+		if (this.patternIds.containsKey(pattern)) {
+			return;
+		}
+		int id = this.patterns.size();
+		this.patterns.add(pattern);
+		this.patternIds.put(pattern, id);
+		if (this.antPathMatcher == null) {
+			this.unindexedPatterns.set(id);
+			return;
+		}
+		Node node = this.root;
+		for (String segment : this.antPathMatcher.tokenizePattern(pattern)) {
+			node = node.getOrCreateChild(segment);
+		}
+		node.patternIds.set(id);
+	}
+
+	/**
+	 * Return the number of distinct patterns in this index.
+	 */
+	public int size() {
+		return this.patterns.size();
+	}
+
+	/**
+	 * Return the registered patterns that may match the given path,
+	 * in registration order.
+	 * <p>The result is a superset of the patterns for which
+	 * {@link PathMatcher#match} returns <code>true</code>.
+	 * @param path the path to find candidate patterns for
+	 * @return the candidate patterns (never <code>null</code>)
+	 */
+	public List<String> getCandidatePatterns(String path) {
+		BitSet result = new BitSet(this.patterns.size());
+		result.or(this.unindexedPatterns);
+		if (this.antPathMatcher != null) {
+			collect(this.root, this.antPathMatcher.tokenizePath(path), 0, result);
+		}
+		List<String> candidates = new ArrayList<String>(result.cardinality());
+		for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+			candidates.add(this.patterns.get(i));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Return the registered patterns that match the given path according to
+	 * {@link PathMatcher#match}, in registration order.
+	 * @param path the path to match
+	 * @return the matching patterns (never <code>null</code>)
+	 */
+	public List<String> getMatchingPatterns(String path) {
+		List<String> candidates = getCandidatePatterns(path);
+		List<String> matches = new ArrayList<String>(candidates.size());
+		for (String candidate : candidates) {
+			if (this.pathMatcher.match(candidate, path)) {
+				matches.add(candidate);
+			}
+		}
+		return matches;
+	}
+
+	private void collect(Node node, String[] pathSegments, int index, BitSet result) {
+		if (index == pathSegments.length) {
+			result.or(node.patternIds);
+			if (node.wildcardChildren != null) {
+				// a trailing "*" also matches a path ending with a separator, e.g. "/hotels/*" and "/hotels/"
+				for (Node child : node.wildcardChildren.values()) {
+					result.or(child.patternIds);
+				}
+			}
+			if (node.doubleWildcardChild != null) {
+				collect(node.doubleWildcardChild, pathSegments, index, result);
+			}
+			return;
+		}
+		String segment = pathSegments[index];
+		if (node.literalChildren != null) {
+			Node child = node.literalChildren.get(segment);
+			if (child != null) {
+				collect(child, pathSegments, index + 1, result);
+			}
+		}
+		if (node.suffixChildren != null) {
+			int dotIndex = segment.indexOf('.');
+			if (dotIndex != -1) {
+				Node child = node.suffixChildren.get(segment.substring(0, dotIndex));
+				if (child != null) {
+					collect(child, pathSegments, index + 1, result);
+				}
+			}
+		}
+		if (node.wildcardChildren != null) {
+			for (Node child : node.wildcardChildren.values()) {
+				collect(child, pathSegments, index + 1, result);
+			}
+		}
+		if (node.doubleWildcardChild != null) {
+			for (int i = index; i <= pathSegments.length; i++) {
+				collect(node.doubleWildcardChild, pathSegments, i, result);
+			}
+		}
+	}
+
+
+	/**
+	 * A node in the segment trie, holding the ids of the patterns that end here.
+	 */
+	private static class Node {
+
+		private final BitSet patternIds = new BitSet();
+
+		private Map<String, Node> literalChildren;
+
+		private Map<String, Node> suffixChildren;
+
+		private Map<String, Node> wildcardChildren;
+
+		private Node doubleWildcardChild;
+
+		public Node getOrCreateChild(String segment) {
+			if ("**".equals(segment)) {
+				if (this.doubleWildcardChild == null) {
+					this.doubleWildcardChild = new Node();
+				}
+				return this.doubleWildcardChild;
+			}
+			if (isLiteral(segment)) {
+				this.literalChildren = getOrCreateMap(this.literalChildren);
+				return getOrCreateChild(this.literalChildren, segment);
+			}
+			if (segment.endsWith(".*")) {
+				String name = segment.substring(0, segment.length() - 2);
+				if (isLiteral(name) && name.indexOf('.') == -1) {
+					this.suffixChildren = getOrCreateMap(this.suffixChildren);
+					return getOrCreateChild(this.suffixChildren, name);
+				}
+			}
+			this.wildcardChildren = getOrCreateMap(this.wildcardChildren);
+			return getOrCreateChild(this.wildcardChildren, segment);
+		}
+
+		private static boolean isLiteral(String segment) {
+			for (int i = 0; i < segment.length(); i++) {
+				char c = segment.charAt(i);
+				if (c == '*' || c == '?' || c == '{' || c == '}') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static Map<String, Node> getOrCreateMap(Map<String, Node> map) {
+			return (map != null ? map : new HashMap<String, Node>(4));
+		}
+
+		private static Node getOrCreateChild(Map<String, Node> children, String segment) {
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node();
+				children.put(segment, child);
+			}
+			return child;
+		}
+	}
+
+}
@@ -16,11 +16,14 @@
 
 package org.springframework.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,6 +34,10 @@ import org.apache.commons.logging.LogFactory;
  * user-supplied values. <p> Values for substitution can be supplied using a {@link Properties} instance or
  * using a {@link PlaceholderResolver}.
  *
+ * <p>Each String value is split into its literal parts and placeholders once; the parsed
+ * form is cached per helper instance, so that resolving the same value again only performs
+ * the placeholder lookups. Resolved values are never cached.
+ *
  * @author Juergen Hoeller
  * @author Rob Harrop
  * @since 3.0
@@ -39,6 +46,9 @@ public class PropertyPlaceholderHelper {
 
 	private static final Log logger = LogFactory.getLog(PropertyPlaceholderHelper.class);
 
+	/** Maximum number of compiled templates to keep per helper instance */
+	private static final int TEMPLATE_CACHE_LIMIT = 1024;
+
 	private static final Map<String, String> wellKnownSimplePrefixes = new HashMap<String, String>(4);
 
 	static {
@@ -58,6 +68,8 @@ public class PropertyPlaceholderHelper {
 
 	private final boolean ignoreUnresolvablePlaceholders;
 
+	private final Map<String, Template> templateCache = new ConcurrentHashMap<String, Template>(64);
+
 
 	/**
 	 * Creates a new <code>PropertyPlaceholderHelper</code> that uses the supplied prefix and suffix.
@@ -128,62 +140,98 @@ public class PropertyPlaceholderHelper {
 	protected String parseStringValue(
 			String strVal, PlaceholderResolver placeholderResolver, Set<String> visitedPlaceholders) {
 
-		StringBuilder buf = new StringBuilder(strVal);
+		if (strVal.indexOf(this.placeholderPrefix) == -1) {
+			return strVal;
+		}
+		Template template = this.templateCache.get(strVal);
+		if (template == null) {
+			template = compileTemplate(strVal);
+			if (this.templateCache.size() >= TEMPLATE_CACHE_LIMIT) {
+				this.templateCache.clear();
+			}
+			this.templateCache.put(strVal, template);
+		}
 
-		int startIndex = strVal.indexOf(this.placeholderPrefix);
-		while (startIndex != -1) {
-			int endIndex = findPlaceholderEndIndex(buf, startIndex);
-			if (endIndex != -1) {
-				String placeholder = buf.substring(startIndex + this.placeholderPrefix.length(), endIndex);
-				if (!visitedPlaceholders.add(placeholder)) {
-					throw new IllegalArgumentException(
-							"Circular placeholder reference '" + placeholder + "' in property definitions");
-				}
-				// Recursive invocation, parsing placeholders contained in the placeholder key.
-				placeholder = parseStringValue(placeholder, placeholderResolver, visitedPlaceholders);
-
-				// Now obtain the value for the fully resolved key...
-				String propVal = placeholderResolver.resolvePlaceholder(placeholder);
-				if (propVal == null && this.valueSeparator != null) {
-					int separatorIndex = placeholder.indexOf(this.valueSeparator);
-					if (separatorIndex != -1) {
-						String actualPlaceholder = placeholder.substring(0, separatorIndex);
-						String defaultValue = placeholder.substring(separatorIndex + this.valueSeparator.length());
-						propVal = placeholderResolver.resolvePlaceholder(actualPlaceholder);
-						if (propVal == null) {
-							propVal = defaultValue;
-						}
-					}
-				}
-				if (propVal != null) {
-					// Recursive invocation, parsing placeholders contained in the
-					// previously resolved placeholder value.
-					propVal = parseStringValue(propVal, placeholderResolver, visitedPlaceholders);
-					buf.replace(startIndex, endIndex + this.placeholderSuffix.length(), propVal);
-					if (logger.isTraceEnabled()) {
-						logger.trace("Resolved placeholder '" + placeholder + "'");
+		StringBuilder buf = new StringBuilder(strVal.length());
+		for (Object part : template.parts) {
+			if (part instanceof String) {
+				buf.append((String) part);
+				continue;
+			}
+			Placeholder placeholderPart = (Placeholder) part;
+			String originalPlaceholder = placeholderPart.key;
+			if (!visitedPlaceholders.add(originalPlaceholder)) {
+				throw new IllegalArgumentException(
+						"Circular placeholder reference '" + originalPlaceholder + "' in property definitions");
+			}
+			// Recursive invocation, parsing placeholders contained in the placeholder key.
+			String placeholder = parseStringValue(originalPlaceholder, placeholderResolver, visitedPlaceholders);
+
+			// Now obtain the value for the fully resolved key...
+			String propVal = placeholderResolver.resolvePlaceholder(placeholder);
+			if (propVal == null && this.valueSeparator != null) {
+				int separatorIndex = placeholder.indexOf(this.valueSeparator);
+				if (separatorIndex != -1) {
+					String actualPlaceholder = placeholder.substring(0, separatorIndex);
+					String defaultValue = placeholder.substring(separatorIndex + this.valueSeparator.length());
+					propVal = placeholderResolver.resolvePlaceholder(actualPlaceholder);
+					if (propVal == null) {
+						propVal = defaultValue;
 					}
-					startIndex = buf.indexOf(this.placeholderPrefix, startIndex + propVal.length());
-				}
-				else if (this.ignoreUnresolvablePlaceholders) {
-					// Proceed with unprocessed value.
-					startIndex = buf.indexOf(this.placeholderPrefix, endIndex + this.placeholderSuffix.length());
 				}
-				else {
-					throw new IllegalArgumentException("Could not resolve placeholder '" +
-							placeholder + "'" + " in string value [" + strVal + "]");
+			}
+			if (propVal != null) {
+				// Recursive invocation, parsing placeholders contained in the
+				// previously resolved placeholder value.
+				propVal = parseStringValue(propVal, placeholderResolver, visitedPlaceholders);
+				buf.append(propVal);
+				if (logger.isTraceEnabled()) {
+					logger.trace("Resolved placeholder '" + placeholder + "'");
 				}
-
-				visitedPlaceholders.remove(placeholder);
+			}
+			else if (this.ignoreUnresolvablePlaceholders) {
+				// Proceed with unprocessed value.
+				buf.append(placeholderPart.text);
 			}
 			else {
-				startIndex = -1;
+				throw new IllegalArgumentException("Could not resolve placeholder '" +
+						placeholder + "'" + " in string value [" + strVal + "]");
 			}
+
+			visitedPlaceholders.remove(originalPlaceholder);
 		}
 
 		return buf.toString();
 	}
 
+	/**
+	 * Split the given String into its literal parts and placeholders.
+	 * Placeholder keys and resolved values are not parsed any further here;
+	 * they are compiled on demand when being resolved.
+	 */
+	private Template compileTemplate(String strVal) {
+		List<Object> parts = new ArrayList<Object>(4);
+		int position = 0;
+		int startIndex = strVal.indexOf(this.placeholderPrefix);
+		while (startIndex != -1) {
+			int endIndex = findPlaceholderEndIndex(strVal, startIndex);
+			if (endIndex == -1) {
+				break;
+			}
+			if (startIndex > position) {
+				parts.add(strVal.substring(position, startIndex));
+			}
+			position = endIndex + this.placeholderSuffix.length();
+			parts.add(new Placeholder(strVal.substring(startIndex + this.placeholderPrefix.length(), endIndex),
+					strVal.substring(startIndex, position)));
+			startIndex = strVal.indexOf(this.placeholderPrefix, position);
+		}
+		if (position < strVal.length()) {
+			parts.add(strVal.substring(position));
+		}
+		return new Template(parts.toArray());
+	}
+
 	private int findPlaceholderEndIndex(CharSequence buf, int startIndex) {
 		int index = startIndex + this.placeholderPrefix.length();
 		int withinNestedPlaceholder = 0;
@@ -223,4 +271,36 @@ public class PropertyPlaceholderHelper {
 		String resolvePlaceholder(String placeholderName);
 	}
 
+
+	/**
+	 * Pre-parsed form of a String value: a sequence of literal
+	 * <code>String</code> parts and {@link Placeholder} parts.
+	 */
+	private static class Template {
+
+		private final Object[] parts;
+
+		public Template(Object[] parts) {
+			this.parts = parts;
+		}
+	}
+
+
+	/**
+	 * A placeholder within a {@link Template}.
+	 */
+	private static class Placeholder {
+
+		/** The placeholder key, possibly containing nested placeholders */
+		private final String key;
+
+		/** The original text of the placeholder, including prefix and suffix */
+		private final String text;
+
+		public Placeholder(String key, String text) {
+			this.key = key;
+			this.text = text;
+		}
+	}
+
 }
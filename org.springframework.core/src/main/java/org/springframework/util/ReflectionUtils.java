@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.util;
 
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -25,7 +27,11 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -34,6 +40,11 @@ import java.util.regex.Pattern;
  *
  * <p>Only intended for internal use.
  *
+ * <p>The declared methods and fields of each class are cached, so the
+ * {@link Method} and {@link Field} instances returned by the <code>find</code>
+ * methods and passed to callbacks are shared between all callers. This also
+ * applies to their accessible flag as set through {@link #makeAccessible}.
+ *
  * @author Juergen Hoeller
  * @author Rob Harrop
  * @author Rod Johnson
@@ -46,6 +57,20 @@ public abstract class ReflectionUtils {
 
 	private static final Pattern CGLIB_RENAMED_METHOD_PATTERN = Pattern.compile("CGLIB\\$(.+)\\$\\d+");
 
+	/**
+	 * Cache for declared members of classes that are visible to the ClassLoader
+	 * of this class, held strongly.
+	 */
+	private static final Map<Class<?>, DeclaredMembers> declaredMembersCache =
+			new ConcurrentHashMap<Class<?>, DeclaredMembers>(256);
+
+	/**
+	 * Cache for declared members of all other classes, held weakly by class and
+	 * softly by value in order to not prevent their ClassLoader from being collected.
+	 */
+	private static final Map<Class<?>, Reference<DeclaredMembers>> nonCacheSafeDeclaredMembersCache =
+			Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<DeclaredMembers>>());
+
 	/**
 	 * Attempt to find a {@link Field field} on the supplied {@link Class} with the
 	 * supplied <code>name</code>. Searches all superclasses up to {@link Object}.
@@ -71,7 +96,7 @@ public abstract class ReflectionUtils {
 		Assert.isTrue(name != null || type != null, "Either name or type of the field must be specified");
 		Class<?> searchType = clazz;
 		while (!Object.class.equals(searchType) && searchType != null) {
-			Field[] fields = searchType.getDeclaredFields();
+			Field[] fields = getDeclaredMembers(searchType).getFields();
 			for (Field field : fields) {
 				if ((name == null || name.equals(field.getName())) && (type == null || type.equals(field.getType()))) {
 					return field;
@@ -151,7 +176,8 @@ public abstract class ReflectionUtils {
 		Assert.notNull(name, "Method name must not be null");
 		Class<?> searchType = clazz;
 		while (searchType != null) {
-			Method[] methods = (searchType.isInterface() ? searchType.getMethods() : searchType.getDeclaredMethods());
+			Method[] methods = (searchType.isInterface() ? searchType.getMethods() :
+					getDeclaredMembers(searchType).getMethods());
 			for (Method method : methods) {
 				if (name.equals(method.getName())
 						&& (paramTypes == null || Arrays.equals(paramTypes, method.getParameterTypes()))) {
@@ -464,9 +490,12 @@ public abstract class ReflectionUtils {
 			throws IllegalArgumentException {
 
 		// Keep backing up the inheritance hierarchy.
-		Method[] methods = clazz.getDeclaredMethods();
+		// The pre-built user-declared filter is applied once per class and cached.
+		boolean userDeclaredOnly = (mf == USER_DECLARED_METHODS);
+		DeclaredMembers members = getDeclaredMembers(clazz);
+		Method[] methods = (userDeclaredOnly ? members.getUserDeclaredMethods() : members.getMethods());
 		for (Method method : methods) {
-			if (mf != null && !mf.matches(method)) {
+			if (mf != null && !userDeclaredOnly && !mf.matches(method)) {
 				continue;
 			}
 			try {
@@ -560,7 +589,7 @@ public abstract class ReflectionUtils {
 		// Keep backing up the inheritance hierarchy.
 		Class<?> targetClass = clazz;
 		do {
-			Field[] fields = targetClass.getDeclaredFields();
+			Field[] fields = getDeclaredMembers(targetClass).getFields();
 			for (Field field : fields) {
 				// Skip static and final fields.
 				if (ff != null && !ff.matches(field)) {
@@ -605,6 +634,43 @@ public abstract class ReflectionUtils {
 		}, COPYABLE_FIELDS);
 	}
 
+	/**
+	 * Clear the internal cache of declared methods and fields.
+	 * <p>Note that the cache is shared across the entire JVM. It does not need
+	 * to be cleared for classes to be unloaded, since members of classes that
+	 * are not visible to the ClassLoader of this class are not held strongly;
+	 * this is rather meant for tests and for redefined classes.
+	 * @since 3.1.3
+	 */
+	public static void clearCache() {
+		declaredMembersCache.clear();
+		nonCacheSafeDeclaredMembersCache.clear();
+	}
+
+	/**
+	 * Return the (cached) declared members of the given class.
+	 * <p>Members of classes visible to the ClassLoader of this class are cached
+	 * strongly; members of other classes are cached in a ClassLoader-safe manner.
+	 */
+	private static DeclaredMembers getDeclaredMembers(Class<?> clazz) {
+		DeclaredMembers members = declaredMembersCache.get(clazz);
+		if (members != null) {
+			return members;
+		}
+		Reference<DeclaredMembers> ref = nonCacheSafeDeclaredMembersCache.get(clazz);
+		members = (ref != null ? ref.get() : null);
+		if (members == null) {
+			members = new DeclaredMembers(clazz);
+			if (clazz.getClassLoader() == null || ClassUtils.isCacheSafe(clazz, ReflectionUtils.class.getClassLoader())) {
+				declaredMembersCache.put(clazz, members);
+			}
+			else {
+				nonCacheSafeDeclaredMembersCache.put(clazz, new SoftReference<DeclaredMembers>(members));
+			}
+		}
+		return members;
+	}
+
 
 	/**
 	 * Action to take on each method.
@@ -691,4 +757,58 @@ public abstract class ReflectionUtils {
 		}
 	};
 
+
+
+	/**
+	 * Holder for the declared methods and fields of a class, each retrieved from
+	 * the JVM once on first access. The arrays must not be exposed to callers.
+	 */
+	private static class DeclaredMembers {
+
+		private final Class<?> clazz;
+
+		private volatile Method[] methods;
+
+		private volatile Method[] userDeclaredMethods;
+
+		private volatile Field[] fields;
+
+		public DeclaredMembers(Class<?> clazz) {
+			this.clazz = clazz;
+		}
+
+		public Method[] getMethods() {
+			Method[] methods = this.methods;
+			if (methods == null) {
+				methods = this.clazz.getDeclaredMethods();
+				this.methods = methods;
+			}
+			return methods;
+		}
+
+		public Method[] getUserDeclaredMethods() {
+			Method[] userDeclaredMethods = this.userDeclaredMethods;
+			if (userDeclaredMethods == null) {
+				List<Method> result = new ArrayList<Method>();
+				for (Method method : getMethods()) {
+					if (USER_DECLARED_METHODS.matches(method)) {
+						result.add(method);
+					}
+				}
+				userDeclaredMethods = result.toArray(new Method[result.size()]);
+				this.userDeclaredMethods = userDeclaredMethods;
+			}
+			return userDeclaredMethods;
+		}
+
+		public Field[] getFields() {
+			Field[] fields = this.fields;
+			if (fields == null) {
+				fields = this.clazz.getDeclaredFields();
+				this.fields = fields;
+			}
+			return fields;
+		}
+	}
+
 }
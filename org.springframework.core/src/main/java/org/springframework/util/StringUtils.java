@@ -201,14 +201,21 @@ public abstract class StringUtils {
 		if (!hasLength(str)) {
 			return str;
 		}
-		StringBuilder sb = new StringBuilder(str);
+		int len = str.length();
 		int index = 0;
-		while (sb.length() > index) {
-			if (Character.isWhitespace(sb.charAt(index))) {
-				sb.deleteCharAt(index);
-			}
-			else {
-				index++;
+		while (index < len && !Character.isWhitespace(str.charAt(index))) {
+			index++;
+		}
+		if (index == len) {
+			// no whitespace at all: nothing to trim
+			return str;
+		}
+		StringBuilder sb = new StringBuilder(len - 1);
+		sb.append(str, 0, index);
+		for (int i = index + 1; i < len; i++) {
+			char c = str.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				sb.append(c);
 			}
 		}
 		return sb.toString();
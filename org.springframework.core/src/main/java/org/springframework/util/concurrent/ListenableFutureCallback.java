@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+/**
+ * Callback mechanism for the outcome, success or failure, of a {@link ListenableFuture}.
+ *
+ * @since 3.1.3
+ * @see ListenableFuture#addCallback
+ */
+public interface ListenableFutureCallback<T> {
+
+	/**
+	 * Called when the <code>ListenableFuture</code> successfully completes.
+	 * @param result the result
+	 */
+	void onSuccess(T result);
+
+	/**
+	 * Called when the <code>ListenableFuture</code> fails to complete,
+	 * including cancellation of the task.
+	 * @param ex the exception that triggered the failure
+	 */
+	void onFailure(Throwable ex);
+
+}
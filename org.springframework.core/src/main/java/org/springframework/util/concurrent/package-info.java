@@ -0,0 +1,7 @@
+/**
+ *
+ * Useful generic <code>java.util.concurrent.Future</code> extensions,
+ * such as a Future that notifies callbacks upon completion.
+ *
+ */
+package org.springframework.util.concurrent;
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link GeneratedClassSupport}.
+ */
+public class GeneratedClassSupportTests {
+
+	@Test
+	public void isPublic() {
+		assertTrue(GeneratedClassSupport.isPublic(String.class));
+		assertTrue(GeneratedClassSupport.isPublic(int.class));
+		assertTrue(GeneratedClassSupport.isPublic(String[][].class));
+		assertTrue(GeneratedClassSupport.isPublic(Map.Entry.class));
+		assertTrue(GeneratedClassSupport.isPublic(ValueConverter.class));
+		assertFalse(GeneratedClassSupport.isPublic(NonPublicType.class));
+		assertFalse(GeneratedClassSupport.isPublic(NonPublicType[].class));
+		assertFalse(GeneratedClassSupport.isPublic(NonPublicType.NestedType.class));
+	}
+
+	@Test
+	public void defineClassWithSharedClass() throws Exception {
+		String className = getClass().getName() + "$$GeneratedConverter";
+		// The parent ClassLoader does not see the shared interface.
+		Class<?> generatedClass = GeneratedClassSupport.defineClass(
+				className, generateConverter(className.replace('.', '/'), int.class), null, ValueConverter.class);
+		assertEquals(className, generatedClass.getName());
+		assertNotSame(getClass().getClassLoader(), generatedClass.getClassLoader());
+		ValueConverter converter = (ValueConverter) generatedClass.newInstance();
+		assertEquals(42, converter.convert(42));
+	}
+
+	@Test
+	public void defineClassWithReferenceConversion() throws Exception {
+		String className = getClass().getName() + "$$GeneratedStringConverter";
+		Class<?> generatedClass = GeneratedClassSupport.defineClass(className,
+				generateConverter(className.replace('.', '/'), String.class), getClass().getClassLoader());
+		ValueConverter converter = (ValueConverter) generatedClass.newInstance();
+		assertEquals("value", converter.convert("value"));
+		try {
+			converter.convert(42);
+			fail("Should have thrown ClassCastException");
+		}
+		catch (ClassCastException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Generate a ValueConverter that converts its argument to the given type and back.
+	 */
+	private static byte[] generateConverter(String internalName, Class<?> type) {
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC + Opcodes.ACC_SUPER, internalName, null,
+				"java/lang/Object", new String[] {Type.getInternalName(ValueConverter.class)});
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "convert", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		GeneratedClassSupport.unbox(mv, type);
+		GeneratedClassSupport.box(mv, type);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+
+	public interface ValueConverter {
+
+		Object convert(Object value);
+	}
+
+
+	static class NonPublicType {
+
+		public static class NestedType {
+		}
+	}
+
+}
@@ -36,6 +36,7 @@ import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Keith Donald
@@ -482,6 +483,12 @@ public class TypeDescriptorTests {
 		assertEquals(Integer.class, typeDescriptor.getObjectType());
 	}
 	
+	@Test
+	public void valueOfInterned() {
+		assertSame(TypeDescriptor.valueOf(getClass()), TypeDescriptor.valueOf(getClass()));
+		assertSame(TypeDescriptor.valueOf(String[].class), TypeDescriptor.valueOf(String[].class));
+	}
+
 	@Test
 	public void valueOfArray() throws Exception {
 		TypeDescriptor typeDescriptor = TypeDescriptor.valueOf(int[].class);
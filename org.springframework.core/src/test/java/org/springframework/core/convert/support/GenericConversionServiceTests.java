@@ -43,6 +43,7 @@ import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConverterNotFoundException;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.ConverterFactory;
 import org.springframework.core.convert.converter.GenericConverter;
 import org.springframework.core.io.DescriptiveResource;
 import org.springframework.core.io.Resource;
@@ -590,4 +591,43 @@ public class GenericConversionServiceTests {
 		assertFalse(pair.hashCode() == pairOpposite.hashCode());
 	}
 
+	@Test
+	public void converterFactoryResolvedOncePerTargetType() {
+		RecordingConverterFactory factory = new RecordingConverterFactory();
+		conversionService.addConverterFactory(factory);
+		assertEquals(Integer.valueOf(1), conversionService.convert("1", Integer.class));
+		assertEquals(Integer.valueOf(2), conversionService.convert("2", Integer.class));
+		assertEquals(Long.valueOf(3), conversionService.convert("3", Long.class));
+		assertEquals(Arrays.<Class<?>>asList(Integer.class, Long.class), factory.requestedTypes);
+	}
+
+	@Test
+	public void converterCacheInvalidatedOnRegistration() {
+		conversionService.addConverterFactory(new StringToNumberConverterFactory());
+		assertEquals(Integer.valueOf(1), conversionService.convert("1", Integer.class));
+		conversionService.addConverter(new Converter<String, Integer>() {
+			public Integer convert(String source) {
+				return 42;
+			}
+		});
+		assertEquals(Integer.valueOf(42), conversionService.convert("1", Integer.class));
+		conversionService.removeConvertible(String.class, Integer.class);
+		assertEquals(Integer.valueOf(1), conversionService.convert("1", Integer.class));
+	}
+
+
+	private static class RecordingConverterFactory implements ConverterFactory<String, Number> {
+
+		private final List<Class<?>> requestedTypes = new ArrayList<Class<?>>();
+
+		public <T extends Number> Converter<String, T> getConverter(final Class<T> targetType) {
+			this.requestedTypes.add(targetType);
+			return new Converter<String, T>() {
+				public T convert(String source) {
+					return org.springframework.util.NumberUtils.parseNumber(source, targetType);
+				}
+			};
+		}
+	}
+
 }
@@ -382,6 +382,59 @@ public class PropertySourcesPropertyResolverTests {
 		}
 	}
 
+	@Test
+	public void getProperty_withCache() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		resolver.setCacheResolvedProperties(true);
+		testProperties.put("foo", "${bar}");
+		testProperties.put("bar", "42");
+
+		assertThat(resolver.getProperty("foo"), equalTo("42"));
+		assertThat(resolver.getProperty("foo", Integer.class), equalTo(42));
+		assertThat(resolver.getProperty("missing"), nullValue());
+		long misses = resolver.getCacheMissCount();
+		long hits = resolver.getCacheHitCount();
+		assertThat(resolver.getProperty("foo"), equalTo("42"));
+		assertThat(resolver.getProperty("foo", Integer.class), equalTo(42));
+		assertThat(resolver.getProperty("missing"), nullValue());
+		assertThat(resolver.getCacheMissCount(), is(misses));
+		assertThat(resolver.getCacheHitCount(), is(hits + 3));
+
+		// content changes are only seen after clearing the cache
+		testProperties.put("missing", "found");
+		assertThat(resolver.getProperty("missing"), nullValue());
+		resolver.clearCache();
+		assertThat(resolver.getProperty("missing"), equalTo("found"));
+	}
+
+	@Test
+	public void getProperty_withCacheInvalidatedByPropertySourceChanges() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		resolver.setCacheResolvedProperties(true);
+		testProperties.put("foo", "bar");
+		assertThat(resolver.getProperty("foo"), equalTo("bar"));
+
+		propertySources.addFirst(new MockPropertySource("override").withProperty("foo", "baz"));
+		assertThat(resolver.getProperty("foo"), equalTo("baz"));
+		propertySources.replace("override", new MockPropertySource("override").withProperty("foo", "qux"));
+		assertThat(resolver.getProperty("foo"), equalTo("qux"));
+		propertySources.remove("override");
+		assertThat(resolver.getProperty("foo"), equalTo("bar"));
+		propertySources.addLast(new MockPropertySource("fallback").withProperty("other", "value"));
+		assertThat(resolver.getProperty("other"), equalTo("value"));
+	}
+
+	@Test
+	public void getProperty_withCacheDoesNotShareMutableValues() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		resolver.setCacheResolvedProperties(true);
+		testProperties.put("foo", "a,b");
+		String[] value = resolver.getProperty("foo", String[].class);
+		assertThat(value.length, is(2));
+		assertNotSame(value, resolver.getProperty("foo", String[].class));
+		assertThat(resolver.getCacheHitCount(), is(1L));
+	}
+
 
 	static interface SomeType { }
 	static class SpecificType implements SomeType { }
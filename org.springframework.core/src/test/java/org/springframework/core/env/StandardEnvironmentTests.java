@@ -113,6 +113,21 @@ public class StandardEnvironmentTests {
 		assertThat(sources.get(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME), instanceOf(SystemEnvironmentPropertySource.class));
 	}
 
+	@Test
+	public void propertyCache() {
+		StandardEnvironment env = new StandardEnvironment();
+		env.setCacheResolvedProperties(true);
+		env.getPropertySources().addFirst(new MockPropertySource().withProperty("foo", "bar"));
+		assertThat(env.getProperty("foo"), equalTo("bar"));
+		assertThat(env.getProperty("foo"), equalTo("bar"));
+		assertThat(env.getPropertyCacheMissCount(), is(1L));
+		assertThat(env.getPropertyCacheHitCount(), is(1L));
+
+		env.getPropertySources().addFirst(new MockPropertySource("override").withProperty("foo", "baz"));
+		assertThat(env.getProperty("foo"), equalTo("baz"));
+		assertThat(env.getPropertyCacheMissCount(), is(2L));
+	}
+
 	@Test
 	public void activeProfilesIsEmptyByDefault() {
 		assertThat(environment.getActiveProfiles().length, is(0));
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2006 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.core.io.support;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.FileNotFoundException;
@@ -28,6 +29,7 @@ import java.util.List;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 /**
  * If this test case fails, uncomment diagnostics in
@@ -113,6 +115,42 @@ public class PathMatchingResourcePatternResolverTests {
 		assertProtocolAndFilenames(resources, "jar", CLASSES_IN_COMMONSLOGGING);
 	}
 
+	@Test
+	public void testClasspathStarWithPatternInJarFromCache() throws IOException {
+		resolver.getResources("classpath*:org/apache/commons/logging/*.class");
+		assertEquals(0, resolver.getJarEntryPathsCacheHitCount());
+		Resource[] resources = resolver.getResources("classpath*:org/apache/commons/logging/*.class");
+		assertProtocolAndFilenames(resources, "jar", CLASSES_IN_COMMONSLOGGING);
+		long hitCount = resolver.getJarEntryPathsCacheHitCount();
+		assertTrue(hitCount > 0);
+		resolver.clearCache();
+		resources = resolver.getResources("classpath*:org/apache/commons/logging/*.class");
+		assertProtocolAndFilenames(resources, "jar", CLASSES_IN_COMMONSLOGGING);
+		assertEquals(hitCount, resolver.getJarEntryPathsCacheHitCount());
+	}
+
+	@Test
+	public void testClasspathStarWithPatternInJarWithoutCache() throws IOException {
+		resolver.setCacheJarEntries(false);
+		resolver.getResources("classpath*:org/apache/commons/logging/*.class");
+		Resource[] resources = resolver.getResources("classpath*:org/apache/commons/logging/*.class");
+		assertProtocolAndFilenames(resources, "jar", CLASSES_IN_COMMONSLOGGING);
+		assertEquals(0, resolver.getJarEntryPathsCacheHitCount());
+	}
+
+	@Test
+	public void testConcurrentResolutionSameAsSequential() throws IOException {
+		PathMatchingResourcePatternResolver concurrentResolver = new PathMatchingResourcePatternResolver();
+		concurrentResolver.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		String[] locationPatterns = new String[] {"classpath*:org/springframework/core/io/**/*.class",
+				"classpath*:org/apache/commons/logging/*.class", "classpath*:org/**/*Utils*.class"};
+		for (String locationPattern : locationPatterns) {
+			Resource[] expected = resolver.getResources(locationPattern);
+			assertTrue(expected.length > 0);
+			assertEquals(Arrays.asList(expected), Arrays.asList(concurrentResolver.getResources(locationPattern)));
+		}
+	}
+
 	private void assertProtocolAndFilename(Resource resource, String urlProtocol, String fileName) throws IOException {
 		assertProtocolAndFilenames(new Resource[] {resource}, urlProtocol, new String[] {fileName});
 	}
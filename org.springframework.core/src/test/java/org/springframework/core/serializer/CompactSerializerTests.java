@@ -0,0 +1,364 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+
+/**
+ * Unit tests for {@link CompactSerializer} and {@link CompactDeserializer}.
+ */
+public class CompactSerializerTests {
+
+	private final CompactSerializer serializer = new CompactSerializer();
+
+	private final CompactDeserializer deserializer = new CompactDeserializer();
+
+
+	@Test
+	public void simpleValues() throws IOException {
+		assertEquals("Testing", roundTrip("Testing"));
+		assertEquals("\u00e4\u4e2d\u0000x", roundTrip("\u00e4\u4e2d\u0000x"));
+		assertEquals(Integer.MIN_VALUE, roundTrip(Integer.MIN_VALUE));
+		assertEquals(Long.MAX_VALUE, roundTrip(Long.MAX_VALUE));
+		assertEquals(-1L, roundTrip(-1L));
+		assertEquals((short) -7, roundTrip((short) -7));
+		assertEquals((byte) 0x80, roundTrip((byte) 0x80));
+		assertEquals('\uffff', roundTrip('\uffff'));
+		assertEquals(Boolean.TRUE, roundTrip(true));
+		assertEquals(Float.NaN, roundTrip(Float.NaN));
+		assertEquals(-0.5d, roundTrip(-0.5d));
+		assertEquals(TimeUnit.SECONDS, roundTrip(TimeUnit.SECONDS));
+		assertEquals(new Date(1234567890L), roundTrip(new Date(1234567890L)));
+		assertEquals(new BigInteger("-123456789012345678901234567890"),
+				roundTrip(new BigInteger("-123456789012345678901234567890")));
+		assertEquals(new BigDecimal("12345.6789"), roundTrip(new BigDecimal("12345.6789")));
+		assertEquals(int.class, roundTrip(int.class));
+		assertEquals(String[].class, roundTrip(String[].class));
+	}
+
+	@Test
+	public void arraysAndCollections() throws IOException {
+		assertArrayEquals(new byte[] {1, -2, 3}, (byte[]) roundTrip(new byte[] {1, -2, 3}));
+		assertArrayEquals(new int[] {0, -1, Integer.MAX_VALUE}, (int[]) roundTrip(new int[] {0, -1, Integer.MAX_VALUE}));
+		assertArrayEquals(new double[] {1.5, -2.25}, (double[]) roundTrip(new double[] {1.5, -2.25}), 0);
+		assertTrue(Arrays.equals(new boolean[] {true, false}, (boolean[]) roundTrip(new boolean[] {true, false})));
+		String[] strings = (String[]) roundTrip(new String[] {"a", null, "b"});
+		assertArrayEquals(new String[] {"a", null, "b"}, strings);
+
+		List<Object> list = new ArrayList<Object>(Arrays.asList("a", 1, null, TimeUnit.DAYS));
+		assertEquals(list, roundTrip(list));
+		LinkedHashSet<String> set = new LinkedHashSet<String>(Arrays.asList("z", "y", "x"));
+		assertEquals(new ArrayList<String>(set), new ArrayList<Object>((LinkedHashSet<?>) roundTrip(set)));
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("key", list);
+		map.put("other", null);
+		assertEquals(map, roundTrip(map));
+		TreeMap<String, Integer> sorted = new TreeMap<String, Integer>(Collections.reverseOrder());
+		sorted.put("a", 1);
+		sorted.put("b", 2);
+		TreeMap<?, ?> result = (TreeMap<?, ?>) roundTrip(sorted);
+		assertEquals(sorted, result);
+		assertEquals("b", result.firstKey());
+	}
+
+	@Test
+	public void beanGraph() throws IOException {
+		Person parent = new Person("Juergen", 40);
+		Person child = new Person("Sam", 10);
+		child.parent = parent;
+		parent.children.add(child);
+		parent.children.add(child);
+		parent.tags = new String[] {"a", "b"};
+		parent.active = true;
+		parent.score = 0.75;
+		parent.initial = 'J';
+
+		Person result = (Person) roundTrip(parent);
+		assertEquals("Juergen", result.getName());
+		assertEquals(40, result.age);
+		assertTrue(result.active);
+		assertEquals(0.75, result.score, 0);
+		assertEquals('J', result.initial);
+		assertEquals(42, result.cached);
+		assertArrayEquals(new String[] {"a", "b"}, result.tags);
+		assertEquals(2, result.children.size());
+		assertSame(result.children.get(0), result.children.get(1));
+		assertSame(result, result.children.get(0).parent);
+		assertEquals("Sam", result.children.get(0).getName());
+	}
+
+	@Test
+	public void javaSerializationFallback() throws IOException {
+		LinkedHashMap<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("second", 2);
+		map.put("first", 1);
+		Object result = roundTrip(Collections.singletonList(map));
+		assertEquals(Collections.singletonList(map), result);
+		assertEquals(Arrays.asList("second", "first"),
+				new ArrayList<Object>(((LinkedHashMap<?, ?>) ((List<?>) result).get(0)).keySet()));
+	}
+
+	@Test
+	public void multipleFramesPerStream() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			large.append(i);
+		}
+		this.serializer.serialize("first", out);
+		this.serializer.serialize(large.toString(), out);
+		this.serializer.serialize(new Person("Mark", 30), out);
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		assertEquals("first", this.deserializer.deserialize(in));
+		assertEquals(large.toString(), this.deserializer.deserialize(in));
+		assertEquals("Mark", ((Person) this.deserializer.deserialize(in)).getName());
+		try {
+			this.deserializer.deserialize(in);
+			fail("Should have thrown EOFException");
+		}
+		catch (EOFException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void registeredClasses() throws IOException {
+		CompactSerializer serializer = new CompactSerializer(Person.class);
+		CompactDeserializer deserializer = new CompactDeserializer(getClass().getClassLoader(), Person.class);
+		ByteArrayOutputStream registered = new ByteArrayOutputStream();
+		serializer.serialize(new Person("Mark", 30), registered);
+		ByteArrayOutputStream unregistered = new ByteArrayOutputStream();
+		this.serializer.serialize(new Person("Mark", 30), unregistered);
+		assertTrue(registered.size() < unregistered.size());
+		Person result = (Person) deserializer.deserialize(new ByteArrayInputStream(registered.toByteArray()));
+		assertEquals("Mark", result.getName());
+		assertEquals(30, result.age);
+	}
+
+	@Test
+	public void smallerThanJavaSerialization() throws IOException {
+		Person person = new Person("Juergen", 40);
+		person.children.add(new Person("Sam", 10));
+		ByteArrayOutputStream compact = new ByteArrayOutputStream();
+		this.serializer.serialize(person, compact);
+		ByteArrayOutputStream java = new ByteArrayOutputStream();
+		new DefaultSerializer().serialize(person, java);
+		assertTrue(compact.size() < java.size() / 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nonSerializableObject() throws IOException {
+		this.serializer.serialize(new Object(), new ByteArrayOutputStream());
+	}
+
+	@Test(expected = NotSerializableException.class)
+	public void nonSerializableField() throws IOException {
+		this.serializer.serialize(Collections.singletonList(new Object()), new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IOException.class)
+	public void invalidStreamHeader() throws IOException {
+		this.deserializer.deserialize(new ByteArrayInputStream("Junk".getBytes()));
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedFrame() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.serializer.serialize(new Person("Mark", 30), out);
+		byte[] bytes = out.toByteArray();
+		this.deserializer.deserialize(new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+	}
+
+	@Test
+	public void negativeFrameLength() throws IOException {
+		assertInvalidFrame(new byte[] {(byte) 0xCA, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+	}
+
+	@Test
+	public void oversizedFrameLength() throws IOException {
+		assertInvalidFrame(new byte[] {(byte) 0xCA, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x1F});
+		this.deserializer.setMaxFrameSize(16);
+		assertInvalidFrame(new byte[] {(byte) 0xCA, 17, 0});
+	}
+
+	@Test
+	public void lengthBeyondFrameContent() throws IOException {
+		// string of 2^28 chars within a frame of 6 bytes
+		assertInvalidFrame(new byte[] {(byte) 0xCA, 6, CompactFormat.TAG_STRING,
+				(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01});
+		// char array of 2^28 elements
+		assertInvalidFrame(new byte[] {(byte) 0xCA, 7, CompactFormat.TAG_PRIMITIVE_ARRAY, CompactFormat.TAG_CHAR,
+				(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01});
+	}
+
+	@Test
+	public void nextFrameAfterInvalidFrame() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.serializer.serialize("first", out);
+		assertEquals("first", this.deserializer.deserialize(new ByteArrayInputStream(out.toByteArray())));
+		assertInvalidFrame(new byte[] {(byte) 0xCA, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+	}
+
+	@Test
+	public void fieldLayoutChange() throws IOException {
+		LayoutA original = new LayoutA();
+		original.name = "layout";
+		original.count = 3;
+		assertEquals(3, ((LayoutB) deserializeAs(original, LayoutA.class, LayoutB.class)).count);
+		try {
+			deserializeAs(original, LayoutA.class, LayoutC.class);
+			fail("Should have thrown InvalidClassException");
+		}
+		catch (InvalidClassException ex) {
+			assertEquals(LayoutC.class.getName(), ex.classname);
+		}
+	}
+
+	@Test
+	public void withSerializationConverters() {
+		SerializingConverter toBytes = new SerializingConverter(this.serializer);
+		DeserializingConverter fromBytes = new DeserializingConverter(this.deserializer);
+		assertEquals("Testing", fromBytes.convert(toBytes.convert("Testing")));
+		assertEquals("Mark", ((Person) fromBytes.convert(toBytes.convert(new Person("Mark", 30)))).getName());
+	}
+
+
+	private void assertInvalidFrame(byte[] frame) {
+		try {
+			this.deserializer.deserialize(new ByteArrayInputStream(frame));
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			assertFalse(ex instanceof EOFException);
+		}
+	}
+
+	/**
+	 * Serialize the given object and deserialize it as an instance of another class,
+	 * as if its class had been changed between serialization and deserialization.
+	 */
+	private Object deserializeAs(Object object, Class<?> writtenClass, Class<?> readClass) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.serializer.serialize(object, out);
+		String bytes = new String(out.toByteArray(), "ISO-8859-1");
+		assertEquals(writtenClass.getName().length(), readClass.getName().length());
+		bytes = bytes.replace(writtenClass.getName(), readClass.getName());
+		return this.deserializer.deserialize(new ByteArrayInputStream(bytes.getBytes("ISO-8859-1")));
+	}
+
+	private Object roundTrip(Object object) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.serializer.serialize(object, out);
+		return this.deserializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class NamedObject implements Serializable {
+
+		private String name;
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class Person extends NamedObject {
+
+		private int age;
+
+		private boolean active;
+
+		private double score;
+
+		private char initial;
+
+		private transient int cached = 42;
+
+		private String[] tags;
+
+		private Person parent;
+
+		private List<Person> children = new ArrayList<Person>();
+
+		private Person() {
+		}
+
+		public Person(String name, int age) {
+			((NamedObject) this).name = name;
+			this.age = age;
+		}
+	}
+
+
+
+	@SuppressWarnings("serial")
+	private static class LayoutA implements Serializable {
+
+		private String name;
+
+		private int count;
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class LayoutB implements Serializable {
+
+		private int count;
+
+		private String name;
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class LayoutC implements Serializable {
+
+		private int count;
+
+		private long extra;
+
+		private String name;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,16 @@
 
 package org.springframework.core.task;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import junit.framework.TestCase;
 
 import org.springframework.util.ConcurrencyThrottleSupport;
+import org.springframework.util.concurrent.ListenableFuture;
 
 /**
  * @author Rick Evans
@@ -74,6 +79,129 @@ public final class SimpleAsyncTaskExecutorTests extends TestCase {
 		}
 	}
 
+	public void testSubmitListenable() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		ListenableFuture<String> future = executor.submitListenable(new Callable<String>() {
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		});
+		assertTrue(future.get().startsWith(executor.getThreadNamePrefix()));
+		assertTrue(future.isDone());
+	}
+
+	public void testReuseThreads() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setReuseThreads(true);
+		executor.setDaemon(true);
+		Callable<Thread> currentThread = new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		};
+		Thread first = executor.submit(currentThread).get();
+		awaitIdle(first);
+		Thread second = executor.submit(currentThread).get();
+		assertSame(first, second);
+		assertEquals(1, executor.getCreatedThreadCount());
+	}
+
+	public void testPermitReleasedWhenThreadCannotBeCreated() throws Exception {
+		final AtomicBoolean failThreadCreation = new AtomicBoolean(true);
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				if (failThreadCreation.get()) {
+					throw new OutOfMemoryError("unable to create new native thread");
+				}
+				return new Thread(r);
+			}
+		});
+		executor.setConcurrencyLimit(1);
+		executor.setQueueCapacity(0);
+		for (int i = 0; i < 2; i++) {
+			try {
+				executor.execute(new NoOpRunnable());
+				fail("Should have thrown TaskRejectedException");
+			}
+			catch (TaskRejectedException ex) {
+				assertTrue(ex.getCause() instanceof OutOfMemoryError);
+			}
+		}
+		failThreadCreation.set(false);
+		final CountDownLatch executed = new CountDownLatch(1);
+		executor.execute(new Runnable() {
+			public void run() {
+				executed.countDown();
+			}
+		});
+		assertTrue(executed.await(10, TimeUnit.SECONDS));
+	}
+
+	public void testReusedThreadTerminatesAfterKeepAlive() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setReuseThreads(true);
+		executor.setKeepAliveSeconds(0);
+		executor.setDaemon(true);
+		Thread thread = executor.submit(new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		}).get();
+		thread.join(1000);
+		assertFalse(thread.isAlive());
+	}
+
+	public void testNonBlockingThrottleQueuesAndRejects() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setConcurrencyLimit(1);
+		executor.setQueueCapacity(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch completed = new CountDownLatch(2);
+		executor.execute(new Runnable() {
+			public void run() {
+				started.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				completed.countDown();
+			}
+		});
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		executor.execute(new Runnable() {
+			public void run() {
+				completed.countDown();
+			}
+		});
+		assertEquals(1, executor.getActiveCount());
+		assertEquals(1, executor.getQueuedCount());
+		try {
+			executor.execute(new NoOpRunnable());
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException expected) {
+		}
+		release.countDown();
+		assertTrue(completed.await(1, TimeUnit.SECONDS));
+		assertEquals(0, executor.getQueuedCount());
+		assertEquals(1, executor.getCreatedThreadCount());
+	}
+
+	/**
+	 * Wait until the given reusable thread is parked in its idle hand-off
+	 * wait, the only timed wait that it performs after running a task.
+	 */
+	private static void awaitIdle(Thread thread) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (thread.getState() != Thread.State.TIMED_WAITING) {
+			assertTrue("Thread did not become idle", System.currentTimeMillis() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
 	private void executeAndWait(SimpleAsyncTaskExecutor executor, Runnable task, Object monitor) {
 		synchronized (monitor) {
 			executor.execute(task);
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
@@ -38,8 +39,10 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SharedMetadataReaderFactory;
 import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
 
 /**
  * Unit tests demonstrating that the reflection-based {@link StandardAnnotationMetadata}
@@ -66,6 +69,32 @@ public class AnnotationMetadataTests {
 		doTestMethodAnnotationInfo(metadata);
 	}
 
+	@Test
+	public void testAsmAnnotationMetadataFromCacheDirectory() throws IOException {
+		File cacheDirectory = File.createTempFile("metadata", "");
+		cacheDirectory.delete();
+		try {
+			SharedMetadataReaderFactory metadataReaderFactory = new SharedMetadataReaderFactory();
+			metadataReaderFactory.setCacheDirectory(cacheDirectory);
+			AnnotationMetadata metadata =
+					metadataReaderFactory.getMetadataReader(AnnotatedComponent.class.getName()).getAnnotationMetadata();
+			doTestAnnotationInfo(metadata);
+			doTestMethodAnnotationInfo(metadata);
+			assertThat(cacheDirectory.list().length, is(1));
+
+			// read back from the cache directory instead of parsing the class file
+			metadataReaderFactory = new SharedMetadataReaderFactory();
+			metadataReaderFactory.setCacheDirectory(cacheDirectory);
+			metadata = metadataReaderFactory.getMetadataReader(AnnotatedComponent.class.getName()).getAnnotationMetadata();
+			doTestAnnotationInfo(metadata);
+			doTestMethodAnnotationInfo(metadata);
+			assertThat(cacheDirectory.list().length, is(1));
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+	}
+
 	/**
 	 * In order to preserve backward-compatibility, {@link StandardAnnotationMetadata}
 	 * defaults to return nested annotations and annotation arrays as actual
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.PatternMatchUtils;
+import org.springframework.util.PropertyPlaceholderHelper;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StopWatch;
+import org.springframework.util.StringUtils;
+import org.springframework.util.SystemPropertyUtils;
+import org.springframework.util.TypeUtils;
+
+/**
+ * Unit tests for {@link SharedMetadataReaderFactory}.
+ */
+public class SharedMetadataReaderFactoryTests {
+
+	private static final Class<?>[] TYPES = {Assert.class, ClassUtils.class, CollectionUtils.class,
+			DigestUtils.class, FileCopyUtils.class, FileSystemUtils.class, ObjectUtils.class, StringUtils.class,
+			ReflectionUtils.class, ResourceUtils.class, AntPathMatcher.class, PathMatcher.class,
+			LinkedMultiValueMap.class, MultiValueMap.class, StopWatch.class, SystemPropertyUtils.class,
+			PropertyPlaceholderHelper.class, PatternMatchUtils.class, NumberUtils.class, TypeUtils.class};
+
+
+	@Test
+	public void readersAreCached() throws Exception {
+		SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+		MetadataReader reader = factory.getMetadataReader(StringUtils.class.getName());
+		assertSame(reader, factory.getMetadataReader(StringUtils.class.getName()));
+		assertEquals(StringUtils.class.getName(), reader.getClassMetadata().getClassName());
+		assertEquals(1, factory.getCacheSize());
+
+		factory.clearCache();
+		assertEquals(0, factory.getCacheSize());
+		assertNotSame(reader, factory.getMetadataReader(StringUtils.class.getName()));
+	}
+
+	@Test
+	public void cacheLimit() throws Exception {
+		SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+		factory.setCacheLimit(0);
+		MetadataReader reader = factory.getMetadataReader(StringUtils.class.getName());
+		assertNotSame(reader, factory.getMetadataReader(StringUtils.class.getName()));
+		assertEquals(0, factory.getCacheSize());
+
+		// one entry per segment
+		factory.setCacheLimit(16);
+		for (Class<?> type : TYPES) {
+			factory.getMetadataReader(type.getName());
+		}
+		assertTrue(factory.getCacheSize() <= 16);
+	}
+
+	@Test
+	public void concurrentAccess() throws Exception {
+		final SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<MetadataReader>> futures = new ArrayList<Future<MetadataReader>>();
+			for (int i = 0; i < 100; i++) {
+				final Class<?> type = TYPES[i % TYPES.length];
+				futures.add(executor.submit(new Callable<MetadataReader>() {
+					public MetadataReader call() throws Exception {
+						return factory.getMetadataReader(type.getName());
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				MetadataReader reader = futures.get(i).get();
+				assertEquals(TYPES[i % TYPES.length].getName(), reader.getClassMetadata().getClassName());
+				assertSame(reader, factory.getMetadataReader(TYPES[i % TYPES.length].getName()));
+			}
+			assertEquals(TYPES.length, factory.getCacheSize());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void corruptCacheEntryIsReplaced() throws Exception {
+		File cacheDirectory = File.createTempFile("metadata", "");
+		cacheDirectory.delete();
+		try {
+			SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+			factory.setCacheDirectory(cacheDirectory);
+			factory.getMetadataReader(StopWatch.class.getName());
+			File[] entries = cacheDirectory.listFiles();
+			assertEquals(1, entries.length);
+			FileCopyUtils.copy("garbage".getBytes(), new FileOutputStream(entries[0]));
+
+			factory = new SharedMetadataReaderFactory();
+			factory.setCacheDirectory(cacheDirectory);
+			MetadataReader reader = factory.getMetadataReader(StopWatch.class.getName());
+			assertEquals(StopWatch.class.getName(), reader.getClassMetadata().getClassName());
+			assertTrue(entries[0].length() > "garbage".length());
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+	}
+
+	@Test
+	public void serializedCacheEntryIsNotDeserialized() throws Exception {
+		File cacheDirectory = File.createTempFile("metadata", "");
+		cacheDirectory.delete();
+		try {
+			SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+			factory.setCacheDirectory(cacheDirectory);
+			factory.getMetadataReader(StopWatch.class.getName());
+			File[] entries = cacheDirectory.listFiles();
+			ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(entries[0]));
+			oos.writeObject(new DeserializationProbe());
+			oos.close();
+
+			DeserializationProbe.deserialized = false;
+			factory = new SharedMetadataReaderFactory();
+			factory.setCacheDirectory(cacheDirectory);
+			MetadataReader reader = factory.getMetadataReader(StopWatch.class.getName());
+			assertEquals(StopWatch.class.getName(), reader.getClassMetadata().getClassName());
+			assertFalse(DeserializationProbe.deserialized);
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+	}
+
+	@Test
+	public void primitiveAnnotationValuesFromCacheDirectory() throws Exception {
+		File cacheDirectory = File.createTempFile("metadata", "");
+		cacheDirectory.delete();
+		try {
+			SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+			factory.setCacheDirectory(cacheDirectory);
+			factory.getMetadataReader(PrimitiveValuesBean.class.getName());
+
+			factory = new SharedMetadataReaderFactory();
+			factory.setCacheDirectory(cacheDirectory);
+			Map<String, Object> attributes = factory.getMetadataReader(PrimitiveValuesBean.class.getName())
+					.getAnnotationMetadata().getAnnotationAttributes(PrimitiveValues.class.getName());
+			assertArrayEquals(new int[] {1, 2, 3}, (int[]) attributes.get("ints"));
+			assertArrayEquals(new char[] {'a', 'b'}, (char[]) attributes.get("chars"));
+			assertEquals(Boolean.TRUE, attributes.get("flag"));
+			assertEquals(Long.MAX_VALUE, attributes.get("number"));
+			assertEquals(1.5d, attributes.get("fraction"));
+			assertEquals("\u00e9t\u00e9", attributes.get("text"));
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class DeserializationProbe implements Serializable {
+
+		static boolean deserialized;
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			deserialized = true;
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface PrimitiveValues {
+
+		int[] ints();
+
+		char[] chars();
+
+		boolean flag();
+
+		long number();
+
+		double fraction();
+
+		String text();
+	}
+
+
+	@PrimitiveValues(ints = {1, 2, 3}, chars = {'a', 'b'}, flag = true, number = Long.MAX_VALUE,
+			fraction = 1.5d, text = "\u00e9t\u00e9")
+	private static class PrimitiveValuesBean {
+	}
+
+}
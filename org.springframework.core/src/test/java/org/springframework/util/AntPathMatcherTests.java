@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -541,6 +541,55 @@ public class AntPathMatcherTests {
 		paths.clear();
 	}
 
+	@Test
+	public void tokenizePathMatchesStringUtils() {
+		String[] paths = {"", "/", "//", "/a/b/c", "a/b/c/", " /a / b /", "/a//b", "/ /a", "\ta/\tb"};
+		for (String path : paths) {
+			assertArrayEquals(path, StringUtils.tokenizeToStringArray(path, "/"), pathMatcher.tokenizePath(path));
+		}
+		pathMatcher.setPathSeparator(".");
+		assertArrayEquals(new String[] {"a", "b", "c"}, pathMatcher.tokenizePath("a.b..c."));
+	}
+
+	@Test
+	public void tokenizePathTrimsLikeStringTrim() {
+		// Control characters are trimmed, non-breaking and other Unicode spaces are not.
+		String[] paths = {"/a/\u0001/b", "/\u0001a\u0001/b", "/a/\u00A0/b", "/\u00A0a/b\u00A0", "/a/\u2003/b",
+				"/\u001Fa\u2003/b"};
+		for (String path : paths) {
+			assertArrayEquals(path, StringUtils.tokenizeToStringArray(path, "/"), pathMatcher.tokenizePath(path));
+		}
+		assertArrayEquals(new String[] {"a", "b"}, pathMatcher.tokenizePath("/a/\u0001/b"));
+		assertArrayEquals(new String[] {"a", "\u00A0", "b"}, pathMatcher.tokenizePath("/a/\u00A0/b"));
+	}
+
+	@Test
+	public void patternCacheDeactivatedAboveThreshold() {
+		for (int i = 0; i < 65536 + 1; i++) {
+			pathMatcher.match("/*-" + i + "/foo", "/bar");
+		}
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+		assertTrue(pathMatcher.match("/foo/*", "/foo/bar"));
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+	}
+
+	@Test
+	public void patternCacheTurnedOff() {
+		pathMatcher.setCachePatterns(false);
+		assertTrue(pathMatcher.match("/hotels/{hotel}", "/hotels/1"));
+		assertEquals("1", pathMatcher.extractUriTemplateVariables("/hotels/{hotel}", "/hotels/1").get("hotel"));
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+	}
+
+	@Test
+	public void patternCacheReusesStringMatchers() {
+		pathMatcher.setCachePatterns(true);
+		assertTrue(pathMatcher.match("/hotels/{hotel}", "/hotels/1"));
+		assertTrue(pathMatcher.match("/hotels/{hotel}", "/hotels/2"));
+		assertEquals(2, pathMatcher.stringMatcherCache.size());
+		assertSame(pathMatcher.getStringMatcher("{hotel}"), pathMatcher.getStringMatcher("{hotel}"));
+	}
+
 
 
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PathPatternIndexTests {
+
+	private static final String[] PATTERNS = {
+			"/", "/test", "/test/", "/t?st", "/test/*", "/test/**", "/test/**/*.jsp", "/**", "/**/bla",
+			"/hotels/{hotel}", "/hotels/{hotel}/bookings/{booking}", "/hotels/{hotel:\\d+}.*", "/hotels.*",
+			"/hotels/new", "/docs/*/commit.html", "/docs/**/**/*.html", "/a/*/b/**/c/*", "/*.html",
+			"/bla/**/bla", "/x/{a}-{b}", "/**/*.xml", "/download/**/*.*", "/static/v1.0/*", "test"};
+
+	private static final String[] PATHS = {
+			"/", "", "/test", "/test/", "/tst", "/tast", "/test/foo", "/test/foo/bar", "/test/foo/bar.jsp",
+			"/hotels", "/hotels/", "/hotels/1", "/hotels/1.json", "/hotels/abc.json", "/hotels/1/bookings/2",
+			"/hotels.json", "/hotels/new", "/docs/cvs/commit.html", "/docs/cvs/commit", "/docs/a/b/c.html",
+			"/a/1/b/c/2", "/a/1/b/x/y/c/2", "/a/1/b/c/", "/foo.html", "/bla/bla", "/bla/x/y/bla", "/x/1-2",
+			"/x/y/z.xml", "/download/a/b.zip", "/static/v1.0/app.js", "test", "test/", "//test//foo"};
+
+	private AntPathMatcher pathMatcher;
+
+	private PathPatternIndex index;
+
+	@Before
+	public void setUp() {
+		this.pathMatcher = new AntPathMatcher();
+		this.index = new PathPatternIndex(this.pathMatcher);
+		for (String pattern : PATTERNS) {
+			this.index.addPattern(pattern);
+		}
+	}
+
+	@Test
+	public void matchingPatternsSameAsPathMatcher() {
+		for (String path : PATHS) {
+			List<String> expected = new ArrayList<String>();
+			for (String pattern : PATTERNS) {
+				if (this.pathMatcher.match(pattern, path)) {
+					expected.add(pattern);
+				}
+			}
+			assertEquals(path, expected, this.index.getMatchingPatterns(path));
+		}
+	}
+
+	@Test
+	public void candidatesNarrowedByLiteralSegments() {
+		List<String> candidates = this.index.getCandidatePatterns("/hotels/new");
+		assertTrue(candidates.contains("/hotels/new"));
+		assertTrue(candidates.contains("/hotels/{hotel}"));
+		assertTrue(candidates.contains("/**"));
+		assertFalse(candidates.contains("/test/*"));
+		assertFalse(candidates.contains("/docs/*/commit.html"));
+		assertFalse(candidates.contains("/hotels/{hotel}/bookings/{booking}"));
+	}
+
+	@Test
+	public void suffixPatternCandidates() {
+		assertTrue(this.index.getCandidatePatterns("/hotels.json").contains("/hotels.*"));
+		assertFalse(this.index.getCandidatePatterns("/hotelsjson").contains("/hotels.*"));
+		assertFalse(this.index.getCandidatePatterns("/hotels").contains("/hotels.*"));
+	}
+
+	@Test
+	public void duplicatePatternsIgnored() {
+		int size = this.index.size();
+		this.index.addPattern("/test");
+		assertEquals(size, this.index.size());
+	}
+
+	@Test
+	public void unindexedForCustomPathMatcher() {
+		PathMatcher custom = new PathMatcher() {
+			public boolean isPattern(String path) {
+				return false;
+			}
+			public boolean match(String pattern, String path) {
+				return path.startsWith(pattern);
+			}
+			public boolean matchStart(String pattern, String path) {
+				return true;
+			}
+			public String extractPathWithinPattern(String pattern, String path) {
+				return path;
+			}
+			public Map<String, String> extractUriTemplateVariables(String pattern, String path) {
+				return Collections.emptyMap();
+			}
+			public Comparator<String> getPatternComparator(String path) {
+				return null;
+			}
+			public String combine(String pattern1, String pattern2) {
+				return pattern1 + pattern2;
+			}
+		};
+		PathPatternIndex index = new PathPatternIndex(custom);
+		index.addPattern("/a");
+		index.addPattern("/b");
+		assertEquals(Arrays.asList("/a", "/b"), index.getCandidatePatterns("/c"));
+		assertEquals(Collections.singletonList("/a"), index.getMatchingPatterns("/a/b"));
+	}
+
+	@Test
+	public void unindexedForAntPathMatcherSubclass() {
+		AntPathMatcher caseInsensitive = new AntPathMatcher() {
+			@Override
+			public boolean match(String pattern, String path) {
+				return super.match(pattern.toLowerCase(), path.toLowerCase());
+			}
+		};
+		PathPatternIndex index = new PathPatternIndex(caseInsensitive);
+		index.addPattern("/hotels/*");
+		index.addPattern("/bookings");
+		assertEquals(Arrays.asList("/hotels/*", "/bookings"), index.getCandidatePatterns("/Hotels/1"));
+		assertEquals(Collections.singletonList("/hotels/*"), index.getMatchingPatterns("/Hotels/1"));
+	}
+
+}
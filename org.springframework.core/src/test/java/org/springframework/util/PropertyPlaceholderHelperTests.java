@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -103,4 +103,60 @@ public class PropertyPlaceholderHelperTests {
 		assertEquals("foo=bar,bar=${bar}", helper.replacePlaceholders(text, props));
 	}
 
+	@Test
+	public void testDefaultValue() {
+		PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}", ":", true);
+		Properties props = new Properties();
+		props.setProperty("foo", "bar");
+
+		assertEquals("bar-default", helper.replacePlaceholders("${foo:x}-${bar:default}", props));
+	}
+
+	@Test
+	public void testUnresolvedNestedPlaceholderKeepsOriginalText() {
+		String text = "foo=${b${inner}}";
+		Properties props = new Properties();
+		props.setProperty("inner", "ar");
+
+		assertEquals("foo=${b${inner}}", this.helper.replacePlaceholders(text, props));
+	}
+
+	@Test
+	public void testUnterminatedPlaceholderIsLiteral() {
+		Properties props = new Properties();
+		props.setProperty("foo", "bar");
+
+		assertEquals("bar ${foo", this.helper.replacePlaceholders("${foo} ${foo", props));
+	}
+
+	@Test
+	public void testRepeatedResolutionUsesCurrentValues() {
+		String text = "foo=${foo},${foo}";
+		Properties props = new Properties();
+		props.setProperty("foo", "bar");
+		assertEquals("foo=bar,bar", this.helper.replacePlaceholders(text, props));
+
+		props.setProperty("foo", "baz");
+		assertEquals("foo=baz,baz", this.helper.replacePlaceholders(text, props));
+	}
+
+	@Test
+	public void testRepeatedNestedPlaceholder() {
+		String text = "${b${inner}}-${b${inner}}";
+		Properties props = new Properties();
+		props.setProperty("bar", "bar");
+		props.setProperty("inner", "ar");
+
+		assertEquals("bar-bar", this.helper.replacePlaceholders(text, props));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCircularReference() {
+		Properties props = new Properties();
+		props.setProperty("foo", "${bar}");
+		props.setProperty("bar", "${foo}");
+
+		this.helper.replacePlaceholders("${foo}", props);
+	}
+
 }
@@ -20,7 +20,9 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -82,9 +84,10 @@ public class ReflectionUtilsTests {
 	}
 
 	@Test(expected = IllegalStateException.class)
-	public void setFieldIllegal() {
+	public void setFieldIllegal() throws Exception {
 		final TestBeanSubclassWithNewField testBean = new TestBeanSubclassWithNewField();
-		final Field field = ReflectionUtils.findField(TestBeanSubclassWithNewField.class, "name", String.class);
+		// Not through findField, since the shared Field might have been made accessible already
+		final Field field = TestBean.class.getDeclaredField("name");
 		ReflectionUtils.setField(field, testBean, "FooBar");
 	}
 
@@ -236,6 +239,50 @@ public class ReflectionUtilsTests {
 		assertEquals("Found 2 absquatulates", 2, absquatulateCount);
 	}
 
+	@Test
+	public void doWithUserDeclaredMethods() {
+		ListSavingMethodCallback mc = new ListSavingMethodCallback();
+		ReflectionUtils.doWithMethods(ComparableBean.class, mc, ReflectionUtils.USER_DECLARED_METHODS);
+		assertEquals(1, mc.getMethods().size());
+		assertEquals(String.class, mc.getMethods().get(0).getParameterTypes()[0]);
+
+		mc = new ListSavingMethodCallback();
+		ReflectionUtils.doWithMethods(ComparableBean.class, mc, ReflectionUtils.NON_BRIDGED_METHODS);
+		assertTrue(mc.getMethodNames().contains("hashCode"));
+		assertEquals(1, mc.getMethodNames().indexOf("compareTo") + 1 - mc.getMethodNames().lastIndexOf("compareTo"));
+	}
+
+	@Test
+	public void declaredMembersAreCached() throws Exception {
+		ListSavingMethodCallback mc = new ListSavingMethodCallback();
+		ReflectionUtils.doWithMethods(TestBeanSubclass.class, mc);
+		ListSavingMethodCallback mc2 = new ListSavingMethodCallback();
+		ReflectionUtils.doWithMethods(TestBeanSubclass.class, mc2);
+		assertSame(mc.getMethods().get(0), mc2.getMethods().get(0));
+
+		ReflectionUtils.clearCache();
+		ListSavingMethodCallback mc3 = new ListSavingMethodCallback();
+		ReflectionUtils.doWithMethods(TestBeanSubclass.class, mc3);
+		assertNotSame(mc.getMethods().get(0), mc3.getMethods().get(0));
+		assertEquals(mc.getMethods(), mc3.getMethods());
+	}
+
+	@Test
+	public void foundMembersAreShared() throws Exception {
+		Method method = ReflectionUtils.findMethod(TestBeanSubclass.class, "absquatulate");
+		assertSame(method, ReflectionUtils.findMethod(TestBeanSubclass.class, "absquatulate"));
+		Field field = ReflectionUtils.findField(TestBeanSubclassWithNewField.class, "magic");
+		assertSame(field, ReflectionUtils.findField(TestBeanSubclassWithNewField.class, "magic"));
+		final List<Field> fields = new LinkedList<Field>();
+		ReflectionUtils.doWithFields(TestBeanSubclassWithNewField.class, new ReflectionUtils.FieldCallback() {
+			public void doWith(Field field) {
+				fields.add(field);
+			}
+		});
+		assertTrue(fields.contains(field));
+		assertSame(field, fields.get(fields.indexOf(field)));
+	}
+
 	@Test
 	public void findMethod() throws Exception {
 		assertNotNull(ReflectionUtils.findMethod(B.class, "bar", String.class));
@@ -376,6 +423,13 @@ public class ReflectionUtilsTests {
 		}
 	}
 
+	private static class ComparableBean implements Comparable<String> {
+
+		public int compareTo(String other) {
+			return 0;
+		}
+	}
+
 	private static class TestBeanSubclassWithPublicField extends TestBean {
 
 		@SuppressWarnings("unused")
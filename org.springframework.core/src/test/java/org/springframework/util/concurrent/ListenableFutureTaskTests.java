@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ListenableFutureTask}.
+ */
+public class ListenableFutureTaskTests {
+
+	@Test
+	public void success() {
+		final String s = "Hello World";
+		ListenableFutureTask<String> task = new ListenableFutureTask<String>(new Callable<String>() {
+			public String call() {
+				return s;
+			}
+		});
+		RecordingCallback callback = new RecordingCallback();
+		task.addCallback(callback);
+		assertNull(callback.result);
+		task.run();
+		assertEquals(s, callback.result);
+		assertNull(callback.failure);
+	}
+
+	@Test
+	public void failure() {
+		final IOException ex = new IOException(":-(");
+		ListenableFutureTask<String> task = new ListenableFutureTask<String>(new Callable<String>() {
+			public String call() throws Exception {
+				throw ex;
+			}
+		});
+		RecordingCallback callback = new RecordingCallback();
+		task.addCallback(callback);
+		task.run();
+		assertSame(ex, callback.failure);
+		assertNull(callback.result);
+	}
+
+	@Test
+	public void cancellation() {
+		ListenableFutureTask<String> task = new ListenableFutureTask<String>(new Runnable() {
+			public void run() {
+				fail("Should not have been run");
+			}
+		}, "result");
+		RecordingCallback callback = new RecordingCallback();
+		task.addCallback(callback);
+		task.cancel(false);
+		task.run();
+		assertTrue(callback.failure instanceof CancellationException);
+	}
+
+	@Test
+	public void callbackAddedAfterCompletion() {
+		ListenableFutureTask<String> task = new ListenableFutureTask<String>(new Runnable() {
+			public void run() {
+			}
+		}, "result");
+		task.run();
+		RecordingCallback callback = new RecordingCallback();
+		task.addCallback(callback);
+		assertEquals("result", callback.result);
+		RecordingCallback secondCallback = new RecordingCallback();
+		task.addCallback(secondCallback);
+		assertEquals("result", secondCallback.result);
+	}
+
+
+	private static class RecordingCallback implements ListenableFutureCallback<String> {
+
+		private String result;
+
+		private Throwable failure;
+
+		public void onSuccess(String result) {
+			this.result = result;
+		}
+
+		public void onFailure(Throwable ex) {
+			this.failure = ex;
+		}
+	}
+
+}
@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +34,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathPatternIndex;
 import org.springframework.util.ReflectionUtils.MethodFilter;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.HandlerMethodSelector;
@@ -60,6 +62,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	private final MultiValueMap<String, T> urlMap = new LinkedMultiValueMap<String, T>();
 
+	private volatile MappingIndex mappingIndex;
+
 
 	/**
 	 * Whether to detect handler methods in beans in ancestor ApplicationContexts.
@@ -182,6 +186,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		}
 
 		this.handlerMethods.put(mapping, handlerMethod);
+		this.mappingIndex = null;
 		if (logger.isInfoEnabled()) {
 			logger.info("Mapped \"" + mapping + "\" onto " + handlerMethod);
 		}
@@ -199,6 +204,21 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	protected abstract Set<String> getMappingPathPatterns(T mapping);
 
+	/**
+	 * Return the URL path patterns that a lookup path has to match, according to
+	 * this handler mapping's {@link #getPathMatcher() PathMatcher}, for the given
+	 * mapping to possibly match a request. Used to narrow down the mappings to
+	 * check when there is no direct path match.
+	 * <p>The default implementation returns {@code null}, indicating that the
+	 * mapping cannot be narrowed down by path and needs to be checked for every
+	 * request without a direct path match.
+	 * @param mapping the mapping to return candidate patterns for
+	 * @return the candidate patterns, or {@code null} if not applicable
+	 */
+	protected Set<String> getCandidatePathPatterns(T mapping) {
+		return null;
+	}
+
 	/**
 	 * Look up a handler method for the given request.
 	 */
@@ -241,8 +261,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		}
 
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings
-			addMatchingMappings(this.handlerMethods.keySet(), matches, request);
+			// Go through all mappings that may match the lookup path
+			addMatchingMappings(getMappingIndex().getCandidateMappings(lookupPath), matches, request);
 		}
 
 		if (!matches.isEmpty()) {
@@ -282,6 +302,19 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		}
 	}
 
+	/**
+	 * Return the index over all registered mappings, (re-)building it if handler
+	 * methods have been registered or the PathMatcher has changed since.
+	 */
+	private MappingIndex getMappingIndex() {
+		MappingIndex index = this.mappingIndex;
+		if (index == null || index.patternIndex.getPathMatcher() != getPathMatcher()) {
+			index = new MappingIndex();
+			this.mappingIndex = index;
+		}
+		return index;
+	}
+
 	/**
 	 * Check if a mapping matches the current request and return a (potentially
 	 * new) mapping with conditions relevant to the current request.
@@ -344,6 +377,44 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	}
 
 
+	/**
+	 * Index from candidate path patterns to the registered mappings declaring them.
+	 * Mappings without candidate patterns are checked for every lookup path.
+	 */
+	private class MappingIndex {
+
+		private final PathPatternIndex patternIndex = new PathPatternIndex(getPathMatcher());
+
+		private final MultiValueMap<String, T> mappingsByPattern = new LinkedMultiValueMap<String, T>();
+
+		private final List<T> unindexedMappings = new ArrayList<T>();
+
+		public MappingIndex() {
+			for (T mapping : handlerMethods.keySet()) {
+				Set<String> patterns = getCandidatePathPatterns(mapping);
+				if (patterns == null) {
+					this.unindexedMappings.add(mapping);
+				}
+				else {
+					for (String pattern : patterns) {
+						this.patternIndex.addPattern(pattern);
+						this.mappingsByPattern.add(pattern, mapping);
+					}
+				}
+			}
+		}
+
+		public Collection<T> getCandidateMappings(String lookupPath) {
+			Set<T> candidates = new LinkedHashSet<T>();
+			for (String pattern : this.patternIndex.getCandidatePatterns(lookupPath)) {
+				candidates.addAll(this.mappingsByPattern.get(pattern));
+			}
+			candidates.addAll(this.unindexedMappings);
+			return candidates;
+		}
+	}
+
+
 	private class MatchComparator implements Comparator<Match> {
 
 		private final Comparator<T> comparator;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 
 package org.springframework.web.servlet.handler;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
@@ -29,6 +28,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.BeansException;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.PathPatternIndex;
 import org.springframework.web.servlet.HandlerExecutionChain;
 import org.springframework.web.servlet.HandlerMapping;
 
@@ -45,7 +45,9 @@ import org.springframework.web.servlet.HandlerMapping;
  *
  * <p>Will search all path patterns to find the most exact match for the
  * current request path. The most exact match is defined as the longest
- * path pattern that matches the current request path.
+ * path pattern that matches the current request path. Candidate patterns
+ * are determined through a {@link PathPatternIndex} rather than by matching
+ * every registered pattern against the request path.
  *
  * @author Juergen Hoeller
  * @author Arjen Poutsma
@@ -59,6 +61,8 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
 	private final Map<String, Object> handlerMap = new LinkedHashMap<String, Object>();
 
+	private volatile PathPatternIndex patternIndex;
+
 
 	/**
 	 * Set the root handler for this handler mapping, that is,
@@ -155,12 +159,7 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 			return buildPathExposingHandler(handler, urlPath, urlPath, null);
 		}
 		// Pattern match?
-		List<String> matchingPatterns = new ArrayList<String>();
-		for (String registeredPattern : this.handlerMap.keySet()) {
-			if (getPathMatcher().match(registeredPattern, urlPath)) {
-				matchingPatterns.add(registeredPattern);
-			}
-		}
+		List<String> matchingPatterns = getPatternIndex().getMatchingPatterns(urlPath);
 		String bestPatternMatch = null;
 		Comparator<String> patternComparator = getPathMatcher().getPatternComparator(urlPath);
 		if (!matchingPatterns.isEmpty()) {
@@ -198,6 +197,22 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		return null;
 	}
 
+	/**
+	 * Return the index over all registered URL paths, (re-)building it if
+	 * handlers have been registered or the PathMatcher has changed since.
+	 */
+	private PathPatternIndex getPatternIndex() {
+		PathPatternIndex index = this.patternIndex;
+		if (index == null || index.getPathMatcher() != getPathMatcher()) {
+			index = new PathPatternIndex(getPathMatcher());
+			for (String registeredPattern : this.handlerMap.keySet()) {
+				index.addPattern(registeredPattern);
+			}
+			this.patternIndex = index;
+		}
+		return index;
+	}
+
 	/**
 	 * Validate the given handler against the current request.
 	 * <p>The default implementation is empty. Can be overridden in subclasses,
@@ -310,6 +325,7 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 			}
 			else {
 				this.handlerMap.put(urlPath, resolvedHandler);
+				this.patternIndex = null;
 				if (logger.isInfoEnabled()) {
 					logger.info("Mapped URL path [" + urlPath + "] onto " + getHandlerDescription(handler));
 				}
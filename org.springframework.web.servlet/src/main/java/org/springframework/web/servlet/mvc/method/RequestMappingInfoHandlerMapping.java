@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2012 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.web.servlet.mvc.method;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -53,6 +54,35 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getPatternsCondition().getPatterns();
 	}
 
+	/**
+	 * Get the URL path patterns that a lookup path needs to match for this
+	 * {@link RequestMappingInfo} to match, including the ".*" suffix and the
+	 * trailing slash variants of each pattern.
+	 * @return the candidate patterns; or {@code null} for a mapping without
+	 * patterns, which matches any path
+	 */
+	@Override
+	protected Set<String> getCandidatePathPatterns(RequestMappingInfo info) {
+		Set<String> patterns = info.getPatternsCondition().getPatterns();
+		if (patterns.isEmpty()) {
+			return null;
+		}
+		Set<String> result = new LinkedHashSet<String>(patterns.size() * 3);
+		for (String pattern : patterns) {
+			if (!StringUtils.hasLength(pattern)) {
+				return null;
+			}
+			result.add(pattern);
+			if (pattern.indexOf('.') == -1) {
+				result.add(pattern + ".*");
+			}
+			if (!pattern.endsWith("/")) {
+				result.add(pattern + "/");
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and 
 	 * return a (potentially new) instance with conditions that match the 